@@ -0,0 +1,86 @@
+package benchmark;
+
+import model.Expense;
+import model.Roommate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ExpenseManager;
+import service.Transfer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the balance queries and the settlement plan of a household with a settled-in history.
+ *
+ * @author Kris Bali
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BalanceQueryBenchmark {
+    /** The number of roommates in the household */
+    @Param({"10", "1000", "100000"})
+    public int roommateCount;
+
+    private ExpenseManager manager;
+    private Roommate payer;
+    private Roommate participant;
+    private boolean forward;
+
+    @Setup
+    public void build(){
+        List<Roommate> roommates = Households.roommates(this.roommateCount);
+        this.manager = Households.manager(roommates);
+        this.manager.addExpenses(Households.expenses(roommates, this.roommateCount * 4, 4));
+        this.payer = roommates.get(0);
+        this.participant = roommates.get(roommates.size() - 1);
+        this.manager.getSettlementPlan();
+    }
+
+    @Benchmark
+    public List<Roommate> roommatesWhoOweMoney(){
+        return this.manager.getRoommatesWhoOweMoney();
+    }
+
+    @Benchmark
+    public List<Roommate> roommatesWhoAreOwedMoney(){
+        return this.manager.getRoommatesWhoAreOwedMoney();
+    }
+
+    @Benchmark
+    public List<Roommate> biggestDebtors(){
+        return this.manager.getBiggestDebtors(10);
+    }
+
+    @Benchmark
+    public List<Roommate> biggestCreditors(){
+        return this.manager.getBiggestCreditors(10);
+    }
+
+    /**
+     * Changes two balances, then reads the plan, which only redoes the transfers of the roommates that changed.
+     */
+    @Benchmark
+    public List<Transfer> settlementPlanAfterExpense(){
+        // Alternate directions so balances don't drift over the run
+        Roommate from = this.forward ? this.payer : this.participant;
+        Roommate to = this.forward ? this.participant : this.payer;
+        this.forward = !this.forward;
+        this.manager.addExpense(new Expense("Refund", BigDecimal.ONE, from, List.of(to)));
+        return this.manager.getSettlementPlan();
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the benchmarks with the GC profiler on, so every result comes with its allocation rate and bytes allocated per
+ * operation, and writes the results as JSON to results/jmh-yyyyMMdd-HHmmss.json. Two result files can be compared
+ * with any JMH result viewer, or by reading the "score" of each benchmark and parameter set.
+ *
+ * Any regular JMH option can still be passed and overrides these defaults, for example:
+ *      java -jar benchmarks/target/benchmarks.jar ExpenseManagerBenchmark -p groupSize=8 -rff results/before.json
+ *
+ * @author Kris Bali
+ */
+public class BenchmarkMain {
+    /** The directory result files are written to */
+    private static final Path RESULTS_DIRECTORY = Paths.get("results");
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Files.createDirectories(RESULTS_DIRECTORY);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTS_DIRECTORY.resolve("jmh-" + stamp + ".json").toString());
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import model.Expense;
+import model.Roommate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ExpenseManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding an expense to a manager, for expenses split among groups of different sizes.
+ *
+ * @author Kris Bali
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpenseManagerBenchmark {
+    /** The number of participants of each expense */
+    @Param({"2", "8", "64", "512"})
+    public int groupSize;
+
+    /** The number of distinct expenses cycled through */
+    private static final int EXPENSES = 4096;
+
+    private List<Roommate> roommates;
+    private List<Expense> expenses;
+    private ExpenseManager manager;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generate(){
+        this.roommates = Households.roommates(Math.max(this.groupSize, 16));
+        this.expenses = Households.expenses(this.roommates, EXPENSES, this.groupSize);
+    }
+
+    /**
+     * Starts every iteration with an empty history, so the history doesn't grow for the whole run. The roommates keep
+     * the balances of the iteration before as their starting balances, which doesn't change what adding costs.
+     */
+    @Setup(Level.Iteration)
+    public void reset(){
+        this.manager = Households.manager(this.roommates);
+        this.next = 0;
+    }
+
+    @Benchmark
+    public void addExpense(){
+        this.manager.addExpense(this.expenses.get(this.next));
+        this.next = (this.next + 1) & (EXPENSES - 1);
+    }
+
+    @Benchmark
+    public long costPerPerson(){
+        Expense expense = this.expenses.get(this.next);
+        this.next = (this.next + 1) & (EXPENSES - 1);
+        return expense.costPerPersonCents() + expense.costPerPerson().scale();
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import model.Roommate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ExpenseCursor;
+import service.ExpenseManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading totals and scanning the history of managers with large histories.
+ *
+ * @author Kris Bali
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    /** The number of expenses in the history */
+    @Param({"10000", "1000000"})
+    public int historySize;
+
+    private ExpenseManager manager;
+
+    @Setup
+    public void build(){
+        List<Roommate> roommates = Households.roommates(8);
+        this.manager = Households.manager(roommates);
+        this.manager.addExpenses(Households.expenses(roommates, this.historySize, 4));
+    }
+
+    @Benchmark
+    public BigDecimal totalExpenses(){
+        return this.manager.getTotalExpenses();
+    }
+
+    /**
+     * Adds up the history expense by expense, the way a report that can't use the running totals would.
+     */
+    @Benchmark
+    public long scanHistory(){
+        long total = 0;
+        ExpenseCursor cursor = this.manager.getExpenses(0, Integer.MAX_VALUE);
+        while (cursor.next()){
+            total += cursor.getCostCents();
+        }
+        return total;
+    }
+}
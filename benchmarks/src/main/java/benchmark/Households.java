@@ -0,0 +1,75 @@
+package benchmark;
+
+import model.Expense;
+import model.Roommate;
+import service.ExpenseManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the roommates and expenses the benchmarks run against. Everything is generated from a fixed seed, so every
+ * run of a benchmark works on the same data.
+ *
+ * @author Kris Bali
+ */
+final class Households {
+    /** The seed every generator starts from */
+    static final long SEED = 42;
+
+    private Households(){
+    }
+
+    /**
+     * @param count The number of roommates
+     * @return Roommates named "Roommate 0" to "Roommate count-1", each with a $0.00 balance
+     */
+    static List<Roommate> roommates(int count){
+        List<Roommate> roommates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            roommates.add(new Roommate("Roommate " + i, BigDecimal.ZERO));
+        }
+        return roommates;
+    }
+
+    /**
+     * @param roommates The roommates of the household
+     * @return An empty manager the roommates have been added to
+     */
+    static ExpenseManager manager(List<Roommate> roommates){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        for (Roommate roommate : roommates){
+            manager.addRoommate(roommate);
+        }
+        return manager;
+    }
+
+    /**
+     * @param roommates The roommates of the household
+     * @param count The number of expenses
+     * @param groupSize The number of participants of each expense
+     * @return Random expenses between the roommates, one a minute
+     */
+    static List<Expense> expenses(List<Roommate> roommates, int count, int groupSize){
+        SplittableRandom random = new SplittableRandom(SEED);
+        String[] names = {"Groceries", "Rent", "Utilities", "Internet", "Dishes", "Takeout"};
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        int participants = Math.min(groupSize, roommates.size());
+
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            int first = random.nextInt(roommates.size());
+            List<Roommate> group = new ArrayList<>(participants);
+            for (int j = 0; j < participants; j++){
+                group.add(roommates.get((first + j) % roommates.size()));
+            }
+            BigDecimal cost = BigDecimal.valueOf(random.nextInt(1, 100_000), 2);
+            expenses.add(new Expense(names[i % names.length], cost, group.get(0), group, start.plusSeconds(60L * i)));
+        }
+        return expenses;
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import model.Split;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures working out the shares of a split into reused buffers, which should show no allocation under the GC
+ * profiler however many participants there are.
+ *
+ * @author Kris Bali
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SplitBenchmark {
+    /** The number of participants of the split */
+    @Param({"3", "64", "4096"})
+    public int participants;
+
+    private Split equal;
+    private Split weighted;
+    private long[] shares;
+    private long[] scratch;
+    private long cost;
+
+    @Setup(Level.Trial)
+    public void generate(){
+        Random random = new Random(16);
+        int[] weights = new int[this.participants];
+        for (int i = 0; i < weights.length; i++){
+            weights[i] = 1 + random.nextInt(100);
+        }
+        this.equal = Split.equal();
+        this.weighted = Split.weighted(weights);
+        this.shares = new long[this.participants];
+        this.scratch = new long[this.participants];
+    }
+
+    @Benchmark
+    public long equalShares(){
+        this.equal.shares(++this.cost, this.participants, this.shares, this.scratch);
+        return this.shares[0];
+    }
+
+    @Benchmark
+    public long weightedShares(){
+        this.weighted.shares(++this.cost, this.participants, this.shares, this.scratch);
+        return this.shares[0];
+    }
+}
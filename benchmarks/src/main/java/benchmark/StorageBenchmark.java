@@ -0,0 +1,148 @@
+package benchmark;
+
+import model.Expense;
+import model.Roommate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ExpenseManager;
+import storage.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures saving expenses through the journal of a FileManager and loading a saved household back.
+ *
+ * Every save forces the journal to disk, so the save numbers depend mostly on the disk the benchmark runs on. In
+ * write-behind mode saves only wait for room in the queue, and the writer forces one group of saves at a time.
+ *
+ * @author Kris Bali
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StorageBenchmark {
+    /** The number of expenses saved before the household is loaded */
+    @Param({"1000", "100000"})
+    public int savedExpenses;
+
+    /** The number of distinct expenses cycled through when saving */
+    private static final int EXPENSES = 1024;
+    /** The number of expenses in each journal record of the saved household */
+    private static final int BATCH = 100;
+
+    private List<Roommate> roommates;
+    private List<Expense> expenses;
+    private Path directory;
+    private Path savedDirectory;
+    private FileManager fileManager;
+    private ExpenseManager manager;
+    private Path writeBehindDirectory;
+    private FileManager writeBehindFileManager;
+    private ExpenseManager writeBehindManager;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void save() throws IOException {
+        this.roommates = Households.roommates(8);
+        this.expenses = Households.expenses(this.roommates, EXPENSES, 4);
+
+        this.savedDirectory = Files.createTempDirectory("roomiepay-load");
+        List<Roommate> saved = Households.roommates(8);
+        try (FileManager fileManager = new FileManager(this.savedDirectory)){
+            ExpenseManager manager = fileManager.load();
+            for (Roommate roommate : saved){
+                manager.addRoommate(roommate);
+            }
+            List<Expense> history = Households.expenses(saved, this.savedExpenses, 4);
+            // Saved in batches, so loading replays many journal records instead of one huge one
+            for (int i = 0; i < history.size(); i += BATCH){
+                manager.addExpenses(history.subList(i, Math.min(i + BATCH, history.size())));
+            }
+        }
+    }
+
+    /**
+     * Opens an empty household for every iteration, so the journal doesn't grow for the whole run. The roommates keep
+     * the balances of the iteration before as their starting balances, which doesn't change what saving costs.
+     */
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        this.directory = Files.createTempDirectory("roomiepay-save");
+        this.fileManager = new FileManager(this.directory);
+        this.manager = this.fileManager.load();
+        for (Roommate roommate : this.roommates){
+            this.manager.addRoommate(roommate);
+        }
+
+        this.writeBehindDirectory = Files.createTempDirectory("roomiepay-save-behind");
+        this.writeBehindFileManager = new FileManager(this.writeBehindDirectory, FileManager.DEFAULT_SNAPSHOT_INTERVAL, FileManager.DEFAULT_QUEUE_CAPACITY, FileManager.DEFAULT_FLUSH_INTERVAL);
+        this.writeBehindManager = this.writeBehindFileManager.load();
+        for (Roommate roommate : Households.roommates(8)){
+            this.writeBehindManager.addRoommate(roommate);
+        }
+        this.next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        this.fileManager.close();
+        delete(this.directory);
+        this.writeBehindFileManager.close();
+        delete(this.writeBehindDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSaved() throws IOException {
+        delete(this.savedDirectory);
+    }
+
+    @Benchmark
+    public void saveExpense(){
+        this.manager.addExpense(this.expenses.get(this.next));
+        this.next = (this.next + 1) & (EXPENSES - 1);
+    }
+
+    @Benchmark
+    public void saveExpenseWriteBehind(){
+        this.writeBehindManager.addExpense(this.expenses.get(this.next));
+        this.next = (this.next + 1) & (EXPENSES - 1);
+    }
+
+    @Benchmark
+    public ExpenseManager load() throws IOException {
+        try (FileManager fileManager = new FileManager(this.savedDirectory)){
+            return fileManager.load();
+        }
+    }
+
+    /**
+     * @param directory A directory to delete with everything in it
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)){
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator){
+                Files.delete(path);
+            }
+        }
+    }
+}
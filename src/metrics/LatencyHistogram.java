@@ -0,0 +1,150 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long an operation takes, in nanoseconds, so percentiles can be read without keeping every sample.
+ *
+ * Durations are counted in log-linear buckets: every power of 2 is split into 8 equal buckets, so a percentile read
+ * back is never more than 12.5% above the real duration, from a nanosecond up to centuries, in under 500 counters.
+ * Recording a duration is a few arithmetic steps and atomic increments; it never allocates or locks, so any number of
+ * threads can record into the same histogram and it can stay on in production.
+ *
+ * @author Kris Bali
+ */
+public class LatencyHistogram {
+    /** The number of bits of a duration kept below its highest bit, 3 gives 8 buckets per power of 2 */
+    private static final int SUB_BUCKET_BITS = 3;
+    /** The number of buckets per power of 2 */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** The number of buckets, enough for any positive long */
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** The number of durations counted in each bucket */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** The number of durations recorded */
+    private final AtomicLong count = new AtomicLong();
+    /** The sum of every duration recorded, in nanoseconds */
+    private final AtomicLong total = new AtomicLong();
+    /** The longest duration recorded, in nanoseconds */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records how long an operation took.
+     * @param nanos The duration in nanoseconds, a negative duration is counted as 0
+     */
+    public void record(long nanos){
+        long duration = Math.max(nanos, 0);
+        this.counts.incrementAndGet(bucketOf(duration));
+        this.count.incrementAndGet();
+        this.total.addAndGet(duration);
+
+        long longest = this.max.get();
+        while (duration > longest && !this.max.compareAndSet(longest, duration)){
+            longest = this.max.get();
+        }
+    }
+
+    /**
+     * Records how long an operation took since it started.
+     * @param startNanos The value of System.nanoTime() when the operation started
+     */
+    public void recordSince(long startNanos){
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return The number of durations recorded
+     */
+    public long getCount(){
+        return this.count.get();
+    }
+
+    /**
+     * @return The average duration in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getMean(){
+        long count = this.count.get();
+        return count == 0 ? 0 : this.total.get() / count;
+    }
+
+    /**
+     * @return The longest duration recorded in nanoseconds
+     */
+    public long getMax(){
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile The percentile to read, from 0 to 100
+     * @return A duration in nanoseconds at least as long as the given percentage of the durations recorded, never
+     * more than 12.5% longer than needed and never longer than the longest duration, 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile){
+        if (percentile < 0 || percentile > 100){
+            throw new IllegalArgumentException("Percentile must be from 0 to 100");
+        }
+
+        long count = this.count.get();
+        if (count == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            seen += this.counts.get(bucket);
+            if (seen >= rank){
+                return Math.min(highestIn(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return The count, mean, main percentiles and maximum as they are right now
+     */
+    public LatencySummary summarize(){
+        return new LatencySummary(getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getPercentile(99.9), getMax());
+    }
+
+    /**
+     * Forgets every duration recorded. Durations recorded while resetting may or may not be kept.
+     */
+    public void reset(){
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            this.counts.set(bucket, 0);
+        }
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * @param duration A duration in nanoseconds, not negative
+     * @return The bucket the duration is counted in
+     */
+    static int bucketOf(long duration){
+        if (duration < SUB_BUCKETS){
+            return (int) duration;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(duration);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (duration >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucket A bucket
+     * @return The longest duration counted in the bucket, in nanoseconds
+     */
+    static long highestIn(int bucket){
+        if (bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + subBucket) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
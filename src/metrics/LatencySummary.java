@@ -0,0 +1,82 @@
+package metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * The count, mean, main percentiles and maximum of a LatencyHistogram at one point in time, all durations in
+ * nanoseconds. Shown as a composite attribute by JMX consoles.
+ *
+ * @author Kris Bali
+ */
+public class LatencySummary {
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    /**
+     * LatencySummary constructor
+     * @param count The number of durations recorded
+     * @param mean The average duration
+     * @param p50 The median duration
+     * @param p90 The 90th percentile duration
+     * @param p99 The 99th percentile duration
+     * @param p999 The 99.9th percentile duration
+     * @param max The longest duration
+     */
+    @ConstructorParameters({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public LatencySummary(long count, long mean, long p50, long p90, long p99, long p999, long max){
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount(){
+        return this.count;
+    }
+
+    public long getMean(){
+        return this.mean;
+    }
+
+    public long getP50(){
+        return this.p50;
+    }
+
+    public long getP90(){
+        return this.p90;
+    }
+
+    public long getP99(){
+        return this.p99;
+    }
+
+    public long getP999(){
+        return this.p999;
+    }
+
+    public long getMax(){
+        return this.max;
+    }
+
+    @Override
+    public String toString(){
+        return "count=" + this.count + " mean=" + micros(this.mean) + " p50=" + micros(this.p50) + " p90=" + micros(this.p90)
+                + " p99=" + micros(this.p99) + " p99.9=" + micros(this.p999) + " max=" + micros(this.max);
+    }
+
+    /**
+     * @param nanos A duration in nanoseconds
+     * @return The duration in microseconds with one decimal, like "12.3us"
+     */
+    private static String micros(long nanos){
+        return (nanos / 1000) + "." + (nanos % 1000 / 100) + "us";
+    }
+}
@@ -0,0 +1,279 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Latency histograms and counters for the service and storage layers.
+ *
+ * Managers and file managers record into the shared instance unless they are given their own. Recording never
+ * allocates or locks, so the metrics are always on. They can be read over JMX once registered, or as text, either on
+ * demand with dump() or every so often with startDump().
+ *
+ * Example:
+ *      Metrics.shared().register("default");
+ *      Metrics.shared().startDump(System.out::print, Duration.ofMinutes(1));
+ *
+ * @author Kris Bali
+ */
+public class Metrics implements MetricsMXBean {
+    /** The domain the metrics are registered under over JMX */
+    public static final String JMX_DOMAIN = "roomiepay";
+    /** The metrics recorded by every manager that wasn't given its own */
+    private static final Metrics SHARED = new Metrics();
+    /** Runs the periodic text dumps */
+    private static final ScheduledExecutorService DUMPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "roomiepay-metrics-dump");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LatencyHistogram addExpense = new LatencyHistogram();
+    private final LatencyHistogram addExpenses = new LatencyHistogram();
+    private final LatencyHistogram journalWrite = new LatencyHistogram();
+    private final LatencyHistogram groupCommit = new LatencyHistogram();
+    private final LatencyHistogram snapshotWrite = new LatencyHistogram();
+    private final LatencyHistogram snapshotLoad = new LatencyHistogram();
+    private final LatencyHistogram replay = new LatencyHistogram();
+    private final LongAdder expensesApplied = new LongAdder();
+    private final LongAdder roommatesTouched = new LongAdder();
+    private final LongAdder bytesPersisted = new LongAdder();
+    private final LongAdder recordsReplayed = new LongAdder();
+    private final LongAdder groupsCommitted = new LongAdder();
+    private final LongAdder recordsCommitted = new LongAdder();
+
+    /**
+     * @return The metrics recorded by every manager that wasn't given its own
+     */
+    public static Metrics shared(){
+        return SHARED;
+    }
+
+    /**
+     * Records a single expense being added.
+     * @param startNanos The value of System.nanoTime() when adding the expense started
+     * @param roommates The number of roommate balances the expense changed
+     */
+    public void recordAddExpense(long startNanos, int roommates){
+        this.addExpense.recordSince(startNanos);
+        this.expensesApplied.increment();
+        this.roommatesTouched.add(roommates);
+    }
+
+    /**
+     * Records a batch of expenses being added.
+     * @param startNanos The value of System.nanoTime() when adding the batch started
+     * @param expenses The number of expenses in the batch
+     * @param roommates The number of roommate balances the batch changed
+     */
+    public void recordAddExpenses(long startNanos, int expenses, int roommates){
+        this.addExpenses.recordSince(startNanos);
+        this.expensesApplied.add(expenses);
+        this.roommatesTouched.add(roommates);
+    }
+
+    /**
+     * Records a record being appended to the journal.
+     * @param startNanos The value of System.nanoTime() when writing the record started
+     * @param bytes The size of the record in bytes
+     */
+    public void recordJournalWrite(long startNanos, long bytes){
+        this.journalWrite.recordSince(startNanos);
+        this.bytesPersisted.add(bytes);
+    }
+
+    /**
+     * Records a group of records being appended to the journal with one write and one force, in write-behind mode.
+     * @param startNanos The value of System.nanoTime() when writing the group started
+     * @param records The number of records in the group
+     * @param bytes The size of the group in bytes
+     */
+    public void recordGroupCommit(long startNanos, int records, long bytes){
+        this.groupCommit.recordSince(startNanos);
+        this.groupsCommitted.increment();
+        this.recordsCommitted.add(records);
+        this.bytesPersisted.add(bytes);
+    }
+
+    /**
+     * Records a snapshot being written.
+     * @param startNanos The value of System.nanoTime() when writing the snapshot started
+     * @param bytes The size of the snapshot in bytes
+     */
+    public void recordSnapshotWrite(long startNanos, long bytes){
+        this.snapshotWrite.recordSince(startNanos);
+        this.bytesPersisted.add(bytes);
+    }
+
+    /**
+     * Records the newest valid snapshot being read while loading.
+     * @param startNanos The value of System.nanoTime() when reading snapshots started
+     */
+    public void recordSnapshotLoad(long startNanos){
+        this.snapshotLoad.recordSince(startNanos);
+    }
+
+    /**
+     * Records the journal being replayed while loading.
+     * @param startNanos The value of System.nanoTime() when the replay started
+     * @param records The number of records replayed
+     */
+    public void recordReplay(long startNanos, long records){
+        this.replay.recordSince(startNanos);
+        this.recordsReplayed.add(records);
+    }
+
+    @Override
+    public long getExpensesApplied(){
+        return this.expensesApplied.sum();
+    }
+
+    @Override
+    public long getRoommatesTouched(){
+        return this.roommatesTouched.sum();
+    }
+
+    @Override
+    public long getBytesPersisted(){
+        return this.bytesPersisted.sum();
+    }
+
+    @Override
+    public long getRecordsReplayed(){
+        return this.recordsReplayed.sum();
+    }
+
+    @Override
+    public long getGroupsCommitted(){
+        return this.groupsCommitted.sum();
+    }
+
+    @Override
+    public long getRecordsCommitted(){
+        return this.recordsCommitted.sum();
+    }
+
+    @Override
+    public LatencySummary getAddExpenseLatency(){
+        return this.addExpense.summarize();
+    }
+
+    @Override
+    public LatencySummary getAddExpensesLatency(){
+        return this.addExpenses.summarize();
+    }
+
+    @Override
+    public LatencySummary getJournalWriteLatency(){
+        return this.journalWrite.summarize();
+    }
+
+    @Override
+    public LatencySummary getGroupCommitLatency(){
+        return this.groupCommit.summarize();
+    }
+
+    @Override
+    public LatencySummary getSnapshotWriteLatency(){
+        return this.snapshotWrite.summarize();
+    }
+
+    @Override
+    public LatencySummary getSnapshotLoadLatency(){
+        return this.snapshotLoad.summarize();
+    }
+
+    @Override
+    public LatencySummary getReplayLatency(){
+        return this.replay.summarize();
+    }
+
+    @Override
+    public void reset(){
+        this.addExpense.reset();
+        this.addExpenses.reset();
+        this.journalWrite.reset();
+        this.groupCommit.reset();
+        this.snapshotWrite.reset();
+        this.snapshotLoad.reset();
+        this.replay.reset();
+        this.expensesApplied.reset();
+        this.roommatesTouched.reset();
+        this.bytesPersisted.reset();
+        this.recordsReplayed.reset();
+        this.groupsCommitted.reset();
+        this.recordsCommitted.reset();
+    }
+
+    /**
+     * Publishes the metrics over JMX as roomiepay:type=Metrics,name=[name].
+     * @param name The name that tells these metrics apart from other registered metrics
+     * @return The name the metrics were registered under
+     * @throws JMException If the name is invalid or already taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)){
+            throw new InstanceAlreadyExistsException("Metrics are already registered as " + objectName);
+        }
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Stops publishing metrics over JMX.
+     * @param name The name the metrics were registered with
+     * @throws JMException If nothing is registered under that name
+     */
+    public static void unregister(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+    }
+
+    /**
+     * @param name The name of some metrics
+     * @return The JMX name of the metrics
+     */
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * @return Every counter and latency histogram as text, one per line
+     */
+    public String dump(){
+        return "expensesApplied=" + getExpensesApplied() + " roommatesTouched=" + getRoommatesTouched()
+                + " bytesPersisted=" + getBytesPersisted() + " recordsReplayed=" + getRecordsReplayed()
+                + " groupsCommitted=" + getGroupsCommitted() + " recordsCommitted=" + getRecordsCommitted() + "\n"
+                + "addExpense " + getAddExpenseLatency() + "\n"
+                + "addExpenses " + getAddExpensesLatency() + "\n"
+                + "journalWrite " + getJournalWriteLatency() + "\n"
+                + "groupCommit " + getGroupCommitLatency() + "\n"
+                + "snapshotWrite " + getSnapshotWriteLatency() + "\n"
+                + "snapshotLoad " + getSnapshotLoadLatency() + "\n"
+                + "replay " + getReplayLatency() + "\n";
+    }
+
+    /**
+     * Hands a text dump of the metrics to an output every period, on a background thread.
+     * @param output Where each dump goes, for example System.out::print or a logger
+     * @param period The time between dumps
+     * @return The scheduled dump, cancel it to stop dumping
+     */
+    public ScheduledFuture<?> startDump(Consumer<String> output, Duration period){
+        if (period.isZero() || period.isNegative()){
+            throw new IllegalArgumentException("The time between dumps must be above 0");
+        }
+        return DUMPER.scheduleAtFixedRate(() -> output.accept(dump()), period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,79 @@
+package metrics;
+
+/**
+ * The metrics of RoomiePay as seen over JMX, for example in JConsole or VisualVM under "roomiepay". Every latency is
+ * in nanoseconds.
+ *
+ * @author Kris Bali
+ */
+public interface MetricsMXBean {
+    /**
+     * @return The number of expenses applied to balances
+     */
+    long getExpensesApplied();
+
+    /**
+     * @return The number of roommate balances changed by those expenses
+     */
+    long getRoommatesTouched();
+
+    /**
+     * @return The number of bytes written to journals and snapshots
+     */
+    long getBytesPersisted();
+
+    /**
+     * @return The number of journal records replayed while loading
+     */
+    long getRecordsReplayed();
+
+    /**
+     * @return The number of groups of records written to journals in write-behind mode
+     */
+    long getGroupsCommitted();
+
+    /**
+     * @return The number of records in those groups
+     */
+    long getRecordsCommitted();
+
+    /**
+     * @return How long adding a single expense takes
+     */
+    LatencySummary getAddExpenseLatency();
+
+    /**
+     * @return How long adding a batch of expenses takes
+     */
+    LatencySummary getAddExpensesLatency();
+
+    /**
+     * @return How long appending a record to the journal and forcing it to disk takes
+     */
+    LatencySummary getJournalWriteLatency();
+
+    /**
+     * @return How long appending a group of records to the journal and forcing it to disk takes, in write-behind mode
+     */
+    LatencySummary getGroupCommitLatency();
+
+    /**
+     * @return How long writing a snapshot takes
+     */
+    LatencySummary getSnapshotWriteLatency();
+
+    /**
+     * @return How long reading the newest valid snapshot takes while loading
+     */
+    LatencySummary getSnapshotLoadLatency();
+
+    /**
+     * @return How long replaying the journal after the snapshot takes while loading
+     */
+    LatencySummary getReplayLatency();
+
+    /**
+     * Sets every counter and histogram back to zero.
+     */
+    void reset();
+}
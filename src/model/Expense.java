@@ -1,8 +1,9 @@
 package model;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -29,6 +30,8 @@ import java.util.List;
  *          Robert is owed $20.00.
  *          Each roommate, excluding Robert, now has a balance of -$5.00, meaning each roommate owes $5.00 to the system.
  *
+ * The cost doesn't have to be split equally, see Split for weighted, percentage and exact-amount splits.
+ *
  * Full core money management logic documentation explained in service/ExpenseManager.java
  *
  * @author Kris Bali
@@ -36,21 +39,60 @@ import java.util.List;
 public class Expense {
     /** The name of the expense */
     private String expenseName;
-    /** The cost of the expense */
-    private BigDecimal cost;
+    /** The cost of the expense in cents */
+    private long costCents;
+    /** The largest share a participant pays for this expense in cents */
+    private long costPerPersonCents;
+    /** How the cost is divided among the participants */
+    private Split split;
+    /** The share of each participant in cents, or null for an equal split, whose shares are worked out when read */
+    private long[] shareCents;
     /** The roommate that will pay for the entire expense */
     private Roommate payer;
-    /** The list of roommates that will contribute to the payment of this expense, can include the payer */
-    private List<Roommate> participants;
+    /** The roommates that will contribute to the payment of this expense, can include the payer */
+    private Roommate[] participants;
+    /** A read-only list view of "participants" */
+    private List<Roommate> participantView;
+    /** The IDs the participants had when the expense was created, -1 for a participant not added to a manager yet */
+    private int[] participantIds;
+    /** The ID the payer had when the expense was created, -1 if not added to a manager yet */
+    private int payerId;
+    /** The moment the expense was paid */
+    private Instant timestamp;
 
     /**
-     * Expense constructor
+     * Expense constructor for an expense paid right now
      * @param expenseName The name of the expense
      * @param cost The cost of the expense
      * @param payer The roommate that will pay for the entire expense
      * @param participants The list of roommates that will contribute to the payment of the expense, can include the payer
      */
     public Expense(String expenseName, BigDecimal cost, Roommate payer, List<Roommate> participants){
+        this(expenseName, cost, payer, participants, Instant.now());
+    }
+
+    /**
+     * Expense constructor
+     * @param expenseName The name of the expense
+     * @param cost The cost of the expense
+     * @param payer The roommate that will pay for the entire expense
+     * @param participants The list of roommates that will contribute to the payment of the expense, can include the payer
+     * @param timestamp The moment the expense was paid
+     */
+    public Expense(String expenseName, BigDecimal cost, Roommate payer, List<Roommate> participants, Instant timestamp){
+        this(expenseName, cost, payer, participants, Split.equal(), timestamp);
+    }
+
+    /**
+     * Expense constructor for an expense that isn't split equally
+     * @param expenseName The name of the expense
+     * @param cost The cost of the expense
+     * @param payer The roommate that will pay for the entire expense
+     * @param participants The list of roommates that will contribute to the payment of the expense, can include the payer
+     * @param split How the cost is divided among the participants
+     * @param timestamp The moment the expense was paid
+     */
+    public Expense(String expenseName, BigDecimal cost, Roommate payer, List<Roommate> participants, Split split, Instant timestamp){
         if (expenseName == null || expenseName.isBlank()){
             throw new IllegalArgumentException("No expense described");
         }
@@ -67,10 +109,36 @@ public class Expense {
             throw new IllegalArgumentException("Please provide 1 or more participants that contribute to this expense");
         }
 
+        if (timestamp == null){
+            throw new IllegalArgumentException("Please provide the time this expense was paid");
+        }
+
+        if (split == null){
+            throw new IllegalArgumentException("Please provide how to split this expense");
+        }
+
         this.expenseName = expenseName;
-        this.cost = cost.setScale(2, RoundingMode.HALF_UP);
+        this.costCents = Money.toCents(cost);
         this.payer = payer;
-        this.participants = new ArrayList<>(participants);
+        this.payerId = payer.getId();
+        this.participants = participants.toArray(new Roommate[0]);
+        this.participantView = Collections.unmodifiableList(Arrays.asList(this.participants));
+        this.participantIds = new int[this.participants.length];
+        for (int i = 0; i < this.participants.length; i++){
+            this.participantIds[i] = this.participants[i].getId();
+        }
+        split.check(this.costCents, this.participants.length);
+        this.split = split;
+        if (split.getKind() == Split.Kind.EQUAL){
+            this.costPerPersonCents = Money.divideCeiling(this.costCents, this.participants.length);
+        } else {
+            this.shareCents = new long[this.participants.length];
+            split.shares(this.costCents, this.participants.length, this.shareCents, new long[this.participants.length]);
+            for (long share : this.shareCents){
+                this.costPerPersonCents = Math.max(this.costPerPersonCents, share);
+            }
+        }
+        this.timestamp = timestamp;
     }
 
     /**
@@ -84,7 +152,14 @@ public class Expense {
      * @return The cost of the expense
      */
     public BigDecimal getCost() {
-        return this.cost;
+        return Money.toBigDecimal(this.costCents);
+    }
+
+    /**
+     * @return The cost of the expense in cents
+     */
+    public long getCostCents(){
+        return this.costCents;
     }
 
     /**
@@ -95,28 +170,112 @@ public class Expense {
     }
 
     /**
-     * @return The list of roommates that will contribute to the payment of the expense
+     * @return The moment the expense was paid
+     */
+    public Instant getTimestamp(){
+        return this.timestamp;
+    }
+
+    /**
+     * @return A read-only list of the roommates that will contribute to the payment of the expense, shared by every
+     * call so nothing is copied
      */
     public List<Roommate> getParticipants(){
-        return new ArrayList<>(this.participants);
+        return this.participantView;
     }
 
     /**
-     * @return The cost a roommate must pay for this expense
+     * @return The number of roommates that will contribute to the payment of the expense
+     */
+    public int getParticipantCount(){
+        return this.participants.length;
+    }
+
+    /**
+     * Reads a single participant without copying the list of participants.
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The participant at the specified position
+     */
+    public Roommate getParticipant(int index){
+        return this.participants[index];
+    }
+
+    /**
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The ID the participant had when the expense was created, -1 if they weren't added to a manager yet
+     */
+    public int getParticipantId(int index){
+        return this.participantIds[index];
+    }
+
+    /**
+     * @return The ID the payer had when the expense was created, -1 if they weren't added to a manager yet
+     */
+    public int getPayerId(){
+        return this.payerId;
+    }
+
+    /**
+     * @return How the cost is divided among the participants
+     */
+    public Split getSplit(){
+        return this.split;
+    }
+
+    /**
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The share of the cost the participant pays in cents. The shares add up to exactly the cost
+     */
+    public long getShareCents(int index){
+        if (this.shareCents == null){
+            if (index < 0 || index >= this.participants.length){
+                throw new IndexOutOfBoundsException("No participant at position " + index);
+            }
+            return Split.equalShare(this.costCents, this.participants.length, index);
+        }
+        return this.shareCents[index];
+    }
+
+    /**
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The share of the cost the participant pays
+     */
+    public BigDecimal getShare(int index){
+        return Money.toBigDecimal(getShareCents(index));
+    }
+
+    /**
+     * @return The most any participant pays for this expense
      */
     public BigDecimal costPerPerson(){
-        return this.cost.divide(BigDecimal.valueOf(this.participants.size()), 2, RoundingMode.CEILING);
+        return Money.toBigDecimal(this.costPerPersonCents);
+    }
+
+    /**
+     * @return The most any participant pays for this expense in cents, which for an equal split is the cost divided
+     * by the number of participants rounded up to the next cent
+     */
+    public long costPerPersonCents(){
+        return this.costPerPersonCents;
     }
 
     /**
-     * @return The amount of extra funds after over paying this expense
+     * Shares always add up to the cost exactly, so nobody is overcharged any more. This only says what rounding every
+     * share of an equal split up used to overcharge; other splits were never rounded that way, so it is $0.00 for them.
+     * @return The amount that would be collected on top of the cost if every participant of an equal split paid
+     * costPerPerson, or $0.00 for any other split
+     * @deprecated Shares add up to the cost, see getShare
      */
+    @Deprecated
     public BigDecimal extraMoney(){
-        return this.cost.subtract(BigDecimal.valueOf(3).multiply(costPerPerson())).abs();
+        if (this.split.getKind() != Split.Kind.EQUAL){
+            return Money.toBigDecimal(0);
+        }
+        return Money.toBigDecimal(Money.subtract(Money.multiply(this.costPerPersonCents, this.participants.length), this.costCents));
     }
 
     @Override
     public String toString(){
-        return this.expenseName + " - $" + this.cost + " to be paid by " + this.payer.getName() + " split among " + this.participants.size() + " people";
+        return this.expenseName + " - $" + getCost() + " to be paid by " + this.payer.getName() + " split among " + this.participants.length + " people";
     }
 }
@@ -0,0 +1,189 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Represents an amount of money as a whole number of cents stored in a primitive long.
+ * All arithmetic is exact and overflow-checked, an overflow throws an ArithmeticException instead of wrapping.
+ *
+ * The static helpers work directly on cent values so the balance hot path can do its math without allocating,
+ * while the Money value itself and BigDecimal are only used at the edges of the API.
+ *
+ * Example:
+ *      $19.99 is stored as 1999 cents.
+ *      Money.of(BigDecimal.valueOf(19.99)).getCents() returns 1999.
+ *      Money.ofCents(1999).toBigDecimal() returns 19.99.
+ *
+ * @author Kris Bali
+ */
+public final class Money implements Comparable<Money> {
+    /** A monetary amount of $0.00 */
+    public static final Money ZERO = new Money(0);
+
+    /** The number of decimal places money is kept to */
+    public static final int SCALE = 2;
+
+    /** The amount of money in cents */
+    private final long cents;
+
+    /**
+     * Money constructor
+     * @param cents The amount of money in cents
+     */
+    private Money(long cents){
+        this.cents = cents;
+    }
+
+    /**
+     * @param cents The amount of money in cents
+     * @return A Money instance holding the specified number of cents
+     */
+    public static Money ofCents(long cents){
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * @param amount A monetary amount, rounded half up to 2 decimal places
+     * @return A Money instance holding the amount
+     */
+    public static Money of(BigDecimal amount){
+        return ofCents(toCents(amount));
+    }
+
+    /**
+     * @return The amount of money in cents
+     */
+    public long getCents(){
+        return this.cents;
+    }
+
+    /**
+     * @param other The amount of money to add
+     * @return The sum of this amount and the other amount
+     */
+    public Money plus(Money other){
+        return ofCents(add(this.cents, other.cents));
+    }
+
+    /**
+     * @param other The amount of money to subtract
+     * @return The difference between this amount and the other amount
+     */
+    public Money minus(Money other){
+        return ofCents(subtract(this.cents, other.cents));
+    }
+
+    /**
+     * @return This amount with its sign flipped
+     */
+    public Money negate(){
+        return ofCents(negate(this.cents));
+    }
+
+    /**
+     * @return The amount as a BigDecimal with 2 decimal places
+     */
+    public BigDecimal toBigDecimal(){
+        return toBigDecimal(this.cents);
+    }
+
+    /**
+     * Converts a BigDecimal amount to cents.
+     * @param amount A monetary amount, rounded half up to 2 decimal places
+     * @return The amount in cents
+     * @throws ArithmeticException If the amount doesn't fit in a long number of cents
+     */
+    public static long toCents(BigDecimal amount){
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts an amount in cents to a BigDecimal.
+     * @param cents The amount in cents
+     * @return The amount as a BigDecimal with 2 decimal places
+     */
+    public static BigDecimal toBigDecimal(long cents){
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * @param a An amount in cents
+     * @param b An amount in cents
+     * @return The sum of both amounts in cents
+     * @throws ArithmeticException If the sum overflows
+     */
+    public static long add(long a, long b){
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * @param a An amount in cents
+     * @param b An amount in cents
+     * @return The difference of both amounts in cents
+     * @throws ArithmeticException If the difference overflows
+     */
+    public static long subtract(long a, long b){
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * @param cents An amount in cents
+     * @return The amount with its sign flipped
+     * @throws ArithmeticException If the amount is Long.MIN_VALUE
+     */
+    public static long negate(long cents){
+        return Math.negateExact(cents);
+    }
+
+    /**
+     * @param cents An amount in cents
+     * @param factor The number to multiply the amount by
+     * @return The product in cents
+     * @throws ArithmeticException If the product overflows
+     */
+    public static long multiply(long cents, long factor){
+        return Math.multiplyExact(cents, factor);
+    }
+
+    /**
+     * Divides an amount into equal parts, rounding each part up to the next cent.
+     * @param cents A non-negative amount in cents
+     * @param parts The number of parts to divide the amount into
+     * @return The size of each part in cents, rounded up
+     */
+    public static long divideCeiling(long cents, int parts){
+        if (parts <= 0){
+            throw new IllegalArgumentException("Money can only be divided into 1 or more parts");
+        }
+        return -Math.floorDiv(-cents, (long) parts);
+    }
+
+    @Override
+    public int compareTo(Money other){
+        return Long.compare(this.cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if (this == obj){
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()){
+            return false;
+        }
+
+        return this.cents == ((Money) obj).cents;
+    }
+
+    @Override
+    public int hashCode(){
+        return Long.hashCode(this.cents);
+    }
+
+    @Override
+    public String toString(){
+        return "$" + toBigDecimal();
+    }
+}
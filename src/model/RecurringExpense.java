@@ -0,0 +1,298 @@
+package model;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Represents an expense that repeats on a schedule, such as rent, utilities or a subscription.
+ *
+ * A recurring expense is stored once, however many times it repeats. Its occurrences are numbered 0, 1, 2, ... and
+ * occurrence n is paid n periods after the start, counted in UTC from the start rather than from the occurrence
+ * before it, so a monthly expense starting on the 31st is paid on the last day of shorter months and goes back to
+ * the 31st afterwards. Occurrences are only built as Expense objects when they are asked for.
+ *
+ * Example:
+ *      Rent of $1,500.00 paid by Kris on the 1st of every month, split among Kris, David and Nick.
+ *      Three months after it starts, 4 occurrences have been paid, which is the same as 4 separate expenses of
+ *      $1,500.00 but takes no more room than one.
+ *
+ * @author Kris Bali
+ */
+public class RecurringExpense {
+    /** The average length of a month in seconds, 365.2425 days / 12 */
+    private static final long SECONDS_PER_MONTH = 2_629_746;
+
+    /** The first occurrence, which every other occurrence copies */
+    private final Expense first;
+    /** The time between occurrences */
+    private final Period period;
+    /** The moment after which there are no more occurrences, or null if the expense repeats forever */
+    private final Instant end;
+    /** The rough length of the period in seconds, used to guess how many periods fit in a span of time */
+    private final long approximateSeconds;
+
+    /**
+     * RecurringExpense constructor for an expense that repeats forever
+     * @param expenseName The name of the expense
+     * @param cost The cost of every occurrence
+     * @param payer The roommate that pays every occurrence in full
+     * @param participants The roommates that contribute to every occurrence, can include the payer
+     * @param split How the cost of every occurrence is divided among the participants
+     * @param start The moment the first occurrence is paid
+     * @param period The time between occurrences
+     */
+    public RecurringExpense(String expenseName, BigDecimal cost, Roommate payer, List<Roommate> participants, Split split, Instant start, Period period){
+        this(expenseName, cost, payer, participants, split, start, period, null);
+    }
+
+    /**
+     * RecurringExpense constructor
+     * @param expenseName The name of the expense
+     * @param cost The cost of every occurrence
+     * @param payer The roommate that pays every occurrence in full
+     * @param participants The roommates that contribute to every occurrence, can include the payer
+     * @param split How the cost of every occurrence is divided among the participants
+     * @param start The moment the first occurrence is paid
+     * @param period The time between occurrences
+     * @param end The moment after which there are no more occurrences, or null if the expense repeats forever
+     */
+    public RecurringExpense(String expenseName, BigDecimal cost, Roommate payer, List<Roommate> participants, Split split, Instant start, Period period, Instant end){
+        this(new Expense(expenseName, cost, payer, participants, split, start), period, end);
+    }
+
+    /**
+     * RecurringExpense constructor
+     * @param first The first occurrence
+     * @param period The time between occurrences
+     * @param end The moment after which there are no more occurrences, or null if the expense repeats forever
+     */
+    private RecurringExpense(Expense first, Period period, Instant end){
+        if (period == null || period.isZero() || period.isNegative()){
+            throw new IllegalArgumentException("Please provide a period of 1 day or more between occurrences");
+        }
+
+        if (end != null && end.isBefore(first.getTimestamp())){
+            throw new IllegalArgumentException("A recurring expense can't end before it starts");
+        }
+
+        this.first = first;
+        this.period = period.normalized();
+        this.end = end;
+        this.approximateSeconds = this.period.toTotalMonths() * SECONDS_PER_MONTH + this.period.getDays() * 86_400L;
+    }
+
+    /**
+     * @param end The moment after which there are no more occurrences
+     * @return A copy of this recurring expense that ends at the moment
+     */
+    public RecurringExpense endingAt(Instant end){
+        if (end == null){
+            throw new IllegalArgumentException("Please provide the moment the recurring expense ends");
+        }
+        return new RecurringExpense(this.first, this.period, end);
+    }
+
+    /**
+     * @return The name of the expense
+     */
+    public String getExpenseName(){
+        return this.first.getExpenseName();
+    }
+
+    /**
+     * @return The cost of every occurrence
+     */
+    public BigDecimal getCost(){
+        return this.first.getCost();
+    }
+
+    /**
+     * @return The cost of every occurrence in cents
+     */
+    public long getCostCents(){
+        return this.first.getCostCents();
+    }
+
+    /**
+     * @return The roommate that pays every occurrence in full
+     */
+    public Roommate getPayer(){
+        return this.first.getPayer();
+    }
+
+    /**
+     * @return The ID the payer had when the recurring expense was created, -1 if not added to a manager yet
+     */
+    public int getPayerId(){
+        return this.first.getPayerId();
+    }
+
+    /**
+     * @return A read-only list of the roommates that contribute to every occurrence
+     */
+    public List<Roommate> getParticipants(){
+        return this.first.getParticipants();
+    }
+
+    /**
+     * @return The number of roommates that contribute to every occurrence
+     */
+    public int getParticipantCount(){
+        return this.first.getParticipantCount();
+    }
+
+    /**
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The participant at the specified position
+     */
+    public Roommate getParticipant(int index){
+        return this.first.getParticipant(index);
+    }
+
+    /**
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The ID the participant had when the recurring expense was created, -1 if not added to a manager yet
+     */
+    public int getParticipantId(int index){
+        return this.first.getParticipantId(index);
+    }
+
+    /**
+     * @return How the cost of every occurrence is divided among the participants
+     */
+    public Split getSplit(){
+        return this.first.getSplit();
+    }
+
+    /**
+     * @param index The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The share of every occurrence the participant pays in cents
+     */
+    public long getShareCents(int index){
+        return this.first.getShareCents(index);
+    }
+
+    /**
+     * @return The moment the first occurrence is paid
+     */
+    public Instant getStart(){
+        return this.first.getTimestamp();
+    }
+
+    /**
+     * @return The time between occurrences
+     */
+    public Period getPeriod(){
+        return this.period;
+    }
+
+    /**
+     * @return The moment after which there are no more occurrences, or null if the expense repeats forever
+     */
+    public Instant getEnd(){
+        return this.end;
+    }
+
+    /**
+     * @param n The number of an occurrence, 0 for the first
+     * @return The moment the occurrence is paid, whether or not it is before the end
+     */
+    public Instant getOccurrenceTime(long n){
+        if (n < 0){
+            throw new IllegalArgumentException("Occurrences are numbered from 0");
+        }
+        return getStart().atOffset(ZoneOffset.UTC).plus(this.period.multipliedBy(Math.toIntExact(n))).toInstant();
+    }
+
+    /**
+     * @param n The number of an occurrence, 0 for the first
+     * @return The occurrence as an expense of its own
+     */
+    public Expense getOccurrence(long n){
+        Expense first = this.first;
+        if (n == 0){
+            return first;
+        }
+        return new Expense(first.getExpenseName(), first.getCost(), first.getPayer(), first.getParticipants(), first.getSplit(), getOccurrenceTime(n));
+    }
+
+    /**
+     * Counts the occurrences paid at or before a moment without going through them one by one: the number of periods
+     * is guessed from the length of the span, then corrected by the one or two occurrences the guess can be off by.
+     * @param moment A moment
+     * @return The number of occurrences paid at or before the moment, and not after the end
+     */
+    public long countUntil(Instant moment){
+        if (this.end != null && moment.isAfter(this.end)){
+            moment = this.end;
+        }
+        if (moment.isBefore(getStart())){
+            return 0;
+        }
+
+        // The number of the last occurrence at or before the moment
+        long n = Duration.between(getStart(), moment).getSeconds() / this.approximateSeconds;
+        while (n > 0 && getOccurrenceTime(n).isAfter(moment)){
+            n--;
+        }
+        while (!getOccurrenceTime(n + 1).isAfter(moment)){
+            n++;
+        }
+        return n + 1;
+    }
+
+    /**
+     * Lists occurrences without building them up front: each one is built as it is read.
+     * @param after A moment, occurrences at or before it are left out
+     * @param until A moment, occurrences after it are left out
+     * @return A read-only list of the occurrences paid after "after" and at or before "until", in order
+     */
+    public List<Expense> getOccurrences(Instant after, Instant until){
+        long from = countUntil(after);
+        long to = Math.max(from, countUntil(until));
+        if (to - from > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Too many occurrences to list, try a shorter span of time");
+        }
+
+        return new Occurrences(from, (int) (to - from));
+    }
+
+    /**
+     * A read-only list of consecutive occurrences, each built as it is read.
+     */
+    private final class Occurrences extends AbstractList<Expense> implements RandomAccess {
+        /** The number of the first occurrence in the list */
+        private final long from;
+        /** The number of occurrences in the list */
+        private final int size;
+
+        Occurrences(long from, int size){
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public Expense get(int index){
+            if (index < 0 || index >= this.size){
+                throw new IndexOutOfBoundsException("No occurrence at position " + index);
+            }
+            return getOccurrence(this.from + index);
+        }
+
+        @Override
+        public int size(){
+            return this.size;
+        }
+    }
+
+    @Override
+    public String toString(){
+        return getExpenseName() + " - $" + getCost() + " every " + this.period + " to be paid by " + getPayer().getName() + " split among " + getParticipantCount() + " people";
+    }
+}
@@ -1,7 +1,6 @@
 package model;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.Objects;
 
 /**
@@ -14,8 +13,10 @@ import java.util.Objects;
 public class Roommate{
     /** The name of the roommate */
     private String name;
-    /** The roommate's balance */
-    private BigDecimal balance;
+    /** The roommate's balance in cents */
+    private long balanceCents;
+    /** The ID given to the roommate by the expense manager they were first added to, or -1 if not added yet */
+    private int id = -1;
 
     /**
      * Roommate constructor
@@ -24,7 +25,7 @@ public class Roommate{
      */
     public Roommate(String name, BigDecimal balance){
         this.name = name;
-        this.balance = balance;
+        this.balanceCents = Money.toCents(balance);
     }
 
     /**
@@ -34,38 +35,75 @@ public class Roommate{
         return this.name;
     }
 
+    /**
+     * @return The ID given to the roommate by the expense manager they were first added to, or -1 if not added yet
+     */
+    public int getId(){
+        return this.id;
+    }
+
+    /**
+     * Gives the roommate an ID when they are first added to an expense manager. Later calls are ignored, so the ID
+     * stays stable.
+     * @param id The ID of the roommate
+     */
+    public void assignId(int id){
+        if (this.id < 0){
+            this.id = id;
+        }
+    }
+
     /**
      * @return The balance of the roommate
      */
     public BigDecimal getBalance(){
-        return this.balance;
+        return Money.toBigDecimal(this.balanceCents);
     }
 
     /**
-     * Modifies the roommates balance by a certain monetary amount.
+     * @return The balance of the roommate in cents
+     */
+    public long getBalanceCents(){
+        return this.balanceCents;
+    }
+
+    /**
+     * Modifies the roommates balance by a certain monetary amount. Only this package changes a balance this way, an
+     * ExpenseManager changes the balances of its roommates through the expenses and periods it records.
      * @param amount The amount to modify the roommate's balance by.
      *               This is a number followed by 2 decimal places. Examples: 2.01, -3.14, 9.99, -120.00, etc.
      */
-    public void updateBalance(BigDecimal amount){
-        this.balance = this.balance.add(amount).setScale(2, RoundingMode.HALF_UP);
+    void updateBalance(BigDecimal amount){
+        updateBalanceCents(Money.toCents(amount));
+    }
+
+    /**
+     * Modifies the roommates balance by a certain number of cents, without allocating. This is for the ExpenseManager
+     * the roommate was added to, which updates its balance indexes, settlement plan, balance history and ledgers with
+     * every change; changing the balance of a roommate in a manager any other way leaves those out of date.
+     * @param cents The amount to modify the roommate's balance by, in cents. Examples: 201, -314, 999, -12000, etc.
+     */
+    public void updateBalanceCents(long cents){
+        this.balanceCents = Money.add(this.balanceCents, cents);
     }
 
     /**
-     * Converts the roommate's balance to 0, representing a balance of $0.00.
+     * Converts the roommate's balance to 0, representing a balance of $0.00. Only this package resets a balance, an
+     * ExpenseManager settles balances with closePeriod, which records the transfers that did it.
      */
-    public void resetBalance(){
-        this.balance = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+    void resetBalance(){
+        this.balanceCents = 0;
     }
 
     @Override
     public String toString(){
-        return this.name + " Balance: $" + String.format("%.2f", this.balance.setScale(2, RoundingMode.HALF_UP));
+        return this.name + " Balance: $" + getBalance();
     }
 
     /**
      * Compares this roommate to another object for equality.
-     * Two roommates are considered equal if they have the same name
-     * and the same monetary balance.
+     * Two roommates are considered equal if they have the same name, names are unique within an expense manager.
+     * The balance isn't compared, so a roommate stays equal to itself, and keeps its hash code, while its balance changes.
      * @param obj the object to compare against
      * @return true if the objects are equal, false otherwise
      */
@@ -80,11 +118,11 @@ public class Roommate{
         }
 
         Roommate otherRoommate = (Roommate) obj;
-        return this.name.equals(otherRoommate.name) && this.balance.compareTo(((Roommate) obj).getBalance()) == 0;
+        return Objects.equals(this.name, otherRoommate.name);
     }
 
     @Override
     public int hashCode(){
-        return Objects.hash(this.name, this.balance);
+        return Objects.hashCode(this.name);
     }
 }
\ No newline at end of file
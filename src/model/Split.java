@@ -0,0 +1,336 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Describes how the cost of an expense is divided among its participants.
+ *
+ * Kinds of split:
+ *      EQUAL       every participant pays the same, give or take a cent
+ *      WEIGHTED    every participant pays in proportion to a whole-number weight, e.g. 2 for a double room
+ *      PERCENTAGE  every participant pays a percentage of the cost, to 2 decimal places, adding up to 100%
+ *      EXACT       every participant pays an exact amount, adding up to the cost
+ *
+ * Shares are worked out in cents with the largest remainder method: every participant first gets their exact share
+ * rounded down, then the cents left over go one each to the participants whose shares were rounded down the most.
+ * Participants whose shares were rounded down by the same amount are served in the order they were listed in. The
+ * shares always add up to exactly the cost, so nobody is overcharged and no cent goes missing.
+ *
+ * Example:
+ *      $10.00 split equally among Kris, David and Nick.
+ *      Everyone gets $3.33 and 1 cent is left over, which goes to Kris, the first listed.
+ *      Kris pays $3.34, David and Nick pay $3.33 each.
+ *
+ * Working out shares doesn't allocate: the caller passes in the arrays the shares are written into, so the same
+ * arrays can be reused for every expense however many participants it has.
+ *
+ * @author Kris Bali
+ */
+public final class Split {
+    /** The kinds of split */
+    public enum Kind {
+        EQUAL, WEIGHTED, PERCENTAGE, EXACT
+    }
+
+    /** The number of hundredths of a percent in 100% */
+    public static final long WHOLE_PERCENTAGE = 10_000;
+    /** The largest total of the weights of a weighted split */
+    public static final long MAX_TOTAL_WEIGHT = Integer.MAX_VALUE;
+
+    /** The equal split, shared since it has no values */
+    private static final Split EQUAL = new Split(Kind.EQUAL, new long[0]);
+
+    /** The kind of split */
+    private final Kind kind;
+    /** One value per participant: weights, hundredths of a percent or cents, depending on the kind. Empty for EQUAL */
+    private final long[] values;
+
+    /**
+     * Split constructor
+     * @param kind The kind of split
+     * @param values One value per participant, already checked
+     */
+    private Split(Kind kind, long[] values){
+        this.kind = kind;
+        this.values = values;
+    }
+
+    /**
+     * @return A split where every participant pays the same, give or take a cent
+     */
+    public static Split equal(){
+        return EQUAL;
+    }
+
+    /**
+     * @param weights The weight of each participant, in the same order as the participants
+     * @return A split where every participant pays in proportion to their weight
+     */
+    public static Split weighted(int... weights){
+        long[] values = new long[weights.length];
+        for (int i = 0; i < weights.length; i++){
+            values[i] = weights[i];
+        }
+        return of(Kind.WEIGHTED, values);
+    }
+
+    /**
+     * @param percentages The percentage of the cost each participant pays, in the same order as the participants
+     * @return A split where every participant pays a percentage of the cost
+     */
+    public static Split percentage(BigDecimal... percentages){
+        long[] values = new long[percentages.length];
+        for (int i = 0; i < percentages.length; i++){
+            if (percentages[i] == null){
+                throw new IllegalArgumentException("Please provide a percentage for every participant");
+            }
+            try {
+                values[i] = percentages[i].movePointRight(2).longValueExact();
+            } catch (ArithmeticException e){
+                throw new IllegalArgumentException("Percentages can have at most 2 decimal places");
+            }
+        }
+        return of(Kind.PERCENTAGE, values);
+    }
+
+    /**
+     * @param amounts The amount each participant pays, in the same order as the participants
+     * @return A split where every participant pays an exact amount
+     */
+    public static Split exact(BigDecimal... amounts){
+        long[] values = new long[amounts.length];
+        for (int i = 0; i < amounts.length; i++){
+            if (amounts[i] == null){
+                throw new IllegalArgumentException("Please provide an amount for every participant");
+            }
+            values[i] = Money.toCents(amounts[i]);
+        }
+        return of(Kind.EXACT, values);
+    }
+
+    /**
+     * Builds a split from its raw values, for example when reading one back from storage.
+     * @param kind The kind of split
+     * @param values One value per participant: weights, hundredths of a percent or cents. Empty for EQUAL
+     * @return The split
+     * @throws IllegalArgumentException If the values don't make sense for the kind of split
+     */
+    public static Split of(Kind kind, long[] values){
+        if (kind == null){
+            throw new IllegalArgumentException("Please provide how to split this expense");
+        }
+        if (kind == Kind.EQUAL){
+            if (values.length > 0){
+                throw new IllegalArgumentException("An equal split has no values");
+            }
+            return EQUAL;
+        }
+
+        long total = 0;
+        for (long value : values){
+            if (value < 0){
+                throw new IllegalArgumentException("Split values can't be negative");
+            }
+            total = Money.add(total, value);
+        }
+        if (kind == Kind.WEIGHTED && (total == 0 || total > MAX_TOTAL_WEIGHT)){
+            throw new IllegalArgumentException("Weights must add up to more than 0 and at most " + MAX_TOTAL_WEIGHT);
+        }
+        if (kind == Kind.PERCENTAGE && total != WHOLE_PERCENTAGE){
+            throw new IllegalArgumentException("Percentages must add up to 100");
+        }
+        return new Split(kind, values.clone());
+    }
+
+    /**
+     * Checks that the split fits an expense.
+     * @param costCents The cost of the expense in cents
+     * @param participantCount The number of participants of the expense
+     * @throws IllegalArgumentException If the split doesn't fit the expense
+     */
+    void check(long costCents, int participantCount){
+        if (this.kind == Kind.EQUAL){
+            return;
+        }
+        if (this.values.length != participantCount){
+            throw new IllegalArgumentException("Please provide one split value for each participant");
+        }
+        if (this.kind == Kind.EXACT && total() != costCents){
+            throw new IllegalArgumentException("Exact amounts must add up to the cost of the expense");
+        }
+    }
+
+    /**
+     * @return The kind of split
+     */
+    public Kind getKind(){
+        return this.kind;
+    }
+
+    /**
+     * @return The number of values, one per participant, or 0 for an equal split
+     */
+    public int size(){
+        return this.values.length;
+    }
+
+    /**
+     * @param index The position of a participant
+     * @return The value for the participant: a weight, hundredths of a percent or cents, depending on the kind
+     */
+    public long getValue(int index){
+        return this.values[index];
+    }
+
+    /**
+     * @return The sum of the values
+     */
+    private long total(){
+        long total = 0;
+        for (long value : this.values){
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Works out the share of each participant.
+     * @param costCents The cost of the expense in cents
+     * @param count The number of participants
+     * @param shares Filled with the share of each participant in cents, must hold at least "count" values
+     * @param scratch Working space, must hold at least "count" values
+     */
+    public void shares(long costCents, int count, long[] shares, long[] scratch){
+        divide(this.kind, costCents, this.values, 0, count, shares, scratch);
+    }
+
+    /**
+     * Works out the share of a participant of an equal split, without working out anyone else's.
+     * @param costCents The cost of the expense in cents, 0 or more
+     * @param count The number of participants
+     * @param position The position of the participant
+     * @return The share of the participant in cents
+     */
+    public static long equalShare(long costCents, int count, int position){
+        return costCents / count + (position < costCents % count ? 1 : 0);
+    }
+
+    /**
+     * Works out the share of each participant of a split whose values are stored in a bigger array.
+     * @param kind The kind of split
+     * @param costCents The cost of the expense in cents, 0 or more
+     * @param values The values of the split, unused for an equal split
+     * @param offset Where the values of the split start in "values"
+     * @param count The number of participants
+     * @param shares Filled with the share of each participant in cents, must hold at least "count" values
+     * @param scratch Working space, must hold at least "count" values
+     */
+    public static void divide(Kind kind, long costCents, long[] values, int offset, int count, long[] shares, long[] scratch){
+        if (costCents < 0){
+            throw new IllegalArgumentException("Only a cost of $0.00 or more can be split");
+        }
+
+        if (kind == Kind.EQUAL){
+            for (int i = 0; i < count; i++){
+                shares[i] = equalShare(costCents, count, i);
+            }
+            return;
+        }
+        if (kind == Kind.EXACT){
+            System.arraycopy(values, offset, shares, 0, count);
+            return;
+        }
+
+        long total = 0;
+        for (int i = 0; i < count; i++){
+            total += values[offset + i];
+        }
+
+        // cost * weight / total, split up so that no product overflows: the remainder of cost / total and every
+        // weight are below 2^31
+        long whole = costCents / total;
+        long part = costCents % total;
+        long left = costCents;
+        for (int i = 0; i < count; i++){
+            long weight = values[offset + i];
+            shares[i] = whole * weight + part * weight / total;
+            left -= shares[i];
+            // Sorts by remainder, then by position with the first listed on top
+            scratch[i] = (part * weight % total) << 31 | (Integer.MAX_VALUE - i);
+        }
+
+        if (left > 0){
+            selectLargest(scratch, count, (int) left);
+            for (int i = count - (int) left; i < count; i++){
+                shares[Integer.MAX_VALUE - (int) (scratch[i] & Integer.MAX_VALUE)]++;
+            }
+        }
+    }
+
+    /**
+     * Moves the largest keys to the end of the array with quickselect, in linear time on average.
+     * @param keys Distinct keys
+     * @param count The number of keys
+     * @param k The number of largest keys to move to positions count - k to count - 1, in any order
+     */
+    private static void selectLargest(long[] keys, int count, int k){
+        int target = count - k;
+        int low = 0;
+        int high = count - 1;
+        while (low < high){
+            long a = keys[low];
+            long b = keys[(low + high) >>> 1];
+            long c = keys[high];
+            long pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+            int i = low;
+            int j = high;
+            while (i <= j){
+                while (keys[i] < pivot){
+                    i++;
+                }
+                while (keys[j] > pivot){
+                    j--;
+                }
+                if (i <= j){
+                    long swap = keys[i];
+                    keys[i++] = keys[j];
+                    keys[j--] = swap;
+                }
+            }
+
+            if (target <= j){
+                high = j;
+            } else if (target >= i){
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if (this == obj){
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()){
+            return false;
+        }
+
+        Split other = (Split) obj;
+        return this.kind == other.kind && Arrays.equals(this.values, other.values);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * this.kind.hashCode() + Arrays.hashCode(this.values);
+    }
+
+    @Override
+    public String toString(){
+        return this.kind == Kind.EQUAL ? "equal" : this.kind.name().toLowerCase() + " " + Arrays.toString(this.values);
+    }
+}
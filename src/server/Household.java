@@ -0,0 +1,118 @@
+package server;
+
+import service.ExpenseManager;
+import storage.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * One household of a HouseholdRegistry: its journal, loaded the first time it is used, and the lock that lets one
+ * request at a time read or change its ExpenseManager.
+ *
+ * The lock is a ReentrantLock rather than a synchronized block, so a virtual thread waiting for it lets its carrier
+ * thread serve other households in the meantime.
+ *
+ * @author Kris Bali
+ */
+final class Household {
+    /** The name of the household */
+    private final String name;
+    /** The directory its journal is stored in */
+    private final Path directory;
+    /** Held by the request using the household */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** The household of the same name evicted before this one was made, closed before this one loads */
+    private Household predecessor;
+    /** The journal, null until the household is loaded */
+    private FileManager files;
+    /** The household's expenses, null until it is loaded */
+    private ExpenseManager manager;
+    /** Whether the journal has been closed for good */
+    private boolean closed;
+    /** The number of requests using or waiting for the household, guarded by the registry */
+    int users;
+
+    /**
+     * Household constructor
+     * @param name The name of the household
+     * @param directory The directory its journal is stored in
+     * @param predecessor The household of the same name still being evicted, null if there is none
+     */
+    Household(String name, Path directory, Household predecessor){
+        this.name = name;
+        this.directory = directory;
+        this.predecessor = predecessor;
+    }
+
+    /**
+     * @return The name of the household
+     */
+    String getName(){
+        return this.name;
+    }
+
+    /**
+     * Runs an action on the household's ExpenseManager while no other request uses it, loading it first if needed.
+     * @param action What to do with the manager
+     * @param <T> The type of the result
+     * @return The result of the action
+     * @throws IOException If the journal can't be loaded
+     */
+    <T> T call(Function<ExpenseManager, T> action) throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed){
+                throw new IllegalStateException("Household " + this.name + " has been closed.");
+            }
+            if (this.manager == null){
+                load();
+            }
+            return action.apply(this.manager);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the journal, after making sure the household it replaces has let go of it.
+     * @throws IOException If the journal can't be loaded
+     */
+    private void load() throws IOException {
+        if (this.predecessor != null){
+            this.predecessor.close();
+            this.predecessor = null;
+        }
+        FileManager files = new FileManager(this.directory);
+        try {
+            this.manager = files.load();
+        } catch (IOException | RuntimeException e){
+            files.close();
+            throw e;
+        }
+        this.files = files;
+    }
+
+    /**
+     * Closes the journal once the request using the household is done. Closing twice does nothing.
+     * @throws IOException If the journal can't be closed
+     */
+    void close() throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed){
+                return;
+            }
+            this.closed = true;
+            if (this.files != null){
+                this.files.close();
+            }
+            this.files = null;
+            this.manager = null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
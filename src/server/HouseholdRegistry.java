@@ -0,0 +1,192 @@
+package server;
+
+import service.ExpenseManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the ExpenseManager of every household a server serves, each loaded from its own journal the first time it is
+ * used and kept in memory while it stays in use.
+ *
+ * Each household lives in a directory of its own under the root directory. At most a given number of households are
+ * kept loaded; when another one is loaded, the least recently used households that no request is using are evicted
+ * and their journals closed. A household that is used again later is loaded again from its journal.
+ *
+ * Requests on the same household run one at a time, so its ExpenseManager only ever has one writer, while requests on
+ * different households run in parallel. The registry's own lock is only held to look households up, never while one
+ * is loaded, used or closed.
+ *
+ * @author Kris Bali
+ */
+public class HouseholdRegistry implements Closeable {
+    /** The number of households kept loaded when no other capacity is given */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** The names a household may have, which are also the names of their directories */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    /** The directory each household's directory is in */
+    private final Path root;
+    /** The largest number of households kept loaded */
+    private final int capacity;
+    /** The households by name, the least recently used first */
+    private final LinkedHashMap<String, Household> households = new LinkedHashMap<>(16, 0.75f, true);
+    /** The households evicted but maybe not closed yet, by name */
+    private final Map<String, Household> evicting = new HashMap<>();
+    /** Whether the registry has been closed */
+    private boolean closed;
+
+    /**
+     * HouseholdRegistry constructor
+     * @param root The directory each household's directory is in
+     */
+    public HouseholdRegistry(Path root){
+        this(root, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * HouseholdRegistry constructor
+     * @param root The directory each household's directory is in
+     * @param capacity The largest number of households kept loaded while they aren't in use
+     */
+    public HouseholdRegistry(Path root, int capacity){
+        if (root == null){
+            throw new IllegalArgumentException("Please provide a directory to store households in");
+        }
+
+        if (capacity <= 0){
+            throw new IllegalArgumentException("Capacity must be 1 or more households");
+        }
+
+        this.root = root;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Runs an action on a household's ExpenseManager while no other request uses the household, loading it first if it
+     * isn't loaded. The action must not keep the manager or anything it returns that reads from it.
+     * @param name The name of the household, made of letters, digits, '-' and '_'
+     * @param action What to do with the manager
+     * @param <T> The type of the result
+     * @return The result of the action
+     * @throws IllegalArgumentException If the name isn't a valid household name
+     * @throws IOException If the household's journal can't be loaded
+     */
+    public <T> T withHousehold(String name, Function<ExpenseManager, T> action) throws IOException {
+        if (name == null || !NAME.matcher(name).matches()){
+            throw new IllegalArgumentException("Household names are 1 to 64 letters, digits, '-' or '_'");
+        }
+
+        Household household;
+        List<Household> evicted;
+        synchronized (this){
+            if (this.closed){
+                throw new IllegalStateException("The registry has been closed.");
+            }
+            household = this.households.get(name);
+            if (household == null){
+                household = new Household(name, this.root.resolve(name), this.evicting.get(name));
+                this.households.put(name, household);
+            }
+            household.users++;
+            evicted = evict();
+        }
+        close(evicted);
+
+        try {
+            return household.call(action);
+        } finally {
+            synchronized (this){
+                household.users--;
+                evicted = evict();
+            }
+            close(evicted);
+        }
+    }
+
+    /**
+     * @return The number of households loaded or being loaded
+     */
+    public synchronized int size(){
+        return this.households.size();
+    }
+
+    /**
+     * @param name The name of a household
+     * @return Whether the household is loaded or being loaded
+     */
+    public synchronized boolean isLoaded(String name){
+        return this.households.containsKey(name);
+    }
+
+    /**
+     * Removes the least recently used households no request is using until no more than the capacity are left.
+     * Must be called holding the registry's lock.
+     * @return The households removed, to be closed once the lock is let go
+     */
+    private List<Household> evict(){
+        List<Household> evicted = new ArrayList<>();
+        Iterator<Household> iterator = this.households.values().iterator();
+        while (this.households.size() > this.capacity && iterator.hasNext()){
+            Household household = iterator.next();
+            if (household.users == 0){
+                iterator.remove();
+                this.evicting.put(household.getName(), household);
+                evicted.add(household);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes evicted households.
+     * @param evicted The households to close
+     * @throws IOException If a journal can't be closed
+     */
+    private void close(List<Household> evicted) throws IOException {
+        for (Household household : evicted){
+            try {
+                household.close();
+            } finally {
+                synchronized (this){
+                    this.evicting.remove(household.getName(), household);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every household. Requests still running finish first, later ones are refused.
+     * @throws IOException If a journal can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        List<Household> all;
+        synchronized (this){
+            this.closed = true;
+            all = new ArrayList<>(this.households.values());
+            all.addAll(this.evicting.values());
+            this.households.clear();
+        }
+        IOException failure = null;
+        for (Household household : all){
+            try {
+                household.close();
+            } catch (IOException e){
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null){
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.Expense;
+import model.Roommate;
+import service.ExpenseManager;
+import service.Transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the households of a HouseholdRegistry over HTTP with JSON bodies, built on the HTTP server of the JDK.
+ *
+ * Routes, all under /households/{household}:
+ *      GET    /balances            every roommate's balance, {"Kris": 20.00, ...}
+ *      POST   /roommates           adds a roommate, {"name": "Kris"}
+ *      POST   /expenses            adds an expense split equally, {"name": "Groceries", "cost": 30.00,
+ *                                  "payer": "Kris", "participants": ["Kris", "David"], "timestamp": "2026-03-02T18:00:00Z"}
+ *                                  where the timestamp may be left out for now, and answers {"id": 0}
+ *      DELETE /expenses/{id}       removes an expense
+ *      GET    /settlement          the transfers that settle every balance, [{"from": "David", "to": "Kris", "amount": 10.00}]
+ *
+ * Invalid requests are answered with status 400 and {"error": "..."}. Only POST requests have their body read, and a
+ * body over MAX_BODY_BYTES is answered with status 413 without reading the rest of it, so no client can make the server
+ * hold more than that per request.
+ *
+ * Each request runs on a thread of its own. On a JDK with virtual threads they are virtual, so a request waiting for
+ * its household or its disk costs no platform thread; otherwise they come from a cached pool. Requests on one household
+ * wait for each other in the registry, requests on different households don't.
+ *
+ * @author Kris Bali
+ */
+public class HouseholdServer implements Closeable {
+    /** The start of the path of every route */
+    private static final String PREFIX = "/households/";
+    /** The largest request body read, in bytes */
+    public static final int MAX_BODY_BYTES = 8192;
+
+    /** The households served */
+    private final HouseholdRegistry registry;
+    /** The HTTP server */
+    private final HttpServer server;
+    /** The threads requests run on */
+    private final ExecutorService executor;
+
+    /**
+     * HouseholdServer constructor, which starts serving right away
+     * @param registry The households to serve
+     * @param address The address to listen on, port 0 to pick any free port
+     * @throws IOException If the address can't be listened on
+     */
+    public HouseholdServer(HouseholdRegistry registry, InetSocketAddress address) throws IOException {
+        if (registry == null){
+            throw new IllegalArgumentException("Please provide the households to serve");
+        }
+
+        this.registry = registry;
+        this.executor = threadPerRequest();
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(PREFIX, this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    /**
+     * @return An executor that runs each task on a new virtual thread if the JDK has them, a cached pool of daemon
+     * threads if it doesn't
+     */
+    static ExecutorService threadPerRequest(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e){
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "household-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort(){
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Answers one request.
+     * @param exchange The request and its response
+     * @throws IOException If the response can't be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        int status;
+        String body;
+        try {
+            String[] path = route(exchange.getRequestURI());
+            String method = exchange.getRequestMethod();
+            String request = method.equals("POST") ? read(exchange.getRequestBody()) : "";
+            if (request == null){
+                status = 413;
+                body = error("The request body can't be over " + MAX_BODY_BYTES + " bytes");
+            } else if (path == null){
+                status = 404;
+                body = error("No such route");
+            } else if (path.length == 2 && path[1].equals("balances") && method.equals("GET")){
+                status = 200;
+                body = this.registry.withHousehold(path[0], HouseholdServer::balances);
+            } else if (path.length == 2 && path[1].equals("roommates") && method.equals("POST")){
+                Map<String, Object> fields = Json.parseObject(request);
+                String name = text(fields, "name");
+                this.registry.withHousehold(path[0], manager -> {
+                    manager.addRoommate(new Roommate(name, BigDecimal.ZERO));
+                    return null;
+                });
+                status = 201;
+                body = "{\"name\":" + Json.quote(name) + "}";
+            } else if (path.length == 2 && path[1].equals("expenses") && method.equals("POST")){
+                Map<String, Object> fields = Json.parseObject(request);
+                long id = this.registry.withHousehold(path[0], manager -> manager.addExpense(expense(manager, fields)));
+                status = 201;
+                body = "{\"id\":" + id + "}";
+            } else if (path.length == 3 && path[1].equals("expenses") && method.equals("DELETE")){
+                long id = parseId(path[2]);
+                this.registry.withHousehold(path[0], manager -> {
+                    manager.removeExpense(id);
+                    return null;
+                });
+                status = 200;
+                body = "{\"id\":" + id + "}";
+            } else if (path.length == 2 && path[1].equals("settlement") && method.equals("GET")){
+                status = 200;
+                body = this.registry.withHousehold(path[0], HouseholdServer::settlement);
+            } else if (path.length == 2 || path.length == 3){
+                status = 405;
+                body = error("Method " + method + " isn't allowed here");
+            } else {
+                status = 404;
+                body = error("No such route");
+            }
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException e){
+            status = 400;
+            body = error(e.getMessage());
+        } catch (IllegalStateException e){
+            status = 503;
+            body = error(e.getMessage());
+        } catch (IOException | RuntimeException e){
+            status = 500;
+            body = error("The household couldn't be read or saved");
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()){
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param uri The URI of a request
+     * @return The household followed by the rest of the path, null if the path doesn't start with a household
+     */
+    private static String[] route(URI uri){
+        String path = uri.getPath();
+        if (!path.startsWith(PREFIX)){
+            return null;
+        }
+        String[] parts = path.substring(PREFIX.length()).split("/");
+        return parts.length < 2 || parts[0].isEmpty() ? null : parts;
+    }
+
+    /**
+     * @param in The body of a request
+     * @return The body, null if it is over MAX_BODY_BYTES
+     * @throws IOException If the body can't be read
+     */
+    private static String read(InputStream in) throws IOException {
+        try (in){
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            return bytes.length > MAX_BODY_BYTES ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String balances(ExpenseManager manager){
+        StringBuilder json = new StringBuilder("{");
+        for (Roommate roommate : manager.getRoommates().values()){
+            if (json.length() > 1){
+                json.append(',');
+            }
+            json.append(Json.quote(roommate.getName())).append(':').append(roommate.getBalance().toPlainString());
+        }
+        return json.append('}').toString();
+    }
+
+    private static String settlement(ExpenseManager manager){
+        StringBuilder json = new StringBuilder("[");
+        for (Transfer transfer : manager.getSettlementPlan()){
+            if (json.length() > 1){
+                json.append(',');
+            }
+            json.append("{\"from\":").append(Json.quote(transfer.getDebtor().getName()))
+                    .append(",\"to\":").append(Json.quote(transfer.getCreditor().getName()))
+                    .append(",\"amount\":").append(transfer.getAmount().toPlainString()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @param manager The manager of the household
+     * @param fields The fields of the request body
+     * @return The expense the fields describe
+     * @throws IllegalArgumentException If a field is missing or invalid, or names a roommate the household doesn't have
+     */
+    private static Expense expense(ExpenseManager manager, Map<String, Object> fields){
+        Object cost = fields.get("cost");
+        if (cost != null && !(cost instanceof BigDecimal)){
+            throw new IllegalArgumentException("The cost must be a number");
+        }
+        Object names = fields.get("participants");
+        if (!(names instanceof List)){
+            throw new IllegalArgumentException("Please provide the participants as a list of names");
+        }
+        List<Roommate> participants = new ArrayList<>();
+        for (Object name : (List<?>) names){
+            participants.add(roommate(manager, name instanceof String ? (String) name : null));
+        }
+        Object timestamp = fields.get("timestamp");
+        Instant moment = timestamp == null ? Instant.now() : Instant.parse(timestamp.toString());
+        return new Expense(text(fields, "name"), (BigDecimal) cost, roommate(manager, text(fields, "payer")), participants, moment);
+    }
+
+    private static Roommate roommate(ExpenseManager manager, String name){
+        Roommate roommate = name == null ? null : manager.getRoommateByName(name);
+        if (roommate == null){
+            throw new IllegalArgumentException("No roommate named " + name);
+        }
+        return roommate;
+    }
+
+    private static String text(Map<String, Object> fields, String name){
+        Object value = fields.get(name);
+        if (!(value instanceof String)){
+            throw new IllegalArgumentException("Please provide the " + name + " as a string");
+        }
+        return (String) value;
+    }
+
+    private static long parseId(String id){
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e){
+            throw new IllegalArgumentException("Expense IDs are whole numbers");
+        }
+    }
+
+    private static String error(String message){
+        return "{\"error\":" + Json.quote(message == null ? "Invalid request" : message) + "}";
+    }
+
+    /**
+     * Stops listening, waits up to a second for requests being answered, and stops the request threads. The registry
+     * is left open.
+     */
+    @Override
+    public void close(){
+        this.server.stop(1);
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package server;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the household server: reads a request body into maps, lists, strings, numbers, booleans and
+ * nulls, and quotes strings for the responses it writes. Numbers are read as BigDecimal so amounts keep their cents.
+ *
+ * @author Kris Bali
+ */
+final class Json {
+    /** The text being read */
+    private final String text;
+    /** The position of the next character to read */
+    private int position;
+
+    private Json(String text){
+        this.text = text;
+    }
+
+    /**
+     * @param text A JSON document
+     * @return The value the document holds
+     * @throws IllegalArgumentException If the text isn't valid JSON
+     */
+    static Object parse(String text){
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpace();
+        if (json.position != text.length()){
+            throw json.error("Unexpected text after the value");
+        }
+        return value;
+    }
+
+    /**
+     * @param text A JSON document
+     * @return The object the document holds
+     * @throws IllegalArgumentException If the text isn't a valid JSON object
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(String text){
+        Object value = parse(text);
+        if (!(value instanceof Map)){
+            throw new IllegalArgumentException("Please send a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * @param value A string
+     * @return The string in quotes, with the characters JSON doesn't allow in strings escaped
+     */
+    static String quote(String value){
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\'){
+                quoted.append('\\').append(c);
+            } else if (c == '\n'){
+                quoted.append("\\n");
+            } else if (c < 0x20){
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private Object value(){
+        skipSpace();
+        if (this.position == this.text.length()){
+            throw error("Expected a value");
+        }
+        char c = this.text.charAt(this.position);
+        if (c == '{'){
+            return object();
+        }
+        if (c == '['){
+            return array();
+        }
+        if (c == '"'){
+            return string();
+        }
+        if (this.text.startsWith("true", this.position)){
+            this.position += 4;
+            return Boolean.TRUE;
+        }
+        if (this.text.startsWith("false", this.position)){
+            this.position += 5;
+            return Boolean.FALSE;
+        }
+        if (this.text.startsWith("null", this.position)){
+            this.position += 4;
+            return null;
+        }
+        return number();
+    }
+
+    private Map<String, Object> object(){
+        Map<String, Object> object = new LinkedHashMap<>();
+        this.position++;
+        skipSpace();
+        if (peek() == '}'){
+            this.position++;
+            return object;
+        }
+        while (true){
+            skipSpace();
+            if (peek() != '"'){
+                throw error("Expected a name in quotes");
+            }
+            String name = string();
+            skipSpace();
+            expect(':');
+            object.put(name, value());
+            skipSpace();
+            if (peek() == ','){
+                this.position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> array(){
+        List<Object> array = new ArrayList<>();
+        this.position++;
+        skipSpace();
+        if (peek() == ']'){
+            this.position++;
+            return array;
+        }
+        while (true){
+            array.add(value());
+            skipSpace();
+            if (peek() == ','){
+                this.position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String string(){
+        StringBuilder string = new StringBuilder();
+        this.position++;
+        while (true){
+            if (this.position >= this.text.length()){
+                throw error("Unterminated string");
+            }
+            char c = this.text.charAt(this.position++);
+            if (c == '"'){
+                return string.toString();
+            }
+            if (c != '\\'){
+                string.append(c);
+                continue;
+            }
+            if (this.position >= this.text.length()){
+                throw error("Unterminated string");
+            }
+            char escaped = this.text.charAt(this.position++);
+            switch (escaped){
+                case 'n': string.append('\n'); break;
+                case 't': string.append('\t'); break;
+                case 'r': string.append('\r'); break;
+                case 'b': string.append('\b'); break;
+                case 'f': string.append('\f'); break;
+                case 'u':
+                    if (this.position + 4 > this.text.length()){
+                        throw error("Unterminated escape");
+                    }
+                    try {
+                        string.append((char) Integer.parseInt(this.text.substring(this.position, this.position + 4), 16));
+                    } catch (NumberFormatException e){
+                        throw error("Invalid escape");
+                    }
+                    this.position += 4;
+                    break;
+                default: string.append(escaped);
+            }
+        }
+    }
+
+    private BigDecimal number(){
+        int start = this.position;
+        while (this.position < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.position)) >= 0){
+            this.position++;
+        }
+        try {
+            return new BigDecimal(this.text.substring(start, this.position));
+        } catch (NumberFormatException e){
+            throw error("Expected a value");
+        }
+    }
+
+    private char peek(){
+        return this.position < this.text.length() ? this.text.charAt(this.position) : '\0';
+    }
+
+    private void expect(char c){
+        if (peek() != c){
+            throw error("Expected '" + c + "'");
+        }
+        this.position++;
+    }
+
+    private void skipSpace(){
+        while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))){
+            this.position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message){
+        return new IllegalArgumentException(message + " at position " + this.position + " of the JSON");
+    }
+}
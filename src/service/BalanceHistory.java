@@ -0,0 +1,345 @@
+package service;
+
+import model.Money;
+
+import java.util.Arrays;
+
+/**
+ * Answers "what were the balances at this moment?" for an ExpenseManager without replaying its whole history.
+ *
+ * Every so often, right after expenses are applied, the current balance of every roommate is copied into a
+ * checkpoint, along with the latest time any expense before it was paid at. A query finds the last checkpoint whose
+ * expenses were all paid by the moment asked about with a binary search, then replays only the expenses added after
+ * that checkpoint, stopping at the first one paid after the moment.
+ *
+ * Expenses are usually added in the order they were paid. An expense paid before one added earlier is "late": it is
+ * replayed from a separate list, so it can't stop a replay early or be missed by one.
+ *
+ * A checkpoint is taken after max(MIN_INTERVAL, number of roommates) expenses, so checkpoints never take more than
+ * 8 bytes per expense in the history however many roommates there are.
+ *
+ * A removed expense is skipped by every replay. Checkpoints taken while it was still in the history are not
+ * rewritten; instead it is taken back out of them when a query starts from one, so removing an expense doesn't cost
+ * more with a longer history. Removals are kept in the order they were made, which is also the order of the number of
+ * checkpoints there were at the time, so a query finds the removals made after its checkpoint with a binary search
+ * and never looks at older ones.
+ *
+ * Balances before any expense in the history, such as starting balances or balances restored from a snapshot, count
+ * as the balances from the beginning of time.
+ *
+ * Recurring expenses aren't part of the history. What they add to the balances is left out of every checkpoint, and
+ * the manager adds it back for the moment asked about from its RecurringSchedule.
+ *
+ * @author Kris Bali
+ */
+final class BalanceHistory {
+    /** The smallest number of expenses between checkpoints */
+    static final int MIN_INTERVAL = 4096;
+
+    /** The roommates whose balances are tracked */
+    private final RoommateRegistry roommates;
+    /** The expense history */
+    private final ExpenseStore expenses;
+    /** The balance of every roommate before any expense in the history, in cents by roommate ID */
+    private long[] baseline = new long[16];
+    /** The part of every roommate's balance that comes from recurring expenses, in cents by roommate ID */
+    private long[] recurring = new long[16];
+
+    /** The balances of every checkpoint, in cents by roommate ID */
+    private long[][] checkpoints = new long[16][];
+    /** The number of expenses in the history when each checkpoint was taken */
+    private int[] checkpointEnds = new int[16];
+    /** The latest epoch second any expense before each checkpoint was paid at */
+    private long[] checkpointSeconds = new long[16];
+    /** The nanoseconds of the latest time any expense before each checkpoint was paid at */
+    private int[] checkpointNanos = new int[16];
+    /** The number of checkpoints */
+    private int checkpointCount;
+
+    /** The indexes of the late expenses, in ascending order */
+    private int[] late = new int[16];
+    /** The number of late expenses */
+    private int lateCount;
+    /** The indexes of the removed expenses, in the order they were removed */
+    private int[] removals = new int[16];
+    /** The number of checkpoints there were when each expense in "removals" was removed, in ascending order */
+    private int[] removalCheckpoints = new int[16];
+    /** The number of removed expenses */
+    private int removalCount;
+
+    /** The latest epoch second any expense in the history was paid at */
+    private long latestSecond = Long.MIN_VALUE;
+    /** The nanoseconds of the latest time any expense in the history was paid at */
+    private int latestNano;
+    /** Reusable buffer for the shares of the expense being replayed */
+    private long[] shares = new long[16];
+    /** Reusable working space for splitting the expense being replayed */
+    private long[] scratch = new long[16];
+
+    /**
+     * BalanceHistory constructor
+     * @param roommates The roommates whose balances are tracked
+     * @param expenses The expense history
+     */
+    BalanceHistory(RoommateRegistry roommates, ExpenseStore expenses){
+        this.roommates = roommates;
+        this.expenses = expenses;
+    }
+
+    /**
+     * Starts tracking a roommate.
+     * @param id The ID of the roommate
+     * @param balance The balance of the roommate before any expense in the history, in cents
+     */
+    void roommateAdded(int id, long balance){
+        if (id >= this.baseline.length){
+            this.baseline = Arrays.copyOf(this.baseline, Math.max(this.baseline.length * 2, id + 1));
+            this.recurring = Arrays.copyOf(this.recurring, this.baseline.length);
+        }
+        this.baseline[id] = balance;
+    }
+
+    /**
+     * Notes a change to a roommate's balance from occurrences of recurring expenses, which checkpoints leave out.
+     * @param id The ID of the roommate
+     * @param delta The change to the balance, in cents
+     */
+    void recurringApplied(int id, long delta){
+        this.recurring[id] = Money.add(this.recurring[id], delta);
+    }
+
+    /**
+     * Notes occurrences of recurring expenses that were already reflected in a roommate's starting balance, for
+     * recurring expenses restored from a snapshot. They are taken back out of the starting balance, since the manager
+     * adds them back by when they were paid.
+     * @param id The ID of the roommate
+     * @param delta The part of the starting balance from recurring expenses, in cents
+     */
+    void recurringRestored(int id, long delta){
+        this.baseline[id] = Money.subtract(this.baseline[id], delta);
+        recurringApplied(id, delta);
+    }
+
+    /**
+     * Takes an expense that was already reflected in the starting balances back out of them, for expenses a manager
+     * is created with.
+     * @param index The index of the expense in the history
+     */
+    void alreadyApplied(int index){
+        applyDelta(this.baseline, index, -1);
+    }
+
+    /**
+     * Notes the removal of an expense older than the history, such as one added before the snapshot the manager was
+     * restored from. It is taken out of the starting balances and out of every checkpoint, which all reflect it.
+     * @param id The ID of a roommate the expense changed the balance of
+     * @param delta What removing the expense changes the roommate's balance by, in cents
+     */
+    void removedBefore(int id, long delta){
+        this.baseline[id] = Money.add(this.baseline[id], delta);
+        for (int i = 0; i < this.checkpointCount; i++){
+            if (id < this.checkpoints[i].length){
+                this.checkpoints[i][id] = Money.add(this.checkpoints[i][id], delta);
+            }
+        }
+    }
+
+    /**
+     * Notes the time an expense appended to the history was paid at.
+     * @param index The index of the expense in the history
+     */
+    void appended(int index){
+        long second = this.expenses.getEpochSecond(index);
+        int nano = this.expenses.getNano(index);
+        if (compare(second, nano, this.latestSecond, this.latestNano) < 0){
+            if (this.lateCount == this.late.length){
+                this.late = Arrays.copyOf(this.late, this.lateCount * 2);
+            }
+            this.late[this.lateCount++] = index;
+        } else {
+            this.latestSecond = second;
+            this.latestNano = nano;
+        }
+    }
+
+    /**
+     * Notes an expense that was removed from the history. Call this once the balances of the roommates no longer
+     * reflect the expense.
+     * @param index The index of the expense in the history
+     */
+    void removed(int index){
+        if (this.removalCount == this.removals.length){
+            this.removals = Arrays.copyOf(this.removals, this.removalCount * 2);
+            this.removalCheckpoints = Arrays.copyOf(this.removalCheckpoints, this.removalCount * 2);
+        }
+        this.removals[this.removalCount] = index;
+        this.removalCheckpoints[this.removalCount] = this.checkpointCount;
+        this.removalCount++;
+    }
+
+    /**
+     * Takes a checkpoint if enough expenses have been added since the last one. Call this once the balances of the
+     * roommates reflect every expense in the history.
+     */
+    void applied(){
+        int end = this.expenses.size();
+        int last = this.checkpointCount == 0 ? 0 : this.checkpointEnds[this.checkpointCount - 1];
+        if (end - last < Math.max(MIN_INTERVAL, this.roommates.size())){
+            return;
+        }
+
+        if (this.checkpointCount == this.checkpoints.length){
+            int capacity = this.checkpointCount * 2;
+            this.checkpoints = Arrays.copyOf(this.checkpoints, capacity);
+            this.checkpointEnds = Arrays.copyOf(this.checkpointEnds, capacity);
+            this.checkpointSeconds = Arrays.copyOf(this.checkpointSeconds, capacity);
+            this.checkpointNanos = Arrays.copyOf(this.checkpointNanos, capacity);
+        }
+        long[] balances = new long[this.roommates.size()];
+        for (int id = 0; id < balances.length; id++){
+            balances[id] = Money.subtract(this.roommates.get(id).getBalanceCents(), this.recurring[id]);
+        }
+        this.checkpoints[this.checkpointCount] = balances;
+        this.checkpointEnds[this.checkpointCount] = end;
+        this.checkpointSeconds[this.checkpointCount] = this.latestSecond;
+        this.checkpointNanos[this.checkpointCount] = this.latestNano;
+        this.checkpointCount++;
+    }
+
+    /**
+     * @param second The epoch second of a moment
+     * @param nano The nanoseconds within the second of the moment
+     * @return The balance of every roommate right after the last expense paid at or before the moment, in cents by
+     * roommate ID
+     */
+    long[] balancesAsOf(long second, int nano){
+        // The last checkpoint whose expenses were all paid at or before the moment
+        int low = 0;
+        int high = this.checkpointCount - 1;
+        int checkpoint = -1;
+        while (low <= high){
+            int middle = (low + high) >>> 1;
+            if (compare(this.checkpointSeconds[middle], this.checkpointNanos[middle], second, nano) <= 0){
+                checkpoint = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        long[] balances = Arrays.copyOf(this.baseline, this.roommates.size());
+        int start = 0;
+        if (checkpoint >= 0){
+            long[] saved = this.checkpoints[checkpoint];
+            System.arraycopy(saved, 0, balances, 0, saved.length);
+            start = this.checkpointEnds[checkpoint];
+
+            // Take back out the expenses removed after the checkpoint was taken
+            for (int i = firstRemovalAfter(checkpoint); i < this.removalCount; i++){
+                if (this.removals[i] < start){
+                    applyDelta(balances, this.removals[i], -1);
+                }
+            }
+        }
+
+        // Expenses added in order are paid in order, so the first one paid after the moment ends the replay
+        int end = this.expenses.size();
+        int stop = end;
+        for (int index = start; index < end; index++){
+            if (this.expenses.isRemoved(index)){
+                continue;
+            }
+            if (paidBy(index, second, nano)){
+                applyDelta(balances, index, 1);
+            } else if (!isLate(index)){
+                stop = index;
+                break;
+            }
+        }
+
+        // Late expenses after the end of the replay may still have been paid before the moment
+        for (int i = firstLateFrom(stop + 1); i < this.lateCount; i++){
+            if (!this.expenses.isRemoved(this.late[i]) && paidBy(this.late[i], second, nano)){
+                applyDelta(balances, this.late[i], 1);
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Adds or takes away the change an expense made to the balances.
+     * @param balances Balances in cents by roommate ID
+     * @param index The index of the expense in the history
+     * @param sign 1 to add the change, -1 to take it away
+     */
+    private void applyDelta(long[] balances, int index, int sign){
+        long cost = this.expenses.getCostCents(index);
+        int count = this.expenses.getParticipantCount(index);
+        if (this.shares.length < count){
+            this.shares = new long[Math.max(this.shares.length * 2, count)];
+            this.scratch = new long[this.shares.length];
+        }
+        this.expenses.getShareCents(index, this.shares, this.scratch);
+
+        int payer = this.expenses.getPayerId(index);
+        balances[payer] = Money.add(balances[payer], sign * cost);
+        for (int i = 0; i < count; i++){
+            int participant = this.expenses.getParticipantId(index, i);
+            balances[participant] = Money.subtract(balances[participant], sign * this.shares[i]);
+        }
+    }
+
+    /**
+     * @param index The index of an expense
+     * @param second The epoch second of a moment
+     * @param nano The nanoseconds within the second of the moment
+     * @return Whether the expense was paid at or before the moment
+     */
+    private boolean paidBy(int index, long second, int nano){
+        return compare(this.expenses.getEpochSecond(index), this.expenses.getNano(index), second, nano) <= 0;
+    }
+
+    /**
+     * @param checkpoint The number of a checkpoint
+     * @return The position in "removals" of the first expense removed after the checkpoint was taken
+     */
+    private int firstRemovalAfter(int checkpoint){
+        int low = 0;
+        int high = this.removalCount;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (this.removalCheckpoints[middle] > checkpoint){
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return Whether the expense was paid before an expense added earlier
+     */
+    private boolean isLate(int index){
+        return Arrays.binarySearch(this.late, 0, this.lateCount, index) >= 0;
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The position in "late" of the first late expense at or after the index
+     */
+    private int firstLateFrom(int index){
+        int position = Arrays.binarySearch(this.late, 0, this.lateCount, index);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Compares two moments given as epoch seconds and nanoseconds.
+     * @return A negative number, zero or a positive number as the first moment is before, at or after the second
+     */
+    private static int compare(long secondA, int nanoA, long secondB, int nanoB){
+        int bySecond = Long.compare(secondA, secondB);
+        return bySecond != 0 ? bySecond : Integer.compare(nanoA, nanoB);
+    }
+}
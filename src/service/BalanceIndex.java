@@ -0,0 +1,267 @@
+package service;
+
+import model.Roommate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps roommates sorted by balance, so the roommates who owe money and the roommates who are owed money can be
+ * listed without looking at everyone else.
+ *
+ * Roommates are kept in a treap (a binary search tree balanced by random priorities), ordered by balance and then by
+ * the order they were added in. Every node is also threaded into a doubly-linked list in the same order, so the
+ * biggest debtors are read from the front of the list and the biggest creditors from the back.
+ *
+ * Each roommate has exactly one node, found by their roommate ID and reused when their balance changes, so updating a
+ * balance takes O(log n) time and neither hashes nor allocates. Listing k debtors or creditors takes O(k) time.
+ *
+ * @author Kris Bali
+ */
+public class BalanceIndex {
+    /** The node of every roommate in the index, by roommate ID */
+    private Node[] nodes = new Node[16];
+    /** The number of roommates in the index */
+    private int size;
+    /** The root of the treap */
+    private Node root;
+    /** The roommate with the lowest balance, who owes the most */
+    private Node first;
+    /** The roommate with the highest balance, who is owed the most */
+    private Node last;
+    /** The number of nodes created so far, used to order roommates with the same balance */
+    private long sequence;
+    /** State of the random number generator used for treap priorities */
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The position of a single roommate in the index.
+     */
+    private static final class Node {
+        /** The roommate */
+        final Roommate roommate;
+        /** Orders roommates with the same balance by the order they were added in */
+        final long order;
+        /** The random priority that keeps the treap balanced */
+        final int priority;
+        /** The balance the node is currently sorted by, in cents */
+        long balance;
+        /** Children in the treap */
+        Node left, right;
+        /** Neighbours in sorted order */
+        Node previous, next;
+
+        Node(Roommate roommate, long order, int priority){
+            this.roommate = roommate;
+            this.order = order;
+            this.priority = priority;
+            this.balance = roommate.getBalanceCents();
+        }
+    }
+
+    /**
+     * Adds a roommate to the index.
+     * @param id The ID of the roommate
+     * @param roommate The roommate to add
+     */
+    public void add(int id, Roommate roommate){
+        if (id >= this.nodes.length){
+            this.nodes = Arrays.copyOf(this.nodes, Math.max(this.nodes.length * 2, id + 1));
+        }
+        if (this.nodes[id] != null){
+            throw new IllegalArgumentException("Roommate " + roommate.getName() + " is already indexed.");
+        }
+        Node node = new Node(roommate, this.sequence++, nextPriority());
+        this.nodes[id] = node;
+        this.size++;
+        insert(node);
+    }
+
+    /**
+     * Moves a roommate to their place for their current balance. Call this after every balance change.
+     * @param id The ID of the roommate whose balance changed
+     */
+    public void update(int id){
+        Node node = this.nodes[id];
+        if (node.balance == node.roommate.getBalanceCents()){
+            return;
+        }
+        this.root = delete(this.root, node);
+        unlink(node);
+        node.balance = node.roommate.getBalanceCents();
+        insert(node);
+    }
+
+    /**
+     * @return The number of roommates in the index
+     */
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * @param limit The largest number of roommates to return
+     * @return The roommates who owe money, the one who owes the most first
+     */
+    public List<Roommate> debtors(int limit){
+        List<Roommate> debtors = new ArrayList<>();
+        for (Node node = this.first; node != null && node.balance < 0 && debtors.size() < limit; node = node.next){
+            debtors.add(node.roommate);
+        }
+        return debtors;
+    }
+
+    /**
+     * @param limit The largest number of roommates to return
+     * @return The roommates who are owed money, the one who is owed the most first
+     */
+    public List<Roommate> creditors(int limit){
+        List<Roommate> creditors = new ArrayList<>();
+        for (Node node = this.last; node != null && node.balance > 0 && creditors.size() < limit; node = node.previous){
+            creditors.add(node.roommate);
+        }
+        return creditors;
+    }
+
+    /**
+     * Inserts a node into the treap and threads it into the sorted list.
+     * @param node The node to insert
+     */
+    private void insert(Node node){
+        Node previous = null;
+        for (Node current = this.root; current != null; ){
+            if (less(node, current)){
+                current = current.left;
+            } else {
+                previous = current;
+                current = current.right;
+            }
+        }
+
+        node.previous = previous;
+        node.next = previous == null ? this.first : previous.next;
+        if (node.previous == null){
+            this.first = node;
+        } else {
+            node.previous.next = node;
+        }
+        if (node.next == null){
+            this.last = node;
+        } else {
+            node.next.previous = node;
+        }
+
+        this.root = insert(this.root, node);
+    }
+
+    /**
+     * @param root The root of a subtree
+     * @param node The node to insert
+     * @return The new root of the subtree
+     */
+    private static Node insert(Node root, Node node){
+        if (root == null){
+            return node;
+        }
+
+        if (less(node, root)){
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority){
+                Node child = root.left;
+                root.left = child.right;
+                child.right = root;
+                return child;
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority){
+                Node child = root.right;
+                root.right = child.left;
+                child.left = root;
+                return child;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * @param root The root of a subtree
+     * @param node The node to remove, which must be in the subtree
+     * @return The new root of the subtree
+     */
+    private static Node delete(Node root, Node node){
+        if (root == node){
+            Node merged = merge(node.left, node.right);
+            node.left = null;
+            node.right = null;
+            return merged;
+        }
+
+        if (less(node, root)){
+            root.left = delete(root.left, node);
+        } else {
+            root.right = delete(root.right, node);
+        }
+        return root;
+    }
+
+    /**
+     * @param left A subtree whose nodes all sort before the nodes of the right subtree
+     * @param right A subtree
+     * @return The root of both subtrees joined together
+     */
+    private static Node merge(Node left, Node right){
+        if (left == null){
+            return right;
+        }
+        if (right == null){
+            return left;
+        }
+
+        if (left.priority > right.priority){
+            left.right = merge(left.right, right);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        return right;
+    }
+
+    /**
+     * Removes a node from the sorted list.
+     * @param node The node to remove
+     */
+    private void unlink(Node node){
+        if (node.previous == null){
+            this.first = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null){
+            this.last = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        node.previous = null;
+        node.next = null;
+    }
+
+    /**
+     * @param a A node
+     * @param b Another node
+     * @return Whether a sorts before b
+     */
+    private static boolean less(Node a, Node b){
+        return a.balance < b.balance || (a.balance == b.balance && a.order < b.order);
+    }
+
+    /**
+     * @return A random treap priority, from an xorshift generator so that it doesn't allocate
+     */
+    private int nextPriority(){
+        this.seed ^= this.seed << 13;
+        this.seed ^= this.seed >>> 7;
+        this.seed ^= this.seed << 17;
+        return (int) (this.seed >>> 32);
+    }
+}
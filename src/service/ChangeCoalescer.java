@@ -0,0 +1,134 @@
+package service;
+
+import model.Roommate;
+
+import java.util.Arrays;
+
+/**
+ * Merges the changes made to an ExpenseManager into one pending LedgerChange until it is drained.
+ *
+ * The manager's thread notes each roommate whose balance changes without locking, then commits once per change,
+ * copying the new balances into the shared dirty set under a lock. A roommate already in the dirty set only has their
+ * balance overwritten, so the dirty set never holds more entries than there are roommates however many changes it
+ * merges. Draining, usually from a timer thread, hands the dirty set over as an event and starts a new one.
+ *
+ * @author Kris Bali
+ */
+final class ChangeCoalescer {
+    /** The IDs of the roommates touched by the change in progress, only used by the manager's thread */
+    private int[] touched = new int[16];
+    /** The number of roommates touched by the change in progress */
+    private int touchedCount;
+    /** Flags marking the roommates already listed as touched by the change in progress, by roommate ID */
+    private boolean[] listed = new boolean[16];
+
+    /** The IDs of the roommates changed since the last drain, in the order they first changed, guarded by this */
+    private int[] dirty = new int[16];
+    /** The roommates changed since the last drain, in the same order */
+    private Roommate[] dirtyRoommates = new Roommate[16];
+    /** The latest balances of the roommates changed since the last drain in cents, in the same order */
+    private long[] dirtyBalances = new long[16];
+    /** The number of roommates changed since the last drain */
+    private int dirtyCount;
+    /** The position of each roommate in the dirty set plus one, 0 if they aren't in it, by roommate ID */
+    private int[] positions = new int[16];
+    /** The ID of the first expense added since the last drain, or -1 if none were */
+    private long firstAddedId = -1;
+    /** The ID after the last expense added since the last drain */
+    private long addedEnd;
+    /** The number of expenses removed since the last drain */
+    private long removedCount;
+    /** The number of changes merged since the last drain */
+    private long changeCount;
+
+    /**
+     * Notes a roommate whose balance changed or who was added, as part of the change in progress.
+     * @param id The ID of the roommate
+     */
+    void touched(int id){
+        if (id >= this.listed.length){
+            this.listed = Arrays.copyOf(this.listed, Math.max(this.listed.length * 2, id + 1));
+        }
+        if (this.listed[id]){
+            return;
+        }
+        this.listed[id] = true;
+        if (this.touchedCount == this.touched.length){
+            this.touched = Arrays.copyOf(this.touched, this.touchedCount * 2);
+        }
+        this.touched[this.touchedCount++] = id;
+    }
+
+    /**
+     * Merges the change in progress into the dirty set, with the balances the touched roommates have now.
+     * @param roommates The roommates of the manager
+     * @param firstAddedId The ID of the first expense the change added, or -1 if it added none
+     * @param addedCount The number of expenses the change added, their IDs follow the first in order
+     * @param removedCount The number of expenses the change removed
+     */
+    void commit(RoommateRegistry roommates, long firstAddedId, long addedCount, long removedCount){
+        if (this.touchedCount == 0 && addedCount == 0 && removedCount == 0){
+            return;
+        }
+
+        synchronized (this){
+            for (int i = 0; i < this.touchedCount; i++){
+                int id = this.touched[i];
+                this.listed[id] = false;
+                Roommate roommate = roommates.get(id);
+                if (id >= this.positions.length){
+                    this.positions = Arrays.copyOf(this.positions, Math.max(this.positions.length * 2, id + 1));
+                }
+
+                int position = this.positions[id] - 1;
+                if (position < 0){
+                    if (this.dirtyCount == this.dirty.length){
+                        int capacity = this.dirtyCount * 2;
+                        this.dirty = Arrays.copyOf(this.dirty, capacity);
+                        this.dirtyRoommates = Arrays.copyOf(this.dirtyRoommates, capacity);
+                        this.dirtyBalances = Arrays.copyOf(this.dirtyBalances, capacity);
+                    }
+                    position = this.dirtyCount++;
+                    this.dirty[position] = id;
+                    this.dirtyRoommates[position] = roommate;
+                    this.positions[id] = position + 1;
+                }
+                this.dirtyBalances[position] = roommate.getBalanceCents();
+            }
+
+            if (addedCount > 0){
+                if (this.firstAddedId < 0){
+                    this.firstAddedId = firstAddedId;
+                }
+                this.addedEnd = firstAddedId + addedCount;
+            }
+            this.removedCount += removedCount;
+            this.changeCount++;
+        }
+        this.touchedCount = 0;
+    }
+
+    /**
+     * Hands over everything merged since the last drain and starts over.
+     * @return The merged changes, or null if nothing changed since the last drain
+     */
+    synchronized LedgerChange drain(){
+        if (this.changeCount == 0){
+            return null;
+        }
+
+        int count = this.dirtyCount;
+        LedgerChange change = new LedgerChange(Arrays.copyOf(this.dirty, count), Arrays.copyOf(this.dirtyRoommates, count), Arrays.copyOf(this.dirtyBalances, count), this.firstAddedId, this.firstAddedId < 0 ? 0 : this.addedEnd - this.firstAddedId, this.removedCount, this.changeCount);
+
+        for (int i = 0; i < count; i++){
+            this.positions[this.dirty[i]] = 0;
+            this.dirtyRoommates[i] = null;
+        }
+        this.dirtyCount = 0;
+        this.firstAddedId = -1;
+        this.addedEnd = 0;
+        this.removedCount = 0;
+        this.changeCount = 0;
+        return change;
+    }
+}
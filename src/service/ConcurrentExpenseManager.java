@@ -0,0 +1,302 @@
+package service;
+
+import metrics.Metrics;
+import model.Expense;
+import model.Money;
+import model.Roommate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A version of ExpenseManager that many threads can add roommates and expenses to at the same time.
+ *
+ * Each roommate's balance lives in its own atomic cell, so expenses between different roommates never wait on each
+ * other and expenses between the same roommates only retry a compare-and-set. Everything else a writer touches is
+ * striped: each thread is assigned one of a fixed number of stripes, and each stripe has its own lock, running total
+ * and append-only log of expenses, so writers on different stripes share no memory apart from the roommates' cells.
+ * The number of expenses is a LongAdder.
+ *
+ * Writers hold the read side of their stripe's StampedLock, which any number of them can hold at once. Taking a
+ * snapshot holds the write side of every stripe, which waits for the expenses being applied to finish and holds back
+ * new ones for as long as it takes to copy the balances. That way a snapshot never shows an expense half applied.
+ *
+ * An expense is applied one cell at a time. If one of the sums would overflow, the cells already changed are changed
+ * back before the ArithmeticException is thrown, so a refused expense leaves no trace.
+ *
+ * Day and month totals aren't kept here, snapshots taken from this manager have none.
+ *
+ * @author Kris Bali
+ */
+public class ConcurrentExpenseManager {
+    /** Maps a roommate's name to the cell holding their balance and totals */
+    private final ConcurrentHashMap<String, Cell> roommates = new ConcurrentHashMap<>();
+    /** The stripes writers are spread over, a power of two so a thread's stripe is picked with a mask */
+    private final Stripe[] stripes;
+    /** The number of expenses added */
+    private final LongAdder expenseCount = new LongAdder();
+    /** Where the latency of adding expenses is recorded, safe to record into from many threads */
+    private volatile Metrics metrics = Metrics.shared();
+
+    /**
+     * The balance and totals of a single roommate.
+     */
+    private static final class Cell {
+        /** The name of the roommate */
+        final String name;
+        /** The balance in cents */
+        final AtomicLong balance;
+        /** The total the roommate has paid in cents */
+        final AtomicLong paid = new AtomicLong();
+        /** The total of the shares the roommate has been charged in cents */
+        final AtomicLong share = new AtomicLong();
+
+        Cell(String name, long balance){
+            this.name = name;
+            this.balance = new AtomicLong(balance);
+        }
+    }
+
+    /**
+     * The lock, running total and expense log shared by the threads assigned to one stripe.
+     */
+    private static final class Stripe {
+        /** Read-locked by writers, write-locked while a snapshot is taken */
+        final StampedLock lock = new StampedLock();
+        /** The monetary sum of the expenses added on this stripe, in cents */
+        final AtomicLong total = new AtomicLong();
+        /** The expenses added on this stripe, in the order they were applied */
+        final ConcurrentLinkedQueue<Expense> expenses = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * ConcurrentExpenseManager constructor, with twice as many stripes as available processors rounded up to a power
+     * of two, so 2 to 4 stripes per processor.
+     */
+    public ConcurrentExpenseManager(){
+        // The smallest power of two at or above twice the number of processors
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++){
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return The stripe of the calling thread
+     */
+    private Stripe stripe(){
+        long id = Thread.currentThread().getId();
+        return this.stripes[(int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (this.stripes.length - 1)];
+    }
+
+    /**
+     * Sets where the latency of adding expenses is recorded, the shared metrics by default.
+     * @param metrics The metrics to record into
+     */
+    public void setMetrics(Metrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds a roommate with their starting balance.
+     * @param roommate The roommate to add
+     */
+    public void addRoommate(Roommate roommate){
+        StampedLock lock = stripe().lock;
+        long stamp = lock.readLock();
+        try {
+            if (this.roommates.putIfAbsent(roommate.getName(), new Cell(roommate.getName(), roommate.getBalanceCents())) != null){
+                throw new IllegalArgumentException("Roommate has already been added, try to create a roommate with a unique name.");
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds an expense and applies it to the balances of the payer and participants. Safe to call from many threads.
+     * @param expense The expense to add
+     * @throws IllegalArgumentException If the payer or a participant hasn't been added to this manager
+     * @throws ArithmeticException If a balance or total would overflow, in which case nothing is changed
+     */
+    public void addExpense(Expense expense){
+        long start = System.nanoTime();
+        Cell payer = cell(expense.getPayer());
+        // Look every participant up before changing anything, so an unknown roommate leaves the balances untouched
+        Cell[] participants = new Cell[expense.getParticipantCount()];
+        for (int i = 0; i < participants.length; i++){
+            participants[i] = cell(expense.getParticipant(i));
+        }
+
+        Stripe stripe = stripe();
+        long stamp = stripe.lock.readLock();
+        try {
+            int applied = 0;
+            try {
+                for (int step = 0; step < 3 + 2 * participants.length; step++){
+                    add(target(stripe, payer, participants, step), delta(expense, step));
+                    applied++;
+                }
+            } catch (ArithmeticException e){
+                // Take back the steps already applied, so the expense leaves no trace
+                for (int step = applied - 1; step >= 0; step--){
+                    target(stripe, payer, participants, step).addAndGet(-delta(expense, step));
+                }
+                throw e;
+            }
+            stripe.expenses.add(expense);
+            this.expenseCount.increment();
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+        this.metrics.recordAddExpense(start, expense.getParticipantCount() + 1);
+    }
+
+    /**
+     * @param stripe The stripe the expense is added on
+     * @param payer The cell of the payer
+     * @param participants The cells of the participants
+     * @param step The number of the step of applying an expense: the stripe's total, the payer's balance, the payer's
+     *             paid total, then each participant's balance and share total
+     * @return The cell the step changes
+     */
+    private static AtomicLong target(Stripe stripe, Cell payer, Cell[] participants, int step){
+        if (step == 0){
+            return stripe.total;
+        } else if (step == 1){
+            return payer.balance;
+        } else if (step == 2){
+            return payer.paid;
+        }
+        Cell participant = participants[(step - 3) / 2];
+        return (step - 3) % 2 == 0 ? participant.balance : participant.share;
+    }
+
+    /**
+     * @param expense The expense being applied
+     * @param step The number of the step of applying the expense, as in target
+     * @return The number of cents the step adds
+     */
+    private static long delta(Expense expense, int step){
+        if (step < 3){
+            return expense.getCostCents();
+        }
+        long share = expense.getShareCents((step - 3) / 2);
+        return (step - 3) % 2 == 0 ? Money.negate(share) : share;
+    }
+
+    /**
+     * @param roommate A roommate taking part in an expense
+     * @return The cell of the roommate
+     * @throws IllegalArgumentException If the roommate hasn't been added to this manager
+     */
+    private Cell cell(Roommate roommate){
+        Cell cell = this.roommates.get(roommate.getName());
+        if (cell == null){
+            throw new IllegalArgumentException("Roommate " + roommate.getName() + " has not been added.");
+        }
+        return cell;
+    }
+
+    /**
+     * Adds to an atomic amount of cents without allocating, failing instead of wrapping around on overflow.
+     * @param cents The atomic amount
+     * @param delta The number of cents to add
+     */
+    private static void add(AtomicLong cents, long delta){
+        long current;
+        do {
+            current = cents.get();
+        } while (!cents.compareAndSet(current, Money.add(current, delta)));
+    }
+
+    /**
+     * @param name The name of a roommate
+     * @return The current balance of the roommate, or null if no roommate has that name
+     */
+    public BigDecimal getBalance(String name){
+        Cell cell = this.roommates.get(name);
+        return cell == null ? null : Money.toBigDecimal(cell.balance.get());
+    }
+
+    /**
+     * @return The monetary sum of every expense added
+     */
+    public BigDecimal getTotalExpenses(){
+        return Money.toBigDecimal(totalCents());
+    }
+
+    /**
+     * @return The monetary sum of every expense added, in cents, summed over the stripes
+     * @throws ArithmeticException If the sum doesn't fit in a long
+     */
+    private long totalCents(){
+        long total = 0;
+        for (Stripe stripe : this.stripes){
+            total = Money.add(total, stripe.total.get());
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of expenses added
+     */
+    public long getExpenseCount(){
+        return this.expenseCount.sum();
+    }
+
+    /**
+     * @return A copy of every expense added so far. Expenses added by one thread are in the order that thread added
+     *         them; expenses added by different threads are grouped by the stripe the threads were assigned
+     */
+    public List<Expense> getExpenses(){
+        List<Expense> expenses = new ArrayList<>();
+        for (Stripe stripe : this.stripes){
+            expenses.addAll(stripe.expenses);
+        }
+        return expenses;
+    }
+
+    /**
+     * Copies every balance and total at a single point in time, no expense is ever half included.
+     * The snapshot can be turned into a regular ExpenseManager with ExpenseManager.fromSnapshot.
+     * @return The balances and totals as they are right now
+     */
+    public LedgerSnapshot snapshot(){
+        long[] stamps = new long[this.stripes.length];
+        for (int i = 0; i < stamps.length; i++){
+            stamps[i] = this.stripes[i].lock.writeLock();
+        }
+        try {
+            int count = this.roommates.size();
+            String[] names = new String[count];
+            long[] balances = new long[count];
+            long[] paid = new long[count];
+            long[] shares = new long[count];
+
+            int i = 0;
+            for (Map.Entry<String, Cell> entry : this.roommates.entrySet()){
+                Cell cell = entry.getValue();
+                names[i] = cell.name;
+                balances[i] = cell.balance.get();
+                paid[i] = cell.paid.get();
+                shares[i] = cell.share.get();
+                i++;
+            }
+
+            return new LedgerSnapshot(names, balances, paid, shares, totalCents(), new long[0], new long[0], this.expenseCount.sum());
+        } finally {
+            for (int i = 0; i < stamps.length; i++){
+                this.stripes[i].lock.unlockWrite(stamps[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package service;
+
+import model.Expense;
+import model.Money;
+import model.RecurringExpense;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals over every expense added to an ExpenseManager, updated as each expense is added so that reports
+ * never have to go back over the history.
+ *
+ * Kept totals:
+ *      The grand total of all expenses
+ *      The total each roommate has paid
+ *      The total of the shares each roommate has been charged
+ *      The total spent each day and each month, by the UTC date of the expense
+ *
+ * Totals per roommate, per day and per month are looked up in constant or logarithmic time. A total over a range of
+ * days is the difference of two prefix sums, read from a Fenwick tree over the days that have expenses in date order.
+ * A new day after every other day is appended to the tree in logarithmic time; a new day before the last one marks
+ * the tree stale, and it is rebuilt in one pass on the next range query.
+ *
+ * @author Kris Bali
+ */
+public class ExpenseAggregates {
+    /** The monetary sum of every expense, in cents */
+    private long grandTotal;
+    /** The roommates the totals are kept for, used to look roommates up by name */
+    private final RoommateRegistry registry;
+    /** The total each roommate has paid for expenses in cents, by roommate ID */
+    private long[] paid = new long[16];
+    /** The total of the shares each roommate has been charged in cents, by roommate ID */
+    private long[] shares = new long[16];
+    /** Total spent each day in cents, by the number of days since 1970-01-01 */
+    private final TreeMap<Long, long[]> days = new TreeMap<>();
+    /** Total spent each month in cents, by the number of months since year 0 */
+    private final TreeMap<Long, long[]> months = new TreeMap<>();
+    /** The day written last, its buckets are reused while expenses keep landing on the same day */
+    private long lastDay = Long.MIN_VALUE;
+    /** The total of the day written last */
+    private long[] lastDayTotal;
+    /** The total of the month of the day written last */
+    private long[] lastMonthTotal;
+    /** The position of the day written last among the days in date order, -1 if the tree is stale */
+    private int lastDayIndex = -1;
+    /** The days that have expenses in date order, the keys of the Fenwick tree */
+    private long[] dayKeys = new long[16];
+    /** Fenwick tree over the day totals in cents, 1-based in the order of dayKeys */
+    private long[] dayTree = new long[17];
+    /** The number of days in the Fenwick tree */
+    private int dayCount;
+    /** Whether a day was added before the last one, so the tree must be rebuilt before it is read */
+    private boolean treeStale;
+
+    /**
+     * ExpenseAggregates constructor
+     * @param registry The roommates the totals are kept for
+     */
+    ExpenseAggregates(RoommateRegistry registry){
+        this.registry = registry;
+    }
+
+    /**
+     * Adds an expense to every total.
+     * @param expense The expense being added
+     * @param payerId The ID of the payer
+     * @param participantIds The IDs of the participants, in the same order as the expense's participants
+     */
+    void record(Expense expense, int payerId, int[] participantIds){
+        add(expense.getCostCents(), payerId, expense.getTimestamp().getEpochSecond());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            int id = participantIds[i];
+            this.shares[id] = Money.add(this.shares[id], expense.getShareCents(i));
+        }
+    }
+
+    /**
+     * Adds occurrences of a recurring expense to every total. The totals of the payer and participants are multiplied
+     * out, the day and month totals get one entry per occurrence, on the day it was paid.
+     * @param expense The recurring expense
+     * @param payerId The ID of the payer
+     * @param participantIds The IDs of the participants, in the same order as the expense's participants
+     * @param from The number of the first occurrence to add
+     * @param to The number of the occurrence after the last one to add
+     */
+    void recordOccurrences(RecurringExpense expense, int payerId, int[] participantIds, long from, long to){
+        long times = to - from;
+        long cost = Money.multiply(expense.getCostCents(), times);
+        this.grandTotal = Money.add(this.grandTotal, cost);
+
+        ensureCapacity(this.registry.size());
+        this.paid[payerId] = Money.add(this.paid[payerId], cost);
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            int id = participantIds[i];
+            this.shares[id] = Money.add(this.shares[id], Money.multiply(expense.getShareCents(i), times));
+        }
+
+        for (long n = from; n < to; n++){
+            addToDay(Math.floorDiv(expense.getOccurrenceTime(n).getEpochSecond(), 86_400L), expense.getCostCents());
+        }
+    }
+
+    /**
+     * Takes an expense that is being removed back out of every total.
+     * @param cost The cost of the expense in cents
+     * @param shares The share each participant was charged in cents, in the same order as the participants
+     * @param payerId The ID of the payer
+     * @param participantIds The IDs of the participants
+     * @param count The number of participants
+     * @param epochSecond The epoch second the expense was paid at
+     */
+    void unrecord(long cost, long[] shares, int payerId, int[] participantIds, int count, long epochSecond){
+        add(Money.negate(cost), payerId, epochSecond);
+        for (int i = 0; i < count; i++){
+            int id = participantIds[i];
+            this.shares[id] = Money.subtract(this.shares[id], shares[i]);
+        }
+    }
+
+    /**
+     * Adds an amount to the grand total and the totals of the payer, day and month.
+     * @param cost The amount to add in cents
+     * @param payerId The ID of the payer
+     * @param epochSecond The epoch second the expense was paid at
+     */
+    private void add(long cost, int payerId, long epochSecond){
+        this.grandTotal = Money.add(this.grandTotal, cost);
+
+        ensureCapacity(this.registry.size());
+        this.paid[payerId] = Money.add(this.paid[payerId], cost);
+
+        addToDay(Math.floorDiv(epochSecond, 86_400L), cost);
+    }
+
+    /**
+     * Restores the totals of one roommate, used when loading a snapshot.
+     * @param id The ID of the roommate
+     * @param paid The total the roommate has paid, in cents
+     * @param share The total of the shares the roommate has been charged, in cents
+     */
+    void restoreRoommate(int id, long paid, long share){
+        ensureCapacity(id + 1);
+        this.paid[id] = paid;
+        this.shares[id] = share;
+    }
+
+    /**
+     * Restores the total of one day, used when loading a snapshot.
+     * @param day The number of days since 1970-01-01
+     * @param total The total spent that day, in cents
+     */
+    void restoreDay(long day, long total){
+        addToDay(day, total);
+    }
+
+    /**
+     * Restores the grand total, used when loading a snapshot.
+     * @param grandTotal The monetary sum of every expense, in cents
+     */
+    void restoreGrandTotal(long grandTotal){
+        this.grandTotal = grandTotal;
+    }
+
+    /**
+     * Grows the per-roommate totals so that they have room for a number of roommates.
+     * @param count The number of roommates
+     */
+    private void ensureCapacity(int count){
+        if (count > this.paid.length){
+            int capacity = Math.max(this.paid.length * 2, count);
+            this.paid = Arrays.copyOf(this.paid, capacity);
+            this.shares = Arrays.copyOf(this.shares, capacity);
+        }
+    }
+
+    /**
+     * Adds to the total of a day and of the month the day is in.
+     * @param day The number of days since 1970-01-01
+     * @param cents The amount to add
+     */
+    private void addToDay(long day, long cents){
+        if (day != this.lastDay){
+            LocalDate date = LocalDate.ofEpochDay(day);
+            long[] total = this.days.get(day);
+            long[] month = this.months.computeIfAbsent(date.getYear() * 12L + date.getMonthValue() - 1, key -> new long[1]);
+            if (total == null){
+                total = new long[1];
+                this.days.put(day, total);
+                this.lastDayIndex = appendDay(day);
+            } else {
+                this.lastDayIndex = this.treeStale ? -1 : Arrays.binarySearch(this.dayKeys, 0, this.dayCount, day);
+            }
+            this.lastDayTotal = total;
+            this.lastMonthTotal = month;
+            this.lastDay = day;
+        }
+        long dayTotal = Money.add(this.lastDayTotal[0], cents);
+        long monthTotal = Money.add(this.lastMonthTotal[0], cents);
+        this.lastDayTotal[0] = dayTotal;
+        this.lastMonthTotal[0] = monthTotal;
+        if (this.lastDayIndex >= 0 && !this.treeStale){
+            for (int i = this.lastDayIndex + 1; i <= this.dayCount; i += i & -i){
+                this.dayTree[i] += cents;
+            }
+        }
+    }
+
+    /**
+     * Adds a new day with a total of 0 to the Fenwick tree, or marks the tree stale if the day comes before the last.
+     * @param day The number of days since 1970-01-01
+     * @return The position of the day in the tree, -1 if the tree is stale
+     */
+    private int appendDay(long day){
+        if (this.treeStale || (this.dayCount > 0 && day < this.dayKeys[this.dayCount - 1])){
+            this.treeStale = true;
+            return -1;
+        }
+        if (this.dayCount == this.dayKeys.length){
+            this.dayKeys = Arrays.copyOf(this.dayKeys, this.dayCount * 2);
+            this.dayTree = Arrays.copyOf(this.dayTree, this.dayCount * 2 + 1);
+        }
+        this.dayKeys[this.dayCount] = day;
+        int node = ++this.dayCount;
+        // A new node covers the days after its parent's range, which all came before it and are already in the tree
+        this.dayTree[node] = prefixSum(node - 1) - prefixSum(node - (node & -node));
+        return node - 1;
+    }
+
+    /**
+     * Rebuilds the Fenwick tree from the day totals in one pass.
+     */
+    private void rebuildTree(){
+        this.dayCount = this.days.size();
+        this.dayKeys = new long[Math.max(16, this.dayCount)];
+        this.dayTree = new long[this.dayKeys.length + 1];
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : this.days.entrySet()){
+            this.dayKeys[i] = entry.getKey();
+            this.dayTree[++i] += entry.getValue()[0];
+            int parent = i + (i & -i);
+            if (parent <= this.dayCount){
+                this.dayTree[parent] += this.dayTree[i];
+            }
+        }
+        this.treeStale = false;
+        this.lastDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * @param count A number of days from the start of the Fenwick tree
+     * @return The total of the first count days, in cents
+     */
+    private long prefixSum(int count){
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i){
+            sum += this.dayTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return The monetary sum of every expense
+     */
+    public BigDecimal getGrandTotal(){
+        return Money.toBigDecimal(this.grandTotal);
+    }
+
+    /**
+     * @return The monetary sum of every expense, in cents
+     */
+    public long getGrandTotalCents(){
+        return this.grandTotal;
+    }
+
+    /**
+     * @param name The name of a roommate
+     * @return The total the roommate has paid for expenses
+     */
+    public BigDecimal getTotalPaidBy(String name){
+        return Money.toBigDecimal(getTotalPaidCents(name));
+    }
+
+    /**
+     * @param name The name of a roommate
+     * @return The total of the shares the roommate has been charged for expenses
+     */
+    public BigDecimal getTotalShareOf(String name){
+        return Money.toBigDecimal(getTotalShareCents(name));
+    }
+
+    /**
+     * @param date A UTC date
+     * @return The total spent on that date
+     */
+    public BigDecimal getTotalForDay(LocalDate date){
+        long[] total = this.days.get(date.toEpochDay());
+        return Money.toBigDecimal(total == null ? 0 : total[0]);
+    }
+
+    /**
+     * @param month A UTC month
+     * @return The total spent in that month
+     */
+    public BigDecimal getTotalForMonth(YearMonth month){
+        long[] total = this.months.get(month.getYear() * 12L + month.getMonthValue() - 1);
+        return Money.toBigDecimal(total == null ? 0 : total[0]);
+    }
+
+    /**
+     * @param from The first UTC date of the range
+     * @param to The last UTC date of the range, included
+     * @return The total spent from the first date to the last date
+     * @throws IllegalArgumentException If the first date is after the last date
+     */
+    public BigDecimal getTotalBetween(LocalDate from, LocalDate to){
+        if (from.isAfter(to)){
+            throw new IllegalArgumentException("The first date of the range can't be after the last date.");
+        }
+        if (this.treeStale){
+            rebuildTree();
+        }
+        int start = lowerBound(from.toEpochDay());
+        int end = lowerBound(to.toEpochDay() + 1);
+        return Money.toBigDecimal(prefixSum(end) - prefixSum(start));
+    }
+
+    /**
+     * @param day The number of days since 1970-01-01
+     * @return The number of days in the Fenwick tree before that day
+     */
+    private int lowerBound(long day){
+        int index = Arrays.binarySearch(this.dayKeys, 0, this.dayCount, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @param name The name of a roommate
+     * @return The total the roommate has paid for expenses, in cents
+     */
+    long getTotalPaidCents(String name){
+        int id = this.registry.idOf(name);
+        return id < 0 || id >= this.paid.length ? 0 : this.paid[id];
+    }
+
+    /**
+     * @param name The name of a roommate
+     * @return The total of the shares the roommate has been charged, in cents
+     */
+    long getTotalShareCents(String name){
+        int id = this.registry.idOf(name);
+        return id < 0 || id >= this.shares.length ? 0 : this.shares[id];
+    }
+
+    /**
+     * @return The days that have expenses, as the number of days since 1970-01-01, in date order
+     */
+    long[] getDays(){
+        long[] days = new long[this.days.size()];
+        int i = 0;
+        for (long day : this.days.keySet()){
+            days[i++] = day;
+        }
+        return days;
+    }
+
+    /**
+     * @return The total spent each day that has expenses, in cents, in the same order as getDays()
+     */
+    long[] getDayTotals(){
+        long[] totals = new long[this.days.size()];
+        int i = 0;
+        for (long[] total : this.days.values()){
+            totals[i++] = total[0];
+        }
+        return totals;
+    }
+}
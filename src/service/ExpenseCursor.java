@@ -0,0 +1,153 @@
+package service;
+
+import model.Expense;
+import model.Money;
+import model.Roommate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a page of the expense history one expense at a time, straight from the columns of the store.
+ *
+ * The cursor starts before the first expense of the page; every call to next() moves it forward by one, skipping
+ * removed expenses. The getters read the expense the cursor is on and, apart from getCost, getTimestamp and toExpense,
+ * don't allocate. The end of the page is fixed when the cursor is created, so expenses appended while it is being read
+ * don't change what it returns.
+ *
+ * Example:
+ *      ExpenseCursor cursor = manager.getExpenses(100, 50);
+ *      while (cursor.next()){
+ *          System.out.println(cursor.getName() + " " + cursor.getCost());
+ *      }
+ *
+ * @author Kris Bali
+ */
+public class ExpenseCursor {
+    /** The store being read */
+    private final ExpenseStore store;
+    /** The index of the first expense of the page */
+    private final int start;
+    /** The index just past the last expense the page can reach */
+    private final int end;
+    /** The number of expenses the page can still move to */
+    private int remaining;
+    /** The index of the expense the cursor is on */
+    private int index;
+
+    /**
+     * ExpenseCursor constructor
+     * @param store The store to read
+     * @param start The index of the first expense of the page
+     * @param end The index just past the last expense the page can reach
+     * @param limit The largest number of expenses in the page
+     */
+    ExpenseCursor(ExpenseStore store, int start, int end, int limit){
+        this.store = store;
+        this.start = start;
+        this.index = start - 1;
+        this.end = end;
+        this.remaining = limit;
+    }
+
+    /**
+     * Moves to the next expense of the page.
+     * @return Whether there was another expense, false once the page is finished
+     */
+    public boolean next(){
+        int next = this.index + 1;
+        while (next < this.end && this.store.isRemoved(next)){
+            next++;
+        }
+        if (next >= this.end || this.remaining == 0){
+            this.index = this.end;
+            return false;
+        }
+        this.index = next;
+        this.remaining--;
+        return true;
+    }
+
+    /**
+     * @return The index of the current expense in the whole history
+     */
+    public int getIndex(){
+        return current();
+    }
+
+    /**
+     * @return The ID of the current expense, which removeExpense and updateExpense take
+     */
+    public long getId(){
+        return this.store.getId(current());
+    }
+
+    /**
+     * @return The name of the current expense
+     */
+    public String getName(){
+        return this.store.getName(current());
+    }
+
+    /**
+     * @return The cost of the current expense
+     */
+    public BigDecimal getCost(){
+        return Money.toBigDecimal(getCostCents());
+    }
+
+    /**
+     * @return The cost of the current expense in cents
+     */
+    public long getCostCents(){
+        return this.store.getCostCents(current());
+    }
+
+    /**
+     * @return The roommate who paid the current expense
+     */
+    public Roommate getPayer(){
+        return this.store.getPayer(current());
+    }
+
+    /**
+     * @return The number of participants of the current expense
+     */
+    public int getParticipantCount(){
+        return this.store.getParticipantCount(current());
+    }
+
+    /**
+     * @param participant The position of the participant, from 0 to getParticipantCount() - 1
+     * @return The participant at that position
+     */
+    public Roommate getParticipant(int participant){
+        return this.store.getParticipant(current(), participant);
+    }
+
+    /**
+     * @return The moment the current expense was paid
+     */
+    public Instant getTimestamp(){
+        return this.store.getTimestamp(current());
+    }
+
+    /**
+     * @return The current expense rebuilt as an Expense object
+     */
+    public Expense toExpense(){
+        return this.store.get(current());
+    }
+
+    /**
+     * @return The index of the current expense
+     * @throws NoSuchElementException If next() hasn't been called yet or the page is finished
+     */
+    private int current(){
+        if (this.index < this.start || this.index >= this.end){
+            throw new NoSuchElementException("The cursor isn't on an expense, call next() first.");
+        }
+        return this.index;
+    }
+}
@@ -0,0 +1,409 @@
+package service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Indexes the expense history of an ExpenseStore by name, payer, participant and time, so searches only look at the
+ * expenses that can match instead of scanning the whole history.
+ *
+ * Each index maps a key to a posting list: the store indexes of the expenses with that key, in ascending order.
+ * Expense names are kept in a sorted dictionary, ignoring case, so every name starting with a prefix is one range of
+ * it. There is one posting list per payer and one per participant, found by roommate ID. The time index lists every
+ * expense ordered by the moment it was paid, so a range of time is one range of it, found by binary search.
+ *
+ * A search starts from the smallest of the posting lists its criteria pick out and intersects it with the others,
+ * skipping through each with a galloping search, so a query costs about the size of its most selective criterion
+ * rather than the size of the history. The time range is only turned into a sorted list when it is the most
+ * selective criterion; otherwise each candidate's timestamp is checked straight from the store.
+ *
+ * Every expense is indexed once, when it is appended, in about 12 + 4k bytes for k participants. Removed expenses
+ * stay in the posting lists and are skipped by searches, the same way the store keeps their columns.
+ *
+ * Expenses usually arrive in the order they were paid and go straight onto the end of the time index. An expense paid
+ * before the last one in the time index is "late": it is put aside, and the late expenses are sorted and merged into
+ * the time index in one pass the next time a search needs it. Appending costs O(1) however the expenses are ordered,
+ * and an unordered bulk load costs one O(n log n) merge rather than O(n) per expense.
+ *
+ * @author Kris Bali
+ */
+public class ExpenseIndex {
+    /** A posting list that matches nothing */
+    private static final Postings NONE = new Postings();
+
+    /** The store being indexed */
+    private final ExpenseStore store;
+    /** The posting list of each distinct expense name in lower case, sorted by name */
+    private final TreeMap<String, Postings> names = new TreeMap<>();
+    /** The posting list of each name ID of the store, so appending doesn't look names up again */
+    private Postings[] byNameId = new Postings[16];
+    /** The posting list of the expenses each roommate paid for, by roommate ID */
+    private Postings[] payers = new Postings[16];
+    /** The posting list of the expenses each roommate takes part in, by roommate ID */
+    private Postings[] participants = new Postings[16];
+    /** The indexes of every expense but the late ones, ordered by the moment it was paid and then by index */
+    private int[] byTime = new int[16];
+    /** The number of expenses in the time index */
+    private int timeSize;
+    /** The indexes of the expenses paid before the last one in the time index, in the order they were appended */
+    private int[] late = new int[16];
+    /** The number of late expenses waiting to be merged into the time index */
+    private int lateCount;
+    /** The number of expenses indexed */
+    private int size;
+
+    /**
+     * The store indexes of the expenses with one key, in ascending order.
+     */
+    private static final class Postings {
+        /** The indexes, of which the first "size" are used */
+        int[] indexes;
+        /** The number of indexes */
+        int size;
+
+        Postings(){
+            this(new int[4], 0);
+        }
+
+        Postings(int[] indexes, int size){
+            this.indexes = indexes;
+            this.size = size;
+        }
+
+        /**
+         * @param index An index greater than every index already in the list
+         */
+        void add(int index){
+            if (this.size > 0 && this.indexes[this.size - 1] == index){
+                // A roommate listed twice as a participant of the same expense
+                return;
+            }
+            if (this.size == this.indexes.length){
+                this.indexes = Arrays.copyOf(this.indexes, this.size * 2);
+            }
+            this.indexes[this.size++] = index;
+        }
+    }
+
+    /**
+     * ExpenseIndex constructor
+     * @param store The store to index, whose expenses must be passed to appended() as they are added
+     */
+    public ExpenseIndex(ExpenseStore store){
+        this.store = store;
+    }
+
+    /**
+     * Indexes an expense that was just appended to the store.
+     * @param index The index of the expense in the store
+     */
+    public void appended(int index){
+        int nameId = this.store.getNameId(index);
+        if (nameId >= this.byNameId.length){
+            this.byNameId = Arrays.copyOf(this.byNameId, Math.max(this.byNameId.length * 2, nameId + 1));
+        }
+        if (this.byNameId[nameId] == null){
+            // Names that only differ in case share a posting list
+            this.byNameId[nameId] = this.names.computeIfAbsent(this.store.getName(index).toLowerCase(Locale.ROOT), key -> new Postings());
+        }
+        this.byNameId[nameId].add(index);
+
+        this.payers = add(this.payers, this.store.getPayerId(index), index);
+        for (int i = 0; i < this.store.getParticipantCount(index); i++){
+            this.participants = add(this.participants, this.store.getParticipantId(index, i), index);
+        }
+
+        if (this.timeSize == 0 || compare(this.byTime[this.timeSize - 1], this.store.getEpochSecond(index), this.store.getNano(index)) <= 0){
+            if (this.timeSize == this.byTime.length){
+                this.byTime = Arrays.copyOf(this.byTime, this.timeSize * 2);
+            }
+            this.byTime[this.timeSize++] = index;
+        } else {
+            if (this.lateCount == this.late.length){
+                this.late = Arrays.copyOf(this.late, this.lateCount * 2);
+            }
+            this.late[this.lateCount++] = index;
+        }
+        this.size++;
+    }
+
+    /**
+     * Sorts the late expenses and merges them into the time index.
+     */
+    private void mergeLate(){
+        if (this.lateCount == 0){
+            return;
+        }
+        int[] late = Arrays.copyOf(this.late, this.lateCount);
+        sortByTime(late, new int[late.length], 0, late.length);
+
+        int[] merged = new int[Math.max(16, Integer.highestOneBit(this.size) << 1)];
+        int main = 0;
+        int other = 0;
+        int count = 0;
+        while (main < this.timeSize && other < late.length){
+            // On a tie the expense with the lower index comes first, and late expenses were appended after the rest
+            if (compare(late[other], this.byTime[main]) < 0){
+                merged[count++] = late[other++];
+            } else {
+                merged[count++] = this.byTime[main++];
+            }
+        }
+        System.arraycopy(this.byTime, main, merged, count, this.timeSize - main);
+        count += this.timeSize - main;
+        System.arraycopy(late, other, merged, count, late.length - other);
+        this.byTime = merged;
+        this.timeSize = this.size;
+        this.lateCount = 0;
+    }
+
+    /**
+     * Merge sorts store indexes by the moment they were paid and then by index.
+     * @param indexes The indexes to sort
+     * @param scratch Working space at least as long as the range
+     * @param from The first position of the range to sort
+     * @param to The position after the last one of the range to sort
+     */
+    private void sortByTime(int[] indexes, int[] scratch, int from, int to){
+        if (to - from < 2){
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortByTime(indexes, scratch, from, middle);
+        sortByTime(indexes, scratch, middle, to);
+        if (compare(indexes[middle - 1], indexes[middle]) <= 0){
+            return;
+        }
+        System.arraycopy(indexes, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++){
+            if (right == to || (left < middle && compare(scratch[left], scratch[right]) <= 0)){
+                indexes[i] = scratch[left++];
+            } else {
+                indexes[i] = scratch[right++];
+            }
+        }
+    }
+
+    /**
+     * @param lists Posting lists by roommate ID
+     * @param id The ID of a roommate
+     * @param index The index of an expense to add to the roommate's posting list
+     * @return The posting lists, grown if the roommate ID didn't fit
+     */
+    private static Postings[] add(Postings[] lists, int id, int index){
+        if (id >= lists.length){
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, id + 1));
+        }
+        if (lists[id] == null){
+            lists[id] = new Postings();
+        }
+        lists[id].add(index);
+        return lists;
+    }
+
+    /**
+     * Finds the expenses that meet every criterion given.
+     * @param namePrefix The start of the names to match, ignoring case, or null to match any name
+     * @param payerId The ID of the roommate who must have paid, or -1 to match any payer
+     * @param participantIds The IDs of the roommates who must all take part
+     * @param from The earliest moment to match, or null for no limit
+     * @param to The moment from which expenses no longer match, or null for no limit
+     * @return The store indexes of the matching expenses that haven't been removed, in ascending order
+     */
+    public int[] search(String namePrefix, int payerId, int[] participantIds, Instant from, Instant to){
+        Postings[] lists = new Postings[2 + participantIds.length];
+        int listCount = 0;
+        if (namePrefix != null){
+            lists[listCount++] = named(namePrefix.toLowerCase(Locale.ROOT));
+        }
+        if (payerId >= 0){
+            lists[listCount++] = get(this.payers, payerId);
+        }
+        for (int id : participantIds){
+            lists[listCount++] = get(this.participants, id);
+        }
+
+        boolean timed = from != null || to != null;
+        if (timed){
+            mergeLate();
+        }
+        int start = from == null ? 0 : lowerBound(from.getEpochSecond(), from.getNano());
+        int end = to == null ? this.size : lowerBound(to.getEpochSecond(), to.getNano());
+        if (end < start){
+            end = start;
+        }
+
+        // The most selective criterion drives the search
+        Arrays.sort(lists, 0, listCount, (a, b) -> Integer.compare(a.size, b.size));
+        Postings driver;
+        int first = 0;
+        if (timed && (listCount == 0 || end - start < lists[0].size)){
+            int[] indexes = Arrays.copyOfRange(this.byTime, start, end);
+            Arrays.sort(indexes);
+            driver = new Postings(indexes, indexes.length);
+            timed = false;
+        } else if (listCount > 0){
+            driver = lists[0];
+            first = 1;
+        } else {
+            int[] indexes = new int[this.size];
+            Arrays.setAll(indexes, i -> i);
+            driver = new Postings(indexes, indexes.length);
+        }
+
+        int[] positions = new int[listCount];
+        int[] matches = new int[driver.size];
+        int count = 0;
+        candidates:
+        for (int i = 0; i < driver.size; i++){
+            int index = driver.indexes[i];
+            for (int list = first; list < listCount; list++){
+                Postings postings = lists[list];
+                int position = seek(postings.indexes, postings.size, positions[list], index);
+                positions[list] = position;
+                if (position == postings.size){
+                    break candidates;
+                }
+                if (postings.indexes[position] != index){
+                    continue candidates;
+                }
+            }
+            if (this.store.isRemoved(index)){
+                continue;
+            }
+            if (timed && !within(index, from, to)){
+                continue;
+            }
+            matches[count++] = index;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * @param prefix The start of the names to match, in lower case
+     * @return The indexes of every expense whose name starts with the prefix, in ascending order
+     */
+    private Postings named(String prefix){
+        Postings only = null;
+        int total = 0;
+        int lists = 0;
+        for (Map.Entry<String, Postings> entry : this.names.tailMap(prefix).entrySet()){
+            if (!entry.getKey().startsWith(prefix)){
+                break;
+            }
+            only = entry.getValue();
+            total += only.size;
+            lists++;
+        }
+        if (lists <= 1){
+            return only == null ? NONE : only;
+        }
+
+        // Several names match, their posting lists don't overlap so they are joined and sorted
+        int[] indexes = new int[total];
+        int offset = 0;
+        for (Map.Entry<String, Postings> entry : this.names.tailMap(prefix).entrySet()){
+            if (!entry.getKey().startsWith(prefix)){
+                break;
+            }
+            System.arraycopy(entry.getValue().indexes, 0, indexes, offset, entry.getValue().size);
+            offset += entry.getValue().size;
+        }
+        Arrays.sort(indexes);
+        return new Postings(indexes, total);
+    }
+
+    /**
+     * @param lists Posting lists by roommate ID
+     * @param id The ID of a roommate
+     * @return The roommate's posting list, empty if they have none
+     */
+    private static Postings get(Postings[] lists, int id){
+        return id < lists.length && lists[id] != null ? lists[id] : NONE;
+    }
+
+    /**
+     * Gallops forward from a position to the first index at or after a target: the step doubles until it overshoots,
+     * then a binary search finishes, so skipping k indexes takes O(log k) time.
+     * @param indexes Indexes in ascending order
+     * @param size The number of indexes used
+     * @param from The position to start from
+     * @param target The index to look for
+     * @return The position of the first index at or after "from" that is at least the target, "size" if there is none
+     */
+    static int seek(int[] indexes, int size, int from, int target){
+        int high = from;
+        int step = 1;
+        while (high < size && indexes[high] < target){
+            from = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+        while (from < high){
+            int middle = (from + high) >>> 1;
+            if (indexes[middle] < target){
+                from = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * @param index The index of an expense
+     * @param from The earliest moment to match, or null for no limit
+     * @param to The moment from which expenses no longer match, or null for no limit
+     * @return Whether the expense was paid at or after "from" and before "to"
+     */
+    private boolean within(int index, Instant from, Instant to){
+        return (from == null || compare(index, from.getEpochSecond(), from.getNano()) >= 0)
+                && (to == null || compare(index, to.getEpochSecond(), to.getNano()) < 0);
+    }
+
+    /**
+     * @param seconds The seconds since the epoch of a moment
+     * @param nanos The nanoseconds within the second of the moment
+     * @return The first position in the time index paid at or after the moment
+     */
+    private int lowerBound(long seconds, int nanos){
+        int low = 0;
+        int high = this.timeSize;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (compare(this.byTime[middle], seconds, nanos) < 0){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param index The index of an expense
+     * @param seconds The seconds since the epoch of a moment
+     * @param nanos The nanoseconds within the second of the moment
+     * @return Below 0 if the expense was paid before the moment, 0 if at it, above 0 if after it
+     */
+    private int compare(int index, long seconds, int nanos){
+        int compared = Long.compare(this.store.getEpochSecond(index), seconds);
+        return compared != 0 ? compared : Integer.compare(this.store.getNano(index), nanos);
+    }
+
+    /**
+     * @param a The index of an expense
+     * @param b The index of another expense
+     * @return Below 0 if expense a comes first in the time index, above 0 if expense b does
+     */
+    private int compare(int a, int b){
+        int compared = compare(a, this.store.getEpochSecond(b), this.store.getNano(b));
+        return compared != 0 ? compared : Integer.compare(a, b);
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import model.Expense;
+import model.RecurringExpense;
+import model.Roommate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Receives every change made to an ExpenseManager before the change is applied, so the change can be persisted.
+ * If a journal method throws, the ExpenseManager leaves its state untouched. A journal may persist changes after its
+ * methods return, in which case durable() tells when they are safe.
+ *
+ * @author Kris Bali
+ */
+public interface ExpenseJournal {
+    /**
+     * Records a roommate that is about to be added.
+     * @param roommate The roommate being added, with their starting balance
+     */
+    void roommateAdded(Roommate roommate);
+
+    /**
+     * Records an expense that is about to be added.
+     * @param expense The expense being added
+     */
+    void expenseAdded(Expense expense);
+
+    /**
+     * Records a batch of expenses that is about to be added all at once. The batch must be recorded so that either
+     * every expense in it or none of them is replayed.
+     * By default each expense is recorded on its own, which is only all or nothing if the journal never fails midway.
+     * @param expenses The expenses being added, in order
+     */
+    default void expensesAdded(List<Expense> expenses){
+        for (Expense expense : expenses){
+            expenseAdded(expense);
+        }
+    }
+
+    /**
+     * Records an expense that is about to be removed. The expense itself is passed along, so the removal can be
+     * replayed into a manager that no longer holds it, such as one restored from a snapshot taken after it was added.
+     * @param id The ID of the expense being removed
+     * @param removed The expense being removed, as it was added
+     */
+    void expenseRemoved(long id, Expense removed);
+
+    /**
+     * Records an expense that is about to be replaced. The replacement must be recorded so that either both the
+     * removal and the new expense or neither of them are replayed. The old expense is passed along like in
+     * expenseRemoved.
+     * @param id The ID of the expense being replaced
+     * @param removed The expense being replaced, as it was added
+     * @param replacement The expense replacing it
+     */
+    void expenseUpdated(long id, Expense removed, Expense replacement);
+
+    /**
+     * Records a recurring expense that is about to be added.
+     * @param expense The recurring expense being added
+     */
+    void recurringExpenseAdded(RecurringExpense expense);
+
+    /**
+     * Records that the occurrences of every recurring expense paid at or before a moment are about to be folded into
+     * the balances. Replaying the record at the same point folds in exactly the same occurrences.
+     * @param moment The moment the recurring expenses are brought up to
+     */
+    void recurringExpensesAccrued(Instant moment);
+
+    /**
+     * Records a recurring expense that is about to stop repeating.
+     * @param id The ID of the recurring expense
+     * @param end The moment after which there are no more occurrences
+     */
+    void recurringExpenseEnded(int id, Instant end);
+
+    /**
+     * Records a period that is about to be closed, along with the expenses it moves out of the manager. Replaying the
+     * record must close the period with the same transfers at the same point.
+     * @param close The transfers, carried balances and expense IDs of the period
+     * @param expenses A cursor over every expense of the period the manager holds
+     */
+    void periodClosed(PeriodClose close, ExpenseCursor expenses);
+
+    /**
+     * By default a change is persisted by the time the journal method recording it returns.
+     * @return A future that completes once every change recorded so far is persisted
+     */
+    default CompletableFuture<Void> durable(){
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -1,58 +1,441 @@
 package service;
 
+import metrics.Metrics;
 import model.Expense;
+import model.Money;
+import model.RecurringExpense;
 import model.Roommate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages the collection of roommates and the expenses between them.
  *
+ * Every roommate gets a dense integer ID when they are added. Expenses remember the IDs of their payer and
+ * participants, so applying an expense indexes straight into arrays instead of looking roommates up by name.
+ *
+ * Recurring expenses, such as rent, are kept apart from the expense history in a RecurringSchedule. Their occurrences
+ * are folded into the balances when accrueRecurringExpenses is called, as many at once as have come due.
+ *
+ * Every change to a roommate's balance is also recorded in their personal ledger, so their history and statements are
+ * read without going through anyone else's expenses.
+ *
+ * A view can follow the balances through publishChanges, which merges every change made during an interval into one
+ * event listing each changed roommate once.
+ *
+ * Once the roommates settle up, closePeriod records the transfers they settled with and drops the period's expenses,
+ * search index, balance checkpoints and ledgers, carrying only the balances forward. The journal keeps the dropped
+ * expenses in an archive, so what the manager holds stays proportional to the open period.
+ *
  * @author Kris Bali
  */
 public class ExpenseManager {
-    /** HashMap that maps a roommate's name to their respective Roommate instance */
-    private HashMap<String, Roommate> roommates;
-    /** List of expenses the roommates have between them */
-    private List<Expense> expenses;
+    /** The roommates, by ID and by name */
+    private final RoommateRegistry roommates = new RoommateRegistry();
+    /** The history of expenses the roommates have between them, stored in columns */
+    private ExpenseStore expenses = new ExpenseStore(this.roommates);
+    /** Posting lists of the expense history by name, payer, participant and time, for search */
+    private ExpenseIndex searchIndex = new ExpenseIndex(this.expenses);
+    /** Checkpoints of past balances, for balancesAsOf */
+    private BalanceHistory history = new BalanceHistory(this.roommates, this.expenses);
+    /** Running totals of every expense ever added, including expenses no longer held in "expenses" */
+    private final ExpenseAggregates aggregates = new ExpenseAggregates(this.roommates);
+    /** The recurring expenses and how many of their occurrences are in the balances */
+    private final RecurringSchedule recurring = new RecurringSchedule();
+    /** The personal ledger of every roommate, by roommate ID */
+    private RoommateLedger ledger = new RoommateLedger();
+    /** Every roommate sorted by balance, so debtors and creditors can be listed without a full scan */
+    private final BalanceIndex balanceIndex = new BalanceIndex();
+    /** Keeps the settlement plan up to date, or null until the plan is first asked for */
+    private SettlementPlanner planner;
+    /** Merges changes into events for publishChanges, or null until changes are first published */
+    private ChangeCoalescer changes;
+    /** The publisher returned by the last call to publishChanges, or null if changes have never been published */
+    private LedgerChangePublisher changePublisher;
+    /** The journal that records every change before it is applied, or null if changes aren't persisted */
+    private ExpenseJournal journal;
+    /** Where the latency of adding expenses is recorded */
+    private Metrics metrics = Metrics.shared();
+    /** Reusable buffer for the IDs of the participants of the expense being added */
+    private int[] participantIds = new int[16];
+    /** Reusable buffer for the shares of the expense being removed */
+    private long[] shares = new long[16];
+    /** Reusable working space for splitting the expense being removed */
+    private long[] splitScratch = new long[16];
+    /** Reusable buffer adding up the change to each roommate's balance in a batch, or the balance a single change would
+     *  leave them with while it is checked, by roommate ID */
+    private long[] batchDeltas = new long[16];
+    /** Reusable flags marking the roommates already listed as touched by the batch being added, by roommate ID */
+    private boolean[] batchTouched = new boolean[16];
 
     /**
      * ExpenseManager constructor
      * @param roommates The hashmap of roommate's names mapped to their respective Roommate instances
-     * @param expenses The list of expenses the roommates have
+     * @param expenses The list of expenses the roommates have, already reflected in the roommates' balances
      */
     public ExpenseManager(HashMap<String, Roommate> roommates, List<Expense> expenses){
-        this.roommates = new HashMap<>(roommates);
-        this.expenses = new ArrayList<>(expenses);
+        for (Roommate roommate : roommates.values()){
+            register(roommate);
+        }
+
+        for (Expense expense : expenses){
+            int payerId = resolve(expense.getPayer(), expense.getPayerId());
+            resolveParticipants(expense);
+            int index = this.expenses.append(expense, payerId, this.participantIds);
+            this.history.appended(index);
+            this.searchIndex.appended(index);
+            this.history.alreadyApplied(index);
+            this.aggregates.record(expense, payerId, this.participantIds);
+            recordEntries(index, LedgerEntry.Kind.EXPENSE);
+        }
+        this.history.applied();
+        // The expenses were already in the balances, so each ledger is moved to end at its roommate's balance
+        for (int id = 0; id < this.roommates.size(); id++){
+            this.ledger.rebase(id, this.roommates.get(id).getBalanceCents());
+        }
+    }
+
+    /**
+     * Rebuilds a manager from a snapshot. The expenses of the open period are held by the new manager again, already
+     * reflected in its balances; expenses of closed periods are only reflected in its totals.
+     * @param snapshot The snapshot to restore
+     * @return A manager holding the roommates, balances and totals of the snapshot
+     */
+    public static ExpenseManager fromSnapshot(LedgerSnapshot snapshot){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+
+        for (int i = 0; i < snapshot.getRoommateCount(); i++){
+            Roommate roommate = new Roommate(snapshot.getName(i), Money.toBigDecimal(snapshot.getBalanceCents(i)));
+            int id = manager.register(roommate);
+            manager.aggregates.restoreRoommate(id, snapshot.getTotalPaidCents(i), snapshot.getTotalShareCents(i));
+        }
+        manager.aggregates.restoreGrandTotal(snapshot.getTotalExpensesCents());
+        for (int i = 0; i < snapshot.getDayCount(); i++){
+            manager.aggregates.restoreDay(snapshot.getDay(i), snapshot.getDayTotalCents(i));
+        }
+        manager.expenses.setFirstId(snapshot.getFirstExpenseId());
+        for (int i = 0; i < snapshot.getPeriodExpenseCount(); i++){
+            manager.restoreExpense(snapshot.getPeriodExpense(i), snapshot.isPeriodExpenseRemoved(i));
+        }
+        manager.history.applied();
+        // The expenses were already in the balances, so each ledger is moved to end at its roommate's balance
+        for (int id = 0; id < manager.roommates.size(); id++){
+            manager.ledger.rebase(id, manager.roommates.get(id).getBalanceCents());
+        }
+        for (int i = 0; i < snapshot.getRecurringCount(); i++){
+            manager.restoreRecurring(snapshot.getRecurring(i), snapshot.getRecurringAccrued(i));
+        }
+
+        return manager;
     }
 
     /**
-     * @return A copy of this private field "roommates"'s hashmap
+     * @return A copy of the current balances and totals, which can be restored with fromSnapshot
      */
-    public HashMap<String, Roommate> getRoommates(){
-        return new HashMap<>(this.roommates);
+    public LedgerSnapshot snapshot(){
+        String[] names = new String[this.roommates.size()];
+        long[] balances = new long[names.length];
+        long[] paid = new long[names.length];
+        long[] shares = new long[names.length];
+
+        for (int id = 0; id < names.length; id++){
+            Roommate roommate = this.roommates.get(id);
+            names[id] = roommate.getName();
+            balances[id] = roommate.getBalanceCents();
+            paid[id] = this.aggregates.getTotalPaidCents(roommate.getName());
+            shares[id] = this.aggregates.getTotalShareCents(roommate.getName());
+        }
+
+        long[] accrued = new long[this.recurring.size()];
+        for (int id = 0; id < accrued.length; id++){
+            accrued[id] = this.recurring.getAccrued(id);
+        }
+
+        List<Expense> expenses = new ArrayList<>(this.expenses.size());
+        boolean[] removed = new boolean[this.expenses.size()];
+        for (int index = 0; index < removed.length; index++){
+            expenses.add(this.expenses.get(index));
+            removed[index] = this.expenses.isRemoved(index);
+        }
+
+        return new LedgerSnapshot(names, balances, paid, shares, this.aggregates.getGrandTotalCents(), this.aggregates.getDays(), this.aggregates.getDayTotals(), this.expenses.getNextId(), this.recurring.asList(), accrued, this.expenses.getFirstId(), expenses, removed);
+    }
+
+    /**
+     * Restores an expense of the open period from a snapshot, whose balances and totals already reflect it unless it
+     * was removed.
+     * @param expense The expense, whose roommates are matched to this manager's by name
+     * @param removed Whether the expense was removed
+     */
+    private void restoreExpense(Expense expense, boolean removed){
+        int payerId = resolve(expense.getPayer(), -1);
+        resolveParticipants(expense);
+        int index = this.expenses.append(expense, payerId, this.participantIds);
+        this.history.appended(index);
+        this.searchIndex.appended(index);
+        recordEntries(index, LedgerEntry.Kind.EXPENSE);
+        if (removed){
+            recordEntries(index, LedgerEntry.Kind.REMOVAL);
+            this.expenses.remove(index);
+            this.history.removed(index);
+        } else {
+            this.history.alreadyApplied(index);
+        }
+    }
+
+    /**
+     * Restores a recurring expense from a snapshot, whose balances already reflect the occurrences folded in.
+     * @param expense The recurring expense, whose roommates are matched to this manager's by name
+     * @param accrued The number of its occurrences folded into the balances
+     */
+    private void restoreRecurring(RecurringExpense expense, long accrued){
+        List<Roommate> participants = new ArrayList<>(expense.getParticipantCount());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            participants.add(this.roommates.get(resolve(expense.getParticipant(i), -1)));
+        }
+        int payerId = resolve(expense.getPayer(), -1);
+        RecurringExpense restored = new RecurringExpense(expense.getExpenseName(), expense.getCost(), this.roommates.get(payerId), participants, expense.getSplit(), expense.getStart(), expense.getPeriod(), expense.getEnd());
+
+        int[] ids = resolveParticipants(restored);
+        this.recurring.add(restored, payerId, ids, accrued);
+        this.history.recurringRestored(payerId, Money.multiply(restored.getCostCents(), accrued));
+        for (int i = 0; i < restored.getParticipantCount(); i++){
+            this.history.recurringRestored(ids[i], Money.negate(Money.multiply(restored.getShareCents(i), accrued)));
+        }
     }
 
     /**
-     * @return A copy of this private field "expenses"'s list
+     * @return A read-only view of every roommate's name mapped to their Roommate instance, which shows roommates
+     * added later too. Copy it to get a map that can be changed.
+     */
+    public Map<String, Roommate> getRoommates(){
+        return this.roommates.asMap();
+    }
+
+    /**
+     * @return A read-only view of the expense history, which shows expenses added later too. Each expense is rebuilt
+     * from the columns of the store as it is read, nothing is copied up front.
      */
     public List<Expense> getExpenses(){
-        return new ArrayList<>(this.expenses);
+        return this.expenses.asList();
+    }
+
+    /**
+     * Pages through the expense history without building Expense objects.
+     * @param offset The index of the first expense to read
+     * @param limit The largest number of expenses to read
+     * @return A cursor over the page, which ignores expenses added after it was created
+     */
+    public ExpenseCursor getExpenses(int offset, int limit){
+        return this.expenses.cursor(offset, limit);
+    }
+
+    /**
+     * @param roommate A roommate
+     * @return A read-only view of the roommate's ledger, every change to their balance in the order it was made, which
+     *         shows entries added later too. Each entry is built as it is read, from the roommate's ledger alone
+     * @throws IllegalArgumentException If the roommate hasn't been added to this manager
+     */
+    public List<LedgerEntry> getLedger(Roommate roommate){
+        int id = resolve(roommate, -1);
+        return new AbstractList<LedgerEntry>(){
+            @Override
+            public LedgerEntry get(int index){
+                return entry(id, index);
+            }
+
+            @Override
+            public int size(){
+                return ExpenseManager.this.ledger.size(id);
+            }
+        };
+    }
+
+    /**
+     * Builds a roommate's statement for a span of time from their ledger alone, in time proportional to the number of
+     * entries they have.
+     * @param roommate A roommate
+     * @param from The start of the span, included
+     * @param to The end of the span, left out
+     * @return The roommate's balance before the span, the entries dated in it and their balance at its end
+     * @throws IllegalArgumentException If the roommate hasn't been added to this manager
+     */
+    public RoommateStatement getStatement(Roommate roommate, Instant from, Instant to){
+        if (from == null || to == null || to.isBefore(from)){
+            throw new IllegalArgumentException("Please provide a span of time that ends after it starts");
+        }
+        return statement(resolve(roommate, -1), from, to);
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param from The start of the span, included
+     * @param to The end of the span, left out
+     * @return The roommate's statement for the span, read from their ledger alone so statements of different
+     *         roommates can be built on different threads while nothing changes the manager
+     */
+    RoommateStatement statement(int id, Instant from, Instant to){
+        long opening = this.ledger.getOpeningCents(id);
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (int i = 0; i < this.ledger.size(id); i++){
+            Instant moment = Instant.ofEpochSecond(this.ledger.getEpochSecond(id, i));
+            if (moment.isBefore(from)){
+                opening = Money.add(opening, this.ledger.getDeltaCents(id, i));
+            } else if (moment.isBefore(to)){
+                entries.add(entry(id, i));
+            }
+        }
+        return new RoommateStatement(this.roommates.get(id), from, to, opening, entries);
+    }
+
+    /**
+     * @return The number of roommates, whose IDs run from 0 to one less than it
+     */
+    int roommateCount(){
+        return this.roommates.size();
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param index The position of an entry in the roommate's ledger
+     * @return The entry, with the name of the expense it refers to
+     */
+    private LedgerEntry entry(int id, int index){
+        LedgerEntry.Kind kind = this.ledger.getKind(id, index);
+        long reference = this.ledger.getReference(id, index);
+        String name;
+        if (kind == LedgerEntry.Kind.RECURRING){
+            name = this.recurring.get((int) reference).getExpenseName();
+        } else {
+            name = this.expenses.getName(this.expenses.indexOf(reference));
+        }
+        return new LedgerEntry(kind, reference, name, Instant.ofEpochSecond(this.ledger.getEpochSecond(id, index)), this.ledger.getPaidCents(id, index), this.ledger.getDeltaCents(id, index), this.ledger.getBalanceCents(id, index));
+    }
+
+    /**
+     * Searches the expense history through its indexes, looking only at the expenses the most selective criterion of
+     * the query picks out. Expenses of closed periods aren't in the history and are never found.
+     * @param query What the expenses must match
+     * @return A read-only list of the matching expenses in history order, each rebuilt as it is read
+     * @throws IllegalArgumentException If a roommate in the query hasn't been added to this manager
+     */
+    public List<Expense> search(ExpenseQuery query){
+        int payerId = query.getPayer() == null ? -1 : resolve(query.getPayer(), -1);
+        int[] participantIds = new int[query.getParticipants().size()];
+        for (int i = 0; i < participantIds.length; i++){
+            participantIds[i] = resolve(query.getParticipants().get(i), -1);
+        }
+        return this.expenses.asList(this.searchIndex.search(query.getNamePrefix(), payerId, participantIds, query.getFrom(), query.getTo()));
+    }
+
+    /**
+     * @return The number of expenses in the history, not counting removed ones
+     */
+    public int getExpenseCount(){
+        return this.expenses.liveSize();
+    }
+
+    /**
+     * @param id The ID of an expense
+     * @return The expense, rebuilt from the columns of the store
+     * @throws IllegalArgumentException If there is no expense with that ID in the history
+     */
+    public Expense getExpense(long id){
+        return this.expenses.get(requireLive(id));
     }
 
     /**
-     * Inserts a Roommate instance into this private field "roommates"
+     * Sets the journal that records every roommate and expense added from now on.
+     * @param journal The journal to record changes to, or null to stop recording
+     */
+    public void setJournal(ExpenseJournal journal){
+        this.journal = journal;
+    }
+
+    /**
+     * @return A future that completes once every change made so far is persisted by the journal, already complete
+     *         if there is no journal or it persists each change before applying it
+     */
+    public CompletableFuture<Void> whenDurable(){
+        if (this.journal == null){
+            return CompletableFuture.completedFuture(null);
+        }
+        return this.journal.durable();
+    }
+
+    /**
+     * Starts publishing the changes made to this manager from now on, merged into at most one event per interval:
+     * the roommates whose balances changed or who were added, each listed once with their latest balance, and the
+     * expenses added and removed. Only one publisher can be open at a time.
+     * @param interval The time between events, for example 16 milliseconds for one event per frame
+     * @return The publisher to subscribe to, close it to stop publishing
+     * @throws IllegalStateException If the publisher returned by an earlier call hasn't been closed
+     */
+    public LedgerChangePublisher publishChanges(Duration interval){
+        if (this.changePublisher != null && !this.changePublisher.isClosed()){
+            throw new IllegalStateException("Changes are already being published, close the publisher first");
+        }
+
+        if (this.changes == null){
+            this.changes = new ChangeCoalescer();
+        }
+        // Changes made while nothing was publishing aren't part of the new stream
+        this.changes.drain();
+        this.changePublisher = new LedgerChangePublisher(this.changes, interval);
+        return this.changePublisher;
+    }
+
+    /**
+     * Sets where the latency of adding expenses is recorded, the shared metrics by default.
+     * @param metrics The metrics to record into
+     */
+    public void setMetrics(Metrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds a roommate and gives them the next roommate ID.
      * @param roommate The roommate to add to the map of roommates
      */
     public void addRoommate(Roommate roommate){
-        if (this.roommates.containsKey(roommate.getName())){
+        if (this.roommates.idOf(roommate.getName()) >= 0){
             throw new IllegalArgumentException("Roommate has already been added, try to create a roommate with a unique name.");
         }
-        this.roommates.put(roommate.getName(), roommate);
+        if (this.journal != null){
+            this.journal.roommateAdded(roommate);
+        }
+        register(roommate);
+        committed(-1, 0, 0);
+    }
+
+    /**
+     * Registers a roommate and adds them to the balance index and settlement plan.
+     * @param roommate The roommate to register
+     * @return The ID given to the roommate
+     */
+    private int register(Roommate roommate){
+        int id = this.roommates.add(roommate);
+        this.balanceIndex.add(id, roommate);
+        this.history.roommateAdded(id, roommate.getBalanceCents());
+        this.ledger.roommateAdded(id, roommate.getBalanceCents());
+        if (this.planner != null){
+            this.planner.track(id, roommate);
+        }
+        if (this.changes != null){
+            this.changes.touched(id);
+        }
+        return id;
     }
 
     /**
@@ -60,23 +443,53 @@ public class ExpenseManager {
      * @return The Roommate instance that has the specified name
      */
     public Roommate getRoommateByName(String name){
-        return this.roommates.get(name);
+        int id = this.roommates.idOf(name);
+        return id < 0 ? null : this.roommates.get(id);
     }
 
     /**
      * Main payer pays the cost of the expense, and then any roommate who is participating in paying this expense
      * has their balance updated to reflect if they owe money for paying this expense.
-     * @param expense The expense that the payer pays for and distributes the cost equally to participants
+     * All the math is done in cents on primitive longs and roommates are found by ID, so applying an expense neither
+     * hashes nor allocates.
+     * @param expense The expense that the payer pays for and divides among the participants by its split
+     * @param payerId The ID of the payer
+     * @param participantIds The IDs of the participants, in the same order as the expense's participants
      */
-    private void applyExpense(Expense expense){
-        BigDecimal share = expense.costPerPerson();
+    private void applyExpense(Expense expense, int payerId, int[] participantIds){
+        this.roommates.get(payerId).updateBalanceCents(expense.getCostCents());
+        balanceChanged(payerId);
 
-        Roommate payer = this.roommates.get(expense.getPayer().getName());
-        payer.updateBalance(expense.getCost());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            this.roommates.get(participantIds[i]).updateBalanceCents(Money.negate(expense.getShareCents(i)));
+            balanceChanged(participantIds[i]);
+        }
+    }
 
-        for (Roommate roommate : expense.getParticipants()){
-            Roommate participant = this.roommates.get(roommate.getName());
-            participant.updateBalance(share.negate());
+    /**
+     * Moves a roommate to their new place in the balance index and lets the settlement plan and the change events know
+     * their balance changed.
+     * @param id The ID of the roommate whose balance changed
+     */
+    private void balanceChanged(int id){
+        this.balanceIndex.update(id);
+        if (this.planner != null){
+            this.planner.markDirty(id);
+        }
+        if (this.changes != null){
+            this.changes.touched(id);
+        }
+    }
+
+    /**
+     * Merges a finished change into the next change event, if changes are being published.
+     * @param firstAddedId The ID of the first expense the change added, or -1 if it added none
+     * @param addedCount The number of expenses the change added
+     * @param removedCount The number of expenses the change removed
+     */
+    private void committed(long firstAddedId, long addedCount, long removedCount){
+        if (this.changes != null){
+            this.changes.commit(this.roommates, firstAddedId, addedCount, removedCount);
         }
     }
 
@@ -84,55 +497,721 @@ public class ExpenseManager {
      * Adds an expense to the list of expenses in this private field "expenses", and then applies that expense to
      * the roommates participating in paying that expense
      * @param expense The expense to be added to a list of expenses
+     * @return The ID of the expense, which removeExpense and updateExpense take
      */
-    public void addExpense(Expense expense){
-        if (expense.getCost().compareTo(BigDecimal.valueOf(0.00).setScale(2, RoundingMode.HALF_UP)) < 0){
+    public long addExpense(Expense expense){
+        long start = System.nanoTime();
+        if (expense.getCostCents() < 0){
             throw new IllegalArgumentException("Cost of an expense can't be negative.");
         }
-        this.expenses.add(expense);
-        applyExpense(expense);
+        int payerId = resolve(expense.getPayer(), expense.getPayerId());
+        resolveParticipants(expense);
+        // Throws before anything is journaled if the grand total or a balance would overflow
+        Money.add(this.aggregates.getGrandTotalCents(), expense.getCostCents());
+        checkBalances(-1, expense, payerId, this.participantIds);
+        if (this.journal != null){
+            this.journal.expenseAdded(expense);
+        }
+        int index = this.expenses.append(expense, payerId, this.participantIds);
+        this.history.appended(index);
+        this.searchIndex.appended(index);
+        this.aggregates.record(expense, payerId, this.participantIds);
+        applyExpense(expense, payerId, this.participantIds);
+        recordEntries(index, LedgerEntry.Kind.EXPENSE);
+        this.history.applied();
+        long id = this.expenses.getId(index);
+        committed(id, 1, 0);
+        this.metrics.recordAddExpense(start, expense.getParticipantCount() + 1);
+        return id;
     }
 
     /**
-     * @return A list of the roommates who owe money
+     * Removes an expense, as if it had never been added. Every balance and total it changed gets back exactly what
+     * it changed them by, down to the cent, so only the payer and participants are touched however long the
+     * history is.
+     * @param id The ID of the expense to remove
+     * @throws IllegalArgumentException If there is no expense with that ID in the history
      */
-    public List<Roommate> getRoommatesWhoOweMoney(){
-        List<Roommate> owes = new ArrayList<>();
+    public void removeExpense(long id){
+        int index = requireLive(id);
+        checkBalances(index, null, -1, null);
+        if (this.journal != null){
+            this.journal.expenseRemoved(id, this.expenses.get(index));
+        }
+        reverseExpense(index);
+        committed(-1, 0, 1);
+    }
+
+    /**
+     * Removes an expense given as it was added, for replaying a journal. An expense the manager holds is removed like
+     * removeExpense does. An older one, left out of a snapshot written before snapshots kept the open period, is taken
+     * back out of the balances, totals and ledgers it changed, and out of the balances balancesAsOf starts from.
+     * @param id The ID of the expense to remove
+     * @param removed The expense as it was added
+     * @throws IllegalArgumentException If the manager holds no expense with that ID but should, or it was removed
+     */
+    public void removeExpense(long id, Expense removed){
+        if (id < 0 || id >= this.expenses.getFirstId()){
+            removeExpense(id);
+            return;
+        }
+        int payerId = resolve(removed.getPayer(), removed.getPayerId());
+        resolveParticipants(removed);
+        int[] ids = this.participantIds;
+        int count = removed.getParticipantCount();
+        long cost = removed.getCostCents();
+        long[] shares = new long[count];
+        long seconds = removed.getTimestamp().getEpochSecond();
+
+        this.roommates.get(payerId).updateBalanceCents(Money.negate(cost));
+        balanceChanged(payerId);
+        this.history.removedBefore(payerId, Money.negate(cost));
+        this.ledger.record(payerId, LedgerEntry.Kind.REMOVAL, id, seconds, Money.negate(cost), Money.negate(cost));
+        for (int i = 0; i < count; i++){
+            shares[i] = removed.getShareCents(i);
+            this.roommates.get(ids[i]).updateBalanceCents(shares[i]);
+            balanceChanged(ids[i]);
+            this.history.removedBefore(ids[i], shares[i]);
+            this.ledger.record(ids[i], LedgerEntry.Kind.REMOVAL, id, seconds, 0, shares[i]);
+        }
+        this.aggregates.unrecord(cost, shares, payerId, ids, count, seconds);
+        committed(-1, 0, 1);
+    }
 
-        for (Roommate roommate : this.roommates.values()){
-            if (roommate.getBalance().compareTo(BigDecimal.ZERO) < 0){
-                owes.add(roommate);
+    /**
+     * Replaces an expense, for example to fix its cost. The old expense is removed as if it had never been added and
+     * the replacement is added at the end of the history, with a new ID.
+     * @param id The ID of the expense to replace
+     * @param replacement The expense replacing it
+     * @return The ID of the replacement
+     * @throws IllegalArgumentException If there is no expense with that ID in the history, or the replacement is invalid
+     */
+    public long updateExpense(long id, Expense replacement){
+        int index = requireLive(id);
+        if (replacement.getCostCents() < 0){
+            throw new IllegalArgumentException("Cost of an expense can't be negative.");
+        }
+        int payerId = resolve(replacement.getPayer(), replacement.getPayerId());
+        resolveParticipants(replacement);
+        checkBalances(index, replacement, payerId, this.participantIds);
+        Money.add(Money.subtract(this.aggregates.getGrandTotalCents(), this.expenses.getCostCents(index)), replacement.getCostCents());
+        if (this.journal != null){
+            this.journal.expenseUpdated(id, this.expenses.get(index), replacement);
+        }
+
+        reverseExpense(index);
+        // Reversing used the buffer, so the participant IDs are resolved again
+        resolveParticipants(replacement);
+        int added = this.expenses.append(replacement, payerId, this.participantIds);
+        this.history.appended(added);
+        this.searchIndex.appended(added);
+        this.aggregates.record(replacement, payerId, this.participantIds);
+        applyExpense(replacement, payerId, this.participantIds);
+        recordEntries(added, LedgerEntry.Kind.EXPENSE);
+        this.history.applied();
+        long addedId = this.expenses.getId(added);
+        committed(addedId, 1, 1);
+        return addedId;
+    }
+
+    /**
+     * @param id The ID of an expense
+     * @return The index of the expense in the store
+     * @throws IllegalArgumentException If there is no expense with that ID in the history
+     */
+    private int requireLive(long id){
+        if (id < this.expenses.getFirstId() && id >= 0){
+            throw new IllegalArgumentException("Expense " + id + " belongs to a closed period and can no longer be changed.");
+        }
+        int index = this.expenses.indexOf(id);
+        if (index < 0){
+            throw new IllegalArgumentException("Expense " + id + " has not been added.");
+        }
+        if (this.expenses.isRemoved(index)){
+            throw new IllegalArgumentException("Expense " + id + " has already been removed.");
+        }
+        return index;
+    }
+
+    /**
+     * Throws before anything is journaled if taking an expense back out, adding one, or both in that order would
+     * overflow a balance. Every step is checked against the balance the steps before it leave, in the order
+     * reverseExpense and applyExpense take them, so a roommate that pays and takes part is checked the same way they
+     * are updated.
+     * @param removed The index in the store of the expense taken back out, -1 if none is
+     * @param added The expense added, null if none is
+     * @param payerId The ID of the payer of the added expense
+     * @param participantIds The IDs of the participants of the added expense, in the same order as its participants
+     * @throws ArithmeticException If a balance would overflow
+     */
+    private void checkBalances(int removed, Expense added, int payerId, int[] participantIds){
+        ensureBatchCapacity();
+        long[] balances = this.batchDeltas;
+        boolean[] listed = this.batchTouched;
+        int removedCount = removed < 0 ? 0 : this.expenses.getParticipantCount(removed);
+        int addedCount = added == null ? 0 : added.getParticipantCount();
+        try {
+            if (removed >= 0){
+                long[] shares = loadShares(removed);
+                int id = this.expenses.getPayerId(removed);
+                balances[id] = Money.subtract(balanceOf(id, balances, listed), this.expenses.getCostCents(removed));
+                for (int i = 0; i < removedCount; i++){
+                    id = this.expenses.getParticipantId(removed, i);
+                    balances[id] = Money.add(balanceOf(id, balances, listed), shares[i]);
+                }
+            }
+            if (added != null){
+                balances[payerId] = Money.add(balanceOf(payerId, balances, listed), added.getCostCents());
+                for (int i = 0; i < addedCount; i++){
+                    balances[participantIds[i]] = Money.subtract(balanceOf(participantIds[i], balances, listed), added.getShareCents(i));
+                }
+            }
+        } finally {
+            if (removed >= 0){
+                unlist(this.expenses.getPayerId(removed));
+                for (int i = 0; i < removedCount; i++){
+                    unlist(this.expenses.getParticipantId(removed, i));
+                }
             }
+            if (added != null){
+                unlist(payerId);
+                for (int i = 0; i < addedCount; i++){
+                    unlist(participantIds[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param balances The balances checkBalances has worked out so far, by roommate ID
+     * @param listed Whether each roommate has a balance in "balances", by roommate ID, which this sets for the roommate
+     * @return The balance the roommate would have after the steps checked so far, in cents
+     */
+    private long balanceOf(int id, long[] balances, boolean[] listed){
+        if (!listed[id]){
+            listed[id] = true;
+            balances[id] = this.roommates.get(id).getBalanceCents();
         }
+        return balances[id];
+    }
 
-        return owes;
+    /**
+     * Clears what checkBalances worked out for a roommate, since addExpenses expects the buffers cleared.
+     * @param id The ID of a roommate
+     */
+    private void unlist(int id){
+        this.batchDeltas[id] = 0;
+        this.batchTouched[id] = false;
     }
 
     /**
-     * @return A list of the roommates who are owed money
+     * Makes the reusable per-roommate buffers big enough for every roommate.
      */
-    public List<Roommate> getRoommatesWhoAreOwedMoney(){
-        List<Roommate> owed = new ArrayList<>();
+    private void ensureBatchCapacity(){
+        if (this.batchDeltas.length < this.roommates.size()){
+            this.batchDeltas = new long[Math.max(this.batchDeltas.length * 2, this.roommates.size())];
+            this.batchTouched = new boolean[this.batchDeltas.length];
+        }
+    }
+
+    /**
+     * @param index The index of an expense in the store
+     * @return The reusable share buffer, filled with the share of each participant of the expense in cents
+     */
+    private long[] loadShares(int index){
+        int count = this.expenses.getParticipantCount(index);
+        if (this.shares.length < count){
+            this.shares = new long[Math.max(this.shares.length * 2, count)];
+            this.splitScratch = new long[this.shares.length];
+        }
+        this.expenses.getShareCents(index, this.shares, this.splitScratch);
+        return this.shares;
+    }
+
+    /**
+     * Takes an expense back out of every balance and total, reading it straight from the columns of the store.
+     * @param index The index of the expense in the store
+     */
+    private void reverseExpense(int index){
+        long cost = this.expenses.getCostCents(index);
+        int count = this.expenses.getParticipantCount(index);
+        // The same shares the split gave when the expense was added
+        long[] shares = loadShares(index);
+        int payerId = this.expenses.getPayerId(index);
+        int[] ids = ensureParticipantCapacity(count);
 
-        for (Roommate roommate : this.roommates.values()){
-            if (roommate.getBalance().compareTo(BigDecimal.ZERO) > 0){
-                owed.add(roommate);
+        this.roommates.get(payerId).updateBalanceCents(Money.negate(cost));
+        balanceChanged(payerId);
+        for (int i = 0; i < count; i++){
+            ids[i] = this.expenses.getParticipantId(index, i);
+            this.roommates.get(ids[i]).updateBalanceCents(shares[i]);
+            balanceChanged(ids[i]);
+        }
+
+        this.aggregates.unrecord(cost, shares, payerId, ids, count, this.expenses.getEpochSecond(index));
+        recordEntries(index, LedgerEntry.Kind.REMOVAL);
+        this.expenses.remove(index);
+        this.history.removed(index);
+    }
+
+    /**
+     * Records what an expense changed in the ledgers of its payer and participants, reading it from the store.
+     * @param index The index of the expense in the store
+     * @param kind EXPENSE if the expense was just applied, REMOVAL if it was just taken back out
+     */
+    private void recordEntries(int index, LedgerEntry.Kind kind){
+        long id = this.expenses.getId(index);
+        long seconds = this.expenses.getEpochSecond(index);
+        long sign = kind == LedgerEntry.Kind.REMOVAL ? -1 : 1;
+        long[] shares = loadShares(index);
+        this.ledger.record(this.expenses.getPayerId(index), kind, id, seconds, sign * this.expenses.getCostCents(index), sign * this.expenses.getCostCents(index));
+        for (int i = 0; i < this.expenses.getParticipantCount(index); i++){
+            this.ledger.record(this.expenses.getParticipantId(index, i), kind, id, seconds, 0, -sign * shares[i]);
+        }
+    }
+
+    /**
+     * Adds a batch of expenses all at once. The whole batch is checked before anything changes, then the change to
+     * each roommate's balance is added up in a scratch buffer indexed by roommate ID and applied once per roommate,
+     * instead of once per expense. Either every expense in the batch is added or, if any of them is invalid, none of
+     * them are.
+     * @param batch The expenses to add, in order
+     * @return The ID of the first expense of the batch, the others follow it in order
+     */
+    public long addExpenses(Collection<Expense> batch){
+        long start = System.nanoTime();
+        List<Expense> added = new ArrayList<>(batch);
+        long firstId = this.expenses.getNextId();
+        ensureBatchCapacity();
+        long[] deltas = this.batchDeltas;
+        boolean[] listed = this.batchTouched;
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        // The payer ID followed by the participant IDs of every expense, in batch order
+        int[] ids = new int[16];
+        int idCount = 0;
+
+        try {
+            long total = this.aggregates.getGrandTotalCents();
+            for (Expense expense : added){
+                if (expense.getCostCents() < 0){
+                    throw new IllegalArgumentException("Cost of an expense can't be negative.");
+                }
+                total = Money.add(total, expense.getCostCents());
+
+                for (int i = -1; i < expense.getParticipantCount(); i++){
+                    int id = i < 0 ? resolve(expense.getPayer(), expense.getPayerId()) : resolve(expense.getParticipant(i), expense.getParticipantId(i));
+                    if (idCount == ids.length){
+                        ids = Arrays.copyOf(ids, idCount * 2);
+                    }
+                    ids[idCount++] = id;
+
+                    if (!listed[id]){
+                        listed[id] = true;
+                        if (touchedCount == touched.length){
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = id;
+                    }
+                    long delta = i < 0 ? expense.getCostCents() : Money.negate(expense.getShareCents(i));
+                    deltas[id] = Money.add(deltas[id], delta);
+                }
+            }
+
+            for (int i = 0; i < touchedCount; i++){
+                // Throws before anything changes if a balance would overflow
+                Money.add(this.roommates.get(touched[i]).getBalanceCents(), deltas[touched[i]]);
+            }
+
+            if (this.journal != null){
+                this.journal.expensesAdded(added);
+            }
+            int offset = 0;
+            for (Expense expense : added){
+                int payerId = ids[offset];
+                System.arraycopy(ids, offset + 1, ensureParticipantCapacity(expense.getParticipantCount()), 0, expense.getParticipantCount());
+                int index = this.expenses.append(expense, payerId, this.participantIds);
+                this.history.appended(index);
+                this.searchIndex.appended(index);
+                this.aggregates.record(expense, payerId, this.participantIds);
+                recordEntries(index, LedgerEntry.Kind.EXPENSE);
+                offset += 1 + expense.getParticipantCount();
             }
+            for (int i = 0; i < touchedCount; i++){
+                this.roommates.get(touched[i]).updateBalanceCents(deltas[touched[i]]);
+                balanceChanged(touched[i]);
+            }
+            this.history.applied();
+            committed(firstId, added.size(), 0);
+            this.metrics.recordAddExpenses(start, added.size(), touchedCount);
+            return firstId;
+        } finally {
+            for (int i = 0; i < touchedCount; i++){
+                deltas[touched[i]] = 0;
+                listed[touched[i]] = false;
+            }
+        }
+    }
+
+    /**
+     * Adds an expense that repeats on a schedule. Its occurrences aren't in the balances until accrueRecurringExpenses
+     * folds them in, not even the ones paid before it was added.
+     * @param expense The recurring expense to add
+     * @return The ID of the recurring expense, which endRecurringExpense takes
+     * @throws IllegalArgumentException If the payer or a participant hasn't been added to this manager
+     */
+    public int addRecurringExpense(RecurringExpense expense){
+        int payerId = resolve(expense.getPayer(), expense.getPayerId());
+        resolveParticipants(expense);
+        if (this.journal != null){
+            this.journal.recurringExpenseAdded(expense);
+        }
+        return this.recurring.add(expense, payerId, this.participantIds, 0);
+    }
+
+    /**
+     * Stops a recurring expense from repeating. The occurrences already in the balances stay there.
+     * @param id The ID of the recurring expense
+     * @param end The moment after which there are no more occurrences
+     * @throws IllegalArgumentException If there is no recurring expense with that ID, or occurrences after the end
+     * have already been folded into the balances
+     */
+    public void endRecurringExpense(int id, Instant end){
+        RecurringExpense ended = this.recurring.get(id).endingAt(end);
+        if (ended.countUntil(end) < this.recurring.getAccrued(id)){
+            throw new IllegalArgumentException("Recurring expense " + id + " already has occurrences after " + end + " in the balances.");
+        }
+        if (this.journal != null){
+            this.journal.recurringExpenseEnded(id, end);
+        }
+        this.recurring.replace(id, ended);
+    }
+
+    /**
+     * @return A read-only view of the recurring expenses by ID, ended ones included
+     */
+    public List<RecurringExpense> getRecurringExpenses(){
+        return this.recurring.asList();
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     * @return The number of its occurrences folded into the balances so far
+     */
+    public long getAccruedOccurrences(int id){
+        return this.recurring.getAccrued(id);
+    }
+
+    /**
+     * Folds every occurrence of every recurring expense paid at or before a moment into the balances and totals, if it
+     * isn't in them yet. However many periods have passed, each recurring expense changes each balance once, by the
+     * number of new occurrences times its share. Either every new occurrence is folded in or, if a balance would
+     * overflow, none of them are.
+     * @param moment The moment to bring the recurring expenses up to, usually now
+     * @return The number of occurrences folded in
+     */
+    public long accrueRecurringExpenses(Instant moment){
+        if (moment == null){
+            throw new IllegalArgumentException("Please provide a moment to bring recurring expenses up to");
         }
 
-        return owed;
+        long[] targets = new long[this.recurring.size()];
+        ensureBatchCapacity();
+        long[] deltas = this.batchDeltas;
+        boolean[] listed = this.batchTouched;
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        long occurrences = 0;
+
+        try {
+            long total = this.aggregates.getGrandTotalCents();
+            for (int id = 0; id < targets.length; id++){
+                RecurringExpense expense = this.recurring.get(id);
+                long accrued = this.recurring.getAccrued(id);
+                targets[id] = Math.max(accrued, expense.countUntil(moment));
+                long times = targets[id] - accrued;
+                if (times == 0){
+                    continue;
+                }
+                occurrences += times;
+                total = Money.add(total, Money.multiply(expense.getCostCents(), times));
+
+                int[] ids = this.recurring.getParticipantIds(id);
+                for (int i = -1; i < ids.length; i++){
+                    int roommate = i < 0 ? this.recurring.getPayerId(id) : ids[i];
+                    if (!listed[roommate]){
+                        listed[roommate] = true;
+                        if (touchedCount == touched.length){
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = roommate;
+                    }
+                    long delta = i < 0 ? Money.multiply(expense.getCostCents(), times) : Money.negate(Money.multiply(expense.getShareCents(i), times));
+                    deltas[roommate] = Money.add(deltas[roommate], delta);
+                }
+            }
+            if (occurrences == 0){
+                return 0;
+            }
+
+            for (int i = 0; i < touchedCount; i++){
+                // Throws before anything changes if a balance would overflow
+                Money.add(this.roommates.get(touched[i]).getBalanceCents(), deltas[touched[i]]);
+            }
+
+            if (this.journal != null){
+                this.journal.recurringExpensesAccrued(moment);
+            }
+            for (int id = 0; id < targets.length; id++){
+                long accrued = this.recurring.getAccrued(id);
+                if (targets[id] > accrued){
+                    RecurringExpense expense = this.recurring.get(id);
+                    int[] ids = this.recurring.getParticipantIds(id);
+                    long times = targets[id] - accrued;
+                    this.aggregates.recordOccurrences(expense, this.recurring.getPayerId(id), ids, accrued, targets[id]);
+                    long paid = Money.multiply(expense.getCostCents(), times);
+                    this.ledger.record(this.recurring.getPayerId(id), LedgerEntry.Kind.RECURRING, id, moment.getEpochSecond(), paid, paid);
+                    for (int i = 0; i < ids.length; i++){
+                        this.ledger.record(ids[i], LedgerEntry.Kind.RECURRING, id, moment.getEpochSecond(), 0, Money.negate(Money.multiply(expense.getShareCents(i), times)));
+                    }
+                    this.recurring.setAccrued(id, targets[id]);
+                }
+            }
+            for (int i = 0; i < touchedCount; i++){
+                this.roommates.get(touched[i]).updateBalanceCents(deltas[touched[i]]);
+                this.history.recurringApplied(touched[i], deltas[touched[i]]);
+                balanceChanged(touched[i]);
+            }
+            committed(-1, 0, 0);
+            return occurrences;
+        } finally {
+            for (int i = 0; i < touchedCount; i++){
+                deltas[touched[i]] = 0;
+                listed[touched[i]] = false;
+            }
+        }
     }
 
     /**
-     * @return The monetary sum of all the expenses from this private field "expenses"
+     * Resolves the IDs of a recurring expense's participants into the reusable participant ID buffer.
+     * @param expense A recurring expense
+     * @return The reusable participant ID buffer
+     * @throws IllegalArgumentException If a participant hasn't been added to this manager
+     */
+    private int[] resolveParticipants(RecurringExpense expense){
+        int[] ids = ensureParticipantCapacity(expense.getParticipantCount());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            ids[i] = resolve(expense.getParticipant(i), expense.getParticipantId(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Resolves the IDs of an expense's participants into the reusable participant ID buffer.
+     * @param expense An expense
+     * @throws IllegalArgumentException If a participant hasn't been added to this manager
+     */
+    private void resolveParticipants(Expense expense){
+        int[] ids = ensureParticipantCapacity(expense.getParticipantCount());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            ids[i] = resolve(expense.getParticipant(i), expense.getParticipantId(i));
+        }
+    }
+
+    /**
+     * @param count A number of participants
+     * @return The reusable participant ID buffer, grown to hold at least that many IDs
+     */
+    private int[] ensureParticipantCapacity(int count){
+        if (this.participantIds.length < count){
+            this.participantIds = new int[Math.max(this.participantIds.length * 2, count)];
+        }
+        return this.participantIds;
+    }
+
+    /**
+     * @param roommate A roommate taking part in an expense
+     * @param expectedId The ID the expense recorded for the roommate
+     * @return The ID of the roommate in this manager
+     * @throws IllegalArgumentException If the roommate hasn't been added to this manager
+     */
+    private int resolve(Roommate roommate, int expectedId){
+        int id = this.roommates.idOf(roommate, expectedId);
+        if (id < 0){
+            throw new IllegalArgumentException("Roommate " + roommate.getName() + " has not been added.");
+        }
+        return id;
+    }
+
+    /**
+     * @return A list of the roommates who owe money, the one who owes the most first
+     */
+    public List<Roommate> getRoommatesWhoOweMoney(){
+        return this.balanceIndex.debtors(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return A list of the roommates who are owed money, the one who is owed the most first
+     */
+    public List<Roommate> getRoommatesWhoAreOwedMoney(){
+        return this.balanceIndex.creditors(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit The largest number of roommates to return
+     * @return The roommates who owe the most money, the one who owes the most first
+     */
+    public List<Roommate> getBiggestDebtors(int limit){
+        return this.balanceIndex.debtors(limit);
+    }
+
+    /**
+     * @param limit The largest number of roommates to return
+     * @return The roommates who are owed the most money, the one who is owed the most first
+     */
+    public List<Roommate> getBiggestCreditors(int limit){
+        return this.balanceIndex.creditors(limit);
+    }
+
+    /**
+     * @return The monetary sum of every expense ever added, kept as a running total
      */
     public BigDecimal getTotalExpenses(){
-        BigDecimal sum = BigDecimal.ZERO;
+        return this.aggregates.getGrandTotal();
+    }
+
+    /**
+     * Works out what every roommate's balance was at a moment in the past, from the nearest checkpoint before it and
+     * a short replay of the expenses after that checkpoint. Expenses are counted by when they were paid, not when
+     * they were added.
+     * @param moment The moment to look back to
+     * @return Every roommate's name mapped to their balance right after the last expense paid at or before the
+     * moment, in the order the roommates were added. Occurrences of recurring expenses count if they were paid by
+     * then and have been folded into the balances
+     */
+    public Map<String, BigDecimal> balancesAsOf(Instant moment){
+        if (moment == null){
+            throw new IllegalArgumentException("Please provide a moment to look back to");
+        }
+
+        long[] balances = this.history.balancesAsOf(moment.getEpochSecond(), moment.getNano());
+        this.recurring.addAsOf(balances, moment);
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int id = 0; id < balances.length; id++){
+            result.put(this.roommates.get(id).getName(), Money.toBigDecimal(balances[id]));
+        }
+        return result;
+    }
+
+    /**
+     * @return Running totals per payer, per participant, per day and per month
+     */
+    public ExpenseAggregates getAggregates(){
+        return this.aggregates;
+    }
+
+    /**
+     * Works out who owes whom. The plan is kept between calls and only the part involving roommates whose balance
+     * changed since the last call is redone.
+     * @return The transfers that settle every roommate's balance
+     */
+    public List<Transfer> getSettlementPlan(){
+        if (this.planner == null){
+            this.planner = new SettlementPlanner();
+            for (int id = 0; id < this.roommates.size(); id++){
+                this.planner.track(id, this.roommates.get(id));
+            }
+        }
+        return this.planner.getTransfers();
+    }
+
+    /**
+     * Closes the period by settling up with the current settlement plan, so every balance carried forward is $0.00.
+     * @param moment The moment the period is closed
+     * @return The record of the closed period
+     * @see #closePeriod(Instant, List)
+     */
+    public PeriodClose closePeriod(Instant moment){
+        return closePeriod(moment, getSettlementPlan());
+    }
 
-        for (Expense expense : this.expenses){
-            sum = sum.add(expense.getCost());
+    /**
+     * Closes the period: applies the transfers the roommates settled up with, carries the resulting balances forward
+     * and moves every expense of the period out of the manager, into the journal's archive if it keeps one. Expenses
+     * of the period can no longer be found, searched or removed, balancesAsOf and ledgers start over from the carried
+     * balances, and new expenses keep getting IDs after the old ones. Totals and recurring expenses carry on as they
+     * were. Views of the expense history taken before the close keep showing the closed period.
+     * @param moment The moment the period is closed
+     * @param transfers The transfers the roommates settled up with, each paid by its debtor to its creditor
+     * @return The record of the closed period
+     * @throws IllegalArgumentException If a transfer isn't above $0.00, is between a roommate and themselves, or is
+     *         between roommates that haven't been added to this manager
+     */
+    public PeriodClose closePeriod(Instant moment, List<Transfer> transfers){
+        if (moment == null){
+            throw new IllegalArgumentException("Please provide the moment the period is closed");
+        }
+        long[] carried = new long[this.roommates.size()];
+        String[] names = new String[carried.length];
+        for (int id = 0; id < carried.length; id++){
+            carried[id] = this.roommates.get(id).getBalanceCents();
+            names[id] = this.roommates.get(id).getName();
+        }
+        for (Transfer transfer : transfers){
+            if (transfer.getAmountCents() <= 0){
+                throw new IllegalArgumentException("Transfers must be above $0.00");
+            }
+            int debtorId = resolve(transfer.getDebtor(), transfer.getDebtor().getId());
+            int creditorId = resolve(transfer.getCreditor(), transfer.getCreditor().getId());
+            if (debtorId == creditorId){
+                throw new IllegalArgumentException("Roommate " + transfer.getDebtor().getName() + " can't pay themselves.");
+            }
+            carried[debtorId] = Money.add(carried[debtorId], transfer.getAmountCents());
+            carried[creditorId] = Money.subtract(carried[creditorId], transfer.getAmountCents());
         }
 
-        return sum;
+        PeriodClose close = new PeriodClose(moment, this.expenses.getFirstId(), this.expenses.getNextId(), transfers, names, carried);
+        if (this.journal != null){
+            this.journal.periodClosed(close, this.expenses.cursor(0, Integer.MAX_VALUE));
+        }
+        int removed = getExpenseCount();
+        for (int id = 0; id < carried.length; id++){
+            Roommate roommate = this.roommates.get(id);
+            if (roommate.getBalanceCents() != carried[id]){
+                roommate.updateBalanceCents(Money.subtract(carried[id], roommate.getBalanceCents()));
+                balanceChanged(id);
+            }
+        }
+        startPeriod();
+        committed(-1, 0, removed);
+        return close;
+    }
+
+    /**
+     * Replaces the expense history, its search index, the balance checkpoints and the ledgers with empty ones that
+     * start from the current balances, the way a manager restored from a snapshot starts.
+     */
+    private void startPeriod(){
+        long nextId = this.expenses.getNextId();
+        this.expenses = new ExpenseStore(this.roommates);
+        this.expenses.setFirstId(nextId);
+        this.searchIndex = new ExpenseIndex(this.expenses);
+        this.history = new BalanceHistory(this.roommates, this.expenses);
+        this.ledger = new RoommateLedger();
+        for (int id = 0; id < this.roommates.size(); id++){
+            long balance = this.roommates.get(id).getBalanceCents();
+            this.history.roommateAdded(id, balance);
+            this.ledger.roommateAdded(id, balance);
+        }
+        for (int id = 0; id < this.recurring.size(); id++){
+            RecurringExpense expense = this.recurring.get(id);
+            long accrued = this.recurring.getAccrued(id);
+            int[] ids = this.recurring.getParticipantIds(id);
+            this.history.recurringRestored(this.recurring.getPayerId(id), Money.multiply(expense.getCostCents(), accrued));
+            for (int i = 0; i < ids.length; i++){
+                this.history.recurringRestored(ids[i], Money.negate(Money.multiply(expense.getShareCents(i), accrued)));
+            }
+        }
     }
 }
@@ -0,0 +1,142 @@
+package service;
+
+import model.Roommate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a search of the expense history, for ExpenseManager.search. A query starts out matching every expense and
+ * each criterion added narrows it down; an expense must meet every criterion to match. Queries are immutable, each
+ * method returns a new query.
+ *
+ * Example, every expense starting with "Groceries" that Nick paid for in March 2026:
+ *      manager.search(new ExpenseQuery().named("Groceries").paidBy(nick).during(YearMonth.of(2026, 3)));
+ *
+ * @author Kris Bali
+ */
+public final class ExpenseQuery {
+    /** The start of the names to match, or null to match any name */
+    private final String namePrefix;
+    /** The roommate who must have paid, or null to match any payer */
+    private final Roommate payer;
+    /** The roommates who must all take part */
+    private final List<Roommate> participants;
+    /** The earliest moment to match, or null for no limit */
+    private final Instant from;
+    /** The moment from which expenses no longer match, or null for no limit */
+    private final Instant to;
+
+    /**
+     * ExpenseQuery constructor for a query that matches every expense
+     */
+    public ExpenseQuery(){
+        this(null, null, List.of(), null, null);
+    }
+
+    private ExpenseQuery(String namePrefix, Roommate payer, List<Roommate> participants, Instant from, Instant to){
+        this.namePrefix = namePrefix;
+        this.payer = payer;
+        this.participants = participants;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param prefix The start of the names to match, ignoring case, for example "groc" for "Groceries"
+     * @return A copy of this query that only matches expenses whose name starts with the prefix
+     */
+    public ExpenseQuery named(String prefix){
+        if (prefix == null){
+            throw new IllegalArgumentException("Please provide the start of a name to search for");
+        }
+        return new ExpenseQuery(prefix, this.payer, this.participants, this.from, this.to);
+    }
+
+    /**
+     * @param payer A roommate
+     * @return A copy of this query that only matches expenses the roommate paid for
+     */
+    public ExpenseQuery paidBy(Roommate payer){
+        if (payer == null){
+            throw new IllegalArgumentException("Please provide the roommate who paid");
+        }
+        return new ExpenseQuery(this.namePrefix, payer, this.participants, this.from, this.to);
+    }
+
+    /**
+     * Can be called more than once, in which case every one of the roommates must take part.
+     * @param participant A roommate
+     * @return A copy of this query that only matches expenses the roommate takes part in
+     */
+    public ExpenseQuery involving(Roommate participant){
+        if (participant == null){
+            throw new IllegalArgumentException("Please provide the roommate who takes part");
+        }
+        List<Roommate> participants = new ArrayList<>(this.participants);
+        participants.add(participant);
+        return new ExpenseQuery(this.namePrefix, this.payer, Collections.unmodifiableList(participants), this.from, this.to);
+    }
+
+    /**
+     * @param from The earliest moment to match
+     * @param to The moment from which expenses no longer match
+     * @return A copy of this query that only matches expenses paid at or after "from" and before "to"
+     */
+    public ExpenseQuery between(Instant from, Instant to){
+        if (from == null || to == null){
+            throw new IllegalArgumentException("Please provide both ends of the range");
+        }
+        if (to.isBefore(from)){
+            throw new IllegalArgumentException("The end of the range can't be before its start");
+        }
+        return new ExpenseQuery(this.namePrefix, this.payer, this.participants, from, to);
+    }
+
+    /**
+     * @param month A UTC month
+     * @return A copy of this query that only matches expenses paid in the month
+     */
+    public ExpenseQuery during(YearMonth month){
+        return between(month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC), month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+    }
+
+    /**
+     * @return The start of the names to match, or null to match any name
+     */
+    public String getNamePrefix(){
+        return this.namePrefix;
+    }
+
+    /**
+     * @return The roommate who must have paid, or null to match any payer
+     */
+    public Roommate getPayer(){
+        return this.payer;
+    }
+
+    /**
+     * @return A read-only list of the roommates who must all take part, empty to match any participants
+     */
+    public List<Roommate> getParticipants(){
+        return this.participants;
+    }
+
+    /**
+     * @return The earliest moment to match, or null for no limit
+     */
+    public Instant getFrom(){
+        return this.from;
+    }
+
+    /**
+     * @return The moment from which expenses no longer match, or null for no limit
+     */
+    public Instant getTo(){
+        return this.to;
+    }
+}
@@ -0,0 +1,575 @@
+package service;
+
+import model.Expense;
+import model.Money;
+import model.Roommate;
+import model.Split;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Holds the expense history of an ExpenseManager in columns of primitives instead of one object per expense.
+ *
+ * Expense names are dictionary-encoded, so a name repeated across expenses ("Groceries") is stored once. Costs are
+ * kept in cents, payers and participants as roommate IDs, and the participants of every expense share one flat array,
+ * found through an offset per expense. An expense with k participants takes 33 + 4k bytes instead of hundreds. An
+ * expense that isn't split equally also keeps its k split values, in a column next to the participants that a chunk
+ * only allocates once it holds such an expense.
+ *
+ * Columns are split into fixed-size chunks, so the store grows without ever copying the history it already holds and
+ * a full chunk is never written to again. Reading an expense's columns doesn't allocate; get() rebuilds an Expense
+ * object only when one is asked for.
+ *
+ * Every expense has an ID, the ID of the first expense in the store plus its index. Removing an expense only marks it
+ * removed, by setting its bit in a per-chunk bitset, so a removal costs the same however many came before it. The
+ * list view, the cursors and the count of expenses skip removed expenses, but their columns can still be read by
+ * index. Finding the n-th expense that hasn't been removed walks the per-chunk counts of removed expenses, then counts
+ * bits within one chunk.
+ *
+ * One thread appends and removes, any number of threads may read. An expense's columns are all written before the
+ * size that makes it visible, and the size is volatile, so a reader never sees an expense half added. The number of
+ * removed expenses is volatile too and is written after the expense's bit, so a reader that reads the count first
+ * sees at least that many removals.
+ *
+ * @author Kris Bali
+ */
+public class ExpenseStore {
+    /** The number of expenses in a chunk, a power of 2 */
+    static final int CHUNK_SIZE = 1 << 16;
+    /** Shift that turns an expense index into its chunk number */
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    /** Mask that turns an expense index into its position within its chunk */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /** Every kind of split, by ordinal */
+    private static final Split.Kind[] SPLIT_KINDS = Split.Kind.values();
+
+    /** The roommates that payer and participant IDs refer to */
+    private final RoommateRegistry roommates;
+    /** Every distinct expense name, by name ID */
+    private String[] names = new String[16];
+    /** Maps an expense name to its name ID */
+    private final HashMap<String, Integer> nameIds = new HashMap<>();
+    /** The chunks of the store, in order */
+    private Chunk[] chunks = new Chunk[16];
+    /** The number of expenses stored, published after the columns of the newest expense are written */
+    private volatile int size;
+    /** A live, read-only list of the expenses in the store */
+    private final List<Expense> view = new View();
+    /** The ID of the expense at index 0 */
+    private long firstId;
+    /** The number of removed expenses, published after the bit of the newest removal is set */
+    private volatile int removedCount;
+
+    /**
+     * The columns of up to CHUNK_SIZE expenses.
+     */
+    private static final class Chunk {
+        /** The name ID of each expense */
+        int[] nameIds;
+        /** The cost of each expense in cents */
+        long[] costs;
+        /** The payer ID of each expense */
+        int[] payerIds;
+        /** The seconds since the epoch each expense was paid at */
+        long[] seconds;
+        /** The nanoseconds within the second each expense was paid at */
+        int[] nanos;
+        /** Where the participants of each expense start in "participants", plus where the next expense would start */
+        int[] offsets;
+        /** The participant IDs of every expense in the chunk, one after the other */
+        int[] participants;
+        /** The kind of split of each expense, as the ordinal of its Split.Kind */
+        byte[] splits;
+        /** The split value of each participant in "participants", or null while every expense is split equally */
+        long[] splitValues;
+        /** One bit per expense, set once the expense is removed, or null while none of the chunk's expenses is */
+        volatile long[] removedBits;
+        /** The number of removed expenses in the chunk */
+        volatile int removedCount;
+
+        Chunk(int capacity){
+            this.nameIds = new int[capacity];
+            this.costs = new long[capacity];
+            this.payerIds = new int[capacity];
+            this.seconds = new long[capacity];
+            this.nanos = new int[capacity];
+            this.offsets = new int[capacity + 1];
+            this.participants = new int[capacity * 2];
+            this.splits = new byte[capacity];
+        }
+
+        /**
+         * @return The number of expenses the chunk has room for
+         */
+        int capacity(){
+            return this.costs.length;
+        }
+
+        /**
+         * Makes room for more expenses. Only the first chunk grows, so a small history doesn't take a whole chunk.
+         * @param capacity The new number of expenses the chunk has room for
+         */
+        void grow(int capacity){
+            this.nameIds = Arrays.copyOf(this.nameIds, capacity);
+            this.costs = Arrays.copyOf(this.costs, capacity);
+            this.payerIds = Arrays.copyOf(this.payerIds, capacity);
+            this.seconds = Arrays.copyOf(this.seconds, capacity);
+            this.nanos = Arrays.copyOf(this.nanos, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity + 1);
+            this.splits = Arrays.copyOf(this.splits, capacity);
+        }
+    }
+
+    /**
+     * A read-only list of the store that follows it as expenses are appended, rebuilding each expense as it is read.
+     */
+    private final class View extends AbstractList<Expense> implements RandomAccess {
+        @Override
+        public Expense get(int index){
+            if (index < 0 || index >= size()){
+                throw new IndexOutOfBoundsException("No expense at position " + index);
+            }
+            int found = select(index);
+            if (found >= ExpenseStore.this.size){
+                // An expense was removed while this one was being found
+                throw new IndexOutOfBoundsException("No expense at position " + index);
+            }
+            return ExpenseStore.this.get(found);
+        }
+
+        @Override
+        public int size(){
+            return liveSize();
+        }
+    }
+
+    /**
+     * ExpenseStore constructor
+     * @param roommates The roommates that payer and participant IDs refer to
+     */
+    public ExpenseStore(RoommateRegistry roommates){
+        this.roommates = roommates;
+    }
+
+    /**
+     * Adds an expense to the end of the store.
+     * @param expense The expense to add
+     * @param payerId The ID of the payer
+     * @param participantIds The IDs of the participants, in the same order as the expense's participants
+     * @return The index of the expense in the store
+     */
+    public int append(Expense expense, int payerId, int[] participantIds){
+        int index = this.size;
+        int row = index & CHUNK_MASK;
+        Chunk chunk = chunkFor(index);
+
+        int count = expense.getParticipantCount();
+        int start = chunk.offsets[row];
+        if (start + count > chunk.participants.length){
+            chunk.participants = Arrays.copyOf(chunk.participants, Math.max(chunk.participants.length * 2, start + count));
+            if (chunk.splitValues != null){
+                chunk.splitValues = Arrays.copyOf(chunk.splitValues, chunk.participants.length);
+            }
+        }
+        System.arraycopy(participantIds, 0, chunk.participants, start, count);
+        chunk.offsets[row + 1] = start + count;
+
+        Split split = expense.getSplit();
+        chunk.splits[row] = (byte) split.getKind().ordinal();
+        if (split.getKind() != Split.Kind.EQUAL){
+            if (chunk.splitValues == null){
+                chunk.splitValues = new long[chunk.participants.length];
+            }
+            for (int i = 0; i < count; i++){
+                chunk.splitValues[start + i] = split.getValue(i);
+            }
+        }
+
+        Instant timestamp = expense.getTimestamp();
+        chunk.nameIds[row] = nameId(expense.getExpenseName());
+        chunk.costs[row] = expense.getCostCents();
+        chunk.payerIds[row] = payerId;
+        chunk.seconds[row] = timestamp.getEpochSecond();
+        chunk.nanos[row] = timestamp.getNano();
+        this.size = index + 1;
+        return index;
+    }
+
+    /**
+     * @param index The index of the next expense
+     * @return The chunk the expense goes into, created if it doesn't exist yet
+     */
+    private Chunk chunkFor(int index){
+        int number = index >>> CHUNK_SHIFT;
+        if (number == this.chunks.length){
+            this.chunks = Arrays.copyOf(this.chunks, number * 2);
+        }
+        Chunk chunk = this.chunks[number];
+        if (chunk == null){
+            chunk = new Chunk(number == 0 ? 16 : CHUNK_SIZE);
+            this.chunks[number] = chunk;
+        } else if ((index & CHUNK_MASK) == chunk.capacity()){
+            chunk.grow(Math.min(chunk.capacity() * 2, CHUNK_SIZE));
+        }
+        return chunk;
+    }
+
+    /**
+     * @param name The name of an expense
+     * @return The ID of the name in the dictionary, added if it isn't there yet
+     */
+    private int nameId(String name){
+        Integer id = this.nameIds.get(name);
+        if (id != null){
+            return id;
+        }
+
+        int next = this.nameIds.size();
+        if (next == this.names.length){
+            this.names = Arrays.copyOf(this.names, next * 2);
+        }
+        this.names[next] = name;
+        this.nameIds.put(name, next);
+        return next;
+    }
+
+    /**
+     * @return The number of expenses stored, including removed ones
+     */
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * @return The number of expenses stored that haven't been removed
+     */
+    public int liveSize(){
+        // Read the removed count first, an expense is only ever removed after it was appended
+        int removed = this.removedCount;
+        return this.size - removed;
+    }
+
+    /**
+     * Sets the ID of the first expense, for a store that continues the history of an earlier one. Must be called
+     * before anything is appended.
+     * @param firstId The ID of the expense at index 0
+     */
+    void setFirstId(long firstId){
+        if (this.size > 0){
+            throw new IllegalStateException("The first ID can only be set while the store is empty");
+        }
+        this.firstId = firstId;
+    }
+
+    /**
+     * @return The ID of the expense at index 0
+     */
+    public long getFirstId(){
+        return this.firstId;
+    }
+
+    /**
+     * @return The ID the next expense appended will get
+     */
+    public long getNextId(){
+        return this.firstId + this.size;
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The ID of the expense
+     */
+    public long getId(int index){
+        return this.firstId + index;
+    }
+
+    /**
+     * @param id The ID of an expense
+     * @return The index of the expense, or -1 if the ID is before the first expense or after the last one
+     */
+    public int indexOf(long id){
+        long index = id - this.firstId;
+        return index < 0 || index >= this.size ? -1 : (int) index;
+    }
+
+    /**
+     * Marks an expense removed.
+     * @param index The index of the expense
+     */
+    void remove(int index){
+        Chunk chunk = chunk(index);
+        int row = index & CHUNK_MASK;
+        long[] bits = chunk.removedBits;
+        if (bits == null){
+            // Sized for a full chunk, so growing the first chunk never has to copy it
+            bits = new long[CHUNK_SIZE >>> 6];
+            chunk.removedBits = bits;
+        }
+        if ((bits[row >>> 6] & (1L << row)) != 0){
+            throw new IllegalStateException("Expense at index " + index + " is already removed");
+        }
+        bits[row >>> 6] |= 1L << row;
+        chunk.removedCount++;
+        this.removedCount++;
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return Whether the expense has been removed
+     */
+    public boolean isRemoved(int index){
+        Chunk chunk = this.chunks[index >>> CHUNK_SHIFT];
+        long[] bits = chunk == null ? null : chunk.removedBits;
+        int row = index & CHUNK_MASK;
+        return bits != null && (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param position The position of an expense among the expenses that haven't been removed
+     * @return The index of the expense, or at least size() if there are no more than "position" of them
+     */
+    int select(int position){
+        int size = this.size;
+        int remaining = position;
+        int start = 0;
+        // Skip whole chunks by their live counts, then count live expenses bit by bit within the chunk
+        for (int number = 0; start < size; number++, start += CHUNK_SIZE){
+            Chunk chunk = this.chunks[number];
+            int live = Math.min(CHUNK_SIZE, size - start) - chunk.removedCount;
+            if (remaining >= live){
+                remaining -= live;
+                continue;
+            }
+            long[] bits = chunk.removedBits;
+            if (bits == null){
+                return start + remaining;
+            }
+            for (int word = 0; word < bits.length; word++){
+                long liveBits = ~bits[word];
+                int count = Long.bitCount(liveBits);
+                if (remaining < count){
+                    for (int i = 0; i < remaining; i++){
+                        liveBits &= liveBits - 1;
+                    }
+                    return start + (word << 6) + Long.numberOfTrailingZeros(liveBits);
+                }
+                remaining -= count;
+            }
+            // Only reached if the chunk was changed while it was being counted
+            return size;
+        }
+        return size + remaining;
+    }
+
+    /**
+     * @return A read-only list of the expenses in the store, which grows as expenses are appended
+     */
+    public List<Expense> asList(){
+        return this.view;
+    }
+
+    /**
+     * @param indexes Indexes of expenses in the store, which must not be changed afterwards
+     * @return A read-only list of those expenses in the same order, rebuilding each expense as it is read
+     */
+    List<Expense> asList(int[] indexes){
+        return new AbstractList<Expense>(){
+            @Override
+            public Expense get(int position){
+                return ExpenseStore.this.get(indexes[position]);
+            }
+
+            @Override
+            public int size(){
+                return indexes.length;
+            }
+        };
+    }
+
+    /**
+     * @param offset The number of expenses that haven't been removed to skip
+     * @param limit The largest number of expenses to read
+     * @return A cursor over at most "limit" expenses after the first "offset", skipping removed expenses and ending
+     * where the store ended when it was created
+     */
+    public ExpenseCursor cursor(int offset, int limit){
+        if (offset < 0 || limit < 0){
+            throw new IllegalArgumentException("Offset and limit can't be negative.");
+        }
+        int size = this.size;
+        return new ExpenseCursor(this, Math.min(select(offset), size), size, limit);
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The roommate who paid the expense
+     */
+    Roommate getPayer(int index){
+        return this.roommates.get(getPayerId(index));
+    }
+
+    /**
+     * @param index The index of an expense
+     * @param participant The position of the participant
+     * @return The participant
+     */
+    Roommate getParticipant(int index, int participant){
+        return this.roommates.get(getParticipantId(index, participant));
+    }
+
+    /**
+     * @return The number of distinct expense names stored
+     */
+    public int getNameCount(){
+        return this.nameIds.size();
+    }
+
+    /**
+     * @param index The index of an expense, from 0 to size() - 1
+     * @return The chunk holding the expense
+     */
+    private Chunk chunk(int index){
+        if (index < 0 || index >= this.size){
+            throw new IndexOutOfBoundsException("No expense at index " + index);
+        }
+        return this.chunks[index >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The ID of the expense's name in the dictionary, the same for every expense with the same name
+     */
+    int getNameId(int index){
+        return chunk(index).nameIds[index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The name of the expense
+     */
+    public String getName(int index){
+        return this.names[chunk(index).nameIds[index & CHUNK_MASK]];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The cost of the expense in cents
+     */
+    public long getCostCents(int index){
+        return chunk(index).costs[index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The ID of the roommate who paid the expense
+     */
+    public int getPayerId(int index){
+        return chunk(index).payerIds[index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The number of participants of the expense
+     */
+    public int getParticipantCount(int index){
+        Chunk chunk = chunk(index);
+        int row = index & CHUNK_MASK;
+        return chunk.offsets[row + 1] - chunk.offsets[row];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @param participant The position of the participant, from 0 to getParticipantCount(index) - 1
+     * @return The ID of the participant
+     */
+    public int getParticipantId(int index, int participant){
+        Chunk chunk = chunk(index);
+        int row = index & CHUNK_MASK;
+        if (participant < 0 || participant >= chunk.offsets[row + 1] - chunk.offsets[row]){
+            throw new IndexOutOfBoundsException("No participant at position " + participant);
+        }
+        return chunk.participants[chunk.offsets[row] + participant];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return How the cost of the expense is divided among its participants
+     */
+    public Split.Kind getSplitKind(int index){
+        return SPLIT_KINDS[chunk(index).splits[index & CHUNK_MASK]];
+    }
+
+    /**
+     * Works out the share of each participant of an expense, without allocating.
+     * @param index The index of an expense
+     * @param shares Filled with the share of each participant in cents, in the same order as the participants. Must
+     * hold at least getParticipantCount(index) values
+     * @param scratch Working space, must hold at least getParticipantCount(index) values
+     */
+    public void getShareCents(int index, long[] shares, long[] scratch){
+        Chunk chunk = chunk(index);
+        int row = index & CHUNK_MASK;
+        int start = chunk.offsets[row];
+        Split.divide(SPLIT_KINDS[chunk.splits[row]], chunk.costs[row], chunk.splitValues, start, chunk.offsets[row + 1] - start, shares, scratch);
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The split of the expense, rebuilt from its columns
+     */
+    private Split getSplit(int index){
+        Chunk chunk = chunk(index);
+        int row = index & CHUNK_MASK;
+        Split.Kind kind = SPLIT_KINDS[chunk.splits[row]];
+        if (kind == Split.Kind.EQUAL){
+            return Split.equal();
+        }
+        return Split.of(kind, Arrays.copyOfRange(chunk.splitValues, chunk.offsets[row], chunk.offsets[row + 1]));
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The moment the expense was paid
+     */
+    public Instant getTimestamp(int index){
+        Chunk chunk = chunk(index);
+        int row = index & CHUNK_MASK;
+        return Instant.ofEpochSecond(chunk.seconds[row], chunk.nanos[row]);
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The seconds since the epoch the expense was paid at
+     */
+    public long getEpochSecond(int index){
+        return chunk(index).seconds[index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The index of an expense
+     * @return The nanoseconds within the second the expense was paid at
+     */
+    public int getNano(int index){
+        return chunk(index).nanos[index & CHUNK_MASK];
+    }
+
+    /**
+     * Rebuilds an expense from its columns.
+     * @param index The index of an expense
+     * @return A new Expense object equal to the one that was added
+     */
+    public Expense get(int index){
+        int count = getParticipantCount(index);
+        List<Roommate> participants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            participants.add(this.roommates.get(getParticipantId(index, i)));
+        }
+        return new Expense(getName(index), Money.toBigDecimal(getCostCents(index)), this.roommates.get(getPayerId(index)), participants, getSplit(index), getTimestamp(index));
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import model.Money;
+import model.Roommate;
+
+import java.math.BigDecimal;
+
+/**
+ * Everything that changed in an ExpenseManager over one interval, merged into a single event: the roommates whose
+ * balances changed, with their balances at the end of the interval, and the expenses added.
+ *
+ * However many expenses were added in the interval, each roommate is listed once, so refreshing a view from an event
+ * costs the number of changed roommates rather than the number of changes. The balances are copied when each change
+ * is finished, so they can be read from any thread and always add up across a whole change.
+ *
+ * @author Kris Bali
+ */
+public final class LedgerChange {
+    /** The IDs of the roommates whose balances changed or who were added, in the order they first changed */
+    private final int[] roommateIds;
+    /** The roommates, in the same order as their IDs */
+    private final Roommate[] roommates;
+    /** The balances of the roommates in cents at the end of the interval, in the same order as their IDs */
+    private final long[] balances;
+    /** The ID of the first expense added in the interval, or -1 if none were */
+    private final long firstAddedId;
+    /** The number of expense IDs given out in the interval */
+    private final long addedCount;
+    /** The number of expenses removed in the interval, replaced ones included */
+    private final long removedCount;
+    /** The number of changes merged into this event */
+    private final long changeCount;
+
+    /**
+     * LedgerChange constructor
+     * @param roommateIds The IDs of the roommates whose balances changed or who were added
+     * @param roommates The roommates, in the same order as their IDs
+     * @param balances The balances of the roommates in cents, in the same order as their IDs
+     * @param firstAddedId The ID of the first expense added in the interval, or -1 if none were
+     * @param addedCount The number of expense IDs given out in the interval
+     * @param removedCount The number of expenses removed in the interval
+     * @param changeCount The number of changes merged into this event
+     */
+    LedgerChange(int[] roommateIds, Roommate[] roommates, long[] balances, long firstAddedId, long addedCount, long removedCount, long changeCount){
+        this.roommateIds = roommateIds;
+        this.roommates = roommates;
+        this.balances = balances;
+        this.firstAddedId = firstAddedId;
+        this.addedCount = addedCount;
+        this.removedCount = removedCount;
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * @return The number of roommates whose balances changed or who were added
+     */
+    public int getRoommateCount(){
+        return this.roommateIds.length;
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The ID of the roommate in the manager
+     */
+    public int getRoommateId(int index){
+        return this.roommateIds[index];
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The roommate
+     */
+    public Roommate getRoommate(int index){
+        return this.roommates[index];
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The balance of the roommate in cents at the end of the interval
+     */
+    public long getBalanceCents(int index){
+        return this.balances[index];
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The balance of the roommate at the end of the interval
+     */
+    public BigDecimal getBalance(int index){
+        return Money.toBigDecimal(this.balances[index]);
+    }
+
+    /**
+     * @return The ID of the first expense added in the interval, or -1 if none were. The others follow it in order
+     */
+    public long getFirstAddedId(){
+        return this.firstAddedId;
+    }
+
+    /**
+     * @return The number of expenses added in the interval, some of which may have been removed again since
+     */
+    public long getAddedCount(){
+        return this.addedCount;
+    }
+
+    /**
+     * @return The number of expenses removed in the interval, replaced ones included
+     */
+    public long getRemovedCount(){
+        return this.removedCount;
+    }
+
+    /**
+     * @return The number of changes (roommates or expenses added, removed or updated, recurring expenses folded in)
+     *         merged into this event
+     */
+    public long getChangeCount(){
+        return this.changeCount;
+    }
+
+    @Override
+    public String toString(){
+        return this.changeCount + " changes: " + this.roommateIds.length + " roommates, " + this.addedCount + " expenses added, " + this.removedCount + " removed";
+    }
+}
@@ -0,0 +1,95 @@
+package service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the changes made to an ExpenseManager as a stream of LedgerChange events, at most one per interval.
+ *
+ * Every change made during an interval is merged into a single event, so a bulk import of thousands of expenses
+ * reaches a subscriber as a handful of events listing each changed roommate once, rather than thousands of events.
+ * A subscriber that falls behind doesn't make events pile up: while any subscriber still has a full buffer of
+ * events, nothing is published and the changes keep merging until it catches up.
+ *
+ * Events are delivered on the common fork/join pool, never on the thread changing the manager. A UI should hand each
+ * event over to its own thread, for example with Platform.runLater in JavaFX.
+ *
+ * Example:
+ *      LedgerChangePublisher changes = manager.publishChanges(Duration.ofMillis(16));
+ *      changes.subscribe(subscriber);      // at most one event per frame
+ *      ...
+ *      changes.close();
+ *
+ * @author Kris Bali
+ */
+public final class LedgerChangePublisher implements Flow.Publisher<LedgerChange>, AutoCloseable {
+    /** Background thread that publishes the changes of every publisher at the end of each interval */
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "roomiepay-change-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The changes merged since the last event */
+    private final ChangeCoalescer changes;
+    /** Delivers the events to the subscribers, each with a buffer of its own */
+    private final SubmissionPublisher<LedgerChange> publisher = new SubmissionPublisher<>();
+    /** Publishes the merged changes at the end of each interval */
+    private final ScheduledFuture<?> tick;
+
+    /**
+     * LedgerChangePublisher constructor, starts publishing at the end of every interval.
+     * @param changes The changes merged since the last event
+     * @param interval The time between events
+     */
+    LedgerChangePublisher(ChangeCoalescer changes, Duration interval){
+        if (interval == null || interval.isZero() || interval.isNegative()){
+            throw new IllegalArgumentException("The time between change events must be above 0");
+        }
+
+        this.changes = changes;
+        this.tick = TICKER.scheduleAtFixedRate(this::flush, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super LedgerChange> subscriber){
+        this.publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Publishes the changes merged so far right away instead of at the end of the interval, for example once an
+     * import is finished. Does nothing if nothing changed, or if a subscriber is too far behind to take another event.
+     */
+    public synchronized void flush(){
+        if (this.publisher.isClosed() || this.publisher.estimateMaximumLag() >= this.publisher.getMaxBufferCapacity()){
+            return;
+        }
+
+        LedgerChange change = this.changes.drain();
+        if (change != null){
+            // Only this method submits and the lag only shrinks meanwhile, so there is room and this never blocks
+            this.publisher.submit(change);
+        }
+    }
+
+    /**
+     * @return Whether the publisher has been closed
+     */
+    public boolean isClosed(){
+        return this.publisher.isClosed();
+    }
+
+    /**
+     * Stops publishing and completes every subscriber. Changes not published yet are left out.
+     */
+    @Override
+    public synchronized void close(){
+        this.tick.cancel(false);
+        this.publisher.close();
+    }
+}
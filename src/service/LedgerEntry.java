@@ -0,0 +1,149 @@
+package service;
+
+import model.Money;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One change to a roommate's balance in their personal ledger.
+ *
+ * @author Kris Bali
+ */
+public final class LedgerEntry {
+    /**
+     * What changed the balance.
+     */
+    public enum Kind {
+        /** An expense the roommate paid for or took part in was added */
+        EXPENSE,
+        /** An expense the roommate paid for or took part in was removed, or replaced by a new one */
+        REMOVAL,
+        /** Occurrences of a recurring expense the roommate pays for or takes part in were folded in */
+        RECURRING
+    }
+
+    /** What changed the balance */
+    private final Kind kind;
+    /** The ID of the expense, or of the recurring expense for RECURRING entries */
+    private final long reference;
+    /** The name of the expense */
+    private final String name;
+    /** When the expense was paid, or when the recurring expense was brought up to for RECURRING entries */
+    private final Instant moment;
+    /** The amount the roommate paid, in cents */
+    private final long paidCents;
+    /** The amount the balance changed by, in cents */
+    private final long deltaCents;
+    /** The balance right after the change, in cents */
+    private final long balanceCents;
+
+    /**
+     * LedgerEntry constructor
+     * @param kind What changed the balance
+     * @param reference The ID of the expense, or of the recurring expense for RECURRING entries
+     * @param name The name of the expense
+     * @param moment When the expense was paid, or when the recurring expense was brought up to
+     * @param paidCents The amount the roommate paid, in cents
+     * @param deltaCents The amount the balance changed by, in cents
+     * @param balanceCents The balance right after the change, in cents
+     */
+    LedgerEntry(Kind kind, long reference, String name, Instant moment, long paidCents, long deltaCents, long balanceCents){
+        this.kind = kind;
+        this.reference = reference;
+        this.name = name;
+        this.moment = moment;
+        this.paidCents = paidCents;
+        this.deltaCents = deltaCents;
+        this.balanceCents = balanceCents;
+    }
+
+    /**
+     * @return What changed the balance
+     */
+    public Kind getKind(){
+        return this.kind;
+    }
+
+    /**
+     * @return The ID of the expense, or of the recurring expense for RECURRING entries
+     */
+    public long getReference(){
+        return this.reference;
+    }
+
+    /**
+     * @return The name of the expense
+     */
+    public String getName(){
+        return this.name;
+    }
+
+    /**
+     * @return When the expense was paid, or when the recurring expense was brought up to for RECURRING entries
+     */
+    public Instant getMoment(){
+        return this.moment;
+    }
+
+    /**
+     * @return The amount the roommate paid in cents, negative for a REMOVAL entry of an expense they paid for
+     */
+    public long getPaidCents(){
+        return this.paidCents;
+    }
+
+    /**
+     * @return The amount the roommate paid
+     */
+    public BigDecimal getPaid(){
+        return Money.toBigDecimal(this.paidCents);
+    }
+
+    /**
+     * @return The roommate's share of the expense in cents, what they paid less what their balance changed by
+     */
+    public long getShareCents(){
+        return Money.subtract(this.paidCents, this.deltaCents);
+    }
+
+    /**
+     * @return The roommate's share of the expense
+     */
+    public BigDecimal getShare(){
+        return Money.toBigDecimal(getShareCents());
+    }
+
+    /**
+     * @return The amount the balance changed by, in cents: positive when the roommate is owed more
+     */
+    public long getDeltaCents(){
+        return this.deltaCents;
+    }
+
+    /**
+     * @return The amount the balance changed by
+     */
+    public BigDecimal getDelta(){
+        return Money.toBigDecimal(this.deltaCents);
+    }
+
+    /**
+     * @return The balance right after the change, in cents
+     */
+    public long getBalanceCents(){
+        return this.balanceCents;
+    }
+
+    /**
+     * @return The balance right after the change
+     */
+    public BigDecimal getBalance(){
+        return Money.toBigDecimal(this.balanceCents);
+    }
+
+    @Override
+    public String toString(){
+        return this.kind + " " + this.name + " " + this.moment + " " + (this.deltaCents < 0 ? "-$" : "+$") + Money.toBigDecimal(Math.abs(this.deltaCents)) + " -> $" + getBalance();
+    }
+}
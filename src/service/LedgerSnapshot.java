@@ -0,0 +1,271 @@
+package service;
+
+import model.Expense;
+import model.RecurringExpense;
+
+import java.util.List;
+
+/**
+ * An immutable copy of the balances, running totals and open period of an ExpenseManager at one point in time.
+ * A snapshot holds everything needed to rebuild the manager without replaying the expenses before it. The expenses
+ * of the open period are kept, removed ones included, so the restored manager can still list, search, remove and
+ * archive them.
+ *
+ * @author Kris Bali
+ */
+public final class LedgerSnapshot {
+    /** The names of the roommates */
+    private final String[] names;
+    /** The balances of the roommates in cents, in the same order as the names */
+    private final long[] balances;
+    /** The total each roommate has paid in cents, in the same order as the names */
+    private final long[] paid;
+    /** The total of the shares each roommate has been charged in cents, in the same order as the names */
+    private final long[] shares;
+    /** The monetary sum of every expense added before the snapshot, in cents */
+    private final long totalExpensesCents;
+    /** The days that have expenses, as the number of days since 1970-01-01 */
+    private final long[] days;
+    /** The total spent each day in cents, in the same order as the days */
+    private final long[] dayTotals;
+    /** The number of expenses ever added before the snapshot, which is also the ID the next expense gets */
+    private final long expenseCount;
+    /** The recurring expenses, by ID */
+    private final RecurringExpense[] recurring;
+    /** The number of occurrences of each recurring expense folded into the balances, in the same order */
+    private final long[] recurringAccrued;
+    /** The ID of the first expense of the open period */
+    private final long firstExpenseId;
+    /** The expenses of the open period, by ID from firstExpenseId */
+    private final Expense[] expenses;
+    /** Whether each expense of the open period was removed, in the same order */
+    private final boolean[] removed;
+
+    /**
+     * LedgerSnapshot constructor for a snapshot that doesn't count its expenses
+     * @param names The names of the roommates
+     * @param balances The balances of the roommates in cents, in the same order as the names
+     * @param paid The total each roommate has paid in cents, in the same order as the names
+     * @param shares The total of the shares each roommate has been charged in cents, in the same order as the names
+     * @param totalExpensesCents The monetary sum of every expense added before the snapshot, in cents
+     * @param days The days that have expenses, as the number of days since 1970-01-01
+     * @param dayTotals The total spent each day in cents, in the same order as the days
+     */
+    public LedgerSnapshot(String[] names, long[] balances, long[] paid, long[] shares, long totalExpensesCents, long[] days, long[] dayTotals){
+        this(names, balances, paid, shares, totalExpensesCents, days, dayTotals, 0);
+    }
+
+    /**
+     * LedgerSnapshot constructor
+     * @param names The names of the roommates
+     * @param balances The balances of the roommates in cents, in the same order as the names
+     * @param paid The total each roommate has paid in cents, in the same order as the names
+     * @param shares The total of the shares each roommate has been charged in cents, in the same order as the names
+     * @param totalExpensesCents The monetary sum of every expense added before the snapshot, in cents
+     * @param days The days that have expenses, as the number of days since 1970-01-01
+     * @param dayTotals The total spent each day in cents, in the same order as the days
+     * @param expenseCount The number of expenses ever added before the snapshot
+     */
+    public LedgerSnapshot(String[] names, long[] balances, long[] paid, long[] shares, long totalExpensesCents, long[] days, long[] dayTotals, long expenseCount){
+        this(names, balances, paid, shares, totalExpensesCents, days, dayTotals, expenseCount, List.of(), new long[0]);
+    }
+
+    /**
+     * LedgerSnapshot constructor for a manager with recurring expenses
+     * @param names The names of the roommates
+     * @param balances The balances of the roommates in cents, in the same order as the names
+     * @param paid The total each roommate has paid in cents, in the same order as the names
+     * @param shares The total of the shares each roommate has been charged in cents, in the same order as the names
+     * @param totalExpensesCents The monetary sum of every expense added before the snapshot, in cents
+     * @param days The days that have expenses, as the number of days since 1970-01-01
+     * @param dayTotals The total spent each day in cents, in the same order as the days
+     * @param expenseCount The number of expenses ever added before the snapshot
+     * @param recurring The recurring expenses, by ID. Their roommates are matched to the snapshot's by name
+     * @param recurringAccrued The number of occurrences of each recurring expense folded into the balances
+     */
+    public LedgerSnapshot(String[] names, long[] balances, long[] paid, long[] shares, long totalExpensesCents, long[] days, long[] dayTotals, long expenseCount, List<RecurringExpense> recurring, long[] recurringAccrued){
+        this(names, balances, paid, shares, totalExpensesCents, days, dayTotals, expenseCount, recurring, recurringAccrued, expenseCount, List.of(), new boolean[0]);
+    }
+
+    /**
+     * LedgerSnapshot constructor for a manager holding the expenses of its open period
+     * @param names The names of the roommates
+     * @param balances The balances of the roommates in cents, in the same order as the names
+     * @param paid The total each roommate has paid in cents, in the same order as the names
+     * @param shares The total of the shares each roommate has been charged in cents, in the same order as the names
+     * @param totalExpensesCents The monetary sum of every expense added before the snapshot, in cents
+     * @param days The days that have expenses, as the number of days since 1970-01-01
+     * @param dayTotals The total spent each day in cents, in the same order as the days
+     * @param expenseCount The number of expenses ever added before the snapshot
+     * @param recurring The recurring expenses, by ID. Their roommates are matched to the snapshot's by name
+     * @param recurringAccrued The number of occurrences of each recurring expense folded into the balances
+     * @param firstExpenseId The ID of the first expense of the open period
+     * @param expenses The expenses of the open period, by ID from firstExpenseId. Their roommates are matched to the
+     *                 snapshot's by name
+     * @param removed Whether each expense of the open period was removed, in the same order
+     */
+    public LedgerSnapshot(String[] names, long[] balances, long[] paid, long[] shares, long totalExpensesCents, long[] days, long[] dayTotals, long expenseCount, List<RecurringExpense> recurring, long[] recurringAccrued, long firstExpenseId, List<Expense> expenses, boolean[] removed){
+        if (names.length != balances.length || names.length != paid.length || names.length != shares.length){
+            throw new IllegalArgumentException("Every roommate needs exactly one balance and one set of totals");
+        }
+
+        if (days.length != dayTotals.length){
+            throw new IllegalArgumentException("Every day needs exactly one total");
+        }
+
+        if (recurring.size() != recurringAccrued.length){
+            throw new IllegalArgumentException("Every recurring expense needs exactly one count of occurrences");
+        }
+
+        if (expenses.size() != removed.length){
+            throw new IllegalArgumentException("Every expense of the open period needs exactly one removed flag");
+        }
+
+        if (firstExpenseId < 0 || firstExpenseId + expenses.size() != expenseCount){
+            throw new IllegalArgumentException("The expenses of the open period must end right before the next expense ID");
+        }
+
+        this.names = names.clone();
+        this.balances = balances.clone();
+        this.paid = paid.clone();
+        this.shares = shares.clone();
+        this.totalExpensesCents = totalExpensesCents;
+        this.days = days.clone();
+        this.dayTotals = dayTotals.clone();
+        this.expenseCount = expenseCount;
+        this.recurring = recurring.toArray(new RecurringExpense[0]);
+        this.recurringAccrued = recurringAccrued.clone();
+        this.firstExpenseId = firstExpenseId;
+        this.expenses = expenses.toArray(new Expense[0]);
+        this.removed = removed.clone();
+    }
+
+    /**
+     * @return The number of roommates in the snapshot
+     */
+    public int getRoommateCount(){
+        return this.names.length;
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The name of the roommate
+     */
+    public String getName(int index){
+        return this.names[index];
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The balance of the roommate in cents
+     */
+    public long getBalanceCents(int index){
+        return this.balances[index];
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The total the roommate has paid in cents
+     */
+    public long getTotalPaidCents(int index){
+        return this.paid[index];
+    }
+
+    /**
+     * @param index The position of the roommate, from 0 to getRoommateCount() - 1
+     * @return The total of the shares the roommate has been charged in cents
+     */
+    public long getTotalShareCents(int index){
+        return this.shares[index];
+    }
+
+    /**
+     * @return The monetary sum of every expense added before the snapshot, in cents
+     */
+    public long getTotalExpensesCents(){
+        return this.totalExpensesCents;
+    }
+
+    /**
+     * @return The number of expenses ever added before the snapshot, removed ones included
+     */
+    public long getExpenseCount(){
+        return this.expenseCount;
+    }
+
+    /**
+     * @return The number of days that have expenses
+     */
+    public int getDayCount(){
+        return this.days.length;
+    }
+
+    /**
+     * @param index The position of the day, from 0 to getDayCount() - 1
+     * @return The day, as the number of days since 1970-01-01
+     */
+    public long getDay(int index){
+        return this.days[index];
+    }
+
+    /**
+     * @param index The position of the day, from 0 to getDayCount() - 1
+     * @return The total spent that day in cents
+     */
+    public long getDayTotalCents(int index){
+        return this.dayTotals[index];
+    }
+
+    /**
+     * @return The number of recurring expenses
+     */
+    public int getRecurringCount(){
+        return this.recurring.length;
+    }
+
+    /**
+     * @param index The ID of the recurring expense, from 0 to getRecurringCount() - 1
+     * @return The recurring expense
+     */
+    public RecurringExpense getRecurring(int index){
+        return this.recurring[index];
+    }
+
+    /**
+     * @param index The ID of the recurring expense, from 0 to getRecurringCount() - 1
+     * @return The number of its occurrences folded into the balances
+     */
+    public long getRecurringAccrued(int index){
+        return this.recurringAccrued[index];
+    }
+
+    /**
+     * @return The ID of the first expense of the open period
+     */
+    public long getFirstExpenseId(){
+        return this.firstExpenseId;
+    }
+
+    /**
+     * @return The number of expenses of the open period, removed ones included
+     */
+    public int getPeriodExpenseCount(){
+        return this.expenses.length;
+    }
+
+    /**
+     * @param index The position of the expense in the open period, from 0 to getPeriodExpenseCount() - 1
+     * @return The expense
+     */
+    public Expense getPeriodExpense(int index){
+        return this.expenses[index];
+    }
+
+    /**
+     * @param index The position of the expense in the open period, from 0 to getPeriodExpenseCount() - 1
+     * @return Whether the expense was removed
+     */
+    public boolean isPeriodExpenseRemoved(int index){
+        return this.removed[index];
+    }
+}
@@ -0,0 +1,106 @@
+package service;
+
+import model.Money;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The record of a closed period: the transfers the roommates settled up with, the balances carried forward into the
+ * next period, and the range of expense IDs the period held.
+ *
+ * @author Kris Bali
+ */
+public final class PeriodClose {
+    /** The moment the period was closed */
+    private final Instant closedAt;
+    /** The ID of the first expense added in the period */
+    private final long firstExpenseId;
+    /** The ID of the first expense of the next period */
+    private final long nextExpenseId;
+    /** The transfers the roommates settled up with */
+    private final List<Transfer> transfers;
+    /** The names of the roommates, by roommate ID */
+    private final String[] names;
+    /** The balance each roommate carries forward, in cents by roommate ID */
+    private final long[] carried;
+
+    /**
+     * PeriodClose constructor
+     * @param closedAt The moment the period was closed
+     * @param firstExpenseId The ID of the first expense added in the period
+     * @param nextExpenseId The ID of the first expense of the next period
+     * @param transfers The transfers the roommates settled up with
+     * @param names The names of the roommates, by roommate ID
+     * @param carried The balance each roommate carries forward, in cents by roommate ID
+     */
+    public PeriodClose(Instant closedAt, long firstExpenseId, long nextExpenseId, List<Transfer> transfers, String[] names, long[] carried){
+        this.closedAt = closedAt;
+        this.firstExpenseId = firstExpenseId;
+        this.nextExpenseId = nextExpenseId;
+        this.transfers = List.copyOf(transfers);
+        this.names = names.clone();
+        this.carried = carried.clone();
+    }
+
+    /**
+     * @return The moment the period was closed
+     */
+    public Instant getClosedAt(){
+        return this.closedAt;
+    }
+
+    /**
+     * @return The ID of the first expense added in the period
+     */
+    public long getFirstExpenseId(){
+        return this.firstExpenseId;
+    }
+
+    /**
+     * @return The ID of the first expense of the next period, every ID before it and from getFirstExpenseId() on
+     *         belongs to the period
+     */
+    public long getNextExpenseId(){
+        return this.nextExpenseId;
+    }
+
+    /**
+     * @return A read-only list of the transfers the roommates settled up with
+     */
+    public List<Transfer> getTransfers(){
+        return this.transfers;
+    }
+
+    /**
+     * @return The number of roommates when the period was closed
+     */
+    public int getRoommateCount(){
+        return this.names.length;
+    }
+
+    /**
+     * @param index The ID of a roommate, from 0 to getRoommateCount() - 1
+     * @return The name of the roommate
+     */
+    public String getName(int index){
+        return this.names[index];
+    }
+
+    /**
+     * @param index The ID of a roommate, from 0 to getRoommateCount() - 1
+     * @return The balance the roommate carries forward into the next period, in cents
+     */
+    public long getCarriedBalanceCents(int index){
+        return this.carried[index];
+    }
+
+    /**
+     * @param index The ID of a roommate, from 0 to getRoommateCount() - 1
+     * @return The balance the roommate carries forward into the next period
+     */
+    public BigDecimal getCarriedBalance(int index){
+        return Money.toBigDecimal(this.carried[index]);
+    }
+}
@@ -0,0 +1,174 @@
+package service;
+
+import model.Money;
+import model.RecurringExpense;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The recurring expenses of an ExpenseManager, and how many occurrences of each have been folded into the balances.
+ *
+ * Occurrences are never stored. Folding in k new occurrences of a recurring expense changes every balance by k times
+ * what one occurrence would, so bringing the balances up to date costs the same however many periods have passed.
+ * Every recurring expense has an ID, its position in the schedule: 0, 1, 2, ...
+ *
+ * @author Kris Bali
+ */
+final class RecurringSchedule {
+    /** The recurring expenses, by ID */
+    private RecurringExpense[] recurring = new RecurringExpense[4];
+    /** The ID of the payer of each recurring expense */
+    private int[] payerIds = new int[4];
+    /** The IDs of the participants of each recurring expense, in the same order as its participants */
+    private int[][] participantIds = new int[4][];
+    /** The number of occurrences of each recurring expense folded into the balances */
+    private long[] accrued = new long[4];
+    /** The number of recurring expenses */
+    private int size;
+    /** A live, read-only list of the recurring expenses */
+    private final List<RecurringExpense> view = new View();
+
+    /**
+     * A read-only list of the recurring expenses that follows the schedule as recurring expenses are added or ended.
+     */
+    private final class View extends AbstractList<RecurringExpense> implements RandomAccess {
+        @Override
+        public RecurringExpense get(int index){
+            return RecurringSchedule.this.get(index);
+        }
+
+        @Override
+        public int size(){
+            return RecurringSchedule.this.size;
+        }
+    }
+
+    /**
+     * Adds a recurring expense.
+     * @param expense The recurring expense
+     * @param payerId The ID of the payer
+     * @param participantIds The IDs of the participants, in the same order as the expense's participants
+     * @param accrued The number of occurrences already folded into the balances
+     * @return The ID of the recurring expense
+     */
+    int add(RecurringExpense expense, int payerId, int[] participantIds, long accrued){
+        if (this.size == this.recurring.length){
+            int capacity = this.size * 2;
+            this.recurring = Arrays.copyOf(this.recurring, capacity);
+            this.payerIds = Arrays.copyOf(this.payerIds, capacity);
+            this.participantIds = Arrays.copyOf(this.participantIds, capacity);
+            this.accrued = Arrays.copyOf(this.accrued, capacity);
+        }
+        int id = this.size++;
+        this.recurring[id] = expense;
+        this.payerIds[id] = payerId;
+        this.participantIds[id] = Arrays.copyOf(participantIds, expense.getParticipantCount());
+        this.accrued[id] = accrued;
+        return id;
+    }
+
+    /**
+     * @return The number of recurring expenses, ended ones included
+     */
+    int size(){
+        return this.size;
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     * @return The recurring expense
+     */
+    RecurringExpense get(int id){
+        check(id);
+        return this.recurring[id];
+    }
+
+    /**
+     * Replaces a recurring expense with a copy of it, for example one that ends.
+     * @param id The ID of the recurring expense
+     * @param expense The new copy
+     */
+    void replace(int id, RecurringExpense expense){
+        check(id);
+        this.recurring[id] = expense;
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     * @return The ID of its payer
+     */
+    int getPayerId(int id){
+        check(id);
+        return this.payerIds[id];
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     * @return The IDs of its participants, which must not be changed
+     */
+    int[] getParticipantIds(int id){
+        check(id);
+        return this.participantIds[id];
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     * @return The number of its occurrences folded into the balances
+     */
+    long getAccrued(int id){
+        check(id);
+        return this.accrued[id];
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     * @param accrued The number of its occurrences now folded into the balances
+     */
+    void setAccrued(int id, long accrued){
+        check(id);
+        this.accrued[id] = accrued;
+    }
+
+    /**
+     * @return A read-only list of the recurring expenses by ID, which shows recurring expenses added later too
+     */
+    List<RecurringExpense> asList(){
+        return this.view;
+    }
+
+    /**
+     * Adds what the recurring expenses had changed the balances by at a moment: for each one, the occurrences paid
+     * by then that have been folded into the balances, multiplied out.
+     * @param balances Balances in cents by roommate ID
+     * @param moment The moment to look back to
+     */
+    void addAsOf(long[] balances, Instant moment){
+        for (int id = 0; id < this.size; id++){
+            RecurringExpense expense = this.recurring[id];
+            long times = Math.min(this.accrued[id], expense.countUntil(moment));
+            if (times == 0){
+                continue;
+            }
+
+            int payer = this.payerIds[id];
+            balances[payer] = Money.add(balances[payer], Money.multiply(expense.getCostCents(), times));
+            int[] ids = this.participantIds[id];
+            for (int i = 0; i < ids.length; i++){
+                balances[ids[i]] = Money.subtract(balances[ids[i]], Money.multiply(expense.getShareCents(i), times));
+            }
+        }
+    }
+
+    /**
+     * @param id The ID of a recurring expense
+     */
+    private void check(int id){
+        if (id < 0 || id >= this.size){
+            throw new IllegalArgumentException("Recurring expense " + id + " has not been added.");
+        }
+    }
+}
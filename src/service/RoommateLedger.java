@@ -0,0 +1,222 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * The personal ledger of every roommate of an ExpenseManager: an append-only list of the changes made to their
+ * balance, each with what it refers to, the amount the roommate paid in it, the signed amount it changed the balance by
+ * and the balance right after it.
+ *
+ * A roommate's history, running balance and statements are read from their own ledger, so they cost the number of
+ * entries the roommate has rather than the length of the whole expense history. Entries are stored in columns of
+ * primitives, 41 bytes each, and reference expenses by ID instead of holding them.
+ *
+ * @author Kris Bali
+ */
+final class RoommateLedger {
+    /** Every kind of entry, by ordinal */
+    private static final LedgerEntry.Kind[] KINDS = LedgerEntry.Kind.values();
+
+    /** The ledger of each roommate, by roommate ID */
+    private Ledger[] ledgers = new Ledger[16];
+    /** The number of roommates with a ledger */
+    private int size;
+
+    /**
+     * The entries of one roommate, in the order they were made.
+     */
+    private static final class Ledger {
+        /** The balance of the roommate before the first entry, in cents */
+        long opening;
+        /** The kind of each entry, as the ordinal of its LedgerEntry.Kind */
+        byte[] kinds = new byte[8];
+        /** The ID of the expense or recurring expense each entry refers to */
+        long[] references = new long[8];
+        /** The seconds since the epoch of the moment of each entry */
+        long[] seconds = new long[8];
+        /** The amount the roommate paid in each entry, in cents */
+        long[] paid = new long[8];
+        /** The amount each entry changed the balance by, in cents */
+        long[] deltas = new long[8];
+        /** The balance right after each entry, in cents */
+        long[] balances = new long[8];
+        /** The number of entries */
+        int size;
+
+        Ledger(long opening){
+            this.opening = opening;
+        }
+
+        /**
+         * @return The balance after the last entry in cents, the opening balance if there are no entries
+         */
+        long balance(){
+            return this.size == 0 ? this.opening : this.balances[this.size - 1];
+        }
+
+        void grow(){
+            int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.references = Arrays.copyOf(this.references, capacity);
+            this.seconds = Arrays.copyOf(this.seconds, capacity);
+            this.paid = Arrays.copyOf(this.paid, capacity);
+            this.deltas = Arrays.copyOf(this.deltas, capacity);
+            this.balances = Arrays.copyOf(this.balances, capacity);
+        }
+    }
+
+    /**
+     * Starts the ledger of a roommate.
+     * @param id The ID of the roommate
+     * @param opening The balance of the roommate before their first entry, in cents
+     */
+    void roommateAdded(int id, long opening){
+        if (id == this.ledgers.length){
+            this.ledgers = Arrays.copyOf(this.ledgers, id * 2);
+        }
+        this.ledgers[id] = new Ledger(opening);
+        this.size = Math.max(this.size, id + 1);
+    }
+
+    /**
+     * Adds an entry to a roommate's ledger. An entry with the same kind, reference and moment as the roommate's last
+     * entry is merged into it, so a payer who also takes part in an expense gets one entry for it.
+     * @param id The ID of the roommate
+     * @param kind The kind of entry
+     * @param reference The ID of the expense or recurring expense the entry refers to
+     * @param seconds The seconds since the epoch of the moment of the entry
+     * @param paid The amount the roommate paid in the entry, in cents, negative if the entry takes a payment back
+     * @param delta The amount the entry changed the balance by, in cents
+     */
+    void record(int id, LedgerEntry.Kind kind, long reference, long seconds, long paid, long delta){
+        Ledger ledger = ledger(id);
+        int last = ledger.size - 1;
+        if (last >= 0 && ledger.kinds[last] == kind.ordinal() && ledger.references[last] == reference && ledger.seconds[last] == seconds){
+            ledger.paid[last] += paid;
+            ledger.deltas[last] += delta;
+            ledger.balances[last] += delta;
+            return;
+        }
+
+        if (ledger.size == ledger.kinds.length){
+            ledger.grow();
+        }
+        long balance = ledger.balance() + delta;
+        int entry = ledger.size++;
+        ledger.kinds[entry] = (byte) kind.ordinal();
+        ledger.references[entry] = reference;
+        ledger.seconds[entry] = seconds;
+        ledger.paid[entry] = paid;
+        ledger.deltas[entry] = delta;
+        ledger.balances[entry] = balance;
+    }
+
+    /**
+     * Moves a roommate's opening balance so their ledger ends at a balance, for entries of expenses that were already
+     * in the balance when they were recorded.
+     * @param id The ID of the roommate
+     * @param balance The balance the ledger must end at, in cents
+     */
+    void rebase(int id, long balance){
+        Ledger ledger = ledger(id);
+        long shift = balance - ledger.balance();
+        ledger.opening += shift;
+        for (int i = 0; i < ledger.size; i++){
+            ledger.balances[i] += shift;
+        }
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @return The number of entries in the roommate's ledger
+     */
+    int size(int id){
+        return ledger(id).size;
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @return The balance of the roommate before their first entry, in cents
+     */
+    long getOpeningCents(int id){
+        return ledger(id).opening;
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The kind of the entry
+     */
+    LedgerEntry.Kind getKind(int id, int entry){
+        return KINDS[ledger(id, entry).kinds[entry]];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The ID of the expense or recurring expense the entry refers to
+     */
+    long getReference(int id, int entry){
+        return ledger(id, entry).references[entry];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The seconds since the epoch of the moment of the entry
+     */
+    long getEpochSecond(int id, int entry){
+        return ledger(id, entry).seconds[entry];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The amount the roommate paid in the entry, in cents
+     */
+    long getPaidCents(int id, int entry){
+        return ledger(id, entry).paid[entry];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The amount the entry changed the balance by, in cents
+     */
+    long getDeltaCents(int id, int entry){
+        return ledger(id, entry).deltas[entry];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The balance right after the entry, in cents
+     */
+    long getBalanceCents(int id, int entry){
+        return ledger(id, entry).balances[entry];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @return The roommate's ledger
+     */
+    private Ledger ledger(int id){
+        if (id < 0 || id >= this.size || this.ledgers[id] == null){
+            throw new IllegalArgumentException("Roommate " + id + " has no ledger.");
+        }
+        return this.ledgers[id];
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @param entry The position of an entry in the roommate's ledger
+     * @return The roommate's ledger
+     */
+    private Ledger ledger(int id, int entry){
+        Ledger ledger = ledger(id);
+        if (entry < 0 || entry >= ledger.size){
+            throw new IndexOutOfBoundsException("No ledger entry at position " + entry);
+        }
+        return ledger;
+    }
+}
@@ -0,0 +1,201 @@
+package service;
+
+import model.Roommate;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Gives every roommate of an ExpenseManager a dense integer ID, in the order they were added: 0, 1, 2, ...
+ *
+ * Looking a roommate up by ID is an array index. Looking a roommate up by name goes through an open-addressing hash
+ * table of names to IDs, kept at most half full and probed linearly, so no entry objects are allocated.
+ *
+ * @author Kris Bali
+ */
+public class RoommateRegistry {
+    /** Roommates by ID */
+    private Roommate[] roommates = new Roommate[16];
+    /** The number of roommates registered, which is also the next ID handed out */
+    private int size;
+    /** Hash table slots holding roommate names, null for an empty slot */
+    private String[] names = new String[32];
+    /** Hash table slots holding the ID for the name in the same slot */
+    private int[] ids = new int[32];
+    /** A live, read-only map of names to roommates */
+    private final Map<String, Roommate> view = new View();
+
+    /**
+     * A read-only map of names to roommates that follows the registry as roommates are added, iterated in ID order.
+     */
+    private final class View extends AbstractMap<String, Roommate> {
+        /** The entries of the map */
+        private final Set<Entry<String, Roommate>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Roommate>> iterator(){
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext(){
+                        return this.next < RoommateRegistry.this.size;
+                    }
+
+                    @Override
+                    public Entry<String, Roommate> next(){
+                        if (!hasNext()){
+                            throw new NoSuchElementException();
+                        }
+                        Roommate roommate = RoommateRegistry.this.roommates[this.next++];
+                        return new SimpleImmutableEntry<>(roommate.getName(), roommate);
+                    }
+                };
+            }
+
+            @Override
+            public int size(){
+                return RoommateRegistry.this.size;
+            }
+        };
+
+        @Override
+        public Set<Entry<String, Roommate>> entrySet(){
+            return this.entries;
+        }
+
+        @Override
+        public Roommate get(Object key){
+            int id = key instanceof String ? idOf((String) key) : -1;
+            return id < 0 ? null : RoommateRegistry.this.roommates[id];
+        }
+
+        @Override
+        public boolean containsKey(Object key){
+            return key instanceof String && idOf((String) key) >= 0;
+        }
+
+        @Override
+        public int size(){
+            return RoommateRegistry.this.size;
+        }
+    }
+
+    /**
+     * Registers a roommate under the next free ID. The roommate keeps that ID if this is the first registry they
+     * have been added to.
+     * @param roommate The roommate to register
+     * @return The ID given to the roommate
+     * @throws IllegalArgumentException If a roommate with the same name is already registered
+     */
+    public int add(Roommate roommate){
+        if (idOf(roommate.getName()) >= 0){
+            throw new IllegalArgumentException("Roommate has already been added, try to create a roommate with a unique name.");
+        }
+
+        if (this.size == this.roommates.length){
+            this.roommates = Arrays.copyOf(this.roommates, this.size * 2);
+        }
+        if ((this.size + 1) * 2 > this.names.length){
+            rehash(this.names.length * 2);
+        }
+
+        int id = this.size++;
+        this.roommates[id] = roommate;
+        insert(roommate.getName(), id);
+        roommate.assignId(id);
+        return id;
+    }
+
+    /**
+     * @param id The ID of a roommate
+     * @return The roommate with that ID
+     */
+    public Roommate get(int id){
+        if (id < 0 || id >= this.size){
+            throw new IndexOutOfBoundsException("No roommate has ID " + id);
+        }
+        return this.roommates[id];
+    }
+
+    /**
+     * @param name The name of a roommate
+     * @return The ID of the roommate with that name, or -1 if no roommate has that name
+     */
+    public int idOf(String name){
+        int mask = this.names.length - 1;
+        for (int slot = hash(name) & mask; this.names[slot] != null; slot = (slot + 1) & mask){
+            if (this.names[slot].equals(name)){
+                return this.ids[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the ID of a roommate. When the expected ID belongs to that very roommate it is returned straight away,
+     * so no hashing is needed, otherwise the roommate is looked up by name.
+     * @param roommate A roommate
+     * @param expectedId The ID the roommate is expected to have, for example the ID an expense recorded for them
+     * @return The ID of the roommate in this registry, or -1 if no roommate with that name is registered
+     */
+    public int idOf(Roommate roommate, int expectedId){
+        if (expectedId >= 0 && expectedId < this.size && this.roommates[expectedId] == roommate){
+            return expectedId;
+        }
+        return idOf(roommate.getName());
+    }
+
+    /**
+     * @return A read-only map of every roommate's name to the roommate, which shows roommates added later too
+     */
+    public Map<String, Roommate> asMap(){
+        return this.view;
+    }
+
+    /**
+     * @return The number of roommates registered, every ID is from 0 to size() - 1
+     */
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * @param name A name to put in the hash table
+     * @param id The ID for the name
+     */
+    private void insert(String name, int id){
+        int mask = this.names.length - 1;
+        int slot = hash(name) & mask;
+        while (this.names[slot] != null){
+            slot = (slot + 1) & mask;
+        }
+        this.names[slot] = name;
+        this.ids[slot] = id;
+    }
+
+    /**
+     * Rebuilds the hash table with more slots.
+     * @param capacity The new number of slots, a power of 2
+     */
+    private void rehash(int capacity){
+        this.names = new String[capacity];
+        this.ids = new int[capacity];
+        for (int id = 0; id < this.size; id++){
+            insert(this.roommates[id].getName(), id);
+        }
+    }
+
+    /**
+     * @param name A name
+     * @return The hash code of the name with its high bits mixed into the low bits
+     */
+    private static int hash(String name){
+        int hash = name.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,157 @@
+package service;
+
+import model.Money;
+import model.Roommate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A roommate's statement for a span of time: their balance before it, every ledger entry in it with the balance after
+ * each, and their balance at its end.
+ *
+ * The opening balance counts every entry dated before the span, whenever it was recorded, so consecutive statements
+ * join up: the closing balance of one is the opening balance of the next. Entries are listed in the order they were
+ * recorded.
+ *
+ * @author Kris Bali
+ */
+public final class RoommateStatement {
+    /** The roommate the statement is for */
+    private final Roommate roommate;
+    /** The start of the span, included */
+    private final Instant from;
+    /** The end of the span, left out */
+    private final Instant to;
+    /** The balance before the span in cents */
+    private final long openingCents;
+    /** The entries dated in the span, in the order they were recorded */
+    private final List<LedgerEntry> entries;
+    /** The balance after each entry within the statement in cents, in the same order */
+    private final long[] balances;
+    /** The total the roommate paid in the span in cents */
+    private final long paidCents;
+    /** The total of the roommate's shares in the span in cents */
+    private final long shareCents;
+
+    /**
+     * RoommateStatement constructor
+     * @param roommate The roommate the statement is for
+     * @param from The start of the span, included
+     * @param to The end of the span, left out
+     * @param openingCents The balance before the span in cents
+     * @param entries The entries dated in the span, in the order they were recorded
+     */
+    RoommateStatement(Roommate roommate, Instant from, Instant to, long openingCents, List<LedgerEntry> entries){
+        this.roommate = roommate;
+        this.from = from;
+        this.to = to;
+        this.openingCents = openingCents;
+        this.entries = List.copyOf(entries);
+        this.balances = new long[entries.size()];
+        long balance = openingCents;
+        long paid = 0;
+        long share = 0;
+        for (int i = 0; i < this.balances.length; i++){
+            balance = Money.add(balance, entries.get(i).getDeltaCents());
+            paid = Money.add(paid, entries.get(i).getPaidCents());
+            share = Money.add(share, entries.get(i).getShareCents());
+            this.balances[i] = balance;
+        }
+        this.paidCents = paid;
+        this.shareCents = share;
+    }
+
+    /**
+     * @return The roommate the statement is for
+     */
+    public Roommate getRoommate(){
+        return this.roommate;
+    }
+
+    /**
+     * @return The start of the span, included
+     */
+    public Instant getFrom(){
+        return this.from;
+    }
+
+    /**
+     * @return The end of the span, left out
+     */
+    public Instant getTo(){
+        return this.to;
+    }
+
+    /**
+     * @return The balance before the span in cents
+     */
+    public long getOpeningBalanceCents(){
+        return this.openingCents;
+    }
+
+    /**
+     * @return The balance before the span
+     */
+    public BigDecimal getOpeningBalance(){
+        return Money.toBigDecimal(this.openingCents);
+    }
+
+    /**
+     * @return The balance at the end of the span in cents
+     */
+    public long getClosingBalanceCents(){
+        return this.balances.length == 0 ? this.openingCents : this.balances[this.balances.length - 1];
+    }
+
+    /**
+     * @return The balance at the end of the span
+     */
+    public BigDecimal getClosingBalance(){
+        return Money.toBigDecimal(getClosingBalanceCents());
+    }
+
+    /**
+     * @return The total the roommate paid in the span in cents
+     */
+    public long getTotalPaidCents(){
+        return this.paidCents;
+    }
+
+    /**
+     * @return The total the roommate paid in the span
+     */
+    public BigDecimal getTotalPaid(){
+        return Money.toBigDecimal(this.paidCents);
+    }
+
+    /**
+     * @return The total of the roommate's shares in the span in cents, what they owe for it
+     */
+    public long getTotalShareCents(){
+        return this.shareCents;
+    }
+
+    /**
+     * @return The total of the roommate's shares in the span, what they owe for it
+     */
+    public BigDecimal getTotalShare(){
+        return Money.toBigDecimal(this.shareCents);
+    }
+
+    /**
+     * @return A read-only list of the entries dated in the span, in the order they were recorded
+     */
+    public List<LedgerEntry> getEntries(){
+        return this.entries;
+    }
+
+    /**
+     * @param index The position of an entry, from 0 to getEntries().size() - 1
+     * @return The balance right after the entry within the statement, in cents
+     */
+    public long getBalanceAfterCents(int index){
+        return this.balances[index];
+    }
+}
@@ -0,0 +1,253 @@
+package service;
+
+import model.Roommate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out who owes whom: a short list of transfers that brings every roommate's balance back to $0.00.
+ *
+ * The plan is built greedily in cents: the roommate who owes the most pays the roommate who is owed the most,
+ * as much as one of them needs, and the other goes back into line with what is left. Both lines are binary heaps,
+ * so a plan for n roommates takes O(n log n) time and has fewer than n transfers.
+ *
+ * The plan is kept up to date incrementally. When a roommate's balance changes they are marked dirty, and the next
+ * time the plan is read only the transfers involving dirty roommates are cancelled and re-matched, instead of
+ * rebuilding the plan for the whole group.
+ *
+ * Example:
+ *      Kris has a balance of $20.00, David has a balance of -$5.00 and Nick has a balance of -$15.00.
+ *      Nick pays Kris $15.00, then David pays Kris $5.00.
+ *
+ * @author Kris Bali
+ */
+public class SettlementPlanner {
+    /** The planning state of every tracked roommate, by roommate ID */
+    private Node[] nodes = new Node[16];
+    /** Roommates whose part of the plan has to be redone, or who still had money left unmatched last time */
+    private Node[] dirty = new Node[16];
+    /** The number of roommates in "dirty" */
+    private int dirtyCount;
+    /** The last plan built, or null if it has to be rebuilt */
+    private List<Transfer> plan;
+
+    /**
+     * The planning state of a single roommate.
+     */
+    private static final class Node {
+        /** The roommate being planned for */
+        final Roommate roommate;
+        /** Planned transfers with other roommates, in cents, positive when this roommate receives money */
+        final Map<Node, Long> links = new HashMap<>();
+        /** The part of the balance no planned transfer covers yet, in cents */
+        long residual;
+        /** Whether this node is in the dirty list */
+        boolean dirty;
+
+        Node(Roommate roommate){
+            this.roommate = roommate;
+        }
+    }
+
+    /**
+     * Builds a plan for a group of roommates from scratch.
+     * @param roommates The roommates to settle
+     * @return The transfers that settle every balance
+     */
+    public static List<Transfer> plan(Collection<Roommate> roommates){
+        SettlementPlanner planner = new SettlementPlanner();
+        int id = 0;
+        for (Roommate roommate : roommates){
+            planner.track(id++, roommate);
+        }
+        return planner.getTransfers();
+    }
+
+    /**
+     * Starts including a roommate in the plan.
+     * @param id The ID of the roommate
+     * @param roommate The roommate to include
+     */
+    public void track(int id, Roommate roommate){
+        if (id >= this.nodes.length){
+            this.nodes = Arrays.copyOf(this.nodes, Math.max(this.nodes.length * 2, id + 1));
+        }
+        if (this.nodes[id] != null){
+            throw new IllegalArgumentException("Roommate " + roommate.getName() + " is already being planned for.");
+        }
+        Node node = new Node(roommate);
+        this.nodes[id] = node;
+        markDirty(node);
+    }
+
+    /**
+     * Marks a roommate whose balance has changed, so their transfers get redone the next time the plan is read.
+     * This doesn't allocate, so it can be called on every balance update.
+     * @param id The ID of the roommate whose balance changed
+     */
+    public void markDirty(int id){
+        if (id < this.nodes.length && this.nodes[id] != null){
+            markDirty(this.nodes[id]);
+        }
+    }
+
+    /**
+     * @param node The node to add to the dirty list
+     */
+    private void markDirty(Node node){
+        this.plan = null;
+        if (node.dirty){
+            return;
+        }
+
+        if (this.dirtyCount == this.dirty.length){
+            Node[] bigger = new Node[this.dirty.length * 2];
+            System.arraycopy(this.dirty, 0, bigger, 0, this.dirtyCount);
+            this.dirty = bigger;
+        }
+        node.dirty = true;
+        this.dirty[this.dirtyCount++] = node;
+    }
+
+    /**
+     * @return The transfers that settle every balance, updated for any balances that changed since the last call
+     */
+    public List<Transfer> getTransfers(){
+        if (this.plan == null){
+            reconcile();
+            this.plan = collect();
+        }
+        return this.plan;
+    }
+
+    /**
+     * Cancels every transfer involving a dirty roommate, then re-matches the money left over.
+     */
+    private void reconcile(){
+        int changed = this.dirtyCount;
+        for (int i = 0; i < changed; i++){
+            Node node = this.dirty[i];
+            for (Map.Entry<Node, Long> link : node.links.entrySet()){
+                Node other = link.getKey();
+                other.residual += other.links.remove(node);
+                markDirty(other);
+            }
+            node.links.clear();
+            node.residual = node.roommate.getBalanceCents();
+        }
+
+        Node[] debtors = new Node[this.dirtyCount];
+        Node[] creditors = new Node[this.dirtyCount];
+        int debtorCount = 0;
+        int creditorCount = 0;
+        for (int i = 0; i < this.dirtyCount; i++){
+            Node node = this.dirty[i];
+            if (node.residual < 0){
+                debtors[debtorCount++] = node;
+            } else if (node.residual > 0){
+                creditors[creditorCount++] = node;
+            }
+        }
+        heapify(debtors, debtorCount);
+        heapify(creditors, creditorCount);
+
+        while (debtorCount > 0 && creditorCount > 0){
+            Node debtor = debtors[0];
+            Node creditor = creditors[0];
+            long amount = Math.min(-debtor.residual, creditor.residual);
+
+            debtor.links.merge(creditor, -amount, Long::sum);
+            creditor.links.merge(debtor, amount, Long::sum);
+            debtor.residual += amount;
+            creditor.residual -= amount;
+
+            if (debtor.residual == 0){
+                debtors[0] = debtors[--debtorCount];
+            }
+            siftDown(debtors, debtorCount, 0);
+
+            if (creditor.residual == 0){
+                creditors[0] = creditors[--creditorCount];
+            }
+            siftDown(creditors, creditorCount, 0);
+        }
+
+        // Whatever couldn't be matched (balances that don't add up to $0.00) stays dirty for the next round
+        int kept = 0;
+        for (int i = 0; i < this.dirtyCount; i++){
+            Node node = this.dirty[i];
+            if (node.residual != 0){
+                this.dirty[kept++] = node;
+            } else {
+                node.dirty = false;
+            }
+        }
+        for (int i = kept; i < this.dirtyCount; i++){
+            this.dirty[i] = null;
+        }
+        this.dirtyCount = kept;
+    }
+
+    /**
+     * @return Every planned transfer, listed once from the side of the roommate who pays
+     */
+    private List<Transfer> collect(){
+        List<Transfer> transfers = new ArrayList<>();
+        for (int id = 0; id < this.nodes.length; id++){
+            Node node = this.nodes[id];
+            if (node == null){
+                continue;
+            }
+            for (Map.Entry<Node, Long> link : node.links.entrySet()){
+                if (link.getValue() < 0){
+                    transfers.add(new Transfer(node.roommate, link.getKey().roommate, -link.getValue()));
+                }
+            }
+        }
+        return Collections.unmodifiableList(transfers);
+    }
+
+    /**
+     * Orders an array into a heap with the largest unmatched amount at the top.
+     * @param heap The nodes to order
+     * @param size The number of nodes in the array
+     */
+    private static void heapify(Node[] heap, int size){
+        for (int i = size / 2 - 1; i >= 0; i--){
+            siftDown(heap, size, i);
+        }
+    }
+
+    /**
+     * Moves a node down the heap until both of its children have a smaller unmatched amount.
+     * @param heap The heap
+     * @param size The number of nodes in the heap
+     * @param index The position of the node to move
+     */
+    private static void siftDown(Node[] heap, int size, int index){
+        while (true){
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && Math.abs(heap[left].residual) > Math.abs(heap[largest].residual)){
+                largest = left;
+            }
+            if (right < size && Math.abs(heap[right].residual) > Math.abs(heap[largest].residual)){
+                largest = right;
+            }
+            if (largest == index){
+                return;
+            }
+            Node swap = heap[index];
+            heap[index] = heap[largest];
+            heap[largest] = swap;
+            index = largest;
+        }
+    }
+}
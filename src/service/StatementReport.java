@@ -0,0 +1,202 @@
+package service;
+
+import model.Money;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes the monthly statement of every roommate of an ExpenseManager: their opening balance, each change to their
+ * balance in the month with what they paid and their share, their totals and their closing balance.
+ *
+ * Each roommate's statement is read from their own ledger, so together the statements make one pass over the history
+ * split by roommate. The roommates are split in halves on a fork/join pool until each task has one, so the work spreads
+ * across every core however uneven the ledgers are.
+ *
+ * Statements are written as they are built, never gathered into one text. Written to a directory, each task streams
+ * its roommate's statement into its own file. Written to a single Writer, roommates are built a window at a time in
+ * parallel and then written in ID order, so only one window of statements is held at once.
+ *
+ * The manager must not change while statements are being written, so call these on the thread that changes it.
+ *
+ * @author Kris Bali
+ */
+public final class StatementReport {
+    /** The manager statements are written for */
+    private final ExpenseManager manager;
+    /** The pool statements are built on */
+    private final ForkJoinPool pool;
+
+    /**
+     * StatementReport constructor, which builds statements on the common fork/join pool
+     * @param manager The manager statements are written for
+     */
+    public StatementReport(ExpenseManager manager){
+        this(manager, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * StatementReport constructor
+     * @param manager The manager statements are written for
+     * @param pool The pool statements are built on
+     */
+    public StatementReport(ExpenseManager manager, ForkJoinPool pool){
+        if (manager == null){
+            throw new IllegalArgumentException("Please provide a manager to report on");
+        }
+
+        if (pool == null){
+            throw new IllegalArgumentException("Please provide a pool to build statements on");
+        }
+
+        this.manager = manager;
+        this.pool = pool;
+    }
+
+    /**
+     * Writes every roommate's statement for a month, one after the other in the order they were added.
+     * @param month The month to write statements for
+     * @param zone The time zone the month starts and ends in
+     * @param out Where the statements are written, left open
+     * @throws IOException If writing fails
+     */
+    public void write(YearMonth month, ZoneId zone, Writer out) throws IOException {
+        Instant from = start(month, zone);
+        Instant to = start(month.plusMonths(1), zone);
+        int count = this.manager.roommateCount();
+        int window = Math.max(1, this.pool.getParallelism() * 4);
+        RoommateStatement[] statements = new RoommateStatement[Math.min(window, count)];
+        for (int first = 0; first < count; first += window){
+            int last = Math.min(first + window, count);
+            int offset = first;
+            this.pool.invoke(new ByRoommate(first, last, id -> statements[id - offset] = this.manager.statement(id, from, to)));
+            for (int i = 0; i < last - first; i++){
+                render(statements[i], month, zone, out);
+                statements[i] = null;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes every roommate's statement for a month to its own file in a directory, named after the month and the
+     * roommate's ID. Each file is written by the task that builds the statement.
+     * @param month The month to write statements for
+     * @param zone The time zone the month starts and ends in
+     * @param directory The directory to write the files to, created if it doesn't exist
+     * @return The files written, in the order the roommates were added
+     * @throws IOException If writing fails
+     */
+    public List<Path> write(YearMonth month, ZoneId zone, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Instant from = start(month, zone);
+        Instant to = start(month.plusMonths(1), zone);
+        int count = this.manager.roommateCount();
+        List<Path> files = new ArrayList<>(count);
+        for (int id = 0; id < count; id++){
+            files.add(directory.resolve(String.format("statement-%s-%04d.txt", month, id)));
+        }
+        try {
+            this.pool.invoke(new ByRoommate(0, count, id -> {
+                try (BufferedWriter out = Files.newBufferedWriter(files.get(id), StandardCharsets.UTF_8)){
+                    render(this.manager.statement(id, from, to), month, zone, out);
+                } catch (IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e){
+            throw e.getCause();
+        }
+        return files;
+    }
+
+    /**
+     * Writes one statement as text.
+     * @param statement The statement to write
+     * @param month The month of the statement
+     * @param zone The time zone the dates of the entries are written in
+     * @param out Where the statement is written
+     * @throws IOException If writing fails
+     */
+    static void render(RoommateStatement statement, YearMonth month, ZoneId zone, Writer out) throws IOException {
+        out.write("Statement for " + statement.getRoommate().getName() + ", " + month + "\n");
+        out.write("Opening balance: " + format(statement.getOpeningBalanceCents()) + "\n");
+        List<LedgerEntry> entries = statement.getEntries();
+        for (int i = 0; i < entries.size(); i++){
+            LedgerEntry entry = entries.get(i);
+            out.write(String.format("%s  %-9s %-30s paid %10s  share %10s  balance %10s\n",
+                    LocalDate.ofInstant(entry.getMoment(), zone),
+                    entry.getKind(), entry.getName(), format(entry.getPaidCents()), format(entry.getShareCents()),
+                    format(statement.getBalanceAfterCents(i))));
+        }
+        out.write("Total paid: " + format(statement.getTotalPaidCents()) + "\n");
+        out.write("Total share: " + format(statement.getTotalShareCents()) + "\n");
+        out.write("Closing balance: " + format(statement.getClosingBalanceCents()) + "\n\n");
+    }
+
+    /**
+     * @param cents An amount in cents
+     * @return The amount written with a dollar sign, and a minus sign before it if it is negative
+     */
+    private static String format(long cents){
+        return (cents < 0 ? "-$" : "$") + Money.toBigDecimal(Math.abs(cents));
+    }
+
+    /**
+     * @param month A month
+     * @param zone A time zone
+     * @return The moment the month starts in the time zone
+     */
+    private static Instant start(YearMonth month, ZoneId zone){
+        return month.atDay(1).atStartOfDay(zone).toInstant();
+    }
+
+    /**
+     * Does something for one roommate.
+     */
+    private interface RoommateTask {
+        void run(int id);
+    }
+
+    /**
+     * Splits a range of roommate IDs in halves until one is left, and runs a task for it.
+     */
+    private static final class ByRoommate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+        private final int last;
+        private final RoommateTask task;
+
+        ByRoommate(int first, int last, RoommateTask task){
+            this.first = first;
+            this.last = last;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute(){
+            if (this.last - this.first <= 1){
+                if (this.last > this.first){
+                    this.task.run(this.first);
+                }
+                return;
+            }
+            int middle = (this.first + this.last) >>> 1;
+            invokeAll(new ByRoommate(this.first, middle, this.task), new ByRoommate(middle, this.last, this.task));
+        }
+    }
+}
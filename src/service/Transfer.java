@@ -0,0 +1,65 @@
+package service;
+
+import model.Money;
+import model.Roommate;
+
+import java.math.BigDecimal;
+
+/**
+ * Represents one payment in a settlement plan: a roommate who owes money pays a roommate who is owed money.
+ *
+ * @author Kris Bali
+ */
+public final class Transfer {
+    /** The roommate who pays */
+    private final Roommate debtor;
+    /** The roommate who gets paid */
+    private final Roommate creditor;
+    /** The amount paid in cents */
+    private final long amountCents;
+
+    /**
+     * Transfer constructor
+     * @param debtor The roommate who pays
+     * @param creditor The roommate who gets paid
+     * @param amountCents The amount paid in cents
+     */
+    public Transfer(Roommate debtor, Roommate creditor, long amountCents){
+        this.debtor = debtor;
+        this.creditor = creditor;
+        this.amountCents = amountCents;
+    }
+
+    /**
+     * @return The roommate who pays
+     */
+    public Roommate getDebtor(){
+        return this.debtor;
+    }
+
+    /**
+     * @return The roommate who gets paid
+     */
+    public Roommate getCreditor(){
+        return this.creditor;
+    }
+
+    /**
+     * @return The amount paid
+     */
+    public BigDecimal getAmount(){
+        return Money.toBigDecimal(this.amountCents);
+    }
+
+    /**
+     * @return The amount paid in cents
+     */
+    public long getAmountCents(){
+        return this.amountCents;
+    }
+
+    @Override
+    public String toString(){
+        return this.debtor.getName() + " pays " + this.creditor.getName() + " $" + getAmount();
+    }
+}
@@ -0,0 +1,191 @@
+package storage;
+
+import model.Expense;
+import model.Roommate;
+import service.ExpenseCursor;
+import service.ExpenseManager;
+import service.PeriodClose;
+import service.Transfer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes the archive of a closed period: the record of the close followed by the period's expenses,
+ * compressed. An archive is written once and never changed.
+ *
+ * File layout:
+ *      int  magic number
+ *      int  format version
+ *      long and int the moment the period was closed
+ *      long ID of the first expense of the period, long ID of the first expense of the next period
+ *      int  number of transfers
+ *      for each transfer: string debtor's name, string creditor's name, long amount in cents
+ *      int  number of roommates
+ *      for each roommate: string name, long balance carried forward in cents
+ *      int  number of expenses
+ *      the expenses compressed with DEFLATE, each as its long ID followed by the expense as the journal writes it
+ *      int  CRC32 checksum of everything before it
+ *
+ * Expenses are streamed through the compressor one at a time, so writing an archive never holds the whole period.
+ *
+ * @author Kris Bali
+ */
+final class ArchiveFile {
+    /** Marks the start of an archive file */
+    static final int MAGIC = 0x52504131;
+    /** The version of the file layout */
+    static final int VERSION = 1;
+
+    private ArchiveFile(){
+    }
+
+    /**
+     * Writes the archive of a period to a file, replacing any file already at that path, and forces it to disk.
+     * @param path The path of the archive file
+     * @param close The record of the close
+     * @param expenses A cursor over the expenses of the period
+     * @throws IOException If the file can't be written
+     */
+    static void write(Path path, PeriodClose close, ExpenseCursor expenses) throws IOException {
+        int size = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES + 2 * Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+        for (Transfer transfer : close.getTransfers()){
+            size += Records.sizeOf(transfer.getDebtor().getName()) + Records.sizeOf(transfer.getCreditor().getName()) + Long.BYTES;
+        }
+        for (int i = 0; i < close.getRoommateCount(); i++){
+            size += Records.sizeOf(close.getName(i)) + Long.BYTES;
+        }
+        // The number of expenses is filled in once they have been counted
+        int countPosition = size - Integer.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(size);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(close.getClosedAt().getEpochSecond());
+        header.putInt(close.getClosedAt().getNano());
+        header.putLong(close.getFirstExpenseId());
+        header.putLong(close.getNextExpenseId());
+        header.putInt(close.getTransfers().size());
+        for (Transfer transfer : close.getTransfers()){
+            Records.putString(header, transfer.getDebtor().getName());
+            Records.putString(header, transfer.getCreditor().getName());
+            header.putLong(transfer.getAmountCents());
+        }
+        header.putInt(close.getRoommateCount());
+        for (int i = 0; i < close.getRoommateCount(); i++){
+            Records.putString(header, close.getName(i));
+            header.putLong(close.getCarriedBalanceCents(i));
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            // The header is rewritten with the count at the end, the body is compressed straight to the file after it
+            channel.position(size);
+            OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            int count = 0;
+            try {
+                DeflaterOutputStream body = new DeflaterOutputStream(file, deflater, 1 << 16);
+                ByteBuffer record = ByteBuffer.allocate(4096);
+                while (expenses.next()){
+                    Expense expense = expenses.toExpense();
+                    int length = Long.BYTES + Records.sizeOf(expense);
+                    if (record.capacity() < length){
+                        record = ByteBuffer.allocate(Math.max(record.capacity() * 2, length));
+                    }
+                    record.clear();
+                    record.putLong(expenses.getId());
+                    Records.putExpense(record, expense);
+                    body.write(record.array(), 0, record.position());
+                    count++;
+                }
+                body.finish();
+            } finally {
+                deflater.end();
+            }
+            file.flush();
+
+            header.putInt(countPosition, count);
+            header.rewind();
+            Records.writeFully(channel.position(0), header);
+
+            CRC32 crc = new CRC32();
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+            long end = channel.size();
+            for (long position = 0; position < end; position += chunk.limit()){
+                chunk.clear().limit((int) Math.min(chunk.capacity(), end - position));
+                Records.readFully(channel, chunk, position);
+                chunk.flip();
+                crc.update(chunk);
+                chunk.flip();
+            }
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue());
+            checksum.flip();
+            Records.writeFully(channel.position(end), checksum);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the archive of a period.
+     * @param path The path of the archive file
+     * @param number The number of the archive
+     * @param manager The manager whose roommates the archive refers to
+     * @return The archive, with its roommates matched to the manager's by name
+     * @throws IOException If the file can't be read or is damaged
+     */
+    static PeriodArchive read(Path path, long number, ExpenseManager manager) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 2 * Integer.BYTES){
+            throw new IOException("Archive " + path + " is damaged");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt(bytes.length - Integer.BYTES) != (int) crc.getValue()){
+            throw new IOException("Archive " + path + " is damaged");
+        }
+
+        Instant closedAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        long firstId = buffer.getLong();
+        long nextId = buffer.getLong();
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = buffer.getInt(); i > 0; i--){
+            Roommate debtor = manager.getRoommateByName(Records.getString(buffer));
+            Roommate creditor = manager.getRoommateByName(Records.getString(buffer));
+            transfers.add(new Transfer(debtor, creditor, buffer.getLong()));
+        }
+        String[] names = new String[buffer.getInt()];
+        long[] carried = new long[names.length];
+        for (int i = 0; i < names.length; i++){
+            names[i] = Records.getString(buffer);
+            carried[i] = buffer.getLong();
+        }
+        int count = buffer.getInt();
+
+        ByteBuffer body;
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(bytes, buffer.position(), bytes.length - Integer.BYTES - buffer.position()))){
+            body = ByteBuffer.wrap(in.readAllBytes());
+        }
+        long[] ids = new long[count];
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            ids[i] = body.getLong();
+            expenses.add(FileManager.getExpense(body, manager, true));
+        }
+        return new PeriodArchive(number, new PeriodClose(closedAt, firstId, nextId, transfers, names, carried), ids, expenses);
+    }
+}
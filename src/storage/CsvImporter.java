@@ -0,0 +1,723 @@
+package storage;
+
+import model.Expense;
+import model.Roommate;
+import service.ExpenseManager;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Imports expenses in bulk from a CSV file, such as a bank statement exported to a spreadsheet.
+ *
+ * The file starts with a header row naming its columns, in any order and any case: name, cost, payer, participants
+ * (separated by semicolons) and date (an ISO date, taken as midnight UTC, or an ISO instant). Other columns are
+ * ignored. Fields may be quoted, with "" for a quote inside a quoted field, so names can hold commas and line breaks.
+ *
+ * The calling thread reads the file in chunks and cuts each one at its last row boundary, carrying the rest over to
+ * the next chunk. Chunks are parsed on a pool of threads, where each row becomes an Expense, so the checks of the
+ * Expense constructor run off the calling thread. The calling thread takes the parsed chunks back in file order and
+ * adds their expenses to the manager in batches. Only a few chunks are in flight at once, so the rows being parsed
+ * and added take memory bounded by the chunk size and the number of threads however big the file is.
+ *
+ * Re-importing a file is a no-op: each row gets a key from a 64-bit hash of its content and the number of identical
+ * rows right before it, and the keys of imported rows are kept in the data directory, 8 bytes each. A row whose key is
+ * already there is skipped as a duplicate, so a run of identical rows, such as two coffees bought the same day, imports
+ * every row, once. Only the current run is counted, so reading a file takes the same memory however big it is; the
+ * price is that a row identical to an earlier row it doesn't follow gets that row's key and is skipped as a duplicate.
+ * Rows that only repeat within a file should be kept next to each other, as a statement sorted by date keeps them.
+ * The keys of a batch are written and forced once its expenses are durable in the journal; a crash in between imports
+ * that batch again on the next try.
+ *
+ * Duplicate detection takes memory that grows with the data instead: every key in the key file is loaded on the first
+ * import, 8 to 16 bytes per row ever imported.
+ *
+ * Rows that can't be turned into an expense, or that the manager refuses, are left out and passed to an error
+ * callback with why, in file order.
+ *
+ * @author Kris Bali
+ */
+public class CsvImporter {
+    /** The name of the file in the data directory that holds the keys of imported rows */
+    public static final String KEY_FILE = "imported.keys";
+    /** The number of bytes read from the file at a time */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    /** The largest number of expenses added to the manager at once */
+    public static final int BATCH_SIZE = 1000;
+
+    /** The columns every file must have, in the order Columns keeps them */
+    private static final String[] COLUMNS = {"name", "cost", "payer", "participants", "date"};
+    /** Another name the date column may go by */
+    private static final String TIMESTAMP_COLUMN = "timestamp";
+
+    /** The manager expenses are added to */
+    private final ExpenseManager manager;
+    /** The file holding the keys of imported rows */
+    private final Path keyPath;
+    /** The number of threads rows are parsed on */
+    private final int threads;
+    /** The number of bytes read from the file at a time */
+    private final int chunkSize;
+    /** The keys of every row imported so far, loaded from the key file on the first import */
+    private LongHashSet imported;
+
+    /**
+     * The positions of the columns an expense is read from.
+     */
+    private static final class Columns {
+        int name;
+        int cost;
+        int payer;
+        int participants;
+        int date;
+        /** The number of fields a row needs to have every column */
+        int width;
+    }
+
+    /**
+     * The rows of one chunk, parsed on a pool thread. Rows are numbered from 0 within the chunk.
+     */
+    private static final class Block {
+        /** The number of rows in the chunk, including blank ones */
+        int rows;
+        /** The number of rows that weren't blank */
+        int filled;
+        /** The expenses of the rows that parsed, in file order */
+        final List<Expense> expenses = new ArrayList<>();
+        /** The row of each expense */
+        int[] expenseRows = new int[64];
+        /** The content hash of each expense */
+        long[] hashes = new long[64];
+        /** The rows that didn't parse, in file order */
+        int[] errorRows = new int[4];
+        /** Why each of those rows didn't parse */
+        final List<String> messages = new ArrayList<>();
+
+        void parsed(int row, Expense expense, long hash){
+            int count = this.expenses.size();
+            if (count == this.hashes.length){
+                this.expenseRows = Arrays.copyOf(this.expenseRows, count * 2);
+                this.hashes = Arrays.copyOf(this.hashes, count * 2);
+            }
+            this.expenseRows[count] = row;
+            this.hashes[count] = hash;
+            this.expenses.add(expense);
+        }
+
+        void failed(int row, String message){
+            int count = this.messages.size();
+            if (count == this.errorRows.length){
+                this.errorRows = Arrays.copyOf(this.errorRows, count * 2);
+            }
+            this.errorRows[count] = row;
+            this.messages.add(message);
+        }
+    }
+
+    /**
+     * CsvImporter constructor, which parses on one thread per processor
+     * @param manager The manager expenses are added to
+     * @param directory The data directory the manager is stored in, where the keys of imported rows are kept
+     */
+    public CsvImporter(ExpenseManager manager, Path directory){
+        this(manager, directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * CsvImporter constructor
+     * @param manager The manager expenses are added to
+     * @param directory The data directory the manager is stored in, where the keys of imported rows are kept
+     * @param threads The number of threads rows are parsed on
+     */
+    public CsvImporter(ExpenseManager manager, Path directory, int threads){
+        this(manager, directory, threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * CsvImporter constructor
+     * @param manager The manager expenses are added to
+     * @param directory The data directory the manager is stored in, where the keys of imported rows are kept
+     * @param threads The number of threads rows are parsed on
+     * @param chunkSize The number of bytes read from the file at a time
+     */
+    CsvImporter(ExpenseManager manager, Path directory, int threads, int chunkSize){
+        if (manager == null){
+            throw new IllegalArgumentException("Please provide a manager to import into");
+        }
+
+        if (directory == null){
+            throw new IllegalArgumentException("Please provide a directory to store data in");
+        }
+
+        if (threads <= 0){
+            throw new IllegalArgumentException("Please provide 1 or more threads to parse on");
+        }
+
+        if (chunkSize <= 0){
+            throw new IllegalArgumentException("Chunk size must be 1 or more bytes");
+        }
+
+        this.manager = manager;
+        this.keyPath = directory.resolve(KEY_FILE);
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every row of a CSV file that hasn't been imported before. Must be called on the thread that changes the
+     * manager, which it changes in batches as it goes.
+     * @param file The CSV file to import
+     * @param errors Called on this thread with each row that is left out, in the order of the file
+     * @return How many rows were read, imported, skipped as duplicates and left out
+     * @throws IOException If the file or the keys of imported rows can't be read, or the file has no header with
+     * every column
+     */
+    public ImportResult importFile(Path file, Consumer<RowError> errors) throws IOException {
+        // Rows are parsed against a fixed copy of the roommates, since the pool threads can't read the manager
+        Map<String, Roommate> roommates = Map.copyOf(this.manager.getRoommates());
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Block>> inFlight = new ArrayDeque<>();
+
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel keys = openKeys()){
+            Run run = new Run(keys, errors);
+            Columns columns = null;
+            byte[] chunk = new byte[this.chunkSize];
+            int filled = 0;
+            boolean first = true;
+            boolean end = false;
+            while (!end){
+                if (filled == chunk.length){
+                    // A single row longer than a chunk
+                    chunk = Arrays.copyOf(chunk, chunk.length * 2);
+                }
+                int read = input.read(ByteBuffer.wrap(chunk, filled, chunk.length - filled));
+                end = read < 0;
+                filled += Math.max(read, 0);
+                int boundary = end ? filled : boundary(chunk, filled, false);
+                if (boundary == 0 && !end){
+                    continue;
+                }
+
+                int offset = 0;
+                if (first){
+                    first = false;
+                    if (filled >= 3 && (chunk[0] & 0xFF) == 0xEF && (chunk[1] & 0xFF) == 0xBB && (chunk[2] & 0xFF) == 0xBF){
+                        offset = 3;
+                    }
+                    int header = boundary(chunk, boundary, true);
+                    if (header <= offset){
+                        header = boundary;
+                    }
+                    columns = columns(new String(chunk, offset, header - offset, StandardCharsets.UTF_8));
+                    offset = header;
+                }
+
+                if (boundary > offset){
+                    byte[] bytes = chunk;
+                    int from = offset;
+                    int to = boundary;
+                    Columns parsing = columns;
+                    inFlight.add(pool.submit(() -> parse(bytes, from, to, parsing, roommates)));
+                    if (inFlight.size() >= this.threads * 2){
+                        run.apply(take(inFlight.poll()));
+                    }
+                }
+
+                // The parse task owns the chunk now, what is left of it moves to a new one
+                byte[] next = new byte[Math.max(this.chunkSize, filled - boundary)];
+                System.arraycopy(chunk, boundary, next, 0, filled - boundary);
+                chunk = next;
+                filled -= boundary;
+            }
+            while (!inFlight.isEmpty()){
+                run.apply(take(inFlight.poll()));
+            }
+            run.flush();
+            return new ImportResult(run.rows, run.importedCount, run.duplicateCount, run.errorCount);
+        } finally {
+            for (Future<Block> future : inFlight){
+                future.cancel(true);
+            }
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The state of one import, kept on the calling thread.
+     */
+    private final class Run {
+        /** The key file, positioned at its end */
+        private final FileChannel keys;
+        /** Called with each row that is left out */
+        private final Consumer<RowError> errors;
+        /** The content hash of the last row of this import that became an expense */
+        private long lastHash;
+        /** The number of identical rows in a row ending with the last one, so identical rows get different keys */
+        private int runLength;
+        /** The expenses waiting to be added */
+        private final List<Expense> batch = new ArrayList<>(BATCH_SIZE);
+        /** The key of each expense waiting to be added */
+        private final long[] batchKeys = new long[BATCH_SIZE];
+        /** The same keys as a set, so a row isn't added twice before the keys of its batch are in "imported" */
+        private LongHashSet pendingKeys = new LongHashSet(BATCH_SIZE);
+        /** The row of each expense waiting to be added */
+        private final long[] batchRows = new long[BATCH_SIZE];
+        /** The rows that didn't parse after the first expense waiting to be added, held back until the batch is added */
+        private long[] heldRows = new long[4];
+        /** Why each of those rows didn't parse */
+        private final List<String> heldMessages = new ArrayList<>();
+        /** The number of the first row of the next chunk, the header being row 1 */
+        private long nextRow = 2;
+        long rows;
+        long importedCount;
+        long duplicateCount;
+        long errorCount;
+
+        Run(FileChannel keys, Consumer<RowError> errors){
+            this.keys = keys;
+            this.errors = errors;
+        }
+
+        /**
+         * Adds the expenses of a parsed chunk that weren't imported before and reports the rows that didn't parse,
+         * in file order.
+         * @param block The parsed chunk, which must be the one after the last chunk applied
+         * @throws IOException If the keys of imported rows can't be written
+         */
+        void apply(Block block) throws IOException {
+            long base = this.nextRow;
+            this.nextRow += block.rows;
+            this.rows += block.filled;
+
+            int expense = 0;
+            int error = 0;
+            while (expense < block.expenses.size() || error < block.messages.size()){
+                if (error < block.messages.size() && (expense == block.expenses.size() || block.errorRows[error] < block.expenseRows[expense])){
+                    long row = base + block.errorRows[error];
+                    if (this.batch.isEmpty()){
+                        report(row, block.messages.get(error));
+                    } else {
+                        // The manager may still refuse rows of the batch before this one, which must be reported first
+                        hold(row, block.messages.get(error));
+                    }
+                    error++;
+                    continue;
+                }
+
+                long hash = block.hashes[expense];
+                this.runLength = this.runLength > 0 && hash == this.lastHash ? this.runLength + 1 : 1;
+                this.lastHash = hash;
+                long key = key(hash, this.runLength - 1);
+
+                if (imported.contains(key) || !this.pendingKeys.add(key)){
+                    this.duplicateCount++;
+                } else {
+                    int position = this.batch.size();
+                    this.batch.add(block.expenses.get(expense));
+                    this.batchKeys[position] = key;
+                    this.batchRows[position] = base + block.expenseRows[expense];
+                    if (this.batch.size() == BATCH_SIZE){
+                        flush();
+                    }
+                }
+                expense++;
+            }
+        }
+
+        /**
+         * Adds the expenses waiting to be added as one batch and records their keys. If the batch is refused, its
+         * expenses are added one at a time so only the ones at fault are left out. The rows held back while the batch
+         * was filled are reported along with the ones refused, in file order.
+         * @throws IOException If the keys of imported rows can't be written
+         */
+        void flush() throws IOException {
+            int count = this.batch.size();
+            if (count == 0){
+                return;
+            }
+            int kept = count;
+            int held = 0;
+            try {
+                manager.addExpenses(this.batch);
+            } catch (IllegalArgumentException | ArithmeticException batchError){
+                kept = 0;
+                for (int i = 0; i < count; i++){
+                    try {
+                        manager.addExpense(this.batch.get(i));
+                        this.batchKeys[kept++] = this.batchKeys[i];
+                    } catch (IllegalArgumentException | ArithmeticException e){
+                        for (; held < this.heldMessages.size() && this.heldRows[held] < this.batchRows[i]; held++){
+                            report(this.heldRows[held], this.heldMessages.get(held));
+                        }
+                        report(this.batchRows[i], e.getMessage());
+                    }
+                }
+            }
+            for (; held < this.heldMessages.size(); held++){
+                report(this.heldRows[held], this.heldMessages.get(held));
+            }
+            this.heldMessages.clear();
+            this.batch.clear();
+            this.pendingKeys = new LongHashSet(BATCH_SIZE);
+            this.importedCount += kept;
+            if (kept == 0){
+                return;
+            }
+
+            // The keys must not get to disk before the expenses they stand for
+            try {
+                manager.whenDurable().join();
+            } catch (CompletionException e){
+                throw new IOException("Imported expenses could not be journaled", e.getCause());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(kept * Long.BYTES);
+            for (int i = 0; i < kept; i++){
+                buffer.putLong(this.batchKeys[i]);
+            }
+            buffer.flip();
+            Records.writeFully(this.keys, buffer);
+            this.keys.force(false);
+            for (int i = 0; i < kept; i++){
+                imported.add(this.batchKeys[i]);
+            }
+        }
+
+        private void hold(long row, String message){
+            int count = this.heldMessages.size();
+            if (count == this.heldRows.length){
+                this.heldRows = Arrays.copyOf(this.heldRows, count * 2);
+            }
+            this.heldRows[count] = row;
+            this.heldMessages.add(message);
+        }
+
+        private void report(long row, String message){
+            this.errorCount++;
+            this.errors.accept(new RowError(row, message));
+        }
+    }
+
+    /**
+     * Opens the key file for appending, loading its keys the first time. A torn last key is truncated.
+     * @return The key file, positioned at its end
+     * @throws IOException If the key file can't be opened or read
+     */
+    private FileChannel openKeys() throws IOException {
+        FileChannel channel = FileChannel.open(this.keyPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long whole = channel.size() / Long.BYTES * Long.BYTES;
+            if (channel.size() != whole){
+                channel.truncate(whole);
+            }
+            if (this.imported == null){
+                LongHashSet keys = new LongHashSet((int) Math.min(whole / Long.BYTES, 1 << 28));
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * 8192);
+                for (long position = 0; position < whole; ){
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), whole - position));
+                    Records.readFully(channel, buffer, position);
+                    position += buffer.limit();
+                    buffer.flip();
+                    while (buffer.hasRemaining()){
+                        keys.add(buffer.getLong());
+                    }
+                }
+                this.imported = keys;
+            }
+            channel.position(whole);
+            return channel;
+        } catch (IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a chunk to be parsed.
+     * @param future The chunk being parsed
+     * @return The parsed chunk
+     * @throws IOException If the thread is interrupted while waiting
+     */
+    private static Block take(Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing");
+        } catch (ExecutionException e){
+            if (e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error){
+                throw (Error) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Finds where rows end, skipping line breaks inside quoted fields. The bytes must start at the start of a row.
+     * Line breaks are never part of a longer UTF-8 character, so the bytes can be scanned without decoding them.
+     * @param bytes The bytes of the file
+     * @param length The number of bytes to scan
+     * @param first Whether to stop at the end of the first row instead of the last
+     * @return The position right after the line break ending the first or last whole row, 0 if no row ends
+     */
+    static int boundary(byte[] bytes, int length, boolean first){
+        boolean quoted = false;
+        int boundary = 0;
+        for (int i = 0; i < length; i++){
+            byte b = bytes[i];
+            if (b == '"'){
+                // The two quotes of an escaped quote flip it twice
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted){
+                boundary = i + 1;
+                if (first){
+                    break;
+                }
+            }
+        }
+        return boundary;
+    }
+
+    /**
+     * @param header The header row
+     * @return The positions of the columns an expense is read from
+     * @throws IOException If a column is missing
+     */
+    private static Columns columns(String header) throws IOException {
+        List<String> names = new ArrayList<>();
+        parseRow(header, 0, names, new StringBuilder());
+        int[] positions = new int[COLUMNS.length];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < names.size(); i++){
+            String name = names.get(i).trim().toLowerCase(Locale.ROOT);
+            if (name.equals(TIMESTAMP_COLUMN)){
+                name = "date";
+            }
+            for (int column = 0; column < COLUMNS.length; column++){
+                if (COLUMNS[column].equals(name) && positions[column] < 0){
+                    positions[column] = i;
+                }
+            }
+        }
+        Columns columns = new Columns();
+        for (int column = 0; column < COLUMNS.length; column++){
+            if (positions[column] < 0){
+                throw new IOException("The header has no " + COLUMNS[column] + " column");
+            }
+            columns.width = Math.max(columns.width, positions[column] + 1);
+        }
+        columns.name = positions[0];
+        columns.cost = positions[1];
+        columns.payer = positions[2];
+        columns.participants = positions[3];
+        columns.date = positions[4];
+        return columns;
+    }
+
+    /**
+     * Parses the rows of a chunk into expenses. Runs on a pool thread.
+     * @param bytes The bytes of the chunk
+     * @param from The position of the first row
+     * @param to The position right after the last row
+     * @param columns The positions of the columns
+     * @param roommates Every roommate by name
+     * @return The parsed rows
+     */
+    private static Block parse(byte[] bytes, int from, int to, Columns columns, Map<String, Roommate> roommates){
+        String text = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        Block block = new Block();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int position = 0;
+        while (position < text.length()){
+            position = parseRow(text, position, fields, field);
+            int row = block.rows++;
+            if (fields.size() == 1 && fields.get(0).isBlank()){
+                continue;
+            }
+            block.filled++;
+            if (fields.size() < columns.width){
+                block.failed(row, "Expected " + columns.width + " fields but found " + fields.size());
+                continue;
+            }
+            try {
+                Expense expense = expense(fields, columns, roommates);
+                block.parsed(row, expense, hash(expense));
+            } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException e){
+                block.failed(row, e.getMessage());
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Splits one row into its fields.
+     * @param text The text holding the row
+     * @param position The position of the start of the row
+     * @param fields Cleared and filled with the fields of the row
+     * @param field A buffer to build fields in
+     * @return The position right after the row
+     */
+    private static int parseRow(String text, int position, List<String> fields, StringBuilder field){
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        while (position < text.length()){
+            char c = text.charAt(position++);
+            if (quoted){
+                if (c != '"'){
+                    field.append(c);
+                } else if (position < text.length() && text.charAt(position) == '"'){
+                    field.append('"');
+                    position++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"'){
+                quoted = true;
+            } else if (c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n'){
+                break;
+            } else if (c != '\r'){
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return position;
+    }
+
+    /**
+     * @param fields The fields of a row
+     * @param columns The positions of the columns
+     * @param roommates Every roommate by name
+     * @return The expense the row describes
+     * @throws IllegalArgumentException If the row doesn't describe a valid expense
+     * @throws DateTimeParseException If the date isn't an ISO date or instant
+     */
+    private static Expense expense(List<String> fields, Columns columns, Map<String, Roommate> roommates){
+        String cost = fields.get(columns.cost).trim();
+        if (cost.startsWith("$")){
+            cost = cost.substring(1);
+        }
+        BigDecimal amount = null;
+        if (!cost.isEmpty()){
+            try {
+                amount = new BigDecimal(cost);
+            } catch (NumberFormatException e){
+                throw new IllegalArgumentException("Cost is not a number: " + cost);
+            }
+        }
+
+        Roommate payer = roommate(fields.get(columns.payer), roommates);
+        List<Roommate> participants = new ArrayList<>();
+        for (String name : fields.get(columns.participants).split(";")){
+            Roommate participant = roommate(name, roommates);
+            if (participant != null){
+                participants.add(participant);
+            }
+        }
+
+        String date = fields.get(columns.date).trim();
+        Instant timestamp = null;
+        if (!date.isEmpty()){
+            timestamp = date.indexOf('T') >= 0 ? Instant.parse(date) : LocalDate.parse(date).atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+        return new Expense(fields.get(columns.name).trim(), amount, payer, participants, timestamp);
+    }
+
+    /**
+     * @param name The name of a roommate as written in the file
+     * @param roommates Every roommate by name
+     * @return The roommate, null if no name is given
+     * @throws IllegalArgumentException If no roommate has the name
+     */
+    private static Roommate roommate(String name, Map<String, Roommate> roommates){
+        name = name.trim();
+        if (name.isEmpty()){
+            return null;
+        }
+        Roommate roommate = roommates.get(name);
+        if (roommate == null){
+            throw new IllegalArgumentException("No roommate named " + name);
+        }
+        return roommate;
+    }
+
+    /**
+     * @param expense An expense
+     * @return A 64-bit hash of everything the expense holds, the same for identical rows of any file
+     */
+    static long hash(Expense expense){
+        long hash = 0xCBF29CE484222325L;
+        String name = expense.getExpenseName();
+        for (int i = 0; i < name.length(); i++){
+            hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        hash = combine(hash, expense.getCostCents());
+        hash = combine(hash, expense.getPayerId());
+        hash = combine(hash, expense.getParticipantCount());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            hash = combine(hash, expense.getParticipantId(i));
+        }
+        hash = combine(hash, expense.getTimestamp().getEpochSecond());
+        hash = combine(hash, expense.getTimestamp().getNano());
+        return mix(hash);
+    }
+
+    /**
+     * @param hash The content hash of a row
+     * @param occurrence The number of rows with the same content right before it
+     * @return The key of the row
+     */
+    static long key(long hash, int occurrence){
+        return mix(hash + occurrence * 0x9E3779B97F4A7C15L);
+    }
+
+    private static long combine(long hash, long value){
+        return (hash ^ mix(value)) * 0x100000001B3L;
+    }
+
+    /**
+     * @param value A number
+     * @return The number with every bit mixed into every other, the finalizer of MurmurHash3
+     */
+    private static long mix(long value){
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB93FE53A87F3L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -1,7 +1,949 @@
 package storage;
 
-public class FileManager {
-    public static void main(String[] args){
-        System.out.println("FileManager Class");
+import metrics.Metrics;
+import model.Expense;
+import model.Money;
+import model.Roommate;
+import model.RecurringExpense;
+import service.ExpenseCursor;
+import service.ExpenseJournal;
+import service.ExpenseManager;
+import service.LedgerSnapshot;
+import service.PeriodClose;
+import service.Transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persists an ExpenseManager as an append-only journal of the roommates and expenses added to it,
+ * plus periodic snapshots of its balances and open period.
+ *
+ * Every change (a roommate or expense added, an expense removed or replaced, a recurring expense added, brought up to
+ * date or ended, a period closed) is written as one record at the end of the current journal segment, so saving costs the same no
+ * matter how long the history is. Once a segment holds enough records, a snapshot of the balances is written and a
+ * new segment is started. On startup the newest valid snapshot is loaded and only the segments after it are
+ * replayed, so startup time depends on recent activity rather than the whole history. A snapshot holds every expense
+ * of the open period, so nothing is lost when the segments it covers go. A background compaction deletes the segments
+ * and snapshots the snapshot before the newest one covers, keeping that snapshot and the segments after it to fall
+ * back on if the newest snapshot can't be read.
+ *
+ * Files in the data directory:
+ *      journal-0000000001.log      journal segment 1
+ *      snapshot-0000000001.snap    balances and open period after every record of segments 1 and earlier
+ *      archive-0000000001.arc      expenses of the first closed period, compressed (see ArchiveFile)
+ *
+ * Record layout:
+ *      int  length of the payload in bytes
+ *      int  CRC32 checksum of the payload
+ *      byte payload...   (first byte of the payload is the record type)
+ *
+ * Expenses are written with their split after the timestamp: the ordinal of the kind of split, then one long per
+ * participant unless the split is equal. Records written before splits existed have no split; they are told apart by
+ * SPLIT_FLAG, which is set in the record type of every record written since. Removals and replacements carry the
+ * removed expense after its ID, so they replay against a snapshot written before snapshots held the open period; older
+ * ones don't, and are told apart by REMOVED_FLAG.
+ *
+ * Closing a period writes the period's expenses to a new archive before its record is written, then starts a new
+ * segment with a snapshot on the next record, so startup only ever replays the open period. Archives are never
+ * compacted and are only read when asked for with readArchive. The archive is written under a temporary name and
+ * renamed once its record is on disk; replaying the record finishes a rename a crash interrupted, and a temporary
+ * archive without a record is deleted on load.
+ *
+ * If the application crashes in the middle of a write, the last record is left incomplete (torn).
+ * A torn record is detected by its length or checksum, and the journal is truncated back to the last whole record.
+ *
+ * By default every record is forced to disk before the change is applied, so saving is limited by the latency of
+ * the disk. In write-behind mode records are queued instead and a writer thread appends them in groups, one write and
+ * one force per group (see GroupCommitter). The change is applied as soon as its record is queued, and durable() gives
+ * a future that completes once it is on disk; changes whose records haven't been written yet are lost in a crash.
+ *
+ * @author Kris Bali
+ */
+public class FileManager implements ExpenseJournal, Closeable {
+    /** The directory data is stored in when no other directory is given */
+    public static final Path DEFAULT_DIRECTORY = Paths.get("data");
+    /** The number of records written to a segment before a snapshot is taken, when no other interval is given */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+    /** The number of records that may wait to be written in write-behind mode, when no other capacity is given */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    /** The longest time the writer waits for more records to join a group in write-behind mode */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(1);
+
+    /** Prefix of journal segment file names */
+    static final String SEGMENT_PREFIX = "journal-";
+    /** Suffix of journal segment file names */
+    static final String SEGMENT_SUFFIX = ".log";
+    /** Prefix of snapshot file names */
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    /** Suffix of snapshot file names */
+    static final String SNAPSHOT_SUFFIX = ".snap";
+    /** Prefix of archive file names */
+    static final String ARCHIVE_PREFIX = "archive-";
+    /** Suffix of archive file names */
+    static final String ARCHIVE_SUFFIX = ".arc";
+    /** Suffix added to an archive's file name until its record is on disk */
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /** Record type of a roommate being added */
+    static final byte ROOMMATE_RECORD = 1;
+    /** Record type of an expense being added */
+    static final byte EXPENSE_RECORD = 2;
+    /** Record type of a batch of expenses being added all at once */
+    static final byte BATCH_RECORD = 3;
+    /** Record type of an expense being removed */
+    static final byte REMOVE_RECORD = 4;
+    /** Record type of an expense being replaced */
+    static final byte UPDATE_RECORD = 5;
+    /** Record type of a recurring expense being added */
+    static final byte RECURRING_RECORD = 6;
+    /** Record type of the occurrences of recurring expenses being folded into the balances */
+    static final byte ACCRUE_RECORD = 7;
+    /** Record type of a recurring expense being ended */
+    static final byte END_RECURRING_RECORD = 8;
+    /** Record type of a period being closed */
+    static final byte CLOSE_RECORD = 9;
+    /** Set in the record type of records whose expenses carry their split, older records only have equal splits */
+    static final byte SPLIT_FLAG = 0x40;
+    /** Set in the record type of removals and replacements that carry the removed expense */
+    static final byte REMOVED_FLAG = 0x20;
+    /** Number of bytes before the payload of each record: the length and the checksum */
+    static final int HEADER_BYTES = 8;
+    /** Largest payload a record may have, anything bigger is treated as a torn or corrupt record */
+    static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    /** The directory the journal and snapshots are stored in */
+    private final Path directory;
+    /** The number of records written to a segment before a snapshot is taken */
+    private final int snapshotInterval;
+    /** The number of records that may wait to be written in write-behind mode, 0 to write every record right away */
+    private final int queueCapacity;
+    /** The longest time the writer waits for more records to join a group in write-behind mode */
+    private final Duration flushInterval;
+    /** Writes records behind the changes in write-behind mode, null before load() is called or in the default mode */
+    private GroupCommitter committer;
+    /** The manager whose changes are being recorded, or null before load() is called */
+    private ExpenseManager manager;
+    /** The open journal segment changes are appended to, or null before load() is called */
+    private FileChannel channel;
+    /** The number of the open journal segment */
+    private long segment;
+    /** The number of records in the open journal segment, queued records included */
+    private long segmentRecords;
+    /** Reusable buffer records are encoded into before being written */
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    /** Reusable checksum calculator */
+    private final CRC32 crc = new CRC32();
+    /** Where the latency of journal writes, snapshots and loading is recorded */
+    private Metrics metrics = Metrics.shared();
+    /** The number of records replayed by the load in progress */
+    private long replayedRecords;
+    /** Background thread that deletes segments and snapshots covered by a newer snapshot */
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * FileManager constructor
+     * @param directory The directory the journal is stored in, created on load if it doesn't exist
+     */
+    public FileManager(Path directory){
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * FileManager constructor
+     * @param directory The directory the journal is stored in, created on load if it doesn't exist
+     * @param snapshotInterval The number of records written to a segment before a snapshot is taken
+     */
+    public FileManager(Path directory, int snapshotInterval){
+        this(directory, snapshotInterval, 0, Duration.ZERO);
+    }
+
+    /**
+     * FileManager constructor for write-behind mode, or for the default mode if the queue capacity is 0
+     * @param directory The directory the journal is stored in, created on load if it doesn't exist
+     * @param snapshotInterval The number of records written to a segment before a snapshot is taken
+     * @param queueCapacity The number of records that may wait to be written before changes have to wait for the disk
+     * @param flushInterval The longest time the writer waits for more records to join a group, 0 to only group
+     *                      records that are already waiting
+     */
+    public FileManager(Path directory, int snapshotInterval, int queueCapacity, Duration flushInterval){
+        if (directory == null){
+            throw new IllegalArgumentException("Please provide a directory to store data in");
+        }
+
+        if (snapshotInterval <= 0){
+            throw new IllegalArgumentException("Snapshot interval must be 1 or more records");
+        }
+
+        if (queueCapacity < 0){
+            throw new IllegalArgumentException("Queue capacity can't be negative");
+        }
+
+        if (flushInterval == null || flushInterval.isNegative()){
+            throw new IllegalArgumentException("Please provide a flush interval of 0 or more");
+        }
+
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.queueCapacity = queueCapacity;
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Sets where the latency of journal writes, snapshots and loading is recorded, the shared metrics by default.
+     * @param metrics The metrics to record into
+     */
+    public void setMetrics(Metrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The directory the journal is stored in
+     */
+    public Path getDirectory(){
+        return this.directory;
+    }
+
+    /**
+     * @param segment The number of a journal segment
+     * @return The path of the journal segment file
+     */
+    public Path getSegmentPath(long segment){
+        return this.directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @param segment The number of the last journal segment a snapshot covers
+     * @return The path of the snapshot file
+     */
+    public Path getSnapshotPath(long segment){
+        return this.directory.resolve(String.format("%s%010d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * @param number The number of an archive, 1 for the first period closed
+     * @return The path of the archive file
+     */
+    public Path getArchivePath(long number){
+        return this.directory.resolve(String.format("%s%010d%s", ARCHIVE_PREFIX, number, ARCHIVE_SUFFIX));
+    }
+
+    /**
+     * @param number The number of an archive
+     * @return The path the archive is written to until its record is on disk
+     */
+    private Path getTemporaryArchivePath(long number){
+        return getArchivePath(number).resolveSibling(getArchivePath(number).getFileName() + TEMPORARY_SUFFIX);
+    }
+
+    /**
+     * @return The numbers of the archives of closed periods, oldest first
+     * @throws IOException If the data directory can't be listed
+     */
+    public List<Long> getArchives() throws IOException {
+        return list(ARCHIVE_PREFIX, ARCHIVE_SUFFIX);
+    }
+
+    /**
+     * Reads the archive of a closed period from disk. Archives aren't kept in memory, each call reads the file again.
+     * @param number The number of the archive, as listed by getArchives()
+     * @return The record of the close and the expenses of the period
+     * @throws IOException If the archive doesn't exist, can't be read or is damaged
+     */
+    public PeriodArchive readArchive(long number) throws IOException {
+        if (this.manager == null){
+            throw new IllegalStateException("Journal must be loaded before an archive can be read");
+        }
+        return ArchiveFile.read(getArchivePath(number), number, this.manager);
+    }
+
+    /**
+     * Loads the newest valid snapshot and replays every whole record of the segments after it into the manager.
+     * A torn last record is truncated. The returned manager records every later change back into this journal.
+     * @return The ExpenseManager rebuilt from the data directory, empty if there is no data yet
+     * @throws IOException If the data can't be read or the journal can't be opened for writing
+     */
+    public ExpenseManager load() throws IOException {
+        if (this.channel != null){
+            throw new IllegalStateException("Journal has already been loaded");
+        }
+        Files.createDirectories(this.directory);
+
+        long start = System.nanoTime();
+        ExpenseManager manager = null;
+        long covered = 0;
+        List<Long> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0 && manager == null; i--){
+            LedgerSnapshot snapshot = SnapshotFile.read(getSnapshotPath(snapshots.get(i)), snapshots.get(i));
+            if (snapshot != null){
+                manager = ExpenseManager.fromSnapshot(snapshot);
+                covered = snapshots.get(i);
+            }
+        }
+        if (manager == null){
+            manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        }
+        manager.setMetrics(this.metrics);
+        this.metrics.recordSnapshotLoad(start);
+
+        start = System.nanoTime();
+        this.replayedRecords = 0;
+        long current = covered + 1;
+        long currentRecords = 0;
+        boolean torn = false;
+        for (long number : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)){
+            if (number <= covered){
+                continue;
+            }
+
+            if (torn){
+                Files.delete(getSegmentPath(number));
+                continue;
+            }
+
+            long before = this.replayedRecords;
+            try (FileChannel segmentChannel = FileChannel.open(getSegmentPath(number), StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                long end = replay(segmentChannel, manager);
+                if (end < segmentChannel.size()){
+                    segmentChannel.truncate(end);
+                    segmentChannel.force(true);
+                    torn = true;
+                }
+            }
+            current = number;
+            currentRecords = this.replayedRecords - before;
+        }
+        this.metrics.recordReplay(start, this.replayedRecords);
+        for (long number : list(ARCHIVE_PREFIX, ARCHIVE_SUFFIX + TEMPORARY_SUFFIX)){
+            Files.deleteIfExists(getTemporaryArchivePath(number));
+        }
+
+        this.manager = manager;
+        openSegment(current);
+        // The open segment already holds the records replayed from it, so the next snapshot comes on time
+        this.segmentRecords = currentRecords;
+        scheduleCompaction(covered);
+        if (this.queueCapacity > 0){
+            this.committer = new GroupCommitter(new GroupCommitter.Sink(){
+                @Override
+                public void write(ByteBuffer[] records, int count) throws IOException {
+                    writeGroup(records, count);
+                }
+
+                @Override
+                public void checkpoint(LedgerSnapshot snapshot) throws IOException {
+                    writeSnapshot(snapshot);
+                }
+            }, this.queueCapacity, this.flushInterval);
+        }
+
+        manager.setJournal(this);
+        return manager;
+    }
+
+    /**
+     * Writes a snapshot of the current balances and starts a new journal segment, so the next startup doesn't
+     * need to replay anything written so far. In write-behind mode, waits for every queued record to be written first.
+     * @throws IOException If the snapshot or the new segment can't be written
+     */
+    public void checkpoint() throws IOException {
+        if (this.committer != null){
+            LedgerSnapshot snapshot = this.manager.snapshot();
+            CompletableFuture<Void> written = this.committer.checkpoint(snapshot);
+            this.segmentRecords = 0;
+            try {
+                written.join();
+            } catch (CompletionException e){
+                throw new IOException("Could not write the snapshot", e.getCause());
+            }
+            return;
+        }
+
+        if (this.channel == null){
+            throw new IllegalStateException("Journal must be loaded before a snapshot can be taken");
+        }
+        LedgerSnapshot snapshot = this.manager.snapshot();
+        writeSnapshot(snapshot);
+        this.segmentRecords = 0;
+    }
+
+    /**
+     * @return A future that completes once every change recorded so far is on disk, already complete unless in
+     *         write-behind mode
+     */
+    @Override
+    public CompletableFuture<Void> durable(){
+        if (this.committer == null){
+            return CompletableFuture.completedFuture(null);
+        }
+        return this.committer.flushed();
+    }
+
+    /**
+     * Writes a snapshot after the last record of the open segment and starts the next segment.
+     * @param snapshot The state of the manager after the last record of the open segment
+     * @throws IOException If the snapshot or the new segment can't be written
+     */
+    private void writeSnapshot(LedgerSnapshot snapshot) throws IOException {
+        this.channel.force(true);
+        this.channel.close();
+        long start = System.nanoTime();
+        Path path = getSnapshotPath(this.segment);
+        SnapshotFile.write(path, this.segment, snapshot);
+        this.metrics.recordSnapshotWrite(start, Files.size(path));
+        scheduleCompaction(this.segment);
+        openSegment(this.segment + 1);
+    }
+
+    /**
+     * Opens a journal segment for appending, creating it if it doesn't exist.
+     * @param number The number of the segment
+     * @throws IOException If the segment can't be opened
+     */
+    private void openSegment(long number) throws IOException {
+        this.channel = FileChannel.open(getSegmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(this.channel.size());
+        this.segment = number;
+    }
+
+    /**
+     * Appends a group of records to the open segment with one write and forces them to disk once.
+     * @param records The encoded records, in order
+     * @param count The number of records to write from the start of the array
+     * @throws IOException If the records can't be written or forced
+     */
+    private void writeGroup(ByteBuffer[] records, int count) throws IOException {
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < count; i++){
+            bytes += records[i].remaining();
+        }
+        for (long written = 0; written < bytes; ){
+            written += this.channel.write(records, 0, count);
+        }
+        this.channel.force(false);
+        this.metrics.recordGroupCommit(start, count, bytes);
+    }
+
+    /**
+     * Deletes, in the background, every segment and snapshot the snapshot before the newest one covers, keeping that
+     * snapshot and the segments after it.
+     * @param covered The number of the last segment the newest snapshot covers, 0 if there is no snapshot
+     */
+    private void scheduleCompaction(long covered){
+        if (covered == 0){
+            return;
+        }
+
+        this.compactor.execute(() -> {
+            try {
+                // The snapshot before the newest one and the segments after it are kept to fall back on
+                long previous = 0;
+                for (long number : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)){
+                    if (number < covered){
+                        previous = number;
+                    }
+                }
+                if (previous == 0){
+                    return;
+                }
+                for (long number : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)){
+                    if (number <= previous){
+                        Files.deleteIfExists(getSegmentPath(number));
+                    }
+                }
+                for (long number : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)){
+                    if (number < previous){
+                        Files.deleteIfExists(getSnapshotPath(number));
+                    }
+                }
+            } catch (IOException e){
+                // Leftover files are harmless, they are skipped on load and compacted again after the next snapshot
+            }
+        });
+    }
+
+    /**
+     * @param prefix The prefix of the file names
+     * @param suffix The suffix of the file names
+     * @return The numbers of the files in the data directory with that prefix and suffix, in ascending order
+     * @throws IOException If the data directory can't be listed
+     */
+    private List<Long> list(String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, prefix + "*" + suffix)){
+            for (Path file : files){
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e){
+                    // Not one of our files
+                }
+            }
+        }
+
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Replays every whole record of a journal segment into a manager.
+     * @param channel The journal segment to read
+     * @param manager The manager to add the roommates and expenses to
+     * @return The position right after the last whole record
+     * @throws IOException If the journal can't be read
+     */
+    private long replay(FileChannel channel, ExpenseManager manager) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer payload = ByteBuffer.allocate(4096);
+        CRC32 crc = new CRC32();
+
+        while (size - position >= HEADER_BYTES){
+            header.clear();
+            Records.readFully(channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+
+            if (length <= 0 || length > MAX_PAYLOAD_BYTES || size - position - HEADER_BYTES < length){
+                break;
+            }
+
+            if (payload.capacity() < length){
+                payload = ByteBuffer.allocate(length);
+            }
+            payload.clear().limit(length);
+            Records.readFully(channel, payload, position + HEADER_BYTES);
+            payload.flip();
+
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum){
+                break;
+            }
+
+            apply(payload, manager);
+            position += HEADER_BYTES + length;
+            this.replayedRecords++;
+        }
+
+        return position;
+    }
+
+    /**
+     * Decodes one record payload and applies it to a manager.
+     * @param payload The payload of the record, positioned at the record type
+     * @param manager The manager to apply the record to
+     * @throws IOException If the archive of a closed period can't be renamed
+     */
+    private void apply(ByteBuffer payload, ExpenseManager manager) throws IOException {
+        byte type = payload.get();
+        boolean splits = (type & SPLIT_FLAG) != 0;
+        boolean removed = (type & REMOVED_FLAG) != 0;
+        type &= ~(SPLIT_FLAG | REMOVED_FLAG);
+
+        if (type == ROOMMATE_RECORD){
+            String name = Records.getString(payload);
+            long balance = payload.getLong();
+            manager.addRoommate(new Roommate(name, Money.toBigDecimal(balance)));
+        } else if (type == EXPENSE_RECORD){
+            manager.addExpense(getExpense(payload, manager, splits));
+        } else if (type == BATCH_RECORD){
+            int count = payload.getInt();
+            List<Expense> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++){
+                batch.add(getExpense(payload, manager, splits));
+            }
+            manager.addExpenses(batch);
+        } else if (type == REMOVE_RECORD && removed){
+            long id = payload.getLong();
+            manager.removeExpense(id, getExpense(payload, manager, splits));
+        } else if (type == REMOVE_RECORD){
+            manager.removeExpense(payload.getLong());
+        } else if (type == UPDATE_RECORD && removed){
+            long id = payload.getLong();
+            manager.removeExpense(id, getExpense(payload, manager, splits));
+            manager.addExpense(getExpense(payload, manager, splits));
+        } else if (type == UPDATE_RECORD){
+            long id = payload.getLong();
+            manager.updateExpense(id, getExpense(payload, manager, splits));
+        } else if (type == RECURRING_RECORD){
+            manager.addRecurringExpense(getRecurringExpense(payload, manager));
+        } else if (type == ACCRUE_RECORD){
+            manager.accrueRecurringExpenses(getInstant(payload));
+        } else if (type == END_RECURRING_RECORD){
+            int id = payload.getInt();
+            manager.endRecurringExpense(id, getInstant(payload));
+        } else if (type == CLOSE_RECORD){
+            Instant moment = getInstant(payload);
+            long number = payload.getLong();
+            int count = payload.getInt();
+            List<Transfer> transfers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++){
+                Roommate debtor = manager.getRoommateByName(Records.getString(payload));
+                Roommate creditor = manager.getRoommateByName(Records.getString(payload));
+                transfers.add(new Transfer(debtor, creditor, payload.getLong()));
+            }
+            if (Files.exists(getTemporaryArchivePath(number)) && !Files.exists(getArchivePath(number))){
+                Files.move(getTemporaryArchivePath(number), getArchivePath(number), StandardCopyOption.ATOMIC_MOVE);
+            }
+            manager.closePeriod(moment, transfers);
+        } else {
+            throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Reads an expense written by Records.putExpense.
+     * @param payload The payload to read from
+     * @param manager The manager whose roommates the expense refers to
+     * @param split Whether the expense was written with its split, otherwise it is split equally
+     * @return The expense
+     */
+    static Expense getExpense(ByteBuffer payload, ExpenseManager manager, boolean split){
+        String expenseName = Records.getString(payload);
+        long cost = payload.getLong();
+        Roommate payer = manager.getRoommateByName(Records.getString(payload));
+        int count = payload.getInt();
+        List<Roommate> participants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            participants.add(manager.getRoommateByName(Records.getString(payload)));
+        }
+        Instant timestamp = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+        if (!split){
+            return new Expense(expenseName, Money.toBigDecimal(cost), payer, participants, timestamp);
+        }
+        return new Expense(expenseName, Money.toBigDecimal(cost), payer, participants, Records.getSplit(payload, count), timestamp);
+    }
+
+    /**
+     * Reads a recurring expense written by putRecurringExpense.
+     * @param payload The payload to read from
+     * @param manager The manager whose roommates the recurring expense refers to
+     * @return The recurring expense
+     */
+    private static RecurringExpense getRecurringExpense(ByteBuffer payload, ExpenseManager manager){
+        Expense first = getExpense(payload, manager, true);
+        Period period = Period.of(payload.getInt(), payload.getInt(), payload.getInt());
+        Instant end = payload.get() == 0 ? null : getInstant(payload);
+        return new RecurringExpense(first.getExpenseName(), first.getCost(), first.getPayer(), first.getParticipants(), first.getSplit(), first.getTimestamp(), period, end);
+    }
+
+    /**
+     * @param payload The payload to read from
+     * @return A moment written as its epoch second followed by its nanoseconds
+     */
+    private static Instant getInstant(ByteBuffer payload){
+        return Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+    }
+
+    @Override
+    public void roommateAdded(Roommate roommate){
+        startRecord(ROOMMATE_RECORD);
+        putString(roommate.getName());
+        ensureCapacity(Long.BYTES);
+        this.buffer.putLong(roommate.getBalanceCents());
+        writeRecord();
+    }
+
+    @Override
+    public void expenseAdded(Expense expense){
+        startRecord((byte) (EXPENSE_RECORD | SPLIT_FLAG));
+        putExpense(expense);
+        writeRecord();
+    }
+
+    /**
+     * Records the whole batch as a single record, so a crash midway leaves a torn record that is dropped as a whole.
+     * @param expenses The expenses being added, in order
+     */
+    @Override
+    public void expensesAdded(List<Expense> expenses){
+        startRecord((byte) (BATCH_RECORD | SPLIT_FLAG));
+        ensureCapacity(Integer.BYTES);
+        this.buffer.putInt(expenses.size());
+        for (Expense expense : expenses){
+            putExpense(expense);
+        }
+        writeRecord();
+    }
+
+    /**
+     * Records the removed expense along with its ID, so a manager restored from a snapshot taken after the expense was
+     * added can still take it back out.
+     * @param id The ID of the expense being removed
+     * @param removed The expense being removed
+     */
+    @Override
+    public void expenseRemoved(long id, Expense removed){
+        startRecord((byte) (REMOVE_RECORD | SPLIT_FLAG | REMOVED_FLAG));
+        ensureCapacity(Long.BYTES);
+        this.buffer.putLong(id);
+        putExpense(removed);
+        writeRecord();
+    }
+
+    /**
+     * Records the removal of the old expense and the replacement as a single record, so they are replayed together.
+     * The old expense is recorded like in expenseRemoved.
+     * @param id The ID of the expense being replaced
+     * @param removed The expense being replaced
+     * @param replacement The expense replacing it
+     */
+    @Override
+    public void expenseUpdated(long id, Expense removed, Expense replacement){
+        startRecord((byte) (UPDATE_RECORD | SPLIT_FLAG | REMOVED_FLAG));
+        ensureCapacity(Long.BYTES);
+        this.buffer.putLong(id);
+        putExpense(removed);
+        putExpense(replacement);
+        writeRecord();
+    }
+
+    @Override
+    public void recurringExpenseAdded(RecurringExpense expense){
+        startRecord(RECURRING_RECORD);
+        putExpense(expense.getOccurrence(0));
+        ensureCapacity(3 * Integer.BYTES + 1);
+        this.buffer.putInt(expense.getPeriod().getYears());
+        this.buffer.putInt(expense.getPeriod().getMonths());
+        this.buffer.putInt(expense.getPeriod().getDays());
+        this.buffer.put((byte) (expense.getEnd() == null ? 0 : 1));
+        if (expense.getEnd() != null){
+            putInstant(expense.getEnd());
+        }
+        writeRecord();
+    }
+
+    /**
+     * Records the moment rather than the occurrences, replaying it brings the same recurring expenses up to the same
+     * point.
+     * @param moment The moment the recurring expenses are brought up to
+     */
+    @Override
+    public void recurringExpensesAccrued(Instant moment){
+        startRecord(ACCRUE_RECORD);
+        putInstant(moment);
+        writeRecord();
+    }
+
+    @Override
+    public void recurringExpenseEnded(int id, Instant end){
+        startRecord(END_RECURRING_RECORD);
+        ensureCapacity(Integer.BYTES);
+        this.buffer.putInt(id);
+        putInstant(end);
+        writeRecord();
+    }
+
+    /**
+     * Writes the period's expenses to the next archive, then records the moment, the archive number and the transfers.
+     * Waits for the record to be on disk even in write-behind mode, since the archive is only renamed into place after
+     * it. The next record starts a new segment with a snapshot, so the closed period is never replayed again.
+     * @param close The transfers, carried balances and expense IDs of the period
+     * @param expenses A cursor over every expense of the period the manager holds
+     */
+    @Override
+    public void periodClosed(PeriodClose close, ExpenseCursor expenses){
+        if (this.channel == null && this.committer == null){
+            throw new IllegalStateException("Journal must be loaded before changes can be recorded");
+        }
+
+        long number;
+        try {
+            List<Long> archives = list(ARCHIVE_PREFIX, ARCHIVE_SUFFIX);
+            number = archives.isEmpty() ? 1 : archives.get(archives.size() - 1) + 1;
+            ArchiveFile.write(getTemporaryArchivePath(number), close, expenses);
+        } catch (IOException e){
+            throw new UncheckedIOException("Could not write the archive", e);
+        }
+
+        startRecord(CLOSE_RECORD);
+        putInstant(close.getClosedAt());
+        ensureCapacity(Long.BYTES + Integer.BYTES);
+        this.buffer.putLong(number);
+        this.buffer.putInt(close.getTransfers().size());
+        for (Transfer transfer : close.getTransfers()){
+            putString(transfer.getDebtor().getName());
+            putString(transfer.getCreditor().getName());
+            ensureCapacity(Long.BYTES);
+            this.buffer.putLong(transfer.getAmountCents());
+        }
+        writeRecord();
+
+        try {
+            durable().join();
+            Files.move(getTemporaryArchivePath(number), getArchivePath(number), StandardCopyOption.ATOMIC_MOVE);
+        } catch (CompletionException e){
+            throw new UncheckedIOException("Could not write to the journal", new IOException(e.getCause()));
+        } catch (IOException e){
+            throw new UncheckedIOException("Could not write the archive", e);
+        }
+        this.segmentRecords = this.snapshotInterval;
+    }
+
+    /**
+     * Takes a snapshot and starts the next segment if the open segment is full. In write-behind mode the snapshot is
+     * queued behind the records before it.
+     */
+    private void checkpointIfDue(){
+        if (this.segmentRecords < this.snapshotInterval){
+            return;
+        }
+        if (this.committer != null){
+            LedgerSnapshot snapshot = this.manager.snapshot();
+            this.committer.checkpoint(snapshot);
+            this.segmentRecords = 0;
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (IOException e){
+            throw new UncheckedIOException("Could not write to the journal", e);
+        }
+    }
+
+    /**
+     * Writes a moment into the record buffer as its epoch second followed by its nanoseconds.
+     * @param moment The moment to write
+     */
+    private void putInstant(Instant moment){
+        ensureCapacity(Long.BYTES + Integer.BYTES);
+        this.buffer.putLong(moment.getEpochSecond());
+        this.buffer.putInt(moment.getNano());
+    }
+
+    /**
+     * Writes an expense into the record buffer.
+     * @param expense The expense to write
+     */
+    private void putExpense(Expense expense){
+        ensureCapacity(Records.sizeOf(expense));
+        Records.putExpense(this.buffer, expense);
+    }
+
+    /**
+     * Resets the record buffer and leaves room for the header in front of the payload.
+     * @param type The record type written as the first byte of the payload
+     */
+    private void startRecord(byte type){
+        this.buffer.clear();
+        this.buffer.position(HEADER_BYTES);
+        this.buffer.put(type);
+    }
+
+    /**
+     * Fills in the header of the record in the buffer, appends it to the journal and forces it to disk, or in
+     * write-behind mode queues a copy of it, waiting for room if the queue is full.
+     * If the open segment is full, a snapshot is taken first and the record starts the next segment. Records are
+     * written before the change is applied, so the snapshot holds exactly the state at the end of the full segment.
+     */
+    private void writeRecord(){
+        if (this.channel == null && this.committer == null){
+            throw new IllegalStateException("Journal must be loaded before changes can be recorded");
+        }
+
+        int length = this.buffer.position() - HEADER_BYTES;
+        if (length > MAX_PAYLOAD_BYTES){
+            throw new IllegalArgumentException("Change is too large to record in the journal, try splitting it up");
+        }
+        this.crc.reset();
+        this.crc.update(this.buffer.array(), HEADER_BYTES, length);
+        this.buffer.putInt(0, length);
+        this.buffer.putInt(Integer.BYTES, (int) this.crc.getValue());
+        this.buffer.flip();
+
+        checkpointIfDue();
+        if (this.committer != null){
+            ByteBuffer record = ByteBuffer.allocate(this.buffer.remaining());
+            record.put(this.buffer).flip();
+            this.committer.submit(record);
+            this.segmentRecords++;
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            Records.writeFully(this.channel, this.buffer);
+            this.channel.force(false);
+            this.segmentRecords++;
+            this.metrics.recordJournalWrite(start, HEADER_BYTES + length);
+        } catch (IOException e){
+            throw new UncheckedIOException("Could not write to the journal", e);
+        }
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 bytes.
+     * @param value The string to write
+     */
+    private void putString(String value){
+        ensureCapacity(Records.sizeOf(value));
+        Records.putString(this.buffer, value);
+    }
+
+    /**
+     * Grows the record buffer so that it can hold a number of extra bytes.
+     * @param extra The number of bytes about to be written
+     */
+    private void ensureCapacity(int extra){
+        if (this.buffer.remaining() < extra){
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + extra));
+            this.buffer.flip();
+            bigger.put(this.buffer);
+            this.buffer = bigger;
+        }
+    }
+
+    /**
+     * Writes every queued record, closes the journal file and waits for any running compaction, changes made
+     * afterwards can no longer be recorded.
+     * @throws IOException If the journal can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.committer != null){
+            this.committer.close();
+        }
+        this.compactor.shutdown();
+        try {
+            this.compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        if (this.channel != null){
+            this.channel.close();
+            this.channel = null;
+        }
     }
 }
@@ -0,0 +1,273 @@
+package storage;
+
+import service.LedgerSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes journal records behind the thread that makes the changes, for a FileManager in write-behind mode.
+ *
+ * Records wait in a bounded queue. A single writer thread takes the first waiting record, waits up to the flush
+ * interval for more to join it, then appends the whole group with one write and forces it to disk once, so a burst
+ * of changes costs one disk flush instead of one each. Every record comes with a future that completes once the
+ * record is on disk. When the queue is full, the thread making changes waits for room, so it can never get more than
+ * the capacity of the queue ahead of the disk.
+ *
+ * Checkpoints go through the same queue, so a snapshot is written exactly between the records before it and the
+ * records after it.
+ *
+ * @author Kris Bali
+ */
+final class GroupCommitter {
+    /**
+     * Where groups of records and snapshots go, called only from the writer thread.
+     */
+    interface Sink {
+        /**
+         * Appends records to the journal with one write and forces them to disk.
+         * @param records The encoded records, in order
+         * @param count The number of records to write from the start of the array
+         * @throws IOException If the records can't be written or forced
+         */
+        void write(ByteBuffer[] records, int count) throws IOException;
+
+        /**
+         * Writes a snapshot covering every record written so far and starts a new journal segment.
+         * @param snapshot The state of the manager after the last record written
+         * @throws IOException If the snapshot or the new segment can't be written
+         */
+        void checkpoint(LedgerSnapshot snapshot) throws IOException;
+    }
+
+    /**
+     * A record or checkpoint waiting in the queue.
+     */
+    private static final class Entry {
+        /** The encoded record, or null for a checkpoint or for the entry that stops the writer */
+        final ByteBuffer record;
+        /** The snapshot to write, or null for a record or for the entry that stops the writer */
+        final LedgerSnapshot snapshot;
+        /** Completes once the record or snapshot is on disk */
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Entry(ByteBuffer record, LedgerSnapshot snapshot){
+            this.record = record;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * @return Whether the entry stops the writer
+         */
+        boolean isStop(){
+            return this.record == null && this.snapshot == null;
+        }
+    }
+
+    /** Where groups of records and snapshots go */
+    private final Sink sink;
+    /** The records and checkpoints waiting to be written, in order */
+    private final BlockingQueue<Entry> queue;
+    /** The longest time, in nanoseconds, the writer waits for more records to join a group */
+    private final long flushIntervalNanos;
+    /** The thread that writes the groups */
+    private final Thread writer;
+    /** The future of the last entry queued, completed before anything is queued */
+    private CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+    /** The error that stopped the writer, or null while it is working */
+    private volatile IOException failure;
+    /** Whether close() has been called */
+    private boolean closed;
+
+    /**
+     * GroupCommitter constructor, starts the writer thread.
+     * @param sink Where groups of records and snapshots go
+     * @param capacity The number of records and checkpoints that may wait to be written
+     * @param flushInterval The longest time the writer waits for more records to join a group
+     */
+    GroupCommitter(Sink sink, int capacity, Duration flushInterval){
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = new Thread(this::run, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a record, waiting for room if the queue is full.
+     * @param record The encoded record, which the caller must not change afterwards
+     * @return A future that completes once the record is on disk
+     */
+    CompletableFuture<Void> submit(ByteBuffer record){
+        return enqueue(new Entry(record, null));
+    }
+
+    /**
+     * Queues a checkpoint, waiting for room if the queue is full.
+     * @param snapshot The state of the manager after the last record queued
+     * @return A future that completes once the snapshot is written and a new segment is started
+     */
+    CompletableFuture<Void> checkpoint(LedgerSnapshot snapshot){
+        return enqueue(new Entry(null, snapshot));
+    }
+
+    /**
+     * @return A future that completes once every record queued so far is on disk
+     */
+    CompletableFuture<Void> flushed(){
+        return this.last;
+    }
+
+    /**
+     * Writes every record still waiting, then stops the writer thread.
+     */
+    void close(){
+        if (this.closed){
+            return;
+        }
+        this.closed = true;
+
+        boolean interrupted = false;
+        while (true){
+            try {
+                this.queue.put(new Entry(null, null));
+                this.writer.join();
+                break;
+            } catch (InterruptedException e){
+                interrupted = true;
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param entry The entry to queue
+     * @return The future of the entry
+     */
+    private CompletableFuture<Void> enqueue(Entry entry){
+        if (this.closed){
+            throw new IllegalStateException("Journal has been closed");
+        }
+        checkFailure();
+
+        try {
+            this.queue.put(entry);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in the journal queue", e);
+        }
+        this.last = entry.durable;
+        return entry.durable;
+    }
+
+    /**
+     * Throws if the writer has stopped, so no change is made that could never be written.
+     */
+    private void checkFailure(){
+        IOException failure = this.failure;
+        if (failure != null){
+            throw new UncheckedIOException("Could not write to the journal", failure);
+        }
+    }
+
+    /**
+     * Takes groups off the queue and writes them until the stop entry is reached.
+     */
+    private void run(){
+        List<Entry> group = new ArrayList<>();
+        ByteBuffer[] records = new ByteBuffer[16];
+
+        while (true){
+            try {
+                gather(group);
+            } catch (InterruptedException e){
+                // Only close() stops the writer, after everything queued before it is written
+                continue;
+            }
+
+            int count = 0;
+            boolean stop = false;
+            for (Entry entry : group){
+                if (entry.isStop()){
+                    stop = true;
+                } else if (entry.record != null){
+                    if (count == records.length){
+                        records = Arrays.copyOf(records, count * 2);
+                    }
+                    records[count++] = entry.record;
+                }
+            }
+
+            Entry tail = group.get(group.size() - 1);
+            if (this.failure == null){
+                try {
+                    if (count > 0){
+                        this.sink.write(records, count);
+                    }
+                    if (tail.snapshot != null){
+                        this.sink.checkpoint(tail.snapshot);
+                    }
+                } catch (IOException e){
+                    this.failure = e;
+                }
+            }
+
+            IOException failure = this.failure;
+            for (Entry entry : group){
+                if (failure == null){
+                    entry.durable.complete(null);
+                } else {
+                    entry.durable.completeExceptionally(new UncheckedIOException("Could not write to the journal", failure));
+                }
+            }
+            Arrays.fill(records, 0, count, null);
+            group.clear();
+
+            if (stop){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for the next group: the first waiting entry plus whatever joins it within the flush interval. A group
+     * ends early at a checkpoint or the stop entry, so nothing after them is written before them.
+     * @param group The list to gather the group into, empty
+     * @throws InterruptedException If the writer is interrupted while the group is still empty
+     */
+    private void gather(List<Entry> group) throws InterruptedException {
+        Entry entry = this.queue.take();
+        group.add(entry);
+        long deadline = System.nanoTime() + this.flushIntervalNanos;
+
+        while (entry.record != null){
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0){
+                try {
+                    entry = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e){
+                    entry = this.queue.poll();
+                }
+            } else {
+                entry = this.queue.poll();
+            }
+
+            if (entry == null){
+                return;
+            }
+            group.add(entry);
+        }
+    }
+}
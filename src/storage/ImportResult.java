@@ -0,0 +1,64 @@
+package storage;
+
+/**
+ * What an import did with the rows of a file.
+ *
+ * @author Kris Bali
+ */
+public final class ImportResult {
+    /** The number of rows read, not counting the header or blank rows */
+    private final long rowCount;
+    /** The number of expenses added */
+    private final long importedCount;
+    /** The number of rows skipped because an earlier import already added them */
+    private final long duplicateCount;
+    /** The number of rows left out because of an error */
+    private final long errorCount;
+
+    /**
+     * ImportResult constructor
+     * @param rowCount The number of rows read, not counting the header or blank rows
+     * @param importedCount The number of expenses added
+     * @param duplicateCount The number of rows skipped because an earlier import already added them
+     * @param errorCount The number of rows left out because of an error
+     */
+    ImportResult(long rowCount, long importedCount, long duplicateCount, long errorCount){
+        this.rowCount = rowCount;
+        this.importedCount = importedCount;
+        this.duplicateCount = duplicateCount;
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * @return The number of rows read, not counting the header or blank rows
+     */
+    public long getRowCount(){
+        return this.rowCount;
+    }
+
+    /**
+     * @return The number of expenses added
+     */
+    public long getImportedCount(){
+        return this.importedCount;
+    }
+
+    /**
+     * @return The number of rows skipped because an earlier import already added them
+     */
+    public long getDuplicateCount(){
+        return this.duplicateCount;
+    }
+
+    /**
+     * @return The number of rows left out because of an error
+     */
+    public long getErrorCount(){
+        return this.errorCount;
+    }
+
+    @Override
+    public String toString(){
+        return this.rowCount + " rows: " + this.importedCount + " imported, " + this.duplicateCount + " duplicates, " + this.errorCount + " errors";
+    }
+}
@@ -0,0 +1,115 @@
+package storage;
+
+/**
+ * A set of long numbers kept in one array of primitives with open addressing and linear probing, so each number costs
+ * 8 to 16 bytes instead of a boxed Long and a hash table node.
+ *
+ * @author Kris Bali
+ */
+final class LongHashSet {
+    /** The slots, of which empty ones hold 0 */
+    private long[] slots;
+    /** Whether 0 is in the set, since 0 marks an empty slot */
+    private boolean containsZero;
+    /** The number of numbers in the set */
+    private int size;
+
+    /**
+     * LongHashSet constructor
+     * @param expected The number of numbers the set should hold before it has to grow
+     */
+    LongHashSet(int expected){
+        int capacity = 16;
+        while (capacity < expected * 2L && capacity < 1 << 30){
+            capacity <<= 1;
+        }
+        this.slots = new long[capacity];
+    }
+
+    /**
+     * @param value A number
+     * @return Whether the number is in the set
+     */
+    boolean contains(long value){
+        if (value == 0){
+            return this.containsZero;
+        }
+        int mask = this.slots.length - 1;
+        for (int slot = spread(value) & mask; this.slots[slot] != 0; slot = (slot + 1) & mask){
+            if (this.slots[slot] == value){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value A number to add to the set
+     * @return Whether the number was added, false if it was already in the set
+     */
+    boolean add(long value){
+        if (value == 0){
+            if (this.containsZero){
+                return false;
+            }
+            this.containsZero = true;
+            this.size++;
+            return true;
+        }
+        if (!insert(this.slots, value)){
+            return false;
+        }
+        this.size++;
+        if (this.size * 4L > this.slots.length * 3L){
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of numbers in the set
+     */
+    int size(){
+        return this.size;
+    }
+
+    /**
+     * Doubles the number of slots and puts every number back in.
+     */
+    private void grow(){
+        long[] grown = new long[this.slots.length * 2];
+        for (long value : this.slots){
+            if (value != 0){
+                insert(grown, value);
+            }
+        }
+        this.slots = grown;
+    }
+
+    /**
+     * @param slots The slots to put a number in
+     * @param value A number other than 0
+     * @return Whether the number was put in, false if it was already there
+     */
+    private static boolean insert(long[] slots, long value){
+        int mask = slots.length - 1;
+        int slot = spread(value) & mask;
+        while (slots[slot] != 0){
+            if (slots[slot] == value){
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        return true;
+    }
+
+    /**
+     * @param value A number
+     * @return The number's slot before masking, mixed so numbers that only differ in their high bits spread out
+     */
+    private static int spread(long value){
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
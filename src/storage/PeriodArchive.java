@@ -0,0 +1,65 @@
+package storage;
+
+import model.Expense;
+import service.PeriodClose;
+
+import java.util.List;
+
+/**
+ * A closed period read back from its archive: the record of the close and every expense the period held.
+ *
+ * @author Kris Bali
+ */
+public final class PeriodArchive {
+    /** The number of the archive */
+    private final long number;
+    /** The record of the close */
+    private final PeriodClose close;
+    /** The ID of each expense */
+    private final long[] ids;
+    /** The expenses, in the order they were added */
+    private final List<Expense> expenses;
+
+    /**
+     * PeriodArchive constructor
+     * @param number The number of the archive
+     * @param close The record of the close
+     * @param ids The ID of each expense
+     * @param expenses The expenses, in the order they were added
+     */
+    PeriodArchive(long number, PeriodClose close, long[] ids, List<Expense> expenses){
+        this.number = number;
+        this.close = close;
+        this.ids = ids;
+        this.expenses = List.copyOf(expenses);
+    }
+
+    /**
+     * @return The number of the archive, 1 for the first period closed
+     */
+    public long getNumber(){
+        return this.number;
+    }
+
+    /**
+     * @return The transfers, carried balances and expense IDs of the period
+     */
+    public PeriodClose getClose(){
+        return this.close;
+    }
+
+    /**
+     * @return A read-only list of the expenses of the period, in the order they were added
+     */
+    public List<Expense> getExpenses(){
+        return this.expenses;
+    }
+
+    /**
+     * @param index The position of an expense in getExpenses()
+     * @return The ID the expense had
+     */
+    public long getExpenseId(int index){
+        return this.ids[index];
+    }
+}
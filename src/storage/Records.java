@@ -0,0 +1,144 @@
+package storage;
+
+import model.Expense;
+import model.Split;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers shared by the journal and snapshot files for encoding values into byte buffers.
+ *
+ * @author Kris Bali
+ */
+final class Records {
+    private Records(){
+    }
+
+    /**
+     * @param value A string
+     * @return The number of bytes putString writes for the string
+     */
+    static int sizeOf(String value){
+        return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 bytes.
+     * @param buffer The buffer to write to
+     * @param value The string to write
+     */
+    static void putString(ByteBuffer buffer, String value){
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string written by putString.
+     * @param buffer The buffer to read from
+     * @return The string
+     */
+    static String getString(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param split A split
+     * @return The number of bytes putSplit writes for the split
+     */
+    static int sizeOf(Split split){
+        return 1 + Long.BYTES * split.size();
+    }
+
+    /**
+     * Writes a split as the ordinal of its kind followed by its values, one long per participant unless it is equal.
+     * @param buffer The buffer to write to
+     * @param split The split to write
+     */
+    static void putSplit(ByteBuffer buffer, Split split){
+        buffer.put((byte) split.getKind().ordinal());
+        for (int i = 0; i < split.size(); i++){
+            buffer.putLong(split.getValue(i));
+        }
+    }
+
+    /**
+     * Reads a split written by putSplit.
+     * @param buffer The buffer to read from
+     * @param participantCount The number of participants of the expense the split belongs to
+     * @return The split
+     */
+    static Split getSplit(ByteBuffer buffer, int participantCount){
+        Split.Kind kind = Split.Kind.values()[buffer.get()];
+        long[] values = new long[kind == Split.Kind.EQUAL ? 0 : participantCount];
+        for (int i = 0; i < values.length; i++){
+            values[i] = buffer.getLong();
+        }
+        return Split.of(kind, values);
+    }
+
+    /**
+     * @param expense An expense
+     * @return The number of bytes putExpense writes for the expense
+     */
+    static int sizeOf(Expense expense){
+        int size = sizeOf(expense.getExpenseName()) + Long.BYTES + sizeOf(expense.getPayer().getName()) + Integer.BYTES;
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            size += sizeOf(expense.getParticipant(i).getName());
+        }
+        return size + Long.BYTES + Integer.BYTES + sizeOf(expense.getSplit());
+    }
+
+    /**
+     * Writes an expense as its name, cost in cents, payer's name, number of participants, each participant's name,
+     * timestamp and split.
+     * @param buffer The buffer to write to
+     * @param expense The expense to write
+     */
+    static void putExpense(ByteBuffer buffer, Expense expense){
+        putString(buffer, expense.getExpenseName());
+        buffer.putLong(expense.getCostCents());
+        putString(buffer, expense.getPayer().getName());
+        buffer.putInt(expense.getParticipantCount());
+        for (int i = 0; i < expense.getParticipantCount(); i++){
+            putString(buffer, expense.getParticipant(i).getName());
+        }
+        buffer.putLong(expense.getTimestamp().getEpochSecond());
+        buffer.putInt(expense.getTimestamp().getNano());
+        putSplit(buffer, expense.getSplit());
+    }
+
+    /**
+     * Reads from a channel until the buffer is full or the end of the channel is reached.
+     * @param channel The channel to read from
+     * @param buffer The buffer to fill
+     * @param position The position in the channel to start reading at
+     * @throws IOException If the channel can't be read
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()){
+            int read = channel.read(buffer, position);
+            if (read < 0){
+                return;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Writes the whole buffer to a channel.
+     * @param channel The channel to write to
+     * @param buffer The buffer to drain
+     * @throws IOException If the channel can't be written
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+}
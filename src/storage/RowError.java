@@ -0,0 +1,42 @@
+package storage;
+
+/**
+ * A row of an imported file that couldn't be turned into an expense, and why.
+ *
+ * @author Kris Bali
+ */
+public final class RowError {
+    /** The number of the row, the header being row 1 */
+    private final long row;
+    /** Why the row was left out */
+    private final String message;
+
+    /**
+     * RowError constructor
+     * @param row The number of the row, the header being row 1
+     * @param message Why the row was left out
+     */
+    RowError(long row, String message){
+        this.row = row;
+        this.message = message;
+    }
+
+    /**
+     * @return The number of the row, the header being row 1
+     */
+    public long getRow(){
+        return this.row;
+    }
+
+    /**
+     * @return Why the row was left out
+     */
+    public String getMessage(){
+        return this.message;
+    }
+
+    @Override
+    public String toString(){
+        return "Row " + this.row + ": " + this.message;
+    }
+}
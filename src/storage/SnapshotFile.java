@@ -0,0 +1,269 @@
+package storage;
+
+import model.Expense;
+import model.Money;
+import model.RecurringExpense;
+import model.Roommate;
+import model.Split;
+import service.LedgerSnapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes a LedgerSnapshot as a single checksummed file.
+ *
+ * File layout:
+ *      int  magic number
+ *      int  format version
+ *      long number of the last journal segment the snapshot covers
+ *      long total of all expenses in cents
+ *      long number of expenses ever added, which is also the ID of the next expense
+ *      int  number of roommates
+ *      for each roommate: string name, long balance, long total paid, long total share, all in cents
+ *      int  number of days with expenses
+ *      for each day: long days since 1970-01-01, long total spent in cents
+ *      int  number of recurring expenses
+ *      for each recurring expense:
+ *          string name, long cost in cents, int position of the payer among the roommates above,
+ *          int number of participants, int position of each participant, the split as the journal writes it,
+ *          long and int start, int years, int months and int days of the period,
+ *          byte 1 if it ends followed by long and int end, long number of occurrences in the balances
+ *      long ID of the first expense of the open period
+ *      int  number of expenses of the open period
+ *      for each expense of the open period, by ID:
+ *          byte 1 if it was removed, string name, long cost in cents, int position of the payer,
+ *          int number of participants, int position of each participant, the split as the journal writes it,
+ *          long and int timestamp
+ *      int  CRC32 checksum of everything before it
+ *
+ * Version 1 files have no totals per roommate and no days, they are read with those totals left at $0.00.
+ * Version 1 and 2 files have no expense count, they are read with a count of 0.
+ * Version 1 to 3 files have no recurring expenses.
+ * Version 1 to 4 files have no expenses, they are read with an open period starting at the expense count.
+ *
+ * A snapshot is written to a temporary file first and then moved into place, so a crash never leaves a
+ * half-written snapshot under its real name.
+ *
+ * @author Kris Bali
+ */
+final class SnapshotFile {
+    /** Marks the start of a snapshot file */
+    static final int MAGIC = 0x52505331;
+    /** The version of the file layout */
+    static final int VERSION = 5;
+
+    private SnapshotFile(){
+    }
+
+    /**
+     * Writes a snapshot to a file, replacing any file already at that path.
+     * @param path The path of the snapshot file
+     * @param segment The number of the last journal segment the snapshot covers
+     * @param snapshot The snapshot to write
+     * @throws IOException If the file can't be written
+     */
+    static void write(Path path, long segment, LedgerSnapshot snapshot) throws IOException {
+        int size = 2 * Integer.BYTES + 3 * Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+        for (int i = 0; i < snapshot.getRoommateCount(); i++){
+            size += Records.sizeOf(snapshot.getName(i)) + 3 * Long.BYTES;
+        }
+        size += snapshot.getDayCount() * 2 * Long.BYTES;
+        size += Integer.BYTES;
+        HashMap<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < snapshot.getRoommateCount(); i++){
+            positions.put(snapshot.getName(i), i);
+        }
+        for (int i = 0; i < snapshot.getRecurringCount(); i++){
+            RecurringExpense expense = snapshot.getRecurring(i);
+            size += Records.sizeOf(expense.getExpenseName()) + Long.BYTES + 2 * Integer.BYTES + expense.getParticipantCount() * Integer.BYTES;
+            size += Records.sizeOf(expense.getSplit()) + Long.BYTES + 4 * Integer.BYTES + 1 + Long.BYTES + Integer.BYTES + Long.BYTES;
+        }
+        size += Long.BYTES + Integer.BYTES;
+        for (int i = 0; i < snapshot.getPeriodExpenseCount(); i++){
+            Expense expense = snapshot.getPeriodExpense(i);
+            size += 1 + Records.sizeOf(expense.getExpenseName()) + Long.BYTES + 2 * Integer.BYTES + expense.getParticipantCount() * Integer.BYTES;
+            size += Records.sizeOf(expense.getSplit()) + Long.BYTES + Integer.BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(segment);
+        buffer.putLong(snapshot.getTotalExpensesCents());
+        buffer.putLong(snapshot.getExpenseCount());
+        buffer.putInt(snapshot.getRoommateCount());
+        for (int i = 0; i < snapshot.getRoommateCount(); i++){
+            Records.putString(buffer, snapshot.getName(i));
+            buffer.putLong(snapshot.getBalanceCents(i));
+            buffer.putLong(snapshot.getTotalPaidCents(i));
+            buffer.putLong(snapshot.getTotalShareCents(i));
+        }
+        buffer.putInt(snapshot.getDayCount());
+        for (int i = 0; i < snapshot.getDayCount(); i++){
+            buffer.putLong(snapshot.getDay(i));
+            buffer.putLong(snapshot.getDayTotalCents(i));
+        }
+        buffer.putInt(snapshot.getRecurringCount());
+        for (int i = 0; i < snapshot.getRecurringCount(); i++){
+            RecurringExpense expense = snapshot.getRecurring(i);
+            Records.putString(buffer, expense.getExpenseName());
+            buffer.putLong(expense.getCostCents());
+            buffer.putInt(positions.get(expense.getPayer().getName()));
+            buffer.putInt(expense.getParticipantCount());
+            for (int j = 0; j < expense.getParticipantCount(); j++){
+                buffer.putInt(positions.get(expense.getParticipant(j).getName()));
+            }
+            Records.putSplit(buffer, expense.getSplit());
+            buffer.putLong(expense.getStart().getEpochSecond());
+            buffer.putInt(expense.getStart().getNano());
+            buffer.putInt(expense.getPeriod().getYears());
+            buffer.putInt(expense.getPeriod().getMonths());
+            buffer.putInt(expense.getPeriod().getDays());
+            buffer.put((byte) (expense.getEnd() == null ? 0 : 1));
+            if (expense.getEnd() != null){
+                buffer.putLong(expense.getEnd().getEpochSecond());
+                buffer.putInt(expense.getEnd().getNano());
+            }
+            buffer.putLong(snapshot.getRecurringAccrued(i));
+        }
+        buffer.putLong(snapshot.getFirstExpenseId());
+        buffer.putInt(snapshot.getPeriodExpenseCount());
+        for (int i = 0; i < snapshot.getPeriodExpenseCount(); i++){
+            Expense expense = snapshot.getPeriodExpense(i);
+            buffer.put((byte) (snapshot.isPeriodExpenseRemoved(i) ? 1 : 0));
+            Records.putString(buffer, expense.getExpenseName());
+            buffer.putLong(expense.getCostCents());
+            buffer.putInt(positions.get(expense.getPayer().getName()));
+            buffer.putInt(expense.getParticipantCount());
+            for (int j = 0; j < expense.getParticipantCount(); j++){
+                buffer.putInt(positions.get(expense.getParticipant(j).getName()));
+            }
+            Records.putSplit(buffer, expense.getSplit());
+            buffer.putLong(expense.getTimestamp().getEpochSecond());
+            buffer.putInt(expense.getTimestamp().getNano());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            Records.writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a snapshot file, checking its checksum.
+     * @param path The path of the snapshot file
+     * @param segment The number of the last journal segment the snapshot is expected to cover
+     * @return The snapshot, or null if the file is incomplete, corrupt or doesn't cover the expected segment
+     * @throws IOException If the file can't be read
+     */
+    static LedgerSnapshot read(Path path, long segment) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 2 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES){
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(bytes.length - Integer.BYTES) != (int) crc.getValue()){
+            return null;
+        }
+
+        if (buffer.getInt() != MAGIC){
+            return null;
+        }
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION || buffer.getLong() != segment){
+            return null;
+        }
+
+        long totalExpensesCents = buffer.getLong();
+        long expenseCount = version >= 3 ? buffer.getLong() : 0;
+        int count = buffer.getInt();
+        String[] names = new String[count];
+        long[] balances = new long[count];
+        long[] paid = new long[count];
+        long[] shares = new long[count];
+        for (int i = 0; i < count; i++){
+            names[i] = Records.getString(buffer);
+            balances[i] = buffer.getLong();
+            if (version >= 2){
+                paid[i] = buffer.getLong();
+                shares[i] = buffer.getLong();
+            }
+        }
+
+        int dayCount = version >= 2 ? buffer.getInt() : 0;
+        long[] days = new long[dayCount];
+        long[] dayTotals = new long[dayCount];
+        for (int i = 0; i < dayCount; i++){
+            days[i] = buffer.getLong();
+            dayTotals[i] = buffer.getLong();
+        }
+
+        int recurringCount = version >= 4 ? buffer.getInt() : 0;
+        List<RecurringExpense> recurring = new ArrayList<>(recurringCount);
+        long[] accrued = new long[recurringCount];
+        // Stand-ins for the roommates, the manager restoring the snapshot matches them to its own by name
+        Roommate[] roommates = new Roommate[count];
+        for (int i = 0; i < count; i++){
+            roommates[i] = new Roommate(names[i], Money.toBigDecimal(balances[i]));
+        }
+        for (int i = 0; i < recurringCount; i++){
+            String name = Records.getString(buffer);
+            long cost = buffer.getLong();
+            Roommate payer = roommates[buffer.getInt()];
+            int participantCount = buffer.getInt();
+            List<Roommate> participants = new ArrayList<>(participantCount);
+            for (int j = 0; j < participantCount; j++){
+                participants.add(roommates[buffer.getInt()]);
+            }
+            Split split = Records.getSplit(buffer, participantCount);
+            Instant start = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            Period period = Period.of(buffer.getInt(), buffer.getInt(), buffer.getInt());
+            Instant end = buffer.get() == 0 ? null : Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            recurring.add(new RecurringExpense(name, Money.toBigDecimal(cost), payer, participants, split, start, period, end));
+            accrued[i] = buffer.getLong();
+        }
+
+        long firstExpenseId = version >= 5 ? buffer.getLong() : expenseCount;
+        int expenseTotal = version >= 5 ? buffer.getInt() : 0;
+        List<Expense> expenses = new ArrayList<>(expenseTotal);
+        boolean[] removed = new boolean[expenseTotal];
+        for (int i = 0; i < expenseTotal; i++){
+            removed[i] = buffer.get() != 0;
+            String name = Records.getString(buffer);
+            long cost = buffer.getLong();
+            Roommate payer = roommates[buffer.getInt()];
+            int participantCount = buffer.getInt();
+            List<Roommate> participants = new ArrayList<>(participantCount);
+            for (int j = 0; j < participantCount; j++){
+                participants.add(roommates[buffer.getInt()]);
+            }
+            Split split = Records.getSplit(buffer, participantCount);
+            Instant timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            expenses.add(new Expense(name, Money.toBigDecimal(cost), payer, participants, split, timestamp));
+        }
+
+        return new LedgerSnapshot(names, balances, paid, shares, totalExpensesCents, days, dayTotals, expenseCount, recurring, accrued, firstExpenseId, expenses, removed);
+    }
+}
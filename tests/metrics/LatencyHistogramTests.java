@@ -0,0 +1,48 @@
+package metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTests {
+    @Test
+    public void testBucketsCoverEveryDuration(){
+        long[] durations = {0, 1, 7, 8, 9, 15, 16, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long duration : durations){
+            int bucket = LatencyHistogram.bucketOf(duration);
+            assertTrue(duration <= LatencyHistogram.highestIn(bucket));
+            assertTrue(bucket == 0 || duration > LatencyHistogram.highestIn(bucket - 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++){
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500, histogram.getMean());
+        assertEquals(1_000_000, histogram.getMax());
+        assertWithin(500_000, histogram.getPercentile(50));
+        assertWithin(990_000, histogram.getPercentile(99));
+        assertEquals(1_000_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testReset(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMax());
+    }
+
+    private static void assertWithin(long expected, long actual){
+        assertTrue(actual + " should be at least " + expected, actual >= expected);
+        assertTrue(actual + " should be at most 12.5% above " + expected, actual <= expected * 1.125);
+    }
+}
@@ -0,0 +1,57 @@
+package metrics;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Test;
+import service.ExpenseManager;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsTests {
+    @Test
+    public void testManagerRecordsExpenses(){
+        Metrics metrics = new Metrics();
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.setMetrics(metrics);
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, List.of(roommateKris, roommateDavid)));
+        manager.addExpenses(List.of(new Expense("Dishes", BigDecimal.valueOf(10.00), roommateDavid, List.of(roommateKris))));
+
+        assertEquals(2, metrics.getExpensesApplied());
+        assertEquals(5, metrics.getRoommatesTouched());
+        assertEquals(1, metrics.getAddExpenseLatency().getCount());
+        assertEquals(1, metrics.getAddExpensesLatency().getCount());
+        assertTrue(metrics.dump().startsWith("expensesApplied=2 roommatesTouched=5"));
+    }
+
+    @Test
+    public void testPublishedOverJmx() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.recordAddExpense(System.nanoTime(), 3);
+        ObjectName name = metrics.register("MetricsTests");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "ExpensesApplied"));
+            CompositeData latency = (CompositeData) server.getAttribute(name, "AddExpenseLatency");
+            assertEquals(1L, latency.get("count"));
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, metrics.getExpensesApplied());
+        } finally {
+            Metrics.unregister("MetricsTests");
+        }
+    }
+}
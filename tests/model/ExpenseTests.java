@@ -5,6 +5,7 @@ import org.junit.Test;
 import javax.xml.stream.events.EntityReference;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import static org.junit.Assert.*;
@@ -25,6 +26,17 @@ public class ExpenseTests {
         assertEquals(participants, expense.getParticipants());
     }
 
+    @Test
+    public void testParticipantsAreReadOnly(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Expense expense = new Expense("Groceries", BigDecimal.valueOf(10.00), roommateKris, List.of(roommateKris));
+
+        assertSame(expense.getParticipants(), expense.getParticipants());
+        assertThrows(UnsupportedOperationException.class, () -> {
+            expense.getParticipants().clear();
+        });
+    }
+
     @Test
     public void testNoExpense(){
         List<Roommate> participants = new ArrayList<>();
@@ -119,4 +131,45 @@ public class ExpenseTests {
         assertEquals(BigDecimal.valueOf(3.34), expense.costPerPerson());
         assertEquals(BigDecimal.valueOf(0.02), expense.extraMoney());
     }
+
+    @Test
+    public void testTimestamp(){
+        List<Roommate> participants = new ArrayList<>();
+        participants.add(new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP)));
+
+        Instant paid = Instant.parse("2026-03-01T10:00:00Z");
+        Expense expense = new Expense("Groceries", BigDecimal.valueOf(89.99), new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP)), participants, paid);
+        assertEquals(paid, expense.getTimestamp());
+
+        try{
+            new Expense("Groceries", BigDecimal.valueOf(89.99), new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP)), participants, null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e){
+            assertEquals("Please provide the time this expense was paid", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testShares(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        List<Roommate> participants = List.of(roommateKris, roommateDavid);
+
+        Expense equal = new Expense("Groceries", BigDecimal.valueOf(0.05), roommateKris, participants);
+        assertEquals(3, equal.getShareCents(0));
+        assertEquals(2, equal.getShareCents(1));
+
+        Expense exact = new Expense("Groceries", BigDecimal.valueOf(10.00), roommateKris, participants, Split.exact(BigDecimal.valueOf(8.00), BigDecimal.valueOf(2.00)), Instant.now());
+        assertEquals(BigDecimal.valueOf(8.00).setScale(2), exact.getShare(0));
+        assertEquals(BigDecimal.valueOf(8.00).setScale(2), exact.costPerPerson());
+        // Only an equal split was ever rounded up, so an exact split has nothing extra
+        assertEquals(BigDecimal.ZERO.setScale(2), exact.extraMoney());
+
+        try{
+            new Expense("Groceries", BigDecimal.valueOf(10.00), roommateKris, participants, Split.weighted(1, 2, 3), Instant.now());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e){
+            assertEquals("Please provide one split value for each participant", e.getMessage());
+        }
+    }
 }
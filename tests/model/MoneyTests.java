@@ -0,0 +1,43 @@
+package model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class MoneyTests {
+    @Test
+    public void testToCents(){
+        assertEquals(1999, Money.toCents(BigDecimal.valueOf(19.99)));
+        assertEquals(-314, Money.toCents(BigDecimal.valueOf(-3.14)));
+        assertEquals(1, Money.toCents(new BigDecimal("0.005")));
+    }
+
+    @Test
+    public void testToBigDecimal(){
+        assertEquals(new BigDecimal("19.99"), Money.toBigDecimal(1999));
+        assertEquals(new BigDecimal("0.00"), Money.ZERO.toBigDecimal());
+    }
+
+    @Test
+    public void testArithmetic(){
+        Money money = Money.of(BigDecimal.valueOf(10.00));
+        assertEquals(Money.ofCents(1250), money.plus(Money.ofCents(250)));
+        assertEquals(Money.ofCents(750), money.minus(Money.ofCents(250)));
+        assertEquals(Money.ofCents(-1000), money.negate());
+    }
+
+    @Test
+    public void testDivideCeiling(){
+        assertEquals(334, Money.divideCeiling(1000, 3));
+        assertEquals(500, Money.divideCeiling(1000, 2));
+        assertThrows(IllegalArgumentException.class, () -> Money.divideCeiling(1000, 0));
+    }
+
+    @Test
+    public void testOverflow(){
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("1E+30")));
+    }
+}
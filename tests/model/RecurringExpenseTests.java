@@ -0,0 +1,67 @@
+package model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecurringExpenseTests {
+    private final Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+    private final Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+
+    private RecurringExpense rent(Instant start, Period period){
+        return new RecurringExpense("Rent", BigDecimal.valueOf(1500.00), roommateKris, List.of(roommateKris, roommateDavid), Split.equal(), start, period);
+    }
+
+    @Test
+    public void testMonthlyOccurrences(){
+        RecurringExpense rent = rent(Instant.parse("2026-01-31T09:00:00Z"), Period.ofMonths(1));
+        assertEquals(Instant.parse("2026-02-28T09:00:00Z"), rent.getOccurrenceTime(1));
+        assertEquals(Instant.parse("2026-03-31T09:00:00Z"), rent.getOccurrenceTime(2));
+
+        assertEquals(0, rent.countUntil(Instant.parse("2026-01-31T08:59:59Z")));
+        assertEquals(1, rent.countUntil(Instant.parse("2026-01-31T09:00:00Z")));
+        assertEquals(2, rent.countUntil(Instant.parse("2026-03-31T08:59:59Z")));
+        assertEquals(3, rent.countUntil(Instant.parse("2026-03-31T09:00:00Z")));
+        assertEquals(121, rent.countUntil(Instant.parse("2036-01-31T09:00:00Z")));
+    }
+
+    @Test
+    public void testCountMatchesOccurrences(){
+        RecurringExpense schedule = rent(Instant.parse("2026-01-01T00:00:00Z"), Period.of(0, 1, 3));
+        long count = 0;
+        for (Instant moment = Instant.parse("2025-12-01T00:00:00Z"); moment.isBefore(Instant.parse("2030-01-01T00:00:00Z")); moment = moment.plusSeconds(86_400 * 5 + 3_600)){
+            while (!schedule.getOccurrenceTime(count).isAfter(moment)){
+                count++;
+            }
+            assertEquals(count, schedule.countUntil(moment));
+        }
+    }
+
+    @Test
+    public void testEnd(){
+        RecurringExpense rent = rent(Instant.parse("2026-01-01T00:00:00Z"), Period.ofMonths(1)).endingAt(Instant.parse("2026-06-15T00:00:00Z"));
+        assertEquals(6, rent.countUntil(Instant.parse("2030-01-01T00:00:00Z")));
+        assertThrows(IllegalArgumentException.class, () -> rent.endingAt(Instant.parse("2025-01-01T00:00:00Z")));
+    }
+
+    @Test
+    public void testLazyOccurrences(){
+        RecurringExpense rent = rent(Instant.parse("2026-01-01T00:00:00Z"), Period.ofMonths(1));
+        List<Expense> occurrences = rent.getOccurrences(Instant.parse("2026-01-01T00:00:00Z"), Instant.parse("2026-04-01T00:00:00Z"));
+        assertEquals(3, occurrences.size());
+        assertEquals(Instant.parse("2026-02-01T00:00:00Z"), occurrences.get(0).getTimestamp());
+        assertEquals(Instant.parse("2026-04-01T00:00:00Z"), occurrences.get(2).getTimestamp());
+        assertEquals(150000, occurrences.get(1).getCostCents());
+    }
+
+    @Test
+    public void testInvalidPeriod(){
+        assertThrows(IllegalArgumentException.class, () -> rent(Instant.now(), Period.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> rent(Instant.now(), Period.ofDays(-1)));
+    }
+}
@@ -0,0 +1,88 @@
+package model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SplitTests {
+    private static long[] shares(Split split, long cost, int count){
+        long[] shares = new long[count];
+        split.shares(cost, count, shares, new long[count]);
+        return shares;
+    }
+
+    @Test
+    public void testEqualSplit(){
+        assertArrayEquals(new long[]{334, 333, 333}, shares(Split.equal(), 1000, 3));
+        assertArrayEquals(new long[]{500, 500}, shares(Split.equal(), 1000, 2));
+        assertArrayEquals(new long[]{1, 1, 0, 0}, shares(Split.equal(), 2, 4));
+        assertEquals(333, Split.equalShare(1000, 3, 2));
+    }
+
+    @Test
+    public void testWeightedSplit(){
+        assertArrayEquals(new long[]{25000, 50000, 25000}, shares(Split.weighted(1, 2, 1), 100000, 3));
+        // 1000 / 7 = 142.86 and 285.71: the larger remainder gets the cent
+        assertArrayEquals(new long[]{143, 286, 286, 285}, shares(Split.weighted(1, 2, 2, 2), 1000, 4));
+        assertArrayEquals(new long[]{0, 1000}, shares(Split.weighted(0, 3), 1000, 2));
+    }
+
+    @Test
+    public void testPercentageSplit(){
+        Split split = Split.percentage(BigDecimal.valueOf(12.5), BigDecimal.valueOf(37.5), BigDecimal.valueOf(50));
+        assertArrayEquals(new long[]{125, 375, 500}, shares(split, 1000, 3));
+        assertArrayEquals(new long[]{0, 1, 1}, shares(split, 2, 3));
+
+        assertThrows(IllegalArgumentException.class, () -> Split.percentage(BigDecimal.valueOf(50), BigDecimal.valueOf(49.99)));
+        assertThrows(IllegalArgumentException.class, () -> Split.percentage(new BigDecimal("99.995"), new BigDecimal("0.005")));
+    }
+
+    @Test
+    public void testExactSplit(){
+        Split split = Split.exact(BigDecimal.valueOf(7.50), BigDecimal.valueOf(2.50));
+        assertArrayEquals(new long[]{750, 250}, shares(split, 1000, 2));
+        split.check(1000, 2);
+        assertThrows(IllegalArgumentException.class, () -> split.check(999, 2));
+        assertThrows(IllegalArgumentException.class, () -> split.check(1000, 3));
+    }
+
+    @Test
+    public void testInvalidValues(){
+        assertThrows(IllegalArgumentException.class, () -> Split.weighted(1, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> Split.weighted(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Split.weighted(Integer.MAX_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> Split.exact(BigDecimal.valueOf(-1)));
+        assertThrows(IllegalArgumentException.class, () -> Split.of(Split.Kind.EQUAL, new long[]{1}));
+    }
+
+    @Test
+    public void testSharesAddUpToCost(){
+        Random random = new Random(16);
+        for (int round = 0; round < 500; round++){
+            int count = 1 + random.nextInt(200);
+            int[] weights = new int[count];
+            for (int i = 0; i < count; i++){
+                weights[i] = random.nextInt(1000);
+            }
+            weights[random.nextInt(count)]++;
+            long cost = random.nextInt(round % 2 == 0 ? 100 : 100_000_000) * (round % 5 == 0 ? 1_000_000_000L : 1);
+
+            long[] shares = shares(Split.weighted(weights), cost, count);
+            long total = 0;
+            long weightTotal = 0;
+            for (int weight : weights){
+                weightTotal += weight;
+            }
+            for (int i = 0; i < count; i++){
+                total += shares[i];
+                // Every share is its exact share rounded either down or up
+                double exact = (double) cost * weights[i] / weightTotal;
+                assertTrue(Math.abs(shares[i] - exact) < 1 + exact * 1e-9);
+            }
+            assertEquals(cost, total);
+        }
+    }
+}
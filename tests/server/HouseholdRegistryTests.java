@@ -0,0 +1,97 @@
+package server;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class HouseholdRegistryTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void addRoommates(HouseholdRegistry registry, String household) throws IOException {
+        registry.withHousehold(household, manager -> {
+            manager.addRoommate(new Roommate("Kris", BigDecimal.ZERO));
+            manager.addRoommate(new Roommate("David", BigDecimal.ZERO));
+            return null;
+        });
+    }
+
+    private static long addGroceries(HouseholdRegistry registry, String household) throws IOException {
+        return registry.withHousehold(household, manager -> manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(10.00),
+                manager.getRoommateByName("Kris"), List.of(manager.getRoommateByName("Kris"), manager.getRoommateByName("David")), Instant.parse("2026-03-02T00:00:00Z"))));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        Path root = folder.getRoot().toPath();
+        try (HouseholdRegistry registry = new HouseholdRegistry(root, 2)){
+            addRoommates(registry, "first");
+            addRoommates(registry, "second");
+            addGroceries(registry, "first");
+            addRoommates(registry, "third");
+
+            assertEquals(2, registry.size());
+            assertTrue(registry.isLoaded("first"));
+            assertFalse(registry.isLoaded("second"));
+            assertTrue(registry.isLoaded("third"));
+
+            // An evicted household is loaded again from its journal
+            addGroceries(registry, "second");
+            long balance = registry.withHousehold("second", manager -> manager.getRoommateByName("Kris").getBalanceCents());
+            assertEquals(500, balance);
+            assertFalse(registry.isLoaded("first"));
+            assertEquals(500L, (long) registry.withHousehold("first", manager -> manager.getRoommateByName("Kris").getBalanceCents()));
+        }
+    }
+
+    @Test
+    public void testInvalidName(){
+        HouseholdRegistry registry = new HouseholdRegistry(folder.getRoot().toPath());
+        assertThrows(IllegalArgumentException.class, () -> registry.withHousehold("../escape", manager -> null));
+        assertThrows(IllegalArgumentException.class, () -> registry.withHousehold("", manager -> null));
+    }
+
+    @Test
+    public void testOneWriterPerHousehold() throws Exception {
+        try (HouseholdRegistry registry = new HouseholdRegistry(folder.getRoot().toPath(), 1)){
+            List<String> households = List.of("a", "b", "c");
+            for (String household : households){
+                addRoommates(registry, household);
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Long>> futures = new ArrayList<>();
+                for (int i = 0; i < 300; i++){
+                    String household = households.get(i % households.size());
+                    futures.add(pool.submit(() -> addGroceries(registry, household)));
+                }
+                for (Future<Long> future : futures){
+                    future.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            for (String household : households){
+                int count = registry.withHousehold(household, manager -> manager.getExpenseCount());
+                long balance = registry.withHousehold(household, manager -> manager.getRoommateByName("David").getBalanceCents());
+                assertEquals(100, count);
+                assertEquals(-50000, balance);
+            }
+        }
+    }
+}
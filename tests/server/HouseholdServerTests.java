@@ -0,0 +1,91 @@
+package server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.Assert.*;
+
+public class HouseholdServerTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HouseholdRegistry registry;
+    private HouseholdServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        registry = new HouseholdRegistry(folder.getRoot().toPath(), 4);
+        server = new HouseholdServer(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        registry.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testExpensesAndBalances() throws Exception {
+        assertEquals(201, send("POST", "/households/home/roommates", "{\"name\": \"Kris\"}").statusCode());
+        assertEquals(201, send("POST", "/households/home/roommates", "{\"name\": \"David\"}").statusCode());
+
+        HttpResponse<String> added = send("POST", "/households/home/expenses",
+                "{\"name\": \"Groceries\", \"cost\": 30.00, \"payer\": \"Kris\", \"participants\": [\"Kris\", \"David\"], \"timestamp\": \"2026-03-02T18:00:00Z\"}");
+        assertEquals(201, added.statusCode());
+        assertEquals("{\"id\":0}", added.body());
+
+        HttpResponse<String> balances = send("GET", "/households/home/balances", null);
+        assertEquals(200, balances.statusCode());
+        assertTrue(balances.body().contains("\"Kris\":15.00"));
+        assertTrue(balances.body().contains("\"David\":-15.00"));
+        assertEquals("[{\"from\":\"David\",\"to\":\"Kris\",\"amount\":15.00}]", send("GET", "/households/home/settlement", null).body());
+
+        assertEquals(200, send("DELETE", "/households/home/expenses/0", null).statusCode());
+        assertEquals("[]", send("GET", "/households/home/settlement", null).body());
+        // Other households are separate
+        assertEquals("{}", send("GET", "/households/other/balances", null).body());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        send("POST", "/households/home/roommates", "{\"name\": \"Kris\"}");
+
+        HttpResponse<String> unknown = send("POST", "/households/home/expenses",
+                "{\"name\": \"Gas\", \"cost\": 10, \"payer\": \"Alex\", \"participants\": [\"Kris\"]}");
+        assertEquals(400, unknown.statusCode());
+        assertEquals("{\"error\":\"No roommate named Alex\"}", unknown.body());
+
+        HttpResponse<String> free = send("POST", "/households/home/expenses",
+                "{\"name\": \"Gas\", \"cost\": 0, \"payer\": \"Kris\", \"participants\": [\"Kris\"]}");
+        assertEquals(400, free.statusCode());
+        assertEquals("{\"error\":\"Cost must be above $0.00\"}", free.body());
+
+        assertEquals(400, send("POST", "/households/home/roommates", "{\"name\": ").statusCode());
+        assertEquals(400, send("DELETE", "/households/home/expenses/7", null).statusCode());
+        assertEquals(405, send("PUT", "/households/home/balances", null).statusCode());
+        assertEquals(404, send("GET", "/households/home", null).statusCode());
+
+        HttpResponse<String> large = send("POST", "/households/home/roommates", "{\"name\": \"" + "K".repeat(HouseholdServer.MAX_BODY_BYTES) + "\"}");
+        assertEquals(413, large.statusCode());
+        assertEquals(1, registry.withHousehold("home", manager -> manager.getRoommates().size()).intValue());
+    }
+}
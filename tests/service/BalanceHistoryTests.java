@@ -0,0 +1,105 @@
+package service;
+
+import model.Expense;
+import model.Money;
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BalanceHistoryTests {
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    public void testBalancesAsOf(){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.valueOf(1.00));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, List.of(roommateKris, roommateDavid), START.plusSeconds(60)));
+        manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(4.00), roommateDavid, List.of(roommateKris), START.plusSeconds(120)));
+
+        Map<String, BigDecimal> before = manager.balancesAsOf(START);
+        assertEquals(0, BigDecimal.valueOf(1.00).compareTo(before.get("Kris")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(before.get("David")));
+
+        Map<String, BigDecimal> between = manager.balancesAsOf(START.plusSeconds(60));
+        assertEquals(0, BigDecimal.valueOf(11.00).compareTo(between.get("Kris")));
+        assertEquals(0, BigDecimal.valueOf(-10.00).compareTo(between.get("David")));
+
+        Map<String, BigDecimal> after = manager.balancesAsOf(START.plusSeconds(3600));
+        assertEquals(0, roommateKris.getBalance().compareTo(after.get("Kris")));
+        assertEquals(0, roommateDavid.getBalance().compareTo(after.get("David")));
+    }
+
+    @Test
+    public void testMatchesFullReplayAcrossCheckpoints(){
+        Random random = new Random(11);
+        List<Roommate> roommates = new ArrayList<>();
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        for (int i = 0; i < 6; i++){
+            roommates.add(new Roommate("Roommate " + i, BigDecimal.ZERO));
+            manager.addRoommate(roommates.get(i));
+        }
+
+        List<Expense> added = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < BalanceHistory.MIN_INTERVAL * 3; i++){
+            // Mostly in order, with every 50th expense paid a while before the ones added just before it
+            long second = i % 50 == 0 ? Math.max(0, i - random.nextInt(5000)) : i;
+            List<Roommate> participants = roommates.subList(0, 1 + random.nextInt(roommates.size()));
+            Expense expense = new Expense("Expense", Money.toBigDecimal(1 + random.nextInt(10_000)), roommates.get(random.nextInt(roommates.size())), participants, START.plusSeconds(second));
+            added.add(expense);
+            if (i % 7 == 0){
+                ids.add(manager.addExpenses(List.of(expense)));
+            } else {
+                ids.add(manager.addExpense(expense));
+            }
+        }
+
+        // Remove some expenses from before and after the checkpoints
+        for (int i = 0; i < 40; i++){
+            int position = random.nextInt(added.size());
+            manager.removeExpense(ids.remove(position));
+            added.remove(position);
+        }
+
+        for (int i = 0; i < 50; i++){
+            Instant moment = START.plusSeconds(random.nextInt(BalanceHistory.MIN_INTERVAL * 3 + 100) - 50);
+            Map<String, BigDecimal> balances = manager.balancesAsOf(moment);
+            for (Roommate roommate : roommates){
+                assertEquals(replay(added, roommate, moment), Money.toCents(balances.get(roommate.getName())));
+            }
+        }
+    }
+
+    /**
+     * @return The balance of a roommate after every expense paid at or before the moment, worked out from scratch
+     */
+    private static long replay(List<Expense> expenses, Roommate roommate, Instant moment){
+        long balance = 0;
+        for (Expense expense : expenses){
+            if (expense.getTimestamp().isAfter(moment)){
+                continue;
+            }
+            if (expense.getPayer() == roommate){
+                balance += expense.getCostCents();
+            }
+            for (int i = 0; i < expense.getParticipantCount(); i++){
+                if (expense.getParticipant(i) == roommate){
+                    balance -= expense.getShareCents(i);
+                }
+            }
+        }
+        return balance;
+    }
+}
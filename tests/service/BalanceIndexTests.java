@@ -0,0 +1,81 @@
+package service;
+
+import model.Money;
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BalanceIndexTests {
+    @Test
+    public void testDebtorsAndCreditors(){
+        BalanceIndex index = new BalanceIndex();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.valueOf(20.00));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.valueOf(-5.00));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.valueOf(-15.00));
+        Roommate roommateZachary = new Roommate("Zachary", BigDecimal.valueOf(0.00));
+        index.add(0, roommateKris);
+        index.add(1, roommateDavid);
+        index.add(2, roommateNick);
+        index.add(3, roommateZachary);
+
+        assertEquals(List.of(roommateNick, roommateDavid), index.debtors(Integer.MAX_VALUE));
+        assertEquals(List.of(roommateNick), index.debtors(1));
+        assertEquals(List.of(roommateKris), index.creditors(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testBalanceCrossesZero(){
+        BalanceIndex index = new BalanceIndex();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.valueOf(20.00));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.valueOf(-5.00));
+        index.add(0, roommateKris);
+        index.add(1, roommateDavid);
+
+        roommateKris.updateBalanceCents(-3000);
+        index.update(0);
+        roommateDavid.updateBalanceCents(3000);
+        index.update(1);
+
+        assertEquals(List.of(roommateKris), index.debtors(Integer.MAX_VALUE));
+        assertEquals(List.of(roommateDavid), index.creditors(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testRandomUpdatesStaySorted(){
+        Random random = new Random(7);
+        BalanceIndex index = new BalanceIndex();
+        List<Roommate> roommates = new ArrayList<>();
+        for (int i = 0; i < 1000; i++){
+            Roommate roommate = new Roommate("Roommate " + i, Money.toBigDecimal(random.nextInt(2001) - 1000));
+            index.add(roommates.size(), roommate);
+            roommates.add(roommate);
+        }
+
+        for (int i = 0; i < 10_000; i++){
+            int id = random.nextInt(roommates.size());
+            roommates.get(id).updateBalanceCents(random.nextInt(2001) - 1000);
+            index.update(id);
+        }
+
+        List<Roommate> debtors = index.debtors(Integer.MAX_VALUE);
+        List<Roommate> expected = new ArrayList<>();
+        for (Roommate roommate : roommates){
+            if (roommate.getBalanceCents() < 0){
+                expected.add(roommate);
+            }
+        }
+        expected.sort(Comparator.comparingLong(Roommate::getBalanceCents));
+        assertEquals(expected.size(), debtors.size());
+        for (int i = 0; i < debtors.size(); i++){
+            assertEquals(expected.get(i).getBalanceCents(), debtors.get(i).getBalanceCents());
+        }
+        assertEquals(1000, index.size());
+    }
+}
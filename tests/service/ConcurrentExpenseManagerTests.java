@@ -0,0 +1,154 @@
+package service;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentExpenseManagerTests {
+    private ConcurrentExpenseManager manager;
+    private List<Roommate> roommates;
+
+    @Before
+    public void setUp(){
+        manager = new ConcurrentExpenseManager();
+        roommates = new ArrayList<>();
+        for (int i = 0; i < 16; i++){
+            Roommate roommate = new Roommate("Roommate " + i, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+            roommates.add(roommate);
+            manager.addRoommate(roommate);
+        }
+    }
+
+    private static long sumOfBalances(LedgerSnapshot snapshot){
+        long sum = 0;
+        for (int i = 0; i < snapshot.getRoommateCount(); i++){
+            sum += snapshot.getBalanceCents(i);
+        }
+        return sum;
+    }
+
+    @Test
+    public void testAddExpense(){
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommates.get(0), roommates.subList(0, 2)));
+        assertEquals(0, BigDecimal.valueOf(10.00).compareTo(manager.getBalance("Roommate 0")));
+        assertEquals(0, BigDecimal.valueOf(-10.00).compareTo(manager.getBalance("Roommate 1")));
+        assertEquals(0, BigDecimal.valueOf(20.00).compareTo(manager.getTotalExpenses()));
+        assertEquals(1, manager.getExpenseCount());
+        assertNull(manager.getBalance("Nick"));
+    }
+
+    @Test
+    public void testUnknownRoommate(){
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommates.get(0), List.of(roommates.get(0), roommateNick)));
+        });
+        assertEquals(0, BigDecimal.ZERO.compareTo(manager.getBalance("Roommate 0")));
+        assertThrows(IllegalArgumentException.class, () -> manager.addRoommate(roommates.get(0)));
+    }
+
+    @Test
+    public void testOverflowLeavesNoTrace(){
+        Roommate roommateBroke = new Roommate("Broke", BigDecimal.valueOf(Long.MIN_VALUE, 2));
+        manager.addRoommate(roommateBroke);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommates.get(0), roommates.subList(0, 2)));
+
+        // The payer and the first participant are changed before the last participant's balance overflows
+        assertThrows(ArithmeticException.class, () -> {
+            manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(4.00), roommates.get(0), List.of(roommates.get(1), roommateBroke)));
+        });
+        assertEquals(0, BigDecimal.valueOf(10.00).compareTo(manager.getBalance("Roommate 0")));
+        assertEquals(0, BigDecimal.valueOf(-10.00).compareTo(manager.getBalance("Roommate 1")));
+        assertEquals(0, BigDecimal.valueOf(Long.MIN_VALUE, 2).compareTo(manager.getBalance("Broke")));
+        assertEquals(0, BigDecimal.valueOf(20.00).compareTo(manager.getTotalExpenses()));
+        assertEquals(1, manager.getExpenseCount());
+        LedgerSnapshot snapshot = manager.snapshot();
+        long paid = 0;
+        for (int i = 0; i < snapshot.getRoommateCount(); i++){
+            paid += snapshot.getTotalPaidCents(i);
+        }
+        assertEquals(2000, paid);
+    }
+
+    @Test
+    public void testConservationOfMoneyUnderContention() throws Exception {
+        int threads = 8;
+        int expensesPerThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++){
+            long seed = t;
+            writers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < expensesPerThread; i++){
+                    int count = 1 + random.nextInt(4);
+                    List<Roommate> participants = new ArrayList<>();
+                    for (int p = 0; p < count; p++){
+                        participants.add(roommates.get(random.nextInt(roommates.size())));
+                    }
+                    // Costs are whole multiples of the participant count, so every expense moves exactly $0.00 in total
+                    BigDecimal cost = BigDecimal.valueOf(count * (1 + random.nextInt(1000)), 2);
+                    manager.addExpense(new Expense("Expense", cost, roommates.get(random.nextInt(roommates.size())), participants));
+                }
+                return null;
+            }));
+        }
+
+        Future<Integer> reader = pool.submit(() -> {
+            int snapshots = 0;
+            start.await();
+            while (writing.get()){
+                LedgerSnapshot snapshot = manager.snapshot();
+                assertEquals(0, sumOfBalances(snapshot));
+                long paid = 0;
+                long shares = 0;
+                for (int i = 0; i < snapshot.getRoommateCount(); i++){
+                    paid += snapshot.getTotalPaidCents(i);
+                    shares += snapshot.getTotalShareCents(i);
+                }
+                assertEquals(snapshot.getTotalExpensesCents(), paid);
+                assertEquals(snapshot.getTotalExpensesCents(), shares);
+                snapshots++;
+            }
+            return snapshots;
+        });
+
+        start.countDown();
+        for (Future<?> writer : writers){
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        pool.shutdown();
+
+        LedgerSnapshot snapshot = manager.snapshot();
+        assertEquals(0, sumOfBalances(snapshot));
+        assertEquals((long) threads * expensesPerThread, manager.getExpenseCount());
+        assertEquals(threads * expensesPerThread, manager.getExpenses().size());
+
+        long total = 0;
+        for (Expense expense : manager.getExpenses()){
+            total += expense.getCostCents();
+        }
+        assertEquals(total, snapshot.getTotalExpensesCents());
+    }
+}
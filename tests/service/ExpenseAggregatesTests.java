@@ -0,0 +1,107 @@
+package service;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExpenseAggregatesTests {
+    private ExpenseManager manager;
+    private Roommate roommateKris;
+    private Roommate roommateDavid;
+    private List<Roommate> participants;
+
+    @Before
+    public void setUp(){
+        manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+
+        participants = new ArrayList<>();
+        participants.add(roommateKris);
+        participants.add(roommateDavid);
+
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, participants, Instant.parse("2026-03-01T10:00:00Z")));
+        manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(10.00), roommateDavid, participants, Instant.parse("2026-03-01T18:00:00Z")));
+        manager.addExpense(new Expense("Rent", BigDecimal.valueOf(1000.00), roommateKris, participants, Instant.parse("2026-03-31T23:59:59Z")));
+        manager.addExpense(new Expense("Internet", BigDecimal.valueOf(60.00), roommateDavid, participants, Instant.parse("2026-04-02T09:00:00Z")));
+    }
+
+    @Test
+    public void testTotalsPerRoommate(){
+        ExpenseAggregates aggregates = manager.getAggregates();
+        assertEquals(0, BigDecimal.valueOf(1020.00).compareTo(aggregates.getTotalPaidBy("Kris")));
+        assertEquals(0, BigDecimal.valueOf(70.00).compareTo(aggregates.getTotalPaidBy("David")));
+        assertEquals(0, BigDecimal.valueOf(545.00).compareTo(aggregates.getTotalShareOf("David")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(aggregates.getTotalPaidBy("Nick")));
+    }
+
+    @Test
+    public void testTotalsPerDayAndMonth(){
+        ExpenseAggregates aggregates = manager.getAggregates();
+        assertEquals(0, BigDecimal.valueOf(1090.00).compareTo(aggregates.getGrandTotal()));
+        assertEquals(0, BigDecimal.valueOf(30.00).compareTo(aggregates.getTotalForDay(LocalDate.of(2026, 3, 1))));
+        assertEquals(0, BigDecimal.ZERO.compareTo(aggregates.getTotalForDay(LocalDate.of(2026, 3, 2))));
+        assertEquals(0, BigDecimal.valueOf(1030.00).compareTo(aggregates.getTotalForMonth(YearMonth.of(2026, 3))));
+        assertEquals(0, BigDecimal.valueOf(60.00).compareTo(aggregates.getTotalForMonth(YearMonth.of(2026, 4))));
+        assertEquals(0, BigDecimal.valueOf(1060.00).compareTo(aggregates.getTotalBetween(LocalDate.of(2026, 3, 2), LocalDate.of(2026, 4, 30))));
+    }
+
+    @Test
+    public void testSnapshotKeepsTotals(){
+        ExpenseAggregates aggregates = ExpenseManager.fromSnapshot(manager.snapshot()).getAggregates();
+        assertEquals(0, BigDecimal.valueOf(1090.00).compareTo(aggregates.getGrandTotal()));
+        assertEquals(0, BigDecimal.valueOf(1020.00).compareTo(aggregates.getTotalPaidBy("Kris")));
+        assertEquals(0, BigDecimal.valueOf(545.00).compareTo(aggregates.getTotalShareOf("Kris")));
+        assertEquals(0, BigDecimal.valueOf(1030.00).compareTo(aggregates.getTotalForMonth(YearMonth.of(2026, 3))));
+        assertEquals(0, BigDecimal.valueOf(30.00).compareTo(aggregates.getTotalForDay(LocalDate.of(2026, 3, 1))));
+    }
+
+    @Test
+    public void testTotalBetweenWithDaysOutOfOrder(){
+        // Days are added in a scrambled order, interleaved with queries, and compared with summing day by day
+        long[] amounts = new long[60];
+        for (int i = 0; i < 300; i++){
+            int day = (i * 37) % 60;
+            if (i % 7 == 3){
+                day = 59 - day;
+            }
+            amounts[day] += 100 + i;
+            manager.addExpense(new Expense("Day " + day, BigDecimal.valueOf(100 + i, 2), roommateKris, participants, Instant.parse("2027-01-01T12:00:00Z").plusSeconds(day * 86_400L)));
+            if (i % 25 == 0){
+                assertEquals(0, BigDecimal.valueOf(sum(amounts, 10, 40), 2).compareTo(manager.getAggregates().getTotalBetween(LocalDate.of(2027, 1, 11), LocalDate.of(2027, 2, 10))));
+            }
+        }
+        ExpenseAggregates aggregates = manager.getAggregates();
+        for (int from = 0; from < 60; from += 7){
+            for (int to = from; to < 60; to += 11){
+                assertEquals(0, BigDecimal.valueOf(sum(amounts, from, to), 2).compareTo(aggregates.getTotalBetween(LocalDate.of(2027, 1, 1).plusDays(from), LocalDate.of(2027, 1, 1).plusDays(to))));
+            }
+        }
+        assertEquals(0, BigDecimal.valueOf(1090.00).compareTo(aggregates.getTotalBetween(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 12, 31))));
+        assertThrows(IllegalArgumentException.class, () -> {
+            aggregates.getTotalBetween(LocalDate.of(2026, 4, 1), LocalDate.of(2026, 3, 1));
+        });
+    }
+
+    private static long sum(long[] amounts, int from, int to){
+        long sum = 0;
+        for (int i = from; i <= to; i++){
+            sum += amounts[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,175 @@
+package service;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExpenseIndexTests {
+    private static final String[] NAMES = {"Groceries", "groceries", "Gas", "Rent", "Restaurant", "Dishes"};
+
+    @Test
+    public void testCombinedQuery(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO);
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateNick);
+        List<Roommate> both = List.of(roommateKris, roommateNick);
+
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(40.00), roommateNick, both, Instant.parse("2026-03-02T10:00:00Z")));
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, both, Instant.parse("2026-03-05T10:00:00Z")));
+        manager.addExpense(new Expense("Gas", BigDecimal.valueOf(20.00), roommateNick, both, Instant.parse("2026-03-07T10:00:00Z")));
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(50.00), roommateNick, both, Instant.parse("2026-04-01T00:00:00Z")));
+        long late = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(10.00), roommateNick, both, Instant.parse("2026-03-31T23:59:59Z")));
+
+        List<Expense> found = manager.search(new ExpenseQuery().named("groc").paidBy(roommateNick).during(YearMonth.of(2026, 3)));
+        assertEquals(2, found.size());
+        assertEquals(4000, found.get(0).getCostCents());
+        assertEquals(1000, found.get(1).getCostCents());
+
+        manager.removeExpense(late);
+        assertEquals(1, manager.search(new ExpenseQuery().named("groc").paidBy(roommateNick).during(YearMonth.of(2026, 3))).size());
+        assertEquals(4, manager.search(new ExpenseQuery().involving(roommateKris)).size());
+        assertEquals(0, manager.search(new ExpenseQuery().named("Rent")).size());
+        assertThrows(IllegalArgumentException.class, () -> manager.search(new ExpenseQuery().paidBy(new Roommate("Alex", BigDecimal.ZERO))));
+    }
+
+    @Test
+    public void testMatchesFullScan(){
+        Random random = new Random(7);
+        List<Roommate> roommates = new ArrayList<>();
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        for (int i = 0; i < 6; i++){
+            roommates.add(new Roommate("Roommate " + i, BigDecimal.ZERO));
+            manager.addRoommate(roommates.get(i));
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++){
+            List<Roommate> participants = new ArrayList<>();
+            for (Roommate roommate : roommates){
+                if (random.nextInt(3) == 0){
+                    participants.add(roommate);
+                }
+            }
+            if (participants.isEmpty()){
+                participants.add(roommates.get(0));
+            }
+            // Mostly in order, sometimes paid earlier than the expense before it
+            Instant timestamp = Instant.ofEpochSecond(1_700_000_000L + i * 3_600L - (random.nextInt(10) == 0 ? random.nextInt(200_000) : 0));
+            ids.add(manager.addExpense(new Expense(NAMES[random.nextInt(NAMES.length)], BigDecimal.valueOf(1 + random.nextInt(100)), roommates.get(random.nextInt(roommates.size())), participants, timestamp)));
+        }
+        for (int i = 0; i < 100; i++){
+            long id = ids.get(random.nextInt(ids.size()));
+            try {
+                manager.removeExpense(id);
+            } catch (IllegalArgumentException e){
+                // Already removed
+            }
+        }
+
+        for (int q = 0; q < 300; q++){
+            ExpenseQuery query = new ExpenseQuery();
+            if (random.nextBoolean()){
+                query = query.named(new String[]{"g", "gro", "Re", "rest", "x", "dishes"}[random.nextInt(6)]);
+            }
+            if (random.nextBoolean()){
+                query = query.paidBy(roommates.get(random.nextInt(roommates.size())));
+            }
+            if (random.nextBoolean()){
+                query = query.involving(roommates.get(random.nextInt(roommates.size())));
+            }
+            if (random.nextBoolean()){
+                Instant from = Instant.ofEpochSecond(1_700_000_000L + random.nextInt(2000 * 3600));
+                query = query.between(from, from.plusSeconds(random.nextInt(500 * 3600)));
+            }
+
+            List<Expense> expected = new ArrayList<>();
+            for (Expense expense : manager.getExpenses()){
+                if (matches(query, expense)){
+                    expected.add(expense);
+                }
+            }
+            List<Expense> found = manager.search(query);
+            assertEquals(expected.size(), found.size());
+            for (int i = 0; i < expected.size(); i++){
+                assertEquals(expected.get(i).getTimestamp(), found.get(i).getTimestamp());
+                assertEquals(expected.get(i).getExpenseName(), found.get(i).getExpenseName());
+            }
+        }
+    }
+
+    @Test
+    public void testExpensesOutOfOrder(){
+        Random random = new Random(11);
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+
+        for (int i = 0; i < 3000; i++){
+            // Added newest first, with a few paid at the same moment
+            Instant timestamp = Instant.ofEpochSecond(1_700_000_000L + (3000 - i) / 2 * 60L);
+            manager.addExpense(new Expense(NAMES[i % NAMES.length], BigDecimal.valueOf(1 + i % 50), roommateKris, List.of(roommateKris), timestamp));
+            if (i % 500 == 499){
+                for (int q = 0; q < 20; q++){
+                    Instant from = Instant.ofEpochSecond(1_700_000_000L + random.nextInt(1600 * 60));
+                    ExpenseQuery query = new ExpenseQuery().between(from, from.plusSeconds(random.nextInt(300 * 60)));
+                    if (random.nextBoolean()){
+                        query = query.named("g");
+                    }
+
+                    List<Expense> expected = new ArrayList<>();
+                    for (Expense expense : manager.getExpenses()){
+                        if (matches(query, expense)){
+                            expected.add(expense);
+                        }
+                    }
+                    List<Expense> found = manager.search(query);
+                    assertEquals(expected.size(), found.size());
+                    for (int j = 0; j < expected.size(); j++){
+                        assertEquals(expected.get(j).getTimestamp(), found.get(j).getTimestamp());
+                        assertEquals(expected.get(j).getCostCents(), found.get(j).getCostCents());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean matches(ExpenseQuery query, Expense expense){
+        if (query.getNamePrefix() != null && !expense.getExpenseName().toLowerCase().startsWith(query.getNamePrefix().toLowerCase())){
+            return false;
+        }
+        if (query.getPayer() != null && expense.getPayer() != query.getPayer()){
+            return false;
+        }
+        for (Roommate participant : query.getParticipants()){
+            if (!expense.getParticipants().contains(participant)){
+                return false;
+            }
+        }
+        if (query.getFrom() != null && expense.getTimestamp().isBefore(query.getFrom())){
+            return false;
+        }
+        return query.getTo() == null || expense.getTimestamp().isBefore(query.getTo());
+    }
+
+    @Test
+    public void testSeek(){
+        int[] indexes = {1, 3, 5, 7, 9, 11, 13, 15, 17};
+        assertEquals(0, ExpenseIndex.seek(indexes, indexes.length, 0, 0));
+        assertEquals(3, ExpenseIndex.seek(indexes, indexes.length, 0, 7));
+        assertEquals(4, ExpenseIndex.seek(indexes, indexes.length, 2, 8));
+        assertEquals(8, ExpenseIndex.seek(indexes, indexes.length, 5, 17));
+        assertEquals(9, ExpenseIndex.seek(indexes, indexes.length, 0, 18));
+    }
+}
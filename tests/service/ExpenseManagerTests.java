@@ -1,15 +1,21 @@
 package service;
 
 import model.Expense;
+import model.RecurringExpense;
 import model.Roommate;
+import model.Split;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -77,11 +83,9 @@ public class ExpenseManagerTests {
 
         assertEquals(0, BigDecimal.valueOf(29.99).compareTo(expense.getPayer().getBalance()));
 
-        List<Roommate> participantsWithoutPayer = expense.getParticipants();
-
-        for (Roommate roommate : participantsWithoutPayer){
-            assertEquals(0, BigDecimal.valueOf(-15.00).setScale(2, RoundingMode.HALF_UP).compareTo(roommate.getBalance()));
-        }
+        // The shares add up to exactly the cost, the cent left over goes to the first participant listed
+        assertEquals(0, BigDecimal.valueOf(-15.00).setScale(2, RoundingMode.HALF_UP).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-14.99).setScale(2, RoundingMode.HALF_UP).compareTo(roommateNick.getBalance()));
     }
 
     @Test
@@ -103,13 +107,9 @@ public class ExpenseManagerTests {
 
         assertEquals(0, BigDecimal.valueOf(19.99).compareTo(expense.getPayer().getBalance()));
 
-        HashMap<String, Roommate> participantsWithoutPayer = manager.getRoommates();
-        participantsWithoutPayer.remove(roommateKris.getName());
-        assert (!participantsWithoutPayer.containsKey(roommateKris.getName()));
-
-        for (Roommate roommate : participantsWithoutPayer.values()){
-            assertEquals(0, BigDecimal.valueOf(-10.00).setScale(2, RoundingMode.HALF_UP).compareTo(roommate.getBalance()));
-        }
+        // Kris and David each pay $10.00 and Nick pays $9.99, so the balances add up to $0.00
+        assertEquals(0, BigDecimal.valueOf(-10.00).setScale(2, RoundingMode.HALF_UP).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-9.99).setScale(2, RoundingMode.HALF_UP).compareTo(roommateNick.getBalance()));
     }
 
     @Test
@@ -170,4 +170,358 @@ public class ExpenseManagerTests {
 
         assertEquals(0, BigDecimal.valueOf(52.98).compareTo(manager.getTotalExpenses()));
     }
+
+    @Test
+    public void testExpenseWithRoommateNotAdded(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+
+        ArrayList<Roommate> participants = new ArrayList<>();
+        participants.add(roommateKris);
+        participants.add(roommateDavid);
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, participants));
+        });
+        assertEquals(0, manager.getExpenses().size());
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateKris.getBalance()));
+    }
+
+    @Test
+    public void testRoommatesWhoOweAndAreOwedMoney(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+
+        ArrayList<Roommate> participants = new ArrayList<>();
+        participants.add(roommateDavid);
+        participants.add(roommateNick);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, participants));
+        participants.remove(roommateNick);
+        manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(10.00), roommateNick, participants));
+
+        assertEquals(List.of(roommateDavid, roommateNick), manager.getRoommatesWhoOweMoney());
+        assertEquals(List.of(roommateDavid), manager.getBiggestDebtors(1));
+        assertEquals(List.of(roommateKris), manager.getRoommatesWhoAreOwedMoney());
+        assertEquals(List.of(roommateKris), manager.getBiggestCreditors(5));
+    }
+
+    @Test
+    public void testAddExpenses(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+
+        ArrayList<Roommate> participants = new ArrayList<>();
+        participants.add(roommateKris);
+        participants.add(roommateDavid);
+
+        List<Expense> batch = new ArrayList<>();
+        batch.add(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, participants));
+        batch.add(new Expense("Dishes", BigDecimal.valueOf(10.00), roommateDavid, participants));
+        batch.add(new Expense("Clothes", BigDecimal.valueOf(12.00), roommateNick, List.of(roommateNick)));
+        manager.addExpenses(batch);
+
+        assertEquals(3, manager.getExpenses().size());
+        assertEquals(0, BigDecimal.valueOf(42.00).compareTo(manager.getTotalExpenses()));
+        assertEquals(0, BigDecimal.valueOf(5.00).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-5.00).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateNick.getBalance()));
+        assertEquals(List.of(roommateDavid), manager.getRoommatesWhoOweMoney());
+    }
+
+    @Test
+    public void testAddExpensesIsAllOrNothing(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+
+        List<Expense> batch = new ArrayList<>();
+        batch.add(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, List.of(roommateKris)));
+        batch.add(new Expense("Dishes", BigDecimal.valueOf(10.00), roommateKris, List.of(roommateKris, roommateDavid)));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.addExpenses(batch);
+        });
+        assertEquals(0, manager.getExpenses().size());
+        assertEquals(0, BigDecimal.ZERO.compareTo(manager.getTotalExpenses()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateKris.getBalance()));
+    }
+
+    @Test
+    public void testViewsFollowChanges(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Map<String, Roommate> roommates = manager.getRoommates();
+        List<Expense> expenses = manager.getExpenses();
+
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, List.of(roommateKris, roommateDavid)));
+
+        assertEquals(2, roommates.size());
+        assertSame(roommateDavid, roommates.get("David"));
+        assertEquals(1, expenses.size());
+        assertEquals("Groceries", expenses.get(0).getExpenseName());
+        assertThrows(UnsupportedOperationException.class, () -> {
+            roommates.remove("Kris");
+        });
+        assertThrows(UnsupportedOperationException.class, () -> {
+            expenses.clear();
+        });
+    }
+
+    @Test
+    public void testExpensePages(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        for (int i = 1; i <= 10; i++){
+            manager.addExpense(new Expense("Expense " + i, BigDecimal.valueOf(i), roommateKris, List.of(roommateKris)));
+        }
+
+        ExpenseCursor cursor = manager.getExpenses(4, 3);
+        // Expenses added after the cursor was created aren't part of its page
+        manager.addExpense(new Expense("Expense 11", BigDecimal.valueOf(11), roommateKris, List.of(roommateKris)));
+        List<String> names = new ArrayList<>();
+        while (cursor.next()){
+            assertSame(roommateKris, cursor.getPayer());
+            assertSame(roommateKris, cursor.getParticipant(0));
+            names.add(cursor.getName());
+        }
+        assertEquals(List.of("Expense 5", "Expense 6", "Expense 7"), names);
+
+        cursor = manager.getExpenses(9, 100);
+        assertTrue(cursor.next());
+        assertEquals(1000, cursor.getCostCents());
+        assertTrue(cursor.next());
+        assertEquals("Expense 11", cursor.getName());
+        assertFalse(cursor.next());
+        assertFalse(manager.getExpenses(50, 10).next());
+        assertEquals(11, manager.getExpenseCount());
+    }
+
+    @Test
+    public void testRemoveExpense(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+
+        long groceries = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(10.00), roommateKris, List.of(roommateKris, roommateDavid, roommateNick)));
+        long dishes = manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(6.00), roommateDavid, List.of(roommateKris, roommateDavid)));
+        manager.removeExpense(groceries);
+
+        // The $3.34, $3.33 and $3.33 shares of Groceries are given back exactly
+        assertEquals(0, BigDecimal.valueOf(-3.00).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(3.00).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateNick.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(6.00).compareTo(manager.getTotalExpenses()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(manager.getAggregates().getTotalPaidBy("Kris")));
+        assertEquals(0, BigDecimal.valueOf(3.00).compareTo(manager.getAggregates().getTotalShareOf("Kris")));
+        assertEquals(List.of(roommateKris), manager.getRoommatesWhoOweMoney());
+        assertEquals(1, manager.getExpenseCount());
+        assertEquals(1, manager.getExpenses().size());
+        assertEquals("Dishes", manager.getExpenses().get(0).getExpenseName());
+        assertEquals("Dishes", manager.getExpense(dishes).getExpenseName());
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.removeExpense(groceries);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.removeExpense(42);
+        });
+    }
+
+    @Test
+    public void testUpdateExpense(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+
+        long typo = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(200.00), roommateKris, List.of(roommateKris, roommateDavid)));
+        long fixed = manager.updateExpense(typo, new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, List.of(roommateKris, roommateDavid)));
+
+        assertNotEquals(typo, fixed);
+        assertEquals(0, BigDecimal.valueOf(10.00).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-10.00).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(20.00).compareTo(manager.getTotalExpenses()));
+        assertEquals(1, manager.getExpenseCount());
+
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO);
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.updateExpense(fixed, new Expense("Groceries", BigDecimal.valueOf(20.00), roommateNick, List.of(roommateKris)));
+        });
+        assertEquals(0, BigDecimal.valueOf(10.00).compareTo(roommateKris.getBalance()));
+        assertEquals(1, manager.getExpenseCount());
+    }
+
+    @Test
+    public void testWeightedSplit(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+
+        // David has the double room
+        long rent = manager.addExpense(new Expense("Rent", BigDecimal.valueOf(1000.00), roommateKris, List.of(roommateKris, roommateDavid, roommateNick), Split.weighted(1, 2, 1), Instant.now()));
+        assertEquals(0, BigDecimal.valueOf(750.00).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-500.00).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-250.00).compareTo(roommateNick.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(500.00).compareTo(manager.getAggregates().getTotalShareOf("David")));
+        assertEquals(Split.weighted(1, 2, 1), manager.getExpense(rent).getSplit());
+
+        manager.addExpense(new Expense("Internet", BigDecimal.valueOf(0.10), roommateNick, List.of(roommateKris, roommateDavid, roommateNick), Split.percentage(BigDecimal.valueOf(33.33), BigDecimal.valueOf(33.33), BigDecimal.valueOf(33.34)), Instant.now()));
+        manager.removeExpense(rent);
+        assertEquals(0, BigDecimal.valueOf(-0.03).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-0.03).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(0.06).compareTo(roommateNick.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(0.03).compareTo(manager.getAggregates().getTotalShareOf("Kris")));
+    }
+
+    @Test
+    public void testRecurringExpenses(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+
+        int rent = manager.addRecurringExpense(new RecurringExpense("Rent", BigDecimal.valueOf(1000.00), roommateKris, List.of(roommateKris, roommateDavid, roommateNick), Split.equal(), Instant.parse("2026-01-01T00:00:00Z"), Period.ofMonths(1)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateKris.getBalance()));
+
+        // A year of rent is folded in at once, as 12 occurrences of $333.34, $333.33 and $333.33
+        assertEquals(12, manager.accrueRecurringExpenses(Instant.parse("2026-12-15T00:00:00Z")));
+        assertEquals(0, BigDecimal.valueOf(7999.92).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-3999.96).compareTo(roommateDavid.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(12000.00).compareTo(manager.getTotalExpenses()));
+        assertEquals(0, BigDecimal.valueOf(1000.00).compareTo(manager.getAggregates().getTotalForDay(LocalDate.of(2026, 6, 1))));
+        assertEquals(0, manager.accrueRecurringExpenses(Instant.parse("2026-12-15T00:00:00Z")));
+        assertEquals(0, manager.getExpenseCount());
+
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateNick, List.of(roommateNick, roommateDavid), Instant.parse("2026-03-10T00:00:00Z")));
+        Map<String, BigDecimal> march = manager.balancesAsOf(Instant.parse("2026-03-20T00:00:00Z"));
+        assertEquals(0, BigDecimal.valueOf(1999.98).compareTo(march.get("Kris")));
+        assertEquals(0, BigDecimal.valueOf(-1014.99).compareTo(march.get("David")));
+        assertEquals(0, BigDecimal.valueOf(-984.99).compareTo(march.get("Nick")));
+        assertEquals(0, roommateDavid.getBalance().compareTo(manager.balancesAsOf(Instant.parse("2026-12-15T00:00:00Z")).get("David")));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.endRecurringExpense(rent, Instant.parse("2026-06-15T00:00:00Z"));
+        });
+        manager.endRecurringExpense(rent, Instant.parse("2027-02-15T00:00:00Z"));
+        assertEquals(2, manager.accrueRecurringExpenses(Instant.parse("2030-01-01T00:00:00Z")));
+        assertEquals(14, manager.getAccruedOccurrences(rent));
+    }
+
+    @Test
+    public void testClosePeriod(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        long groceries = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid), Instant.parse("2026-03-10T00:00:00Z")));
+        manager.addExpense(new Expense("Internet", BigDecimal.valueOf(10.00), roommateDavid, List.of(roommateKris, roommateDavid), Instant.parse("2026-03-12T00:00:00Z")));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"), List.of(new Transfer(roommateKris, roommateKris, 100)));
+        });
+        assertEquals(2, manager.getExpenseCount());
+
+        PeriodClose close = manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"));
+        assertEquals(1, close.getTransfers().size());
+        assertEquals(0, BigDecimal.valueOf(10.00).compareTo(close.getTransfers().get(0).getAmount()));
+        assertEquals(0, close.getFirstExpenseId());
+        assertEquals(2, close.getNextExpenseId());
+        assertEquals(0, close.getCarriedBalanceCents(0));
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(roommateDavid.getBalance()));
+        assertEquals(0, manager.getExpenseCount());
+        assertEquals(0, BigDecimal.valueOf(40.00).compareTo(manager.getTotalExpenses()));
+        assertThrows(IllegalArgumentException.class, () -> {
+            manager.getExpense(groceries);
+        });
+
+        // The next period keeps numbering expenses after the closed one and its ledger starts from the carried balance
+        long dishes = manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(8.00), roommateDavid, List.of(roommateKris, roommateDavid), Instant.parse("2026-04-02T00:00:00Z")));
+        assertEquals(2, dishes);
+        assertEquals(1, manager.getLedger(roommateKris).size());
+        assertEquals(0, BigDecimal.valueOf(-4.00).compareTo(roommateKris.getBalance()));
+    }
+
+    @Test
+    public void testClosePeriodCarriesUnsettledBalances(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid)));
+
+        // David only pays back $5.00 of the $15.00 owed, the rest is carried into the next period
+        PeriodClose close = manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"), List.of(new Transfer(roommateDavid, roommateKris, 500)));
+        assertEquals(1000, close.getCarriedBalanceCents(0));
+        assertEquals(-1000, close.getCarriedBalanceCents(1));
+        assertEquals(0, BigDecimal.valueOf(10.00).compareTo(roommateKris.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(-10.00).compareTo(manager.balancesAsOf(Instant.parse("2026-04-02T00:00:00Z")).get("David")));
+    }
+
+    @Test
+    public void testSnapshotKeepsOpenPeriod(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addExpense(new Expense("Rent", BigDecimal.valueOf(800.00), roommateDavid, List.of(roommateKris, roommateDavid), Instant.parse("2026-03-01T00:00:00Z")));
+        manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"));
+        long groceries = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid), Instant.parse("2026-04-10T00:00:00Z")));
+        long internet = manager.addExpense(new Expense("Internet", BigDecimal.valueOf(10.00), roommateDavid, List.of(roommateKris, roommateDavid), Instant.parse("2026-04-12T00:00:00Z")));
+        manager.removeExpense(internet);
+
+        ExpenseManager restored = ExpenseManager.fromSnapshot(manager.snapshot());
+        assertEquals(1, restored.getExpenseCount());
+        assertEquals("Groceries", restored.getExpense(groceries).getExpenseName());
+        assertThrows(IllegalArgumentException.class, () -> restored.getExpense(internet));
+        assertThrows(IllegalArgumentException.class, () -> restored.getExpense(0));
+        assertEquals(0, BigDecimal.valueOf(830.00).compareTo(restored.getTotalExpenses()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(restored.balancesAsOf(Instant.parse("2026-04-05T00:00:00Z")).get("Kris")));
+        assertEquals(3, restored.getLedger(restored.getRoommateByName("Kris")).size());
+
+        restored.removeExpense(groceries);
+        assertEquals(0, BigDecimal.ZERO.compareTo(restored.getRoommateByName("Kris").getBalance()));
+        assertEquals(0, BigDecimal.valueOf(800.00).compareTo(restored.getTotalExpenses()));
+        assertEquals(3, restored.addExpense(new Expense("Soap", BigDecimal.valueOf(2.00), restored.getRoommateByName("Kris"), List.of(restored.getRoommateByName("David")))));
+    }
+
+    @Test
+    public void testOverflowingBalanceChangesNothing(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateBroke = new Roommate("Broke", BigDecimal.valueOf(Long.MIN_VALUE + 100, 2));
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateBroke);
+
+        // Kris's balance could take the cost, Broke's can't take the share
+        assertThrows(ArithmeticException.class, () -> manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(10.00), roommateKris, List.of(roommateKris, roommateBroke))));
+        assertEquals(0, manager.getExpenseCount());
+        assertEquals(0, roommateKris.getBalanceCents());
+        assertEquals(Long.MIN_VALUE + 100, roommateBroke.getBalanceCents());
+        assertEquals(0, BigDecimal.ZERO.compareTo(manager.getTotalExpenses()));
+        assertEquals(0, manager.search(new ExpenseQuery().paidBy(roommateKris)).size());
+
+        long id = manager.addExpense(new Expense("Gas", BigDecimal.valueOf(1.00), roommateBroke, List.of(roommateKris)));
+        assertEquals(0, id);
+        assertEquals(-100, roommateKris.getBalanceCents());
+    }
 }
@@ -0,0 +1,179 @@
+package service;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExpenseStoreTests {
+    @Test
+    public void testRoundTrip(){
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+        registry.add(roommateKris);
+        registry.add(roommateDavid);
+        ExpenseStore store = new ExpenseStore(registry);
+
+        Instant paid = Instant.parse("2024-03-01T10:15:30.123456789Z");
+        Expense expense = new Expense("Groceries", BigDecimal.valueOf(20.01), roommateKris, List.of(roommateKris, roommateDavid), paid);
+        assertEquals(0, store.append(expense, 0, new int[]{0, 1}));
+
+        assertEquals(1, store.size());
+        assertEquals("Groceries", store.getName(0));
+        assertEquals(2001, store.getCostCents(0));
+        assertEquals(0, store.getPayerId(0));
+        assertEquals(2, store.getParticipantCount(0));
+        assertEquals(1, store.getParticipantId(0, 1));
+        assertEquals(paid, store.getTimestamp(0));
+
+        Expense copy = store.get(0);
+        assertEquals("Groceries", copy.getExpenseName());
+        assertEquals(2001, copy.getCostCents());
+        assertSame(roommateKris, copy.getPayer());
+        assertEquals(List.of(roommateKris, roommateDavid), copy.getParticipants());
+        assertEquals(paid, copy.getTimestamp());
+    }
+
+    @Test
+    public void testManyExpensesAcrossChunks(){
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate[] roommates = new Roommate[5];
+        for (int i = 0; i < roommates.length; i++){
+            roommates[i] = new Roommate("Roommate " + i, BigDecimal.ZERO);
+            registry.add(roommates[i]);
+        }
+        ExpenseStore store = new ExpenseStore(registry);
+
+        int count = ExpenseStore.CHUNK_SIZE * 2 + 10;
+        int[] ids = {0, 1, 2, 3, 4};
+        for (int i = 0; i < count; i++){
+            int participants = i % 5 + 1;
+            Expense expense = new Expense(i % 2 == 0 ? "Groceries" : "Rent", BigDecimal.valueOf(i + 1), roommates[i % 5], List.of(roommates).subList(0, participants), Instant.ofEpochSecond(i));
+            store.append(expense, i % 5, ids);
+        }
+
+        assertEquals(count, store.size());
+        assertEquals(2, store.getNameCount());
+        for (int i = 0; i < count; i += 997){
+            assertEquals((i + 1) * 100L, store.getCostCents(i));
+            assertEquals(i % 5, store.getPayerId(i));
+            assertEquals(i % 5 + 1, store.getParticipantCount(i));
+            assertEquals(i % 5, store.getParticipantId(i, i % 5));
+            assertEquals(i, store.getEpochSecond(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexPastEnd(){
+        new ExpenseStore(new RoommateRegistry()).getCostCents(0);
+    }
+
+    @Test
+    public void testReadWhileAppending() throws InterruptedException {
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        registry.add(roommateKris);
+        ExpenseStore store = new ExpenseStore(registry);
+        int count = ExpenseStore.CHUNK_SIZE + 1000;
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < count; i++){
+                store.append(new Expense("Expense", BigDecimal.valueOf(i + 1), roommateKris, List.of(roommateKris), Instant.ofEpochSecond(i)), 0, new int[]{0});
+            }
+        });
+        writer.start();
+
+        // Every expense a reader can see must be fully written
+        while (writer.isAlive() || store.size() < count){
+            ExpenseCursor cursor = store.cursor(Math.max(0, store.size() - 100), 100);
+            while (cursor.next()){
+                assertEquals((cursor.getIndex() + 1) * 100L, cursor.getCostCents());
+                assertEquals(cursor.getIndex(), cursor.getTimestamp().getEpochSecond());
+                assertSame(roommateKris, cursor.getParticipant(0));
+            }
+        }
+        writer.join();
+        assertEquals(count, store.asList().size());
+    }
+
+    @Test
+    public void testRemovedExpensesAreSkipped(){
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        registry.add(roommateKris);
+        ExpenseStore store = new ExpenseStore(registry);
+        store.setFirstId(100);
+        for (int i = 0; i < 10; i++){
+            store.append(new Expense("Expense " + i, BigDecimal.ONE, roommateKris, List.of(roommateKris)), 0, new int[]{0});
+        }
+        store.remove(0);
+        store.remove(3);
+        store.remove(4);
+
+        assertEquals(10, store.size());
+        assertEquals(7, store.liveSize());
+        assertEquals(7, store.asList().size());
+        assertEquals("Expense 1", store.asList().get(0).getExpenseName());
+        assertEquals("Expense 5", store.asList().get(2).getExpenseName());
+        assertEquals(103, store.getId(3));
+        assertEquals(3, store.indexOf(103));
+        assertEquals(-1, store.indexOf(99));
+
+        ExpenseCursor cursor = store.cursor(1, 2);
+        assertTrue(cursor.next());
+        assertEquals(102, cursor.getId());
+        assertTrue(cursor.next());
+        assertEquals("Expense 5", cursor.getName());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testRemovalsAcrossChunks(){
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        registry.add(roommateKris);
+        ExpenseStore store = new ExpenseStore(registry);
+
+        int count = ExpenseStore.CHUNK_SIZE * 2 + 100;
+        for (int i = 0; i < count; i++){
+            store.append(new Expense("Expense", BigDecimal.valueOf(i + 1, 2), roommateKris, List.of(roommateKris), Instant.ofEpochSecond(i)), 0, new int[]{0});
+        }
+        // Remove every third expense plus a run at the end of the first chunk, out of order
+        List<Integer> live = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--){
+            if (i % 3 == 0 || (i >= ExpenseStore.CHUNK_SIZE - 70 && i < ExpenseStore.CHUNK_SIZE + 5)){
+                store.remove(i);
+            }
+        }
+        for (int i = 0; i < count; i++){
+            if (!(i % 3 == 0 || (i >= ExpenseStore.CHUNK_SIZE - 70 && i < ExpenseStore.CHUNK_SIZE + 5))){
+                live.add(i);
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> store.remove(3));
+
+        assertEquals(live.size(), store.liveSize());
+        assertEquals(live.size(), store.asList().size());
+        for (int position = 0; position < live.size(); position += 997){
+            assertEquals(live.get(position).intValue(), store.select(position));
+            assertEquals(live.get(position) + 1, store.asList().get(position).getCostCents());
+        }
+        assertEquals(live.get(live.size() - 1) + 1, store.asList().get(live.size() - 1).getCostCents());
+
+        ExpenseCursor cursor = store.cursor(live.size() - 3, 10);
+        for (int i = live.size() - 3; i < live.size(); i++){
+            assertTrue(cursor.next());
+            assertEquals(live.get(i).intValue(), cursor.getIndex());
+        }
+        assertFalse(cursor.next());
+        assertTrue(store.isRemoved(ExpenseStore.CHUNK_SIZE));
+        assertFalse(store.isRemoved(ExpenseStore.CHUNK_SIZE + 7));
+    }
+}
@@ -0,0 +1,144 @@
+package service;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LedgerChangePublisherTests {
+    private final Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+    private final Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+    private final Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO);
+
+    /**
+     * Collects every event it is sent, asking for them one at a time.
+     */
+    private static class Collector implements Flow.Subscriber<LedgerChange> {
+        final BlockingQueue<LedgerChange> events = new LinkedBlockingQueue<>();
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription){
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(LedgerChange item){
+            this.events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable){
+        }
+
+        @Override
+        public void onComplete(){
+        }
+
+        LedgerChange next() throws InterruptedException {
+            LedgerChange event = this.events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            return event;
+        }
+    }
+
+    private ExpenseManager household(){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+        return manager;
+    }
+
+    @Test
+    public void testBulkChangesAreMergedIntoOneEvent() throws InterruptedException {
+        ExpenseManager manager = household();
+        Collector collector = new Collector();
+        // The interval is long enough that only flush() publishes during the test
+        try (LedgerChangePublisher changes = manager.publishChanges(Duration.ofHours(1))){
+            changes.subscribe(collector);
+
+            long first = -1;
+            for (int i = 0; i < 1000; i++){
+                long id = manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(3.00), roommateKris, List.of(roommateKris, roommateDavid)));
+                if (first < 0){
+                    first = id;
+                }
+            }
+            changes.flush();
+
+            LedgerChange event = collector.next();
+            assertEquals(1000, event.getChangeCount());
+            assertEquals(1000, event.getAddedCount());
+            assertEquals(first, event.getFirstAddedId());
+            assertEquals(2, event.getRoommateCount());
+            assertEquals(roommateKris, event.getRoommate(0));
+            assertEquals(150000, event.getBalanceCents(0));
+            assertEquals(-150000, event.getBalanceCents(1));
+
+            changes.flush();
+            assertNull(collector.events.poll(100, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void testEventsListOnlyChangedRoommates() throws InterruptedException {
+        ExpenseManager manager = household();
+        long groceries = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid, roommateNick)));
+        Collector collector = new Collector();
+        try (LedgerChangePublisher changes = manager.publishChanges(Duration.ofHours(1))){
+            changes.subscribe(collector);
+
+            manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(4.00), roommateNick, List.of(roommateDavid)));
+            manager.removeExpense(groceries);
+            changes.flush();
+
+            LedgerChange event = collector.next();
+            assertEquals(2, event.getChangeCount());
+            assertEquals(1, event.getAddedCount());
+            assertEquals(1, event.getRemovedCount());
+            assertEquals(3, event.getRoommateCount());
+            assertEquals(roommateNick, event.getRoommate(0));
+            assertEquals(0, BigDecimal.valueOf(4.00).compareTo(event.getBalance(0)));
+            assertEquals(0, BigDecimal.valueOf(-4.00).compareTo(event.getBalance(1)));
+            assertEquals(0, BigDecimal.ZERO.compareTo(event.getBalance(2)));
+        }
+    }
+
+    @Test
+    public void testIntervalPublishesOnItsOwn() throws InterruptedException {
+        ExpenseManager manager = household();
+        Collector collector = new Collector();
+        try (LedgerChangePublisher changes = manager.publishChanges(Duration.ofMillis(10))){
+            changes.subscribe(collector);
+            manager.addRoommate(new Roommate("Alex", BigDecimal.ZERO));
+
+            LedgerChange event = collector.next();
+            assertEquals(1, event.getRoommateCount());
+            assertEquals("Alex", event.getRoommate(0).getName());
+            assertEquals(3, event.getRoommateId(0));
+        }
+    }
+
+    @Test
+    public void testOnlyOnePublisherAtATime(){
+        ExpenseManager manager = household();
+        LedgerChangePublisher changes = manager.publishChanges(Duration.ofSeconds(1));
+        assertThrows(IllegalStateException.class, () -> manager.publishChanges(Duration.ofSeconds(1)));
+        changes.close();
+        manager.publishChanges(Duration.ofSeconds(1)).close();
+        assertThrows(IllegalArgumentException.class, () -> manager.publishChanges(Duration.ZERO));
+    }
+}
@@ -0,0 +1,114 @@
+package service;
+
+import model.Expense;
+import model.RecurringExpense;
+import model.Roommate;
+import model.Split;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoommateLedgerTests {
+    private final Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+    private final Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+    private final Roommate roommateNick = new Roommate("Nick", BigDecimal.ZERO);
+
+    private ExpenseManager household(){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addRoommate(roommateNick);
+        return manager;
+    }
+
+    @Test
+    public void testEntries(){
+        ExpenseManager manager = household();
+        long groceries = manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid, roommateNick), Instant.parse("2026-03-02T00:00:00Z")));
+        manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(4.00), roommateNick, List.of(roommateDavid), Instant.parse("2026-03-03T00:00:00Z")));
+        manager.removeExpense(groceries);
+
+        List<LedgerEntry> kris = manager.getLedger(roommateKris);
+        assertEquals(2, kris.size());
+        // Paid 30.00 and took a 10.00 share, merged into one entry
+        assertEquals(LedgerEntry.Kind.EXPENSE, kris.get(0).getKind());
+        assertEquals(groceries, kris.get(0).getReference());
+        assertEquals("Groceries", kris.get(0).getName());
+        assertEquals(2000, kris.get(0).getDeltaCents());
+        assertEquals(LedgerEntry.Kind.REMOVAL, kris.get(1).getKind());
+        assertEquals(-2000, kris.get(1).getDeltaCents());
+        assertEquals(0, kris.get(1).getBalanceCents());
+
+        List<LedgerEntry> david = manager.getLedger(roommateDavid);
+        assertEquals(3, david.size());
+        assertEquals(-1400, david.get(1).getBalanceCents());
+        assertEquals(-400, david.get(2).getBalanceCents());
+        assertEquals(roommateDavid.getBalanceCents(), david.get(2).getBalanceCents());
+    }
+
+    @Test
+    public void testRecurringEntries(){
+        ExpenseManager manager = household();
+        manager.addRecurringExpense(new RecurringExpense("Rent", BigDecimal.valueOf(900.00), roommateDavid, List.of(roommateKris, roommateDavid, roommateNick), Split.equal(), Instant.parse("2026-01-01T00:00:00Z"), Period.ofMonths(1)));
+        manager.accrueRecurringExpenses(Instant.parse("2026-03-15T00:00:00Z"));
+
+        List<LedgerEntry> nick = manager.getLedger(roommateNick);
+        assertEquals(1, nick.size());
+        assertEquals(LedgerEntry.Kind.RECURRING, nick.get(0).getKind());
+        assertEquals("Rent", nick.get(0).getName());
+        assertEquals(-90000, nick.get(0).getDeltaCents());
+        assertEquals(180000, manager.getLedger(roommateDavid).get(0).getDeltaCents());
+    }
+
+    @Test
+    public void testOpeningBalanceOfExistingHistory(){
+        Roommate roommateAlex = new Roommate("Alex", BigDecimal.valueOf(5.00));
+        Roommate roommateSam = new Roommate("Sam", BigDecimal.valueOf(-5.00));
+        HashMap<String, Roommate> roommates = new HashMap<>();
+        roommates.put("Alex", roommateAlex);
+        roommates.put("Sam", roommateSam);
+        // The expense is already in the balances of 5.00 and -5.00
+        ExpenseManager manager = new ExpenseManager(roommates, List.of(new Expense("Gas", BigDecimal.valueOf(10.00), roommateAlex, List.of(roommateAlex, roommateSam))));
+
+        List<LedgerEntry> alex = manager.getLedger(roommateAlex);
+        assertEquals(1, alex.size());
+        assertEquals(500, alex.get(0).getBalanceCents());
+        assertEquals(0, manager.getStatement(roommateAlex, Instant.EPOCH, Instant.EPOCH).getOpeningBalanceCents());
+    }
+
+    @Test
+    public void testStatementsJoinUp(){
+        Random random = new Random(11);
+        ExpenseManager manager = household();
+        List<Roommate> roommates = List.of(roommateKris, roommateDavid, roommateNick);
+        List<Long> ids = new ArrayList<>();
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < 500; i++){
+            Instant timestamp = start.plusSeconds(random.nextInt(90 * 86_400));
+            ids.add(manager.addExpense(new Expense("Expense " + i, BigDecimal.valueOf(1 + random.nextInt(50)), roommates.get(random.nextInt(3)), roommates.subList(0, 1 + random.nextInt(3)), timestamp)));
+            if (random.nextInt(5) == 0){
+                manager.removeExpense(ids.remove(random.nextInt(ids.size())));
+            }
+        }
+
+        for (Roommate roommate : roommates){
+            List<LedgerEntry> ledger = manager.getLedger(roommate);
+            assertEquals(roommate.getBalanceCents(), ledger.get(ledger.size() - 1).getBalanceCents());
+
+            RoommateStatement january = manager.getStatement(roommate, start, Instant.parse("2026-02-01T00:00:00Z"));
+            RoommateStatement rest = manager.getStatement(roommate, Instant.parse("2026-02-01T00:00:00Z"), Instant.parse("2026-05-01T00:00:00Z"));
+            assertEquals(0, january.getOpeningBalanceCents());
+            assertEquals(january.getClosingBalanceCents(), rest.getOpeningBalanceCents());
+            assertEquals(roommate.getBalanceCents(), rest.getClosingBalanceCents());
+            assertEquals(ledger.size(), january.getEntries().size() + rest.getEntries().size());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package service;
+
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class RoommateRegistryTests {
+    @Test
+    public void testIdsAreDense(){
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+
+        assertEquals(0, registry.add(roommateKris));
+        assertEquals(1, registry.add(roommateDavid));
+        assertEquals(0, roommateKris.getId());
+        assertEquals(1, roommateDavid.getId());
+        assertSame(roommateDavid, registry.get(1));
+        assertEquals(1, registry.idOf("David"));
+        assertEquals(-1, registry.idOf("Nick"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testManyRoommates(){
+        RoommateRegistry registry = new RoommateRegistry();
+        for (int i = 0; i < 10_000; i++){
+            assertEquals(i, registry.add(new Roommate("Roommate " + i, BigDecimal.ZERO)));
+        }
+        for (int i = 0; i < 10_000; i++){
+            assertEquals(i, registry.idOf("Roommate " + i));
+            assertEquals("Roommate " + i, registry.get(i).getName());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateName(){
+        RoommateRegistry registry = new RoommateRegistry();
+        registry.add(new Roommate("Kris", BigDecimal.ZERO));
+        registry.add(new Roommate("Kris", BigDecimal.ZERO));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUnknownId(){
+        new RoommateRegistry().get(0);
+    }
+
+    @Test
+    public void testIdOfFallsBackToName(){
+        RoommateRegistry registry = new RoommateRegistry();
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+        registry.add(roommateKris);
+        registry.add(roommateDavid);
+
+        assertEquals(1, registry.idOf(roommateDavid, 1));
+        // A different instance with the same name, or a wrong expected ID, is looked up by name
+        assertEquals(1, registry.idOf(new Roommate("David", BigDecimal.ZERO), 1));
+        assertEquals(0, registry.idOf(roommateKris, 1));
+        assertEquals(-1, registry.idOf(new Roommate("Nick", BigDecimal.ZERO), 0));
+    }
+}
@@ -0,0 +1,101 @@
+package service;
+
+import model.Expense;
+import model.Money;
+import model.Roommate;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SettlementPlannerTests {
+    private static void assertSettles(List<Roommate> roommates, List<Transfer> transfers){
+        Map<Roommate, Long> received = new IdentityHashMap<>();
+        for (Transfer transfer : transfers){
+            assertTrue(transfer.getAmountCents() > 0);
+            received.merge(transfer.getCreditor(), transfer.getAmountCents(), Long::sum);
+            received.merge(transfer.getDebtor(), -transfer.getAmountCents(), Long::sum);
+        }
+        for (Roommate roommate : roommates){
+            assertEquals(roommate.getBalanceCents(), (long) received.getOrDefault(roommate, 0L));
+        }
+    }
+
+    @Test
+    public void testSimplePlan(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.valueOf(20.00));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.valueOf(-5.00));
+        Roommate roommateNick = new Roommate("Nick", BigDecimal.valueOf(-15.00));
+        List<Roommate> roommates = List.of(roommateKris, roommateDavid, roommateNick);
+
+        List<Transfer> transfers = SettlementPlanner.plan(roommates);
+
+        assertEquals(2, transfers.size());
+        assertSettles(roommates, transfers);
+    }
+
+    @Test
+    public void testNothingToSettle(){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        assertTrue(SettlementPlanner.plan(List.of(roommateKris)).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalUpdate(){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        List<Roommate> roommates = new ArrayList<>();
+        for (String name : new String[]{"Kris", "David", "Nick", "Zachary"}){
+            Roommate roommate = new Roommate(name, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+            roommates.add(roommate);
+            manager.addRoommate(roommate);
+        }
+
+        manager.addExpense(new Expense("Rent", BigDecimal.valueOf(40.00), roommates.get(0), roommates));
+        assertEquals(3, manager.getSettlementPlan().size());
+        assertSettles(roommates, manager.getSettlementPlan());
+
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommates.get(1), roommates.subList(1, 3)));
+        assertSettles(roommates, manager.getSettlementPlan());
+
+        Roommate roommateRobert = new Roommate("Robert", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateRobert);
+        roommates.add(roommateRobert);
+        manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(8.00), roommateRobert, roommates.subList(3, 5)));
+        assertSettles(roommates, manager.getSettlementPlan());
+    }
+
+    @Test
+    public void testLargeGroup(){
+        Random random = new Random(42);
+        List<Roommate> roommates = new ArrayList<>();
+        long sum = 0;
+        for (int i = 0; i < 100_000 - 1; i++){
+            long cents = random.nextInt(200_001) - 100_000;
+            sum += cents;
+            roommates.add(new Roommate("Roommate " + i, Money.toBigDecimal(cents)));
+        }
+        roommates.add(new Roommate("Last", Money.toBigDecimal(-sum)));
+
+        SettlementPlanner planner = new SettlementPlanner();
+        for (int id = 0; id < roommates.size(); id++){
+            planner.track(id, roommates.get(id));
+        }
+        List<Transfer> transfers = planner.getTransfers();
+        assertTrue(transfers.size() < roommates.size());
+        assertSettles(roommates, transfers);
+
+        roommates.get(0).updateBalanceCents(500);
+        roommates.get(1).updateBalanceCents(-500);
+        planner.markDirty(0);
+        planner.markDirty(1);
+        assertSettles(roommates, planner.getTransfers());
+    }
+}
@@ -0,0 +1,109 @@
+package service;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class StatementReportTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO);
+    private final Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO);
+
+    @Test
+    public void testPaidAndShare(){
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid), Instant.parse("2026-02-27T00:00:00Z")));
+        manager.addExpense(new Expense("Pizza", BigDecimal.valueOf(12.00), roommateDavid, List.of(roommateKris, roommateDavid), Instant.parse("2026-03-05T00:00:00Z")));
+        manager.addExpense(new Expense("Gas", BigDecimal.valueOf(8.00), roommateKris, List.of(roommateDavid), Instant.parse("2026-03-06T00:00:00Z")));
+
+        LedgerEntry groceries = manager.getLedger(roommateKris).get(0);
+        assertEquals(3000, groceries.getPaidCents());
+        assertEquals(1500, groceries.getShareCents());
+
+        RoommateStatement march = manager.getStatement(roommateKris, Instant.parse("2026-03-01T00:00:00Z"), Instant.parse("2026-04-01T00:00:00Z"));
+        assertEquals(1500, march.getOpeningBalanceCents());
+        assertEquals(800, march.getTotalPaidCents());
+        assertEquals(600, march.getTotalShareCents());
+        assertEquals(1700, march.getClosingBalanceCents());
+    }
+
+    @Test
+    public void testWriteToWriter() throws IOException {
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(30.00), roommateKris, List.of(roommateKris, roommateDavid), Instant.parse("2026-03-02T00:00:00Z")));
+
+        StringWriter out = new StringWriter();
+        new StatementReport(manager).write(YearMonth.of(2026, 3), ZoneOffset.UTC, out);
+        String text = out.toString();
+        assertTrue(text.startsWith("Statement for Kris, 2026-03\nOpening balance: $0.00\n2026-03-02  EXPENSE   Groceries"));
+        assertTrue(text.contains("Statement for David, 2026-03\n"));
+        assertTrue(text.contains("Closing balance: -$15.00\n"));
+        assertTrue(text.indexOf("Kris") < text.indexOf("David"));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        Random random = new Random(5);
+        ExpenseManager manager = new ExpenseManager(new HashMap<>(), new ArrayList<>());
+        List<Roommate> roommates = new ArrayList<>();
+        for (int i = 0; i < 40; i++){
+            Roommate roommate = new Roommate("Roommate " + i, BigDecimal.ZERO);
+            manager.addRoommate(roommate);
+            roommates.add(roommate);
+        }
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < 2000; i++){
+            int first = random.nextInt(36);
+            manager.addExpense(new Expense("Expense " + i, BigDecimal.valueOf(1 + random.nextInt(90)), roommates.get(random.nextInt(40)), roommates.subList(first, first + 1 + random.nextInt(4)), start.plusSeconds(random.nextInt(90 * 86_400))));
+        }
+
+        YearMonth february = YearMonth.of(2026, 2);
+        StringWriter expected = new StringWriter();
+        for (Roommate roommate : roommates){
+            RoommateStatement statement = manager.getStatement(roommate, Instant.parse("2026-02-01T00:00:00Z"), Instant.parse("2026-03-01T00:00:00Z"));
+            StatementReport.render(statement, february, ZoneOffset.UTC, expected);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            StatementReport report = new StatementReport(manager, pool);
+            StringWriter out = new StringWriter();
+            report.write(february, ZoneOffset.UTC, out);
+            assertEquals(expected.toString(), out.toString());
+
+            List<Path> files = report.write(february, ZoneOffset.UTC, folder.getRoot().toPath().resolve("statements"));
+            assertEquals(40, files.size());
+            StringBuilder joined = new StringBuilder();
+            for (Path file : files){
+                joined.append(Files.readString(file));
+            }
+            assertEquals(expected.toString(), joined.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package storage;
+
+import model.Expense;
+import model.Roommate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import service.ExpenseManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvImporterTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private FileManager fileManager;
+    private ExpenseManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.getRoot().toPath().resolve("data");
+        fileManager = new FileManager(directory);
+        manager = fileManager.load();
+        manager.addRoommate(new Roommate("Kris", BigDecimal.ZERO));
+        manager.addRoommate(new Roommate("David", BigDecimal.ZERO));
+        manager.addRoommate(new Roommate("Nick", BigDecimal.ZERO));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        fileManager.close();
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(folder.newFile().toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testImport() throws IOException {
+        Path file = write("Date,Name,Cost,Payer,Participants,Memo\r\n"
+                + "2026-03-02,Groceries,$30.00,Kris,Kris;David;Nick,weekly\r\n"
+                + "2026-03-03T18:30:00Z,\"Pizza, large\",12.50,David,\"David;Nick\",\r\n");
+        List<RowError> errors = new ArrayList<>();
+        ImportResult result = new CsvImporter(manager, fileManager.getDirectory(), 2).importFile(file, errors::add);
+
+        assertTrue(errors.isEmpty());
+        assertEquals(2, result.getRowCount());
+        assertEquals(2, result.getImportedCount());
+        Expense pizza = manager.getExpense(1);
+        assertEquals("Pizza, large", pizza.getExpenseName());
+        assertEquals(Instant.parse("2026-03-03T18:30:00Z"), pizza.getTimestamp());
+        assertEquals(Instant.parse("2026-03-02T00:00:00Z"), manager.getExpense(0).getTimestamp());
+        assertEquals(-375, manager.getRoommateByName("David").getBalanceCents());
+    }
+
+    @Test
+    public void testReimportIsNoOp() throws IOException {
+        Path file = write("name,cost,payer,participants,date\n"
+                + "Groceries,30.00,Kris,Kris;David,2026-03-02\n"
+                + "Groceries,30.00,Kris,Kris;David,2026-03-02\n"
+                + "Gas,10.00,Nick,Nick;Kris,2026-03-04\n");
+        CsvImporter importer = new CsvImporter(manager, directory, 2);
+        ImportResult first = importer.importFile(file, error -> fail(error.toString()));
+        // Identical rows in a row are separate expenses
+        assertEquals(3, first.getImportedCount());
+
+        ImportResult second = importer.importFile(file, error -> fail(error.toString()));
+        assertEquals(0, second.getImportedCount());
+        assertEquals(3, second.getDuplicateCount());
+
+        // A new importer reads the keys back from the data directory
+        Path grown = write(Files.readString(file) + "Gas,10.00,Nick,Nick;Kris,2026-03-04\n");
+        ImportResult third = new CsvImporter(manager, directory, 1).importFile(grown, error -> fail(error.toString()));
+        assertEquals(1, third.getImportedCount());
+        assertEquals(3, third.getDuplicateCount());
+        assertEquals(4, manager.getExpenseCount());
+    }
+
+    @Test
+    public void testIdenticalRowsApartAreDuplicates() throws IOException {
+        Path file = write("name,cost,payer,participants,date\n"
+                + "Groceries,30.00,Kris,Kris;David,2026-03-02\n"
+                + "Gas,10.00,Nick,Nick;Kris,2026-03-04\n"
+                + "Groceries,30.00,Kris,Kris;David,2026-03-02\n");
+        // Only the run of identical rows a row ends is counted, so the second groceries gets the first one's key
+        ImportResult result = new CsvImporter(manager, directory, 2).importFile(file, error -> fail(error.toString()));
+        assertEquals(2, result.getImportedCount());
+        assertEquals(1, result.getDuplicateCount());
+    }
+
+    @Test
+    public void testManyIdenticalRows() throws IOException {
+        StringBuilder content = new StringBuilder("name,cost,payer,participants,date\n");
+        for (int i = 0; i < 20000; i++){
+            content.append("Coffee,1.00,Kris,Kris;David,2026-03-02\n");
+        }
+        Path file = write(content.toString());
+        CsvImporter importer = new CsvImporter(manager, directory, 2);
+        assertEquals(20000, importer.importFile(file, error -> fail(error.toString())).getImportedCount());
+
+        ImportResult again = importer.importFile(file, error -> fail(error.toString()));
+        assertEquals(0, again.getImportedCount());
+        assertEquals(20000, again.getDuplicateCount());
+    }
+
+    @Test
+    public void testRowErrors() throws IOException {
+        Path file = write("name,cost,payer,participants,date\n"
+                + "Groceries,abc,Kris,Kris,2026-03-02\n"
+                + "\n"
+                + "Gas,10.00,Alex,Kris,2026-03-02\n"
+                + "Rent,900.00,Kris,Kris;David,2026-03-01\n"
+                + ",5.00,Kris,Kris,2026-03-02\n"
+                + "Water,5.00,Kris\n"
+                + "Power,0.00,Kris,Kris,2026-03-02\n"
+                + "Trash,5.00,Kris,Kris,March\n");
+        List<RowError> errors = new ArrayList<>();
+        ImportResult result = new CsvImporter(manager, directory, 3).importFile(file, errors::add);
+
+        assertEquals(7, result.getRowCount());
+        assertEquals(1, result.getImportedCount());
+        assertEquals(6, result.getErrorCount());
+        assertEquals(6, errors.size());
+        assertEquals(2, errors.get(0).getRow());
+        assertEquals("Cost is not a number: abc", errors.get(0).getMessage());
+        assertEquals(4, errors.get(1).getRow());
+        assertEquals("No roommate named Alex", errors.get(1).getMessage());
+        assertEquals("No expense described", errors.get(2).getMessage());
+        assertEquals("Expected 5 fields but found 3", errors.get(3).getMessage());
+        assertEquals("Cost must be above $0.00", errors.get(4).getMessage());
+        assertEquals(9, errors.get(5).getRow());
+        assertEquals("Rent", manager.getExpense(0).getExpenseName());
+    }
+
+    @Test
+    public void testRefusedRowsReportedInFileOrder() throws IOException {
+        Path file = write("name,cost,payer,participants,date\n"
+                + "Car,90000000000000000.00,Kris,David,2026-03-01\n"
+                + "Car,90000000000000000.00,Kris,David,2026-03-02\n"
+                + "Groceries,abc,Kris,Kris,2026-03-02\n"
+                + "Gas,10.00,Nick,Nick;Kris,2026-03-04\n");
+        List<RowError> errors = new ArrayList<>();
+        ImportResult result = new CsvImporter(manager, directory, 2).importFile(file, errors::add);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals(2, errors.size());
+        assertEquals(3, errors.get(0).getRow());
+        assertEquals(4, errors.get(1).getRow());
+        assertEquals("Cost is not a number: abc", errors.get(1).getMessage());
+    }
+
+    @Test
+    public void testMissingColumn() throws IOException {
+        Path file = write("name,cost,payer,date\nGas,10.00,Kris,2026-03-02\n");
+        IOException exception = assertThrows(IOException.class, () -> new CsvImporter(manager, directory).importFile(file, error -> {}));
+        assertEquals("The header has no participants column", exception.getMessage());
+    }
+
+    @Test
+    public void testSmallChunks() throws IOException {
+        StringBuilder content = new StringBuilder("name,cost,payer,participants,date\n");
+        for (int i = 0; i < 3000; i++){
+            // Quoted line breaks must not be taken for the end of a row
+            content.append("\"Expense\n").append(i).append("\",").append(1 + i % 40).append(".25,Nick,Kris;David;Nick,2026-01-01T00:00:").append(String.format("%02d", i % 60)).append("Z\n");
+        }
+        content.append("Last,2.00,Kris,David,2026-02-01");
+        Path file = write(content.toString());
+        List<RowError> errors = new ArrayList<>();
+        ImportResult result = new CsvImporter(manager, directory, 4, 64).importFile(file, errors::add);
+
+        assertTrue(errors.isEmpty());
+        assertEquals(3001, result.getImportedCount());
+        for (int i = 0; i < 3000; i += 499){
+            assertEquals("Expense\n" + i, manager.getExpense(i).getExpenseName());
+        }
+        assertEquals("Last", manager.getExpense(3000).getExpenseName());
+        assertEquals(0, BigDecimal.valueOf(62252.00).compareTo(manager.getTotalExpenses()));
+    }
+
+    @Test
+    public void testKeysSurviveRestart() throws IOException {
+        Path file = write("name,cost,payer,participants,date\nGas,10.00,Kris,Kris;David,2026-03-02\n");
+        new CsvImporter(manager, directory).importFile(file, error -> {});
+        fileManager.close();
+
+        try (FileManager reopened = new FileManager(directory)){
+            ExpenseManager restored = reopened.load();
+            ImportResult result = new CsvImporter(restored, directory).importFile(file, error -> {});
+            assertEquals(1, result.getDuplicateCount());
+            assertEquals(1, restored.getExpenseCount());
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package storage;
+
+import metrics.Metrics;
+import model.Expense;
+import model.RecurringExpense;
+import model.Roommate;
+import model.Split;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import service.ExpenseCursor;
+import service.ExpenseManager;
+import service.PeriodClose;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FileManagerTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp(){
+        directory = folder.getRoot().toPath().resolve("data");
+    }
+
+    private void addGroceries(ExpenseManager manager){
+        Roommate roommateKris = new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        Roommate roommateDavid = new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+        manager.addRoommate(roommateKris);
+        manager.addRoommate(roommateDavid);
+
+        List<Roommate> participants = new ArrayList<>();
+        participants.add(roommateKris);
+        participants.add(roommateDavid);
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), roommateKris, participants));
+    }
+
+    @Test
+    public void testEmptyJournal() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(0, manager.getRoommates().size());
+            assertEquals(0, manager.getExpenses().size());
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            addGroceries(fileManager.load());
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(2, manager.getRoommates().size());
+            assertEquals(1, manager.getExpenses().size());
+            assertEquals(0, BigDecimal.valueOf(10.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(-10.00).compareTo(manager.getRoommateByName("David").getBalance()));
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        long sizeBeforeExpense;
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            manager.addRoommate(new Roommate("Kris", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP)));
+            sizeBeforeExpense = fileManager.getSegmentPath(1).toFile().length();
+            manager.addRoommate(new Roommate("David", BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP)));
+        }
+
+        try (FileChannel channel = FileChannel.open(new FileManager(directory).getSegmentPath(1), StandardOpenOption.WRITE)){
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(1, manager.getRoommates().size());
+            assertEquals(sizeBeforeExpense, fileManager.getSegmentPath(1).toFile().length());
+        }
+    }
+
+    @Test
+    public void testCorruptRecordIsTruncated() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            addGroceries(fileManager.load());
+        }
+
+        try (FileChannel channel = FileChannel.open(new FileManager(directory).getSegmentPath(1), StandardOpenOption.WRITE)){
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), channel.size() - 1);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(2, manager.getRoommates().size());
+            assertEquals(0, manager.getExpenses().size());
+            addGroceriesAgain(manager);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            assertEquals(1, fileManager.load().getExpenses().size());
+        }
+    }
+
+    private void addGroceriesAgain(ExpenseManager manager){
+        List<Roommate> participants = new ArrayList<>();
+        participants.add(manager.getRoommateByName("Kris"));
+        participants.add(manager.getRoommateByName("David"));
+        manager.addExpense(new Expense("Groceries", BigDecimal.valueOf(20.00), manager.getRoommateByName("Kris"), participants));
+    }
+
+    @Test
+    public void testSnapshotAndCompaction() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, 2)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            addGroceriesAgain(manager);
+            addGroceriesAgain(manager);
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 2)){
+            assertTrue(fileManager.getSnapshotPath(2).toFile().exists());
+            // The previous snapshot and the segments after it are kept to fall back on
+            assertTrue(fileManager.getSnapshotPath(1).toFile().exists());
+            assertTrue(fileManager.getSegmentPath(2).toFile().exists());
+            assertFalse(fileManager.getSegmentPath(1).toFile().exists());
+
+            ExpenseManager manager = fileManager.load();
+            assertEquals(2, manager.getRoommates().size());
+            assertEquals(3, manager.getExpenses().size());
+            assertEquals(0, BigDecimal.valueOf(60.00).compareTo(manager.getTotalExpenses()));
+            assertEquals(0, BigDecimal.valueOf(30.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(-30.00).compareTo(manager.getRoommateByName("David").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(60.00).compareTo(manager.getAggregates().getTotalPaidBy("Kris")));
+            assertEquals(0, BigDecimal.valueOf(30.00).compareTo(manager.getAggregates().getTotalShareOf("David")));
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshotFallsBackToPreviousSnapshot() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, 2)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            addGroceriesAgain(manager);
+            addGroceriesAgain(manager);
+            manager.removeExpense(0);
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 2)){
+            assertTrue(fileManager.getSnapshotPath(1).toFile().exists());
+            Files.write(fileManager.getSnapshotPath(2), new byte[] {1, 2, 3});
+            ExpenseManager manager = fileManager.load();
+            assertEquals(2, manager.getExpenseCount());
+            assertEquals(0, BigDecimal.valueOf(40.00).compareTo(manager.getTotalExpenses()));
+            assertEquals(0, BigDecimal.valueOf(20.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshotFallsBackToJournal() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            addGroceries(fileManager.load());
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            fileManager.getSnapshotPath(7).toFile().createNewFile();
+            ExpenseManager manager = fileManager.load();
+            assertEquals(1, manager.getExpenses().size());
+            assertEquals(0, BigDecimal.valueOf(10.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+        }
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            fileManager.checkpoint();
+            addGroceriesAgain(manager);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(2, manager.getExpenses().size());
+            assertEquals(0, BigDecimal.valueOf(40.00).compareTo(manager.getTotalExpenses()));
+            assertEquals(0, BigDecimal.valueOf(20.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+        }
+    }
+
+    @Test
+    public void testBatchReplay() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            List<Roommate> participants = new ArrayList<>(manager.getRoommates().values());
+            List<Expense> batch = new ArrayList<>();
+            batch.add(new Expense("Rent", BigDecimal.valueOf(100.00), manager.getRoommateByName("David"), participants));
+            batch.add(new Expense("Internet", BigDecimal.valueOf(40.00), manager.getRoommateByName("Kris"), participants));
+            manager.addExpenses(batch);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(3, manager.getExpenses().size());
+            assertEquals(0, BigDecimal.valueOf(-20.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(20.00).compareTo(manager.getRoommateByName("David").getBalance()));
+        }
+    }
+
+    @Test
+    public void testRemoveAndUpdateReplay() throws IOException {
+        long groceries;
+        long dishes;
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            ExpenseCursor cursor = manager.getExpenses(0, 1);
+            assertTrue(cursor.next());
+            groceries = cursor.getId();
+            fileManager.checkpoint();
+            List<Roommate> participants = new ArrayList<>(manager.getRoommates().values());
+            dishes = manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(9.00), manager.getRoommateByName("David"), participants));
+            manager.addExpense(new Expense("Rent", BigDecimal.valueOf(100.00), manager.getRoommateByName("David"), participants));
+            manager.updateExpense(dishes, new Expense("Dishes", BigDecimal.valueOf(10.00), manager.getRoommateByName("David"), participants));
+        }
+        assertEquals(0, groceries);
+        assertEquals(1, dishes);
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            // Groceries is held by the snapshot and can still be removed
+            assertEquals(3, manager.getExpenseCount());
+            assertEquals("Groceries", manager.getExpense(0).getExpenseName());
+            assertEquals("Rent", manager.getExpense(2).getExpenseName());
+            assertEquals(1000, manager.getExpense(3).getCostCents());
+            manager.removeExpense(2);
+            manager.removeExpense(0);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(1, manager.getExpenseCount());
+            assertEquals(0, BigDecimal.valueOf(10.00).compareTo(manager.getTotalExpenses()));
+            assertEquals(0, BigDecimal.valueOf(-5.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(5.00).compareTo(manager.getRoommateByName("David").getBalance()));
+        }
+    }
+
+    @Test
+    public void testSplitReplay() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            List<Roommate> participants = new ArrayList<>(manager.getRoommates().values());
+            manager.addExpense(new Expense("Rent", BigDecimal.valueOf(900.00), manager.getRoommateByName("David"), participants, Split.weighted(2, 1), Instant.now()));
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(Split.weighted(2, 1), manager.getExpenses().get(1).getSplit());
+            assertEquals(0, BigDecimal.valueOf(-590.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(590.00).compareTo(manager.getRoommateByName("David").getBalance()));
+        }
+    }
+
+    @Test
+    public void testRecurringReplay() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            List<Roommate> participants = new ArrayList<>(manager.getRoommates().values());
+            manager.addRecurringExpense(new RecurringExpense("Rent", BigDecimal.valueOf(800.00), manager.getRoommateByName("David"), participants, Split.equal(), Instant.parse("2026-01-01T00:00:00Z"), Period.ofMonths(1)));
+            manager.addRecurringExpense(new RecurringExpense("Music", BigDecimal.valueOf(9.99), manager.getRoommateByName("Kris"), participants, Split.equal(), Instant.parse("2026-01-05T00:00:00Z"), Period.ofMonths(1)));
+            manager.accrueRecurringExpenses(Instant.parse("2026-03-01T00:00:00Z"));
+            fileManager.checkpoint();
+            manager.endRecurringExpense(1, Instant.parse("2026-03-31T00:00:00Z"));
+            manager.accrueRecurringExpenses(Instant.parse("2026-06-01T00:00:00Z"));
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(2, manager.getRecurringExpenses().size());
+            assertEquals(6, manager.getAccruedOccurrences(0));
+            assertEquals(3, manager.getAccruedOccurrences(1));
+            assertEquals(Instant.parse("2026-03-31T00:00:00Z"), manager.getRecurringExpenses().get(1).getEnd());
+            // Kris: +10.00 groceries, -6 x 400.00 rent, +3 x 9.99 - 3 x 5.00 music
+            assertEquals(0, BigDecimal.valueOf(-2375.03).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(2375.03).compareTo(manager.getRoommateByName("David").getBalance()));
+            Map<String, BigDecimal> february = manager.balancesAsOf(Instant.parse("2026-02-10T00:00:00Z"));
+            // The groceries are held again and were paid after February
+            assertEquals(0, BigDecimal.valueOf(-790.02).compareTo(february.get("Kris")));
+
+            manager.accrueRecurringExpenses(Instant.parse("2026-07-01T00:00:00Z"));
+            assertEquals(7, manager.getAccruedOccurrences(0));
+            assertEquals(3, manager.getAccruedOccurrences(1));
+        }
+    }
+
+    @Test
+    public void testWriteBehindReplay() throws Exception {
+        Metrics metrics = new Metrics();
+        try (FileManager fileManager = new FileManager(directory, 50, 16, Duration.ofMillis(5))){
+            fileManager.setMetrics(metrics);
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            Roommate roommateKris = manager.getRoommateByName("Kris");
+            List<Roommate> participants = new ArrayList<>(manager.getRoommates().values());
+            for (int i = 0; i < 200; i++){
+                manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(1.00), roommateKris, participants));
+            }
+            manager.whenDurable().get(10, TimeUnit.SECONDS);
+            assertEquals(203, metrics.getRecordsCommitted());
+            assertTrue(metrics.getGroupsCommitted() <= 203);
+            // Checkpoints after every 50 records went through the queue in order with the records
+            assertTrue(metrics.getSnapshotWriteLatency().getCount() >= 4);
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(0, BigDecimal.valueOf(220.00).compareTo(manager.getTotalExpenses()));
+            assertEquals(0, BigDecimal.valueOf(110.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(-110.00).compareTo(manager.getRoommateByName("David").getBalance()));
+        }
+    }
+
+    @Test
+    public void testWriteBehindCloseWritesQueuedRecords() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, FileManager.DEFAULT_SNAPSHOT_INTERVAL, 4, Duration.ofSeconds(10))){
+            addGroceries(fileManager.load());
+        }
+
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(1, manager.getExpenseCount());
+            assertEquals(0, BigDecimal.valueOf(10.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+        }
+    }
+
+    @Test
+    public void testClosePeriodArchivesExpenses() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, 5)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            manager.addExpense(new Expense("Pizza", BigDecimal.valueOf(12.50), manager.getRoommateByName("David"), new ArrayList<>(manager.getRoommates().values())));
+            manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"));
+            assertEquals(0, manager.getExpenseCount());
+            assertEquals(List.of(1L), fileManager.getArchives());
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 5)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(0, manager.getExpenseCount());
+            assertEquals(0, BigDecimal.ZERO.compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.ZERO.compareTo(manager.getRoommateByName("David").getBalance()));
+
+            PeriodArchive archive = fileManager.readArchive(1);
+            assertEquals(Instant.parse("2026-04-01T00:00:00Z"), archive.getClose().getClosedAt());
+            assertEquals(2, archive.getExpenses().size());
+            assertEquals("Pizza", archive.getExpenses().get(1).getExpenseName());
+            assertEquals(1, archive.getExpenseId(1));
+            assertEquals(1, archive.getClose().getTransfers().size());
+            assertEquals(manager.getRoommateByName("Kris"), archive.getClose().getTransfers().get(0).getCreditor());
+
+            // The close rolls the journal over with a snapshot, and compaction leaves the archive alone
+            long id = manager.addExpense(new Expense("Dishes", BigDecimal.valueOf(4.00), manager.getRoommateByName("Kris"), new ArrayList<>(manager.getRoommates().values())));
+            assertEquals(2, id);
+            manager.closePeriod(Instant.parse("2026-05-01T00:00:00Z"));
+            fileManager.checkpoint();
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 5)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(List.of(1L, 2L), fileManager.getArchives());
+            assertEquals(2, fileManager.readArchive(1).getExpenses().size());
+            assertEquals(2, fileManager.readArchive(2).getExpenseId(0));
+            assertEquals(3, manager.addExpense(new Expense("Soap", BigDecimal.valueOf(2.00), manager.getRoommateByName("Kris"), new ArrayList<>(manager.getRoommates().values()))));
+        }
+    }
+
+    @Test
+    public void testCloseAfterRestartArchivesEveryExpense() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, 3)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"));
+            for (int i = 0; i < 5; i++){
+                addGroceriesAgain(manager);
+            }
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 3)){
+            ExpenseManager manager = fileManager.load();
+            PeriodClose close = manager.closePeriod(Instant.parse("2026-05-01T00:00:00Z"));
+            assertEquals(1, close.getFirstExpenseId());
+            assertEquals(6, close.getNextExpenseId());
+
+            // The snapshots the restart loaded from hold every expense of the period
+            PeriodArchive archive = fileManager.readArchive(2);
+            assertEquals(1, archive.getClose().getFirstExpenseId());
+            assertEquals(5, archive.getExpenses().size());
+            assertEquals(1, archive.getExpenseId(0));
+        }
+    }
+
+    @Test
+    public void testInterruptedCloseFinishesOnReplay() throws IOException {
+        try (FileManager fileManager = new FileManager(directory)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            manager.closePeriod(Instant.parse("2026-04-01T00:00:00Z"));
+        }
+        // A crash between writing the record and renaming the archive leaves it under its temporary name
+        Path archive = new FileManager(directory).getArchivePath(1);
+        Files.move(archive, archive.resolveSibling(archive.getFileName() + ".tmp"));
+        Files.write(directory.resolve("archive-0000000002.arc.tmp"), new byte[]{1, 2, 3});
+
+        try (FileManager fileManager = new FileManager(directory)){
+            fileManager.load();
+            assertEquals(List.of(1L), fileManager.getArchives());
+            assertEquals(1, fileManager.readArchive(1).getExpenses().size());
+            assertFalse(Files.exists(directory.resolve("archive-0000000002.arc.tmp")));
+        }
+    }
+
+    @Test
+    public void testExpensesCoveredBySnapshotReplayChanges() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, 4)){
+            ExpenseManager manager = fileManager.load();
+            addGroceries(manager);
+            fileManager.checkpoint();
+
+            // The fourth record fills the segment, so the removal that follows is the first record after a snapshot
+            long pizza = manager.addExpense(new Expense("Pizza", BigDecimal.valueOf(12.00), manager.getRoommateByName("David"), new ArrayList<>(manager.getRoommates().values())));
+            manager.addExpense(new Expense("Soap", BigDecimal.valueOf(2.00), manager.getRoommateByName("Kris"), new ArrayList<>(manager.getRoommates().values())));
+            manager.addExpense(new Expense("Milk", BigDecimal.valueOf(4.00), manager.getRoommateByName("Kris"), new ArrayList<>(manager.getRoommates().values())));
+            manager.addExpense(new Expense("Bread", BigDecimal.valueOf(6.00), manager.getRoommateByName("Kris"), new ArrayList<>(manager.getRoommates().values())));
+            manager.removeExpense(0);
+            manager.updateExpense(pizza, new Expense("Pizza", BigDecimal.valueOf(14.00), manager.getRoommateByName("David"), new ArrayList<>(manager.getRoommates().values())));
+            assertEquals(0, BigDecimal.valueOf(-1.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 4)){
+            ExpenseManager manager = fileManager.load();
+            assertEquals(0, BigDecimal.valueOf(-1.00).compareTo(manager.getRoommateByName("Kris").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(1.00).compareTo(manager.getRoommateByName("David").getBalance()));
+            assertEquals(0, BigDecimal.valueOf(26.00).compareTo(manager.getTotalExpenses()));
+            // The balances the history starts from no longer count the removed expenses
+            assertEquals(0, BigDecimal.valueOf(-1.00).compareTo(manager.balancesAsOf(Instant.now()).get("Kris")));
+        }
+    }
+
+    @Test
+    public void testReplayedRecordsCountTowardsNextSnapshot() throws IOException {
+        try (FileManager fileManager = new FileManager(directory, 5)){
+            addGroceries(fileManager.load());
+        }
+
+        try (FileManager fileManager = new FileManager(directory, 5)){
+            ExpenseManager manager = fileManager.load();
+            List<Roommate> participants = new ArrayList<>(manager.getRoommates().values());
+            manager.addExpense(new Expense("Soap", BigDecimal.valueOf(2.00), manager.getRoommateByName("Kris"), participants));
+            manager.addExpense(new Expense("Milk", BigDecimal.valueOf(4.00), manager.getRoommateByName("Kris"), participants));
+            assertFalse(Files.exists(fileManager.getSnapshotPath(1)));
+            // The segment already holds the 3 replayed records, so the sixth record starts a new segment with a snapshot
+            manager.addExpense(new Expense("Bread", BigDecimal.valueOf(6.00), manager.getRoommateByName("Kris"), participants));
+            assertTrue(Files.exists(fileManager.getSnapshotPath(1)));
+        }
+    }
+}